@@ -1,32 +1,128 @@
 package com.finances;
 
+import com.finances.api.ApiServer;
+import com.finances.cli.BatchRunner;
 import com.finances.cli.CLI;
+import com.finances.core.domain.Transfer;
 import com.finances.core.repository.UserRepository;
 import com.finances.core.repository.WalletRepository;
 import com.finances.core.service.AuthService;
 import com.finances.core.service.BudgetService;
+import com.finances.core.service.RecurringTransactionScheduler;
 import com.finances.core.service.TransactionService;
+import com.finances.core.util.Formatting;
+import com.finances.infrastructure.analytics.TransferReconciliation;
+import com.finances.infrastructure.analytics.WalletAggregate;
+import com.finances.infrastructure.analytics.WalletAnalytics;
 import com.finances.infrastructure.notification.NotificationService;
+import com.finances.infrastructure.persistence.ExchangeRateFile;
+import com.finances.infrastructure.persistence.FileRecurringTemplateRepository;
 import com.finances.infrastructure.persistence.FileStorage;
+import com.finances.infrastructure.persistence.FileTransferJournal;
 import com.finances.infrastructure.persistence.InMemoryUserRepository;
 import com.finances.infrastructure.persistence.InMemoryWalletRepository;
+import com.finances.infrastructure.persistence.WriteAheadLogWalletRepository;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
 
-/** Main entry point for the Personal Finance Manager application. */
+/**
+ * Main entry point for the Personal Finance Manager application.
+ *
+ * <p>Without arguments the interactive CLI is started. {@code --server [port]} starts the local
+ * HTTP/JSON API instead, {@code --batch <file>} runs a command file non-interactively and {@code
+ * --analytics} prints totals across all stored wallets. {@code --reconcile} checks the stored
+ * wallets against the transfer journal and exits with status 1 if they disagree; with {@code
+ * --repair} it first posts the missing legs of journaled transfers.
+ */
 public class Main {
-  public static void main(String[] args) {
-    // Initialize repositories
+  private static final int DEFAULT_SERVER_PORT = 8080;
+
+  public static void main(String[] args) throws IOException {
+    // Initialize file storage; -Dfinances.storage=compressed|sharded selects the file format
+    FileStorage fileStorage =
+        new FileStorage(
+            FileStorage.Format.valueOf(
+                System.getProperty("finances.storage", "json").toUpperCase(Locale.ROOT)));
+
+    String mode = args.length > 0 ? args[0] : "";
+    boolean repair = args.length > 1 && args[1].equals("--repair");
+    // Read-only reports work on the stored files; they must not replay or checkpoint the log, nor
+    // hold the transfer journal open
+    if (mode.equals("--analytics")) {
+      runAnalytics(fileStorage);
+      return;
+    }
+    if (mode.equals("--reconcile") && !repair) {
+      runReconciliation(fileStorage, null, null);
+      return;
+    }
+
+    // Initialize repositories; -Dfinances.wal=true logs every change durably and replays the log
+    // left by a crash before starting
     UserRepository userRepository = new InMemoryUserRepository();
-    WalletRepository walletRepository = new InMemoryWalletRepository();
+    WalletRepository walletRepository;
+    if (Boolean.getBoolean("finances.wal")) {
+      WriteAheadLogWalletRepository logRepository = new WriteAheadLogWalletRepository(fileStorage);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> closeQuietly(logRepository)));
+      walletRepository = logRepository;
+    } else {
+      walletRepository = new InMemoryWalletRepository();
+    }
+
+    // Every transfer is recorded once in the journal before its legs are posted
+    FileTransferJournal transferJournal =
+        new FileTransferJournal(
+            fileStorage.getStorageDirectory().resolve(FileTransferJournal.FILE_NAME));
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> closeQuietly(transferJournal)));
 
     // Initialize services
     AuthService authService = new AuthService(userRepository, walletRepository);
-    TransactionService transactionService = new TransactionService(walletRepository);
+    TransactionService transactionService =
+        new TransactionService(walletRepository, transferJournal);
     BudgetService budgetService = new BudgetService(walletRepository);
     NotificationService notificationService =
         new NotificationService(budgetService, transactionService);
 
-    // Initialize file storage
-    FileStorage fileStorage = new FileStorage();
+    switch (mode) {
+      case "--server":
+        ApiServer server =
+            new ApiServer(
+                authService,
+                transactionService,
+                budgetService,
+                notificationService,
+                fileStorage,
+                walletRepository,
+                new RecurringTransactionScheduler(
+                    transactionService,
+                    new FileRecurringTemplateRepository(
+                        fileStorage
+                            .getStorageDirectory()
+                            .resolve(FileRecurringTemplateRepository.FILE_NAME))));
+        // -Dfinances.rates=<file> enables reports converted into a base currency
+        String rates = System.getProperty("finances.rates");
+        if (rates != null) {
+          server.setExchangeRates(ExchangeRateFile.read(Path.of(rates)));
+        }
+        runServer(server, args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SERVER_PORT);
+        return;
+      case "--batch":
+        if (args.length < 2) {
+          System.out.println("Использование: --batch <файл команд>");
+          System.exit(2);
+        }
+        runBatch(
+            new BatchRunner(transactionService, budgetService, fileStorage, walletRepository),
+            Path.of(args[1]));
+        return;
+      case "--reconcile":
+        runReconciliation(fileStorage, transactionService, walletRepository);
+        return;
+      default:
+        break;
+    }
 
     // Initialize and start CLI
     CLI cli =
@@ -40,5 +136,135 @@ public class Main {
 
     cli.start();
   }
+
+  private static void closeQuietly(Closeable journal) {
+    try {
+      journal.close();
+    } catch (IOException e) {
+      System.err.println("✗ Не удалось сохранить журнал: " + e.getMessage());
+    }
+  }
+
+  private static void runServer(ApiServer server, int port) throws IOException {
+    server.start(port);
+    Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    System.out.println("API сервер запущен: http://localhost:" + server.getPort() + "/api");
+  }
+
+  private static void runBatch(BatchRunner batchRunner, Path file) throws IOException {
+    BatchRunner.Report report;
+    try {
+      report = batchRunner.run(file);
+    } catch (IllegalArgumentException e) {
+      System.out.println("✗ Ошибка в файле команд: " + e.getMessage());
+      System.exit(2);
+      return;
+    }
+    report.getErrors().forEach(error -> System.out.println("✗ " + error));
+    System.out.println(
+        String.format(
+            "✓ Выполнено команд: %d (ошибок: %d) за %.1f мс, %.0f команд/с",
+            report.getCommandCount(),
+            report.getErrors().size(),
+            report.getElapsedNanos() / 1e6,
+            report.getCommandsPerSecond()));
+    if (!report.getErrors().isEmpty()) {
+      System.exit(1);
+    }
+  }
+
+  private static void runReconciliation(
+      FileStorage fileStorage, TransactionService repairService, WalletRepository walletRepository)
+      throws IOException {
+    TransferReconciliation reconciliation =
+        new TransferReconciliation(fileStorage.getStorageDirectory());
+    TransferReconciliation.Report report = reconciliation.run();
+    if (repairService != null && !report.getIncompleteTransfers().isEmpty()) {
+      for (Transfer transfer : report.getIncompleteTransfers()) {
+        try {
+          repairTransfer(transfer, fileStorage, repairService, walletRepository);
+          System.out.println("✓ Перевод дополнен: " + transfer.getId());
+        } catch (IllegalStateException e) {
+          System.out.println("✗ Перевод " + transfer.getId() + ": " + e.getMessage());
+        }
+      }
+      report = reconciliation.run();
+    }
+    System.out.println(
+        String.format(
+            "Переводов в журнале: %d, проводок: %d (без ссылки на перевод: %d), кошельков: %d",
+            report.getTransferCount(),
+            report.getLegCount(),
+            report.getUnlinkedLegCount(),
+            report.getWalletCount()));
+    report
+        .getNetByCurrency()
+        .forEach(
+            (currency, net) ->
+                System.out.println("  Сальдо " + currency + ": " + Formatting.formatAmount(net)));
+    if (report.isConsistent()) {
+      System.out.println("✓ Кошельки сходятся с журналом переводов");
+      return;
+    }
+    report.getProblems().forEach(problem -> System.out.println("✗ " + problem));
+    System.exit(1);
+  }
+
+  private static void repairTransfer(
+      Transfer transfer,
+      FileStorage fileStorage,
+      TransactionService transactionService,
+      WalletRepository walletRepository)
+      throws IOException {
+    String[] parties = {transfer.getFromUserId(), transfer.getToUserId()};
+    for (String userId : parties) {
+      if (walletRepository.findByUserId(userId).isEmpty()) {
+        if (!fileStorage.walletExists(userId)) {
+          throw new IllegalStateException("Wallet not found for user: " + userId);
+        }
+        walletRepository.save(fileStorage.loadWallet(userId));
+      }
+    }
+    // Legs already posted are skipped by their idempotency keys
+    transactionService.completeTransfer(transfer);
+    for (String userId : parties) {
+      fileStorage.saveWallet(walletRepository.findByUserId(userId).orElseThrow());
+    }
+  }
+
+  private static void runAnalytics(FileStorage fileStorage) throws IOException {
+    long start = System.nanoTime();
+    WalletAggregate aggregate = new WalletAnalytics(fileStorage.getStorageDirectory()).run();
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.println(
+        String.format(
+            "Кошельков: %d (ошибок чтения: %d), транзакций: %d",
+            aggregate.getWalletCount(),
+            aggregate.getFailedWalletCount(),
+            aggregate.getTransactionCount()));
+    // Amounts in different currencies are never added together
+    for (String currency : aggregate.getCurrencies()) {
+      System.out.println("\n=== " + currency + " ===");
+      System.out.println(
+          "Общий доход: " + Formatting.formatAmount(aggregate.getTotalIncome(currency)));
+      System.out.println(
+          "Общие расходы: " + Formatting.formatAmount(aggregate.getTotalExpense(currency)));
+      System.out.println(
+          "Суммарный баланс: " + Formatting.formatAmount(aggregate.getTotalBalance(currency)));
+      System.out.println("--- Расходы по категориям ---");
+      aggregate
+          .getExpenseByCategory(currency)
+          .forEach(
+              (category, amount) ->
+                  System.out.println("  " + category + ": " + Formatting.formatAmount(amount)));
+    }
+    System.out.println(
+        String.format(
+            "\nОбработано за %.1f мс (%.0f кошельков/с, потоков: %d)",
+            seconds * 1e3,
+            aggregate.getWalletCount() / seconds,
+            Runtime.getRuntime().availableProcessors()));
+  }
 }
 
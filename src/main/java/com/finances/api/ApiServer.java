@@ -0,0 +1,795 @@
+package com.finances.api;
+
+import com.finances.core.domain.BudgetPeriod;
+import com.finances.core.domain.BudgetStatus;
+import com.finances.core.domain.CronSchedule;
+import com.finances.core.domain.ExchangeRates;
+import com.finances.core.domain.RecurringTemplate;
+import com.finances.core.domain.Session;
+import com.finances.core.domain.SortDirection;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionFilter;
+import com.finances.core.domain.TransactionPage;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Transfer;
+import com.finances.core.domain.Wallet;
+import com.finances.core.domain.WalletSnapshot;
+import com.finances.core.repository.WalletRepository;
+import com.finances.core.service.AuthService;
+import com.finances.core.service.BudgetService;
+import com.finances.core.service.RecurringTransactionScheduler;
+import com.finances.core.service.TransactionService;
+import com.finances.infrastructure.notification.NotificationService;
+import com.finances.infrastructure.persistence.FileStorage;
+import com.finances.infrastructure.persistence.TimestampCodec;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP/JSON API over the application services.
+ *
+ * <p>The server listens on the loopback interface only. Clients obtain a session token from {@code
+ * POST /api/login} and pass it as {@code Authorization: Bearer <token>}; every other endpoint works
+ * on the wallet of the session's user. Requests are served on virtual threads when the runtime
+ * supports them (Java 21+) and on a bounded platform thread pool otherwise.
+ *
+ * <p>{@code GET /api/transactions} returns every transaction unless a {@code limit} query parameter
+ * asks for one page; see {@link #transactions}.
+ *
+ * <p>{@code /api/recurring} lists ({@code GET}), creates ({@code POST}) and cancels ({@code DELETE
+ * ?id=}) recurring transaction templates, which the {@link RecurringTransactionScheduler} posts
+ * while the server runs. Templates the scheduler stored are restored when the server starts, and
+ * occurrences missed while it was down are posted on the first run.
+ *
+ * <p>Income, expenses and budgets accept an optional {@code currency} code. {@code GET
+ * /api/statistics} reports totals per currency and, with a {@code currency} query parameter, totals
+ * converted into that currency at the rates set with {@link #setExchangeRates}.
+ *
+ * <p>{@code POST /api/transfer} takes an optional {@code currency}, checks the sender's balance in
+ * that currency and returns the ID of the recorded transfer, which both of its legs carry as {@code
+ * transferId}; {@code GET /api/transfer} lists the transfers the user sent or received. Plain
+ * balances and totals are those of the default currency.
+ *
+ * <p>Wallets are kept in the wallet repository while the server runs. Every wallet the server loads
+ * or creates is saved to the file storage on logout, after each transfer it takes part in and when
+ * the server stops, so changes made by the recurring scheduler or to users who never log out are
+ * not lost.
+ *
+ * <p>Credentials are not persisted, so {@code POST /api/register} refuses a username that already
+ * has a stored wallet rather than hand that wallet to whoever registers first after a restart.
+ */
+public class ApiServer {
+  private static final String BEARER_PREFIX = "Bearer ";
+  private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+  private final AuthService authService;
+  private final TransactionService transactionService;
+  private final BudgetService budgetService;
+  private final NotificationService notificationService;
+  private final FileStorage fileStorage;
+  private final WalletRepository walletRepository;
+  private final RecurringTransactionScheduler recurringScheduler;
+  private final ConcurrentMap<String, Object> walletLocks = new ConcurrentHashMap<>();
+  // Users whose wallets are saved when the server stops
+  private final Set<String> openWallets = ConcurrentHashMap.newKeySet();
+  private final Gson gson = new Gson();
+  private volatile ExchangeRates exchangeRates;
+  private HttpServer server;
+  private ExecutorService executor;
+
+  public ApiServer(
+      AuthService authService,
+      TransactionService transactionService,
+      BudgetService budgetService,
+      NotificationService notificationService,
+      FileStorage fileStorage,
+      WalletRepository walletRepository) {
+    this(
+        authService,
+        transactionService,
+        budgetService,
+        notificationService,
+        fileStorage,
+        walletRepository,
+        new RecurringTransactionScheduler(transactionService));
+  }
+
+  public ApiServer(
+      AuthService authService,
+      TransactionService transactionService,
+      BudgetService budgetService,
+      NotificationService notificationService,
+      FileStorage fileStorage,
+      WalletRepository walletRepository,
+      RecurringTransactionScheduler recurringScheduler) {
+    this.authService = authService;
+    this.transactionService = transactionService;
+    this.budgetService = budgetService;
+    this.notificationService = notificationService;
+    this.fileStorage = fileStorage;
+    this.walletRepository = walletRepository;
+    this.recurringScheduler = recurringScheduler;
+  }
+
+  /**
+   * Sets the rates used to report totals in a base currency. The table may be replaced while the
+   * server runs, for example after the rate file was refreshed.
+   *
+   * @param exchangeRates the rate table, or null to disable conversion
+   */
+  public void setExchangeRates(ExchangeRates exchangeRates) {
+    this.exchangeRates = exchangeRates;
+  }
+
+  /**
+   * Starts the server.
+   *
+   * @param port the port to listen on, or 0 to pick a free port
+   * @throws IOException if the server socket cannot be opened
+   */
+  public synchronized void start(int port) throws IOException {
+    if (server != null) {
+      throw new IllegalStateException("Server is already running");
+    }
+    // Headers and body are written separately; without TCP_NODELAY every response waits for the
+    // client's delayed ACK. The property is read once, when the first server is created.
+    if (System.getProperty(NODELAY_PROPERTY) == null) {
+      System.setProperty(NODELAY_PROPERTY, "true");
+    }
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/api/register", exchange -> handle(exchange, false, this::register));
+    server.createContext("/api/login", exchange -> handle(exchange, false, this::login));
+    server.createContext("/api/logout", exchange -> handle(exchange, true, this::logout));
+    server.createContext("/api/balance", exchange -> handle(exchange, true, this::balance));
+    server.createContext(
+        "/api/transactions", exchange -> handle(exchange, true, this::transactions));
+    server.createContext("/api/income", exchange -> handle(exchange, true, this::addIncome));
+    server.createContext("/api/expense", exchange -> handle(exchange, true, this::addExpense));
+    server.createContext("/api/budgets", exchange -> handle(exchange, true, this::budgets));
+    server.createContext("/api/statistics", exchange -> handle(exchange, true, this::statistics));
+    server.createContext("/api/transfer", exchange -> handle(exchange, true, this::transfer));
+    server.createContext("/api/recurring", exchange -> handle(exchange, true, this::recurring));
+    server.createContext(
+        "/api/notifications", exchange -> handle(exchange, true, this::notifications));
+
+    // Restored before requests are served, so a cancel finds the stored template
+    recurringScheduler.restore();
+    executor = newRequestExecutor();
+    server.setExecutor(executor);
+    server.start();
+    authService.getSessionManager().startEviction();
+    recurringScheduler.start();
+  }
+
+  /**
+   * Stops the server, waits briefly for in-flight requests and saves every wallet it opened.
+   *
+   * @throws UncheckedIOException if a wallet cannot be saved; the others are still saved
+   */
+  public synchronized void stop() {
+    if (server == null) {
+      return;
+    }
+    server.stop(1);
+    executor.shutdown();
+    authService.getSessionManager().stopEviction();
+    recurringScheduler.stop();
+    server = null;
+    executor = null;
+
+    IOException failure = null;
+    for (String userId : openWallets) {
+      try {
+        saveWallet(userId);
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw new UncheckedIOException(failure);
+    }
+  }
+
+  /**
+   * Gets the port the server is bound to.
+   *
+   * @return the local port
+   */
+  public synchronized int getPort() {
+    if (server == null) {
+      throw new IllegalStateException("Server is not running");
+    }
+    return server.getAddress().getPort();
+  }
+
+  private JsonElement register(Request request) throws IOException {
+    request.requireMethod("POST");
+    String username = request.requireString("username");
+    String password = request.requireString("password");
+    synchronized (lockFor(username)) {
+      // Credentials are kept in memory only, so nothing proves the caller owns a stored wallet
+      if (fileStorage.walletExists(username)) {
+        throw new ApiException(409, "User already exists");
+      }
+      if (!authService.register(username, password)) {
+        throw new ApiException(409, "User already exists");
+      }
+      openWallets.add(username);
+    }
+    JsonObject response = new JsonObject();
+    response.addProperty("username", username);
+    return response;
+  }
+
+  private JsonElement login(Request request) throws IOException {
+    request.requireMethod("POST");
+    String username = request.requireString("username");
+    String password = request.requireString("password");
+    Session session =
+        authService
+            .openSession(username, password)
+            .orElseThrow(() -> new ApiException(401, "Invalid username or password"));
+
+    // Several sessions may share a wallet, so only a missing one is loaded
+    synchronized (lockFor(username)) {
+      if (walletRepository.findByUserId(username).isEmpty()) {
+        walletRepository.save(fileStorage.loadWallet(username));
+      }
+      openWallets.add(username);
+    }
+
+    JsonObject response = new JsonObject();
+    response.addProperty("token", session.getToken());
+    return response;
+  }
+
+  private JsonElement logout(Request request) throws IOException {
+    request.requireMethod("POST");
+    String userId = request.session.getUserId();
+    synchronized (lockFor(userId)) {
+      fileStorage.saveWallet(getWallet(userId));
+    }
+    authService.closeSession(request.session.getToken());
+    return new JsonObject();
+  }
+
+  private JsonElement balance(Request request) {
+    request.requireMethod("GET");
+    String userId = request.session.getUserId();
+    WalletSnapshot snapshot = transactionService.getSnapshot(userId);
+    JsonObject response = new JsonObject();
+    response.addProperty("balance", snapshot.getBalance());
+    response.addProperty("totalIncome", snapshot.getTotalIncome());
+    response.addProperty("totalExpense", snapshot.getTotalExpense());
+    return response;
+  }
+
+  /**
+   * Lists transactions. With a {@code limit} query parameter one page is returned as {@code
+   * {"transactions": [...], "nextCursor": ...}}, without a cursor on the last page; further
+   * parameters are {@code cursor}, {@code order} ({@code asc} or {@code desc}, the default), {@code
+   * type}, {@code category} (comma separated) and {@code from}/{@code to} (ISO date-times, end
+   * exclusive).
+   */
+  private JsonElement transactions(Request request) {
+    request.requireMethod("GET");
+    String userId = request.session.getUserId();
+    String limit = request.queryParam("limit");
+    if (limit == null) {
+      JsonArray response = new JsonArray();
+      for (Transaction transaction : transactionService.getTransactions(userId)) {
+        response.add(toJson(transaction));
+      }
+      return response;
+    }
+
+    TransactionFilter filter = TransactionFilter.all();
+    String type = request.queryParam("type");
+    if (type != null) {
+      filter = filter.withType(TransactionType.valueOf(type.toUpperCase(Locale.ROOT)));
+    }
+    String categories = request.queryParam("category");
+    if (categories != null) {
+      filter = filter.withCategories(List.of(categories.split(",")));
+    }
+    filter = filter.withRange(request.queryTime("from"), request.queryTime("to"));
+    String order = request.queryParam("order");
+    SortDirection direction = SortDirection.DESCENDING;
+    if ("asc".equalsIgnoreCase(order)) {
+      direction = SortDirection.ASCENDING;
+    } else if (order != null && !order.equalsIgnoreCase("desc")) {
+      throw new IllegalArgumentException("Invalid order: " + order);
+    }
+
+    TransactionPage page =
+        transactionService.getTransactionPage(
+            userId, filter, direction, request.queryParam("cursor"), Integer.parseInt(limit));
+    JsonArray transactions = new JsonArray();
+    for (Transaction transaction : page.getTransactions()) {
+      transactions.add(toJson(transaction));
+    }
+    JsonObject response = new JsonObject();
+    response.add("transactions", transactions);
+    response.addProperty("nextCursor", page.getNextCursor());
+    return response;
+  }
+
+  private JsonElement addIncome(Request request) {
+    request.requireMethod("POST");
+    String userId = request.session.getUserId();
+    synchronized (lockFor(userId)) {
+      return toJson(
+          transactionService.addIncome(
+              userId,
+              request.requireString("category"),
+              request.requireDouble("amount"),
+              request.optionalString("description"),
+              request.nullableString("idempotencyKey"),
+              request.nullableString("currency")));
+    }
+  }
+
+  private JsonElement addExpense(Request request) {
+    request.requireMethod("POST");
+    String userId = request.session.getUserId();
+    synchronized (lockFor(userId)) {
+      String category = request.requireString("category");
+      Transaction transaction =
+          transactionService.addExpense(
+              userId,
+              category,
+              request.requireDouble("amount"),
+              request.optionalString("description"),
+              request.nullableString("idempotencyKey"),
+              request.nullableString("currency"));
+      return toJson(transaction);
+    }
+  }
+
+  private JsonElement budgets(Request request) {
+    String userId = request.session.getUserId();
+    synchronized (lockFor(userId)) {
+      if (request.method.equals("POST")) {
+        String period = request.optionalString("period");
+        budgetService.setBudget(
+            userId,
+            request.requireString("category"),
+            request.requireDouble("limit"),
+            period.isEmpty() ? null : BudgetPeriod.parse(period),
+            request.nullableString("currency"));
+      } else {
+        request.requireMethod("GET");
+      }
+
+      JsonArray response = new JsonArray();
+      for (Map.Entry<String, BudgetStatus> entry :
+          budgetService.getBudgetStatuses(userId).entrySet()) {
+        BudgetStatus status = entry.getValue();
+        JsonObject budgetJson = new JsonObject();
+        budgetJson.addProperty("category", entry.getKey());
+        budgetJson.addProperty("limit", status.getLimit());
+        budgetJson.addProperty("currency", status.getBudget().getCurrency());
+        if (status.getBudget().getPeriod() != null) {
+          budgetJson.addProperty("period", status.getBudget().getPeriod().format());
+          budgetJson.addProperty("periodStart", status.getPeriodStart(LocalDate.now()).toString());
+        }
+        budgetJson.addProperty("remaining", status.getRemaining());
+        budgetJson.addProperty("percentage", status.getUsagePercentage());
+        response.add(budgetJson);
+      }
+      return response;
+    }
+  }
+
+  private JsonElement statistics(Request request) {
+    request.requireMethod("GET");
+    String userId = request.session.getUserId();
+    WalletSnapshot snapshot = transactionService.getSnapshot(userId);
+    JsonObject response = new JsonObject();
+    response.addProperty("totalIncome", snapshot.getTotalIncome());
+    response.addProperty("totalExpense", snapshot.getTotalExpense());
+    response.addProperty("balance", snapshot.getBalance());
+    response.add("incomeByCategory", toJson(snapshot.getIncomeByCategory()));
+    response.add("expenseByCategory", toJson(snapshot.getExpenseByCategory()));
+    // The plain figures are those of the default currency; the others are listed separately
+    JsonObject categoriesByCurrency = new JsonObject();
+    for (String code : snapshot.getCurrencies()) {
+      JsonObject categories = new JsonObject();
+      categories.add("incomeByCategory", toJson(snapshot.getIncomeByCategory(code)));
+      categories.add("expenseByCategory", toJson(snapshot.getExpenseByCategory(code)));
+      categoriesByCurrency.add(code, categories);
+    }
+    response.add("categoriesByCurrency", categoriesByCurrency);
+    response.add("incomeByCurrency", toJson(snapshot.getIncomeByCurrency()));
+    response.add("expenseByCurrency", toJson(snapshot.getExpenseByCurrency()));
+    String currency = request.queryParam("currency");
+    if (currency != null) {
+      ExchangeRates rates = exchangeRates;
+      if (rates == null) {
+        throw new ApiException(409, "Exchange rates are not configured");
+      }
+      JsonObject converted = new JsonObject();
+      converted.addProperty("currency", currency.toUpperCase(Locale.ROOT));
+      converted.addProperty("totalIncome", snapshot.getTotalIncome(currency, rates));
+      converted.addProperty("totalExpense", snapshot.getTotalExpense(currency, rates));
+      converted.addProperty("balance", snapshot.getBalance(currency, rates));
+      response.add("converted", converted);
+    }
+    return response;
+  }
+
+  private JsonElement recurring(Request request) {
+    String userId = request.session.getUserId();
+    if (request.method.equals("POST")) {
+      return toJson(
+          recurringScheduler.create(
+              userId,
+              TransactionType.valueOf(request.requireString("type").toUpperCase(Locale.ROOT)),
+              request.requireString("category"),
+              request.requireDouble("amount"),
+              request.optionalString("description"),
+              CronSchedule.parse(request.requireString("schedule"))));
+    }
+    if (request.method.equals("DELETE")) {
+      String id = request.queryParam("id");
+      boolean owned =
+          recurringScheduler.getTemplates(userId).stream().anyMatch(t -> t.getId().equals(id));
+      if (!owned || !recurringScheduler.cancel(id)) {
+        throw new ApiException(404, "Template not found");
+      }
+      JsonObject response = new JsonObject();
+      response.addProperty("cancelled", id);
+      return response;
+    }
+    request.requireMethod("GET");
+    JsonArray response = new JsonArray();
+    for (RecurringTemplate template : recurringScheduler.getTemplates(userId)) {
+      response.add(toJson(template));
+    }
+    return response;
+  }
+
+  private JsonElement transfer(Request request) throws IOException {
+    if (request.method.equals("GET")) {
+      JsonArray response = new JsonArray();
+      for (Transfer transfer : transactionService.getTransfers(request.session.getUserId())) {
+        response.add(toJson(transfer));
+      }
+      return response;
+    }
+    request.requireMethod("POST");
+    String fromUserId = request.session.getUserId();
+    String toUserId = request.requireString("to");
+    double amount = request.requireDouble("amount");
+    String description = request.optionalString("description");
+    String currency = request.nullableString("currency");
+    if (toUserId.equals(fromUserId)) {
+      throw new ApiException(400, "Cannot transfer to yourself");
+    }
+    if (walletRepository.findByUserId(toUserId).isEmpty()) {
+      if (!fileStorage.walletExists(toUserId)) {
+        throw new ApiException(404, "Recipient not found");
+      }
+      synchronized (lockFor(toUserId)) {
+        if (walletRepository.findByUserId(toUserId).isEmpty()) {
+          walletRepository.save(fileStorage.loadWallet(toUserId));
+        }
+        openWallets.add(toUserId);
+      }
+    }
+
+    // Lock both wallets in a fixed order so that opposite transfers cannot deadlock
+    String first = fromUserId.compareTo(toUserId) < 0 ? fromUserId : toUserId;
+    String second = first.equals(fromUserId) ? toUserId : fromUserId;
+    synchronized (lockFor(first)) {
+      synchronized (lockFor(second)) {
+        Transfer transfer =
+            transactionService.transfer(fromUserId, toUserId, amount, description, currency);
+        fileStorage.saveWallet(getWallet(fromUserId));
+        fileStorage.saveWallet(getWallet(toUserId));
+        JsonObject response = new JsonObject();
+        response.addProperty("transferId", transfer.getId());
+        response.addProperty(
+            "balance",
+            transactionService.getSnapshot(fromUserId).getBalance(transfer.getCurrency()));
+        return response;
+      }
+    }
+  }
+
+  private JsonElement notifications(Request request) {
+    request.requireMethod("GET");
+    String userId = request.session.getUserId();
+    List<String> notifications;
+    synchronized (lockFor(userId)) {
+      notifications = notificationService.getNotifications(userId);
+    }
+    JsonArray response = new JsonArray();
+    notifications.forEach(response::add);
+    return response;
+  }
+
+  private void handle(HttpExchange exchange, boolean authenticated, Route route)
+      throws IOException {
+    try (exchange) {
+      int status = 200;
+      JsonElement body;
+      try {
+        Session session = null;
+        if (authenticated) {
+          session = authService.getSession(bearerToken(exchange));
+          if (session == null) {
+            throw new ApiException(401, "Missing or expired session token");
+          }
+        }
+        body =
+            route.handle(
+                new Request(
+                    exchange.getRequestMethod(),
+                    readBody(exchange),
+                    parseQuery(exchange.getRequestURI().getRawQuery()),
+                    session));
+      } catch (ApiException e) {
+        status = e.status;
+        body = error(e.getMessage());
+      } catch (IllegalArgumentException | JsonParseException e) {
+        status = 400;
+        body = error(e.getMessage());
+      } catch (IllegalStateException e) {
+        status = 409;
+        body = error(e.getMessage());
+      } catch (RuntimeException e) {
+        status = 500;
+        body = error(e.getMessage());
+      }
+
+      byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+  }
+
+  private JsonObject readBody(HttpExchange exchange) throws IOException {
+    try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+      JsonElement element = JsonParser.parseReader(reader);
+      return element.isJsonObject() ? element.getAsJsonObject() : new JsonObject();
+    }
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> query = new HashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return query;
+    }
+    for (String pair : rawQuery.split("&")) {
+      int separator = pair.indexOf('=');
+      String name = separator < 0 ? pair : pair.substring(0, separator);
+      String value = separator < 0 ? "" : pair.substring(separator + 1);
+      query.put(
+          URLDecoder.decode(name, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return query;
+  }
+
+  private String bearerToken(HttpExchange exchange) {
+    String header = exchange.getRequestHeaders().getFirst("Authorization");
+    if (header == null || !header.startsWith(BEARER_PREFIX)) {
+      return null;
+    }
+    return header.substring(BEARER_PREFIX.length()).trim();
+  }
+
+  private void saveWallet(String userId) throws IOException {
+    synchronized (lockFor(userId)) {
+      Optional<Wallet> wallet = walletRepository.findByUserId(userId);
+      if (wallet.isPresent()) {
+        fileStorage.saveWallet(wallet.get());
+      }
+    }
+  }
+
+  private Object lockFor(String userId) {
+    return walletLocks.computeIfAbsent(userId, id -> new Object());
+  }
+
+  private Wallet getWallet(String userId) {
+    return walletRepository
+        .findByUserId(userId)
+        .orElseThrow(() -> new IllegalStateException("Wallet not found for user: " + userId));
+  }
+
+  private static JsonObject toJson(Transaction transaction) {
+    JsonObject json = new JsonObject();
+    json.addProperty("id", transaction.getId());
+    json.addProperty("type", transaction.getType().name());
+    json.addProperty("category", transaction.getCategory());
+    json.addProperty("amount", transaction.getAmount());
+    json.addProperty("currency", transaction.getCurrency());
+    json.addProperty("timestamp", TimestampCodec.format(transaction.getTimestamp()));
+    json.addProperty("description", transaction.getDescription());
+    if (transaction.getIdempotencyKey() != null) {
+      json.addProperty("idempotencyKey", transaction.getIdempotencyKey());
+    }
+    if (transaction.getTransferId() != null) {
+      json.addProperty("transferId", transaction.getTransferId());
+    }
+    return json;
+  }
+
+  private static JsonObject toJson(Transfer transfer) {
+    JsonObject json = new JsonObject();
+    json.addProperty("id", transfer.getId());
+    json.addProperty("from", transfer.getFromUserId());
+    json.addProperty("to", transfer.getToUserId());
+    json.addProperty("amount", transfer.getAmount());
+    json.addProperty("currency", transfer.getCurrency());
+    json.addProperty("timestamp", TimestampCodec.format(transfer.getTimestamp()));
+    json.addProperty("description", transfer.getDescription());
+    return json;
+  }
+
+  private static JsonObject toJson(RecurringTemplate template) {
+    JsonObject json = new JsonObject();
+    json.addProperty("id", template.getId());
+    json.addProperty("type", template.getType().name());
+    json.addProperty("category", template.getCategory());
+    json.addProperty("amount", template.getAmount());
+    json.addProperty("description", template.getDescription());
+    json.addProperty("schedule", template.getSchedule().getExpression());
+    if (template.getNextOccurrence() != null) {
+      json.addProperty("nextOccurrence", TimestampCodec.format(template.getNextOccurrence()));
+    }
+    return json;
+  }
+
+  private static JsonObject toJson(Map<String, Double> amounts) {
+    JsonObject json = new JsonObject();
+    amounts.forEach(json::addProperty);
+    return json;
+  }
+
+  private static JsonObject error(String message) {
+    JsonObject json = new JsonObject();
+    json.addProperty("error", message != null ? message : "Unexpected error");
+    return json;
+  }
+
+  /**
+   * Creates the executor requests are served on. Virtual threads are looked up reflectively so that
+   * the code still compiles and runs on the Java 17 baseline.
+   */
+  private static ExecutorService newRequestExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 4);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Route {
+    JsonElement handle(Request request) throws IOException;
+  }
+
+  private static final class Request {
+    private final String method;
+    private final JsonObject body;
+    private final Map<String, String> query;
+    private final Session session;
+
+    private Request(String method, JsonObject body, Map<String, String> query, Session session) {
+      this.method = method;
+      this.body = body;
+      this.query = query;
+      this.session = session;
+    }
+
+    private String queryParam(String name) {
+      return query.get(name);
+    }
+
+    private LocalDateTime queryTime(String name) {
+      String value = query.get(name);
+      if (value == null) {
+        return null;
+      }
+      try {
+        return LocalDateTime.parse(value);
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException("Invalid date-time in parameter: " + name);
+      }
+    }
+
+    private void requireMethod(String expected) {
+      if (!method.equals(expected)) {
+        throw new ApiException(405, "Method not allowed: " + method);
+      }
+    }
+
+    private String requireString(String name) {
+      JsonElement value = body.get(name);
+      if (value == null || value.isJsonNull()) {
+        throw new IllegalArgumentException("Missing field: " + name);
+      }
+      return value.getAsString();
+    }
+
+    private String optionalString(String name) {
+      JsonElement value = body.get(name);
+      return value == null || value.isJsonNull() ? "" : value.getAsString();
+    }
+
+    private String nullableString(String name) {
+      String value = optionalString(name);
+      return value.isEmpty() ? null : value;
+    }
+
+    private double requireDouble(String name) {
+      JsonElement value = body.get(name);
+      if (value == null || value.isJsonNull()) {
+        throw new IllegalArgumentException("Missing field: " + name);
+      }
+      double number;
+      try {
+        number = value.getAsDouble();
+      } catch (NumberFormatException | UnsupportedOperationException | IllegalStateException e) {
+        // Objects and arrays are not numbers either
+        throw new IllegalArgumentException("Invalid number in field: " + name);
+      }
+      // Gson accepts "NaN" and "Infinity", which would poison every total
+      if (!Double.isFinite(number)) {
+        throw new IllegalArgumentException("Invalid number in field: " + name);
+      }
+      return number;
+    }
+  }
+
+  private static final class ApiException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    private ApiException(int status, String message) {
+      super(message);
+      this.status = status;
+    }
+  }
+}
+
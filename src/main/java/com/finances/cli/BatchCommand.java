@@ -0,0 +1,229 @@
+package com.finances.cli;
+
+import com.finances.core.domain.BudgetPeriod;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A single parsed line of a batch command file.
+ *
+ * <p>Supported commands:
+ *
+ * <pre>
+ * user &lt;login&gt;
+ * income &lt;category&gt; &lt;amount&gt; [description]
+ * expense &lt;category&gt; &lt;amount&gt; [description]
+ * budget &lt;category&gt; &lt;limit&gt; [weekly|monthly|days:N:yyyy-mm-dd][+rollover]
+ * transfer &lt;recipient&gt; &lt;amount&gt; [description]
+ * export csv|csv-full|json|columnar [path]
+ * </pre>
+ *
+ * <p>Arguments are separated by whitespace; an argument containing spaces is wrapped in double
+ * quotes. Empty lines and lines starting with {@code #} are ignored.
+ */
+public class BatchCommand {
+  /** Kind of batch command. */
+  public enum Kind {
+    USER,
+    INCOME,
+    EXPENSE,
+    BUDGET,
+    TRANSFER,
+    EXPORT
+  }
+
+  private final int line;
+  private final Kind kind;
+  private final String target;
+  private final double amount;
+  private final String text;
+  private final BudgetPeriod period;
+
+  private BatchCommand(int line, Kind kind, String target, double amount, String text) {
+    this(line, kind, target, amount, text, null);
+  }
+
+  private BatchCommand(
+      int line, Kind kind, String target, double amount, String text, BudgetPeriod period) {
+    this.line = line;
+    this.kind = kind;
+    this.target = target;
+    this.amount = amount;
+    this.text = text;
+    this.period = period;
+  }
+
+  /**
+   * Parses the lines of a command file.
+   *
+   * @param lines the lines of the file
+   * @return the parsed commands, without blank lines and comments
+   * @throws IllegalArgumentException if a line is malformed; the message names the line number
+   */
+  public static List<BatchCommand> parseAll(List<String> lines) {
+    List<BatchCommand> commands = new ArrayList<>(lines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      BatchCommand command = parse(i + 1, lines.get(i));
+      if (command != null) {
+        commands.add(command);
+      }
+    }
+    return commands;
+  }
+
+  /**
+   * Parses a single line.
+   *
+   * @param lineNumber the 1-based line number used in error messages
+   * @param line the line
+   * @return the command, or null for blank lines and comments
+   * @throws IllegalArgumentException if the line is malformed
+   */
+  public static BatchCommand parse(int lineNumber, String line) {
+    String trimmed = line.trim();
+    if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+      return null;
+    }
+
+    List<String> args = tokenize(lineNumber, trimmed);
+    String name = args.get(0).toLowerCase(Locale.ROOT);
+    switch (name) {
+      case "user":
+        requireArgs(lineNumber, args, 2, 2);
+        return new BatchCommand(lineNumber, Kind.USER, args.get(1), 0, "");
+      case "income":
+      case "expense":
+      case "transfer":
+        requireArgs(lineNumber, args, 3, 4);
+        Kind kind =
+            name.equals("income")
+                ? Kind.INCOME
+                : name.equals("expense") ? Kind.EXPENSE : Kind.TRANSFER;
+        return new BatchCommand(
+            lineNumber,
+            kind,
+            args.get(1),
+            parseAmount(lineNumber, args.get(2), false),
+            args.size() > 3 ? args.get(3) : "");
+      case "budget":
+        requireArgs(lineNumber, args, 3, 4);
+        return new BatchCommand(
+            lineNumber,
+            Kind.BUDGET,
+            args.get(1),
+            parseAmount(lineNumber, args.get(2), true),
+            "",
+            args.size() > 3 ? parsePeriod(lineNumber, args.get(3)) : null);
+      case "export":
+        requireArgs(lineNumber, args, 2, 3);
+        String format = args.get(1).toLowerCase(Locale.ROOT);
+        if (!List.of("csv", "csv-full", "json", "columnar").contains(format)) {
+          throw new IllegalArgumentException(
+              "Line " + lineNumber + ": unknown export format: " + args.get(1));
+        }
+        return new BatchCommand(
+            lineNumber, Kind.EXPORT, format, 0, args.size() > 2 ? args.get(2) : "");
+      default:
+        throw new IllegalArgumentException("Line " + lineNumber + ": unknown command: " + name);
+    }
+  }
+
+  public int getLine() {
+    return line;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Gets the main argument: the login, category, recipient or export format.
+   *
+   * @return the main argument
+   */
+  public String getTarget() {
+    return target;
+  }
+
+  public double getAmount() {
+    return amount;
+  }
+
+  /**
+   * Gets the trailing text argument: the description or the export path.
+   *
+   * @return the text, empty if absent
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * Gets the period of a budget command.
+   *
+   * @return the period, or null for a lifetime budget
+   */
+  public BudgetPeriod getPeriod() {
+    return period;
+  }
+
+  private static BudgetPeriod parsePeriod(int lineNumber, String text) {
+    try {
+      return BudgetPeriod.parse(text);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage());
+    }
+  }
+
+  private static List<String> tokenize(int lineNumber, String line) {
+    List<String> tokens = new ArrayList<>();
+    StringBuilder current = new StringBuilder();
+    boolean quoted = false;
+    boolean hasToken = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '"') {
+        quoted = !quoted;
+        hasToken = true;
+      } else if (Character.isWhitespace(c) && !quoted) {
+        if (hasToken) {
+          tokens.add(current.toString());
+          current.setLength(0);
+          hasToken = false;
+        }
+      } else {
+        current.append(c);
+        hasToken = true;
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Line " + lineNumber + ": unterminated quote");
+    }
+    if (hasToken) {
+      tokens.add(current.toString());
+    }
+    return tokens;
+  }
+
+  private static void requireArgs(int lineNumber, List<String> args, int min, int max) {
+    if (args.size() < min || args.size() > max) {
+      throw new IllegalArgumentException(
+          "Line " + lineNumber + ": wrong number of arguments for " + args.get(0));
+    }
+  }
+
+  private static double parseAmount(int lineNumber, String value, boolean allowZero) {
+    double amount;
+    try {
+      amount = Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Line " + lineNumber + ": invalid amount: " + value);
+    }
+    if (!Double.isFinite(amount) || amount < 0 || (!allowZero && amount == 0)) {
+      throw new IllegalArgumentException("Line " + lineNumber + ": invalid amount: " + value);
+    }
+    return amount;
+  }
+}
+
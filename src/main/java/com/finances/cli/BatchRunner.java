@@ -0,0 +1,228 @@
+package com.finances.cli;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.finances.core.repository.WalletRepository;
+import com.finances.core.service.BudgetService;
+import com.finances.core.service.TransactionService;
+import com.finances.infrastructure.persistence.ColumnarWalletFile;
+import com.finances.infrastructure.persistence.FileStorage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Non-interactive runner for batch command files.
+ *
+ * <p>The whole file is parsed before anything is executed, so a syntax error leaves all wallets
+ * untouched. Commands then run directly against the services without menus or per-step
+ * notifications, and every wallet touched by the batch is written to disk once at the end.
+ *
+ * <p>Consecutive income and expense commands of a user are posted together through {@link
+ * TransactionService#addTransactions}, so the wallet repository saves the wallet once per run of
+ * such commands rather than once per command; with the write-ahead log that is one log append and
+ * sync per run.
+ */
+public class BatchRunner {
+  private final TransactionService transactionService;
+  private final BudgetService budgetService;
+  private final FileStorage fileStorage;
+  private final WalletRepository walletRepository;
+
+  public BatchRunner(
+      TransactionService transactionService,
+      BudgetService budgetService,
+      FileStorage fileStorage,
+      WalletRepository walletRepository) {
+    this.transactionService = transactionService;
+    this.budgetService = budgetService;
+    this.fileStorage = fileStorage;
+    this.walletRepository = walletRepository;
+  }
+
+  /**
+   * Parses and runs a command file.
+   *
+   * @param file the command file
+   * @return the execution report
+   * @throws IOException if the file cannot be read or a wallet cannot be saved
+   * @throws IllegalArgumentException if the file contains a malformed line
+   */
+  public Report run(Path file) throws IOException {
+    return run(BatchCommand.parseAll(Files.readAllLines(file, StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Runs already parsed commands.
+   *
+   * @param commands the commands to run
+   * @return the execution report
+   * @throws IOException if a wallet cannot be saved
+   */
+  public Report run(List<BatchCommand> commands) throws IOException {
+    Set<String> touchedUsers = new LinkedHashSet<>();
+    List<String> errors = new ArrayList<>();
+    List<Transaction> pending = new ArrayList<>();
+    List<Integer> pendingLines = new ArrayList<>();
+    String currentUser = null;
+    long start = System.nanoTime();
+
+    for (BatchCommand command : commands) {
+      BatchCommand.Kind kind = command.getKind();
+      if (currentUser != null
+          && (kind == BatchCommand.Kind.INCOME || kind == BatchCommand.Kind.EXPENSE)) {
+        try {
+          // Built here, so an invalid command is reported with its own line
+          pending.add(toTransaction(command));
+          pendingLines.add(command.getLine());
+        } catch (IllegalArgumentException e) {
+          errors.add("Line " + command.getLine() + ": " + e.getMessage());
+        }
+        continue;
+      }
+      // Later commands may depend on the balance or be another user's
+      post(currentUser, pending, pendingLines, errors);
+      try {
+        if (command.getKind() == BatchCommand.Kind.USER) {
+          currentUser = command.getTarget();
+          ensureLoaded(currentUser);
+          touchedUsers.add(currentUser);
+          continue;
+        }
+        if (currentUser == null) {
+          throw new IllegalStateException("no user selected");
+        }
+        execute(currentUser, command, touchedUsers);
+      } catch (IOException | RuntimeException e) {
+        errors.add("Line " + command.getLine() + ": " + e.getMessage());
+      }
+    }
+    post(currentUser, pending, pendingLines, errors);
+
+    for (String userId : touchedUsers) {
+      Wallet wallet = walletRepository.findByUserId(userId).orElseThrow();
+      fileStorage.saveWallet(wallet);
+    }
+
+    long elapsedNanos = System.nanoTime() - start;
+    return new Report(commands.size(), errors, elapsedNanos);
+  }
+
+  private static Transaction toTransaction(BatchCommand command) {
+    return new Transaction(
+        UUID.randomUUID().toString(),
+        command.getKind() == BatchCommand.Kind.INCOME
+            ? TransactionType.INCOME
+            : TransactionType.EXPENSE,
+        command.getTarget(),
+        command.getAmount(),
+        LocalDateTime.now(),
+        command.getText());
+  }
+
+  /** Posts the pending transactions of a user with one save, then clears them. */
+  private void post(
+      String userId, List<Transaction> pending, List<Integer> lines, List<String> errors) {
+    if (pending.isEmpty()) {
+      return;
+    }
+    try {
+      transactionService.addTransactions(userId, List.copyOf(pending));
+    } catch (RuntimeException e) {
+      for (int line : lines) {
+        errors.add("Line " + line + ": " + e.getMessage());
+      }
+    }
+    pending.clear();
+    lines.clear();
+  }
+
+  private void execute(String userId, BatchCommand command, Set<String> touchedUsers)
+      throws IOException {
+    switch (command.getKind()) {
+      case BUDGET:
+        budgetService.setBudget(
+            userId, command.getTarget(), command.getAmount(), command.getPeriod());
+        break;
+      case TRANSFER:
+        String recipient = command.getTarget();
+        if (recipient.equals(userId)) {
+          throw new IllegalArgumentException("cannot transfer to yourself");
+        }
+        if (walletRepository.findByUserId(recipient).isEmpty()
+            && !fileStorage.walletExists(recipient)) {
+          throw new IllegalArgumentException("user not found: " + recipient);
+        }
+        ensureLoaded(recipient);
+        touchedUsers.add(recipient);
+        transactionService.transfer(userId, recipient, command.getAmount(), command.getText());
+        break;
+      case EXPORT:
+        Wallet wallet = walletRepository.findByUserId(userId).orElseThrow();
+        String path = command.getText();
+        if (command.getTarget().equals("csv")) {
+          fileStorage.exportToCSVIncremental(
+              wallet, path.isEmpty() ? userId + "_export.csv" : path);
+        } else if (command.getTarget().equals("csv-full")) {
+          fileStorage.exportToCSV(wallet, path.isEmpty() ? userId + "_export.csv" : path);
+        } else if (command.getTarget().equals("columnar")) {
+          fileStorage.exportToColumnar(
+              wallet, path.isEmpty() ? userId + "_export" + ColumnarWalletFile.EXTENSION : path);
+        } else {
+          fileStorage.exportToJSON(wallet, path.isEmpty() ? userId + "_export.json" : path);
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unexpected command: " + command.getKind());
+    }
+  }
+
+  private void ensureLoaded(String userId) throws IOException {
+    if (walletRepository.findByUserId(userId).isEmpty()) {
+      walletRepository.save(fileStorage.loadWallet(userId));
+    }
+  }
+
+  /** Outcome of a batch run. */
+  public static class Report {
+    private final int commandCount;
+    private final List<String> errors;
+    private final long elapsedNanos;
+
+    public Report(int commandCount, List<String> errors, long elapsedNanos) {
+      this.commandCount = commandCount;
+      this.errors = List.copyOf(errors);
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getCommandCount() {
+      return commandCount;
+    }
+
+    public List<String> getErrors() {
+      return errors;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /**
+     * Gets the throughput of the run, including the final flush.
+     *
+     * @return executed commands per second
+     */
+    public double getCommandsPerSecond() {
+      return elapsedNanos == 0 ? 0 : commandCount * 1e9 / elapsedNanos;
+    }
+  }
+}
+
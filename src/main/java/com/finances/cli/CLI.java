@@ -1,19 +1,27 @@
 package com.finances.cli;
 
-import com.finances.core.domain.Budget;
-import com.finances.core.domain.Transaction;
+import com.finances.core.domain.BudgetPeriod;
+import com.finances.core.domain.BudgetStatus;
+import com.finances.core.domain.CategoryTree;
+import com.finances.core.domain.CurrencyCode;
 import com.finances.core.domain.Wallet;
+import com.finances.core.domain.WalletSnapshot;
 import com.finances.core.repository.WalletRepository;
 import com.finances.core.service.AuthService;
 import com.finances.core.service.BudgetService;
 import com.finances.core.service.TransactionService;
+import com.finances.core.util.Formatting;
 import com.finances.infrastructure.notification.NotificationService;
+import com.finances.infrastructure.persistence.ColumnarWalletFile;
 import com.finances.infrastructure.persistence.FileStorage;
+import com.finances.infrastructure.persistence.IncrementalCsvExport;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 
 /** Command-line interface for the Personal Finance Manager. */
 public class CLI {
@@ -148,7 +156,14 @@ public class CLI {
 
     System.out.println("\n╔════════════════════════════════════════════════════════╗");
     System.out.println(String.format("║ Пользователь: %-40s ║", username));
-    System.out.println(String.format("║ Баланс: %-43.2f ║", balance));
+    StringBuilder balanceLine = new StringBuilder("║ Баланс: ");
+    int start = balanceLine.length();
+    Formatting.appendAmount(balanceLine, balance);
+    // Left-aligned in 43 columns like %-43.2f, to fit the frame
+    while (balanceLine.length() - start < 43) {
+      balanceLine.append(' ');
+    }
+    System.out.println(balanceLine.append(" ║"));
     System.out.println("╚════════════════════════════════════════════════════════╝");
 
     System.out.println("\n=== ГЛАВНОЕ МЕНЮ ===");
@@ -231,7 +246,7 @@ public class CLI {
 
     String username = authService.getCurrentUser().getUsername();
     transactionService.addIncome(username, category, amount, description);
-    System.out.println(String.format("✓ Доход добавлен: %s - %.2f", category, amount));
+    System.out.println("✓ Доход добавлен: " + category + " - " + Formatting.formatAmount(amount));
   }
 
   private void handleAddExpense() {
@@ -263,7 +278,7 @@ public class CLI {
 
     String username = authService.getCurrentUser().getUsername();
     transactionService.addExpense(username, category, amount, description);
-    System.out.println(String.format("✓ Расход добавлен: %s - %.2f", category, amount));
+    System.out.println("✓ Расход добавлен: " + category + " - " + Formatting.formatAmount(amount));
 
     // Check and notify about budget
     notificationService.checkAndNotifyAfterTransaction(username, category);
@@ -293,9 +308,50 @@ public class CLI {
       return;
     }
 
+    BudgetPeriod period;
+    try {
+      period = readBudgetPeriod();
+    } catch (IllegalArgumentException e) {
+      System.out.println("✗ " + e.getMessage());
+      return;
+    }
+
     String username = authService.getCurrentUser().getUsername();
-    budgetService.setBudget(username, category, limit);
-    System.out.println(String.format("✓ Бюджет установлен: %s - %.2f", category, limit));
+    budgetService.setBudget(username, category, limit, period);
+    String text = "✓ Бюджет установлен: " + category + " - " + Formatting.formatAmount(limit);
+    System.out.println(period == null ? text : text + " (" + period + ")");
+  }
+
+  private BudgetPeriod readBudgetPeriod() {
+    System.out.print("Период (Enter - без периода, 1 - неделя, 2 - месяц, 3 - число дней): ");
+    String choice = scanner.nextLine().trim();
+    if (choice.isEmpty()) {
+      return null;
+    }
+    int days = 0;
+    if (choice.equals("3")) {
+      System.out.print("Длина периода в днях (с сегодняшнего дня): ");
+      try {
+        days = Integer.parseInt(scanner.nextLine().trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Неверное число дней.");
+      }
+      if (days < 1) {
+        throw new IllegalArgumentException("Неверное число дней.");
+      }
+    } else if (!choice.equals("1") && !choice.equals("2")) {
+      throw new IllegalArgumentException("Неверный выбор периода.");
+    }
+    System.out.print("Переносить неизрасходованный остаток на следующий период? (да/нет): ");
+    boolean rollover = scanner.nextLine().trim().equalsIgnoreCase("да");
+    switch (choice) {
+      case "1":
+        return BudgetPeriod.weekly(rollover);
+      case "2":
+        return BudgetPeriod.monthly(rollover);
+      default:
+        return BudgetPeriod.days(days, LocalDate.now(), rollover);
+    }
   }
 
   private void handleShowStatistics() {
@@ -305,30 +361,23 @@ public class CLI {
     System.out.println("║                   ФИНАНСОВАЯ СТАТИСТИКА                ║");
     System.out.println("╚════════════════════════════════════════════════════════╝");
 
-    double totalIncome = transactionService.getTotalIncome(username);
-    double totalExpense = transactionService.getTotalExpense(username);
-    double balance = transactionService.getBalance(username);
+    WalletSnapshot snapshot = transactionService.getSnapshot(username);
+    double totalIncome = snapshot.getTotalIncome();
+    double totalExpense = snapshot.getTotalExpense();
+    double balance = snapshot.getBalance();
 
-    System.out.println(String.format("\nОбщий доход: %.2f", totalIncome));
-    System.out.println(String.format("Общие расходы: %.2f", totalExpense));
-    System.out.println(String.format("Баланс: %.2f", balance));
+    String label = " (" + CurrencyCode.DEFAULT + "): ";
+    System.out.println("\nОбщий доход" + label + Formatting.formatAmount(totalIncome));
+    System.out.println("Общие расходы" + label + Formatting.formatAmount(totalExpense));
+    System.out.println("Баланс" + label + Formatting.formatAmount(balance));
 
-    System.out.println("\n--- Доходы по категориям ---");
-    Map<String, Double> incomeByCategory = transactionService.getIncomeByCategory(username);
-    if (incomeByCategory.isEmpty()) {
-      System.out.println("  (нет данных)");
-    } else {
-      incomeByCategory.forEach(
-          (category, amount) -> System.out.println(String.format("  %s: %.2f", category, amount)));
+    // Amounts in different currencies are never added up, so every currency gets its own lists
+    Set<String> currencies = snapshot.getCurrencies();
+    if (currencies.isEmpty()) {
+      currencies = Set.of(CurrencyCode.DEFAULT);
     }
-
-    System.out.println("\n--- Расходы по категориям ---");
-    Map<String, Double> expenseByCategory = transactionService.getExpenseByCategory(username);
-    if (expenseByCategory.isEmpty()) {
-      System.out.println("  (нет данных)");
-    } else {
-      expenseByCategory.forEach(
-          (category, amount) -> System.out.println(String.format("  %s: %.2f", category, amount)));
+    for (String currency : currencies) {
+      printCategoryStatistics(snapshot, currency);
     }
 
     // Option to filter by categories
@@ -343,21 +392,17 @@ public class CLI {
         List<String> categories =
             Arrays.stream(categoriesStr.split(",")).map(String::trim).toList();
 
-        double filteredIncome = transactionService.getIncomeForCategories(username, categories);
-        double filteredExpense = transactionService.getExpenseForCategories(username, categories);
-
         System.out.println("\n--- Фильтрованная статистика ---");
-        System.out.println(String.format("Доход: %.2f", filteredIncome));
-        System.out.println(String.format("Расходы: %.2f", filteredExpense));
+        for (String currency : currencies) {
+          StringBuilder line = new StringBuilder("Доход (").append(currency).append("): ");
+          Formatting.appendAmount(line, snapshot.getIncomeForCategories(currency, categories));
+          line.append(", расходы: ");
+          Formatting.appendAmount(line, snapshot.getExpenseForCategories(currency, categories));
+          System.out.println(line);
+        }
 
         // Check for unknown categories
-        List<String> knownCategories =
-            transactionService.getTransactions(username).stream()
-                .map(Transaction::getCategory)
-                .distinct()
-                .toList();
-        List<String> unknownCategories =
-            categories.stream().filter(c -> !knownCategories.contains(c)).toList();
+        List<String> unknownCategories = snapshot.getUnknownCategories(categories);
 
         if (!unknownCategories.isEmpty()) {
           System.out.println(
@@ -367,9 +412,43 @@ public class CLI {
     }
   }
 
+  private void printCategoryStatistics(WalletSnapshot snapshot, String currency) {
+    System.out.println("\n--- Доходы по категориям (" + currency + ") ---");
+    Map<String, Double> incomeByCategory = snapshot.getIncomeByCategory(currency);
+    if (incomeByCategory.isEmpty()) {
+      System.out.println("  (нет данных)");
+    } else {
+      incomeByCategory.forEach(
+          (category, amount) ->
+              System.out.println("  " + category + ": " + Formatting.formatAmount(amount)));
+    }
+
+    System.out.println("\n--- Расходы по категориям (" + currency + ") ---");
+    Map<String, Double> expenseByCategory = snapshot.getExpenseByCategory(currency);
+    if (expenseByCategory.isEmpty()) {
+      System.out.println("  (нет данных)");
+    } else {
+      expenseByCategory.forEach(
+          (category, amount) ->
+              System.out.println("  " + category + ": " + Formatting.formatAmount(amount)));
+    }
+
+    CategoryTree tree = snapshot.getCategoryTree(currency);
+    List<String> groups =
+        tree.getRoots().stream().filter(root -> !tree.getChildren(root).isEmpty()).toList();
+    if (!groups.isEmpty()) {
+      System.out.println("\n--- Итоги по группам категорий (" + currency + ") ---");
+      for (String group : groups) {
+        StringBuilder line = new StringBuilder("  ").append(group).append(": доход ");
+        Formatting.appendAmount(line, tree.getIncome(group)).append(", расходы ");
+        System.out.println(Formatting.appendAmount(line, tree.getExpense(group)));
+      }
+    }
+  }
+
   private void handleShowBudgets() {
     String username = authService.getCurrentUser().getUsername();
-    Map<String, Budget> budgets = budgetService.getAllBudgets(username);
+    Map<String, BudgetStatus> budgets = budgetService.getBudgetStatuses(username);
 
     System.out.println("\n╔════════════════════════════════════════════════════════╗");
     System.out.println("║                   БЮДЖЕТЫ ПО КАТЕГОРИЯМ                ║");
@@ -381,18 +460,23 @@ public class CLI {
     }
 
     System.out.println();
-    for (Map.Entry<String, Budget> entry : budgets.entrySet()) {
+    for (Map.Entry<String, BudgetStatus> entry : budgets.entrySet()) {
       String category = entry.getKey();
-      Budget budget = entry.getValue();
-      double remaining = budgetService.getRemainingBudget(username, category);
-      double spent = budget.getLimit() - remaining;
-      double percentage = budgetService.getBudgetUsagePercentage(username, category);
+      BudgetStatus budget = entry.getValue();
+      double remaining = budget.getRemaining();
 
       String status = remaining >= 0 ? "✓" : "✗";
-      System.out.println(
-          String.format(
-              "%s %s: Лимит=%.2f, Потрачено=%.2f, Осталось=%.2f (%.0f%%)",
-              status, category, budget.getLimit(), spent, remaining, percentage));
+      LocalDate periodStart = budget.getPeriodStart(LocalDate.now());
+      StringBuilder line = new StringBuilder(96);
+      line.append(status).append(' ').append(category).append(": Лимит=");
+      Formatting.appendAmount(line, budget.getAvailable(LocalDate.now())).append(", Потрачено=");
+      Formatting.appendAmount(line, budget.getSpent()).append(", Осталось=");
+      Formatting.appendAmount(line, remaining).append(" (");
+      Formatting.appendPercentage(line, budget.getUsagePercentage()).append("%)");
+      if (periodStart != null) {
+        line.append(" за период с ").append(periodStart);
+      }
+      System.out.println(line);
     }
   }
 
@@ -435,7 +519,10 @@ public class CLI {
     double balance = transactionService.getBalance(username);
     if (balance < amount) {
       System.out.println(
-          String.format("✗ Недостаточно средств. Ваш баланс: %.2f, требуется: %.2f", balance, amount));
+          "✗ Недостаточно средств. Ваш баланс: "
+              + Formatting.formatAmount(balance)
+              + ", требуется: "
+              + Formatting.formatAmount(amount));
       return;
     }
 
@@ -456,7 +543,8 @@ public class CLI {
       fileStorage.saveWallet(senderWallet);
       fileStorage.saveWallet(receiverWallet);
 
-      System.out.println(String.format("✓ Перевод выполнен: %.2f -> %s", amount, toUser));
+      System.out.println(
+          "✓ Перевод выполнен: " + Formatting.formatAmount(amount) + " -> " + toUser);
     } catch (Exception e) {
       System.out.println("✗ Ошибка при переводе: " + e.getMessage());
     }
@@ -464,8 +552,11 @@ public class CLI {
 
   private void handleExport() {
     System.out.println("\n=== ЭКСПОРТ ДАННЫХ ===");
-    System.out.println("1. Экспорт в CSV");
+    System.out.println("1. Экспорт в CSV (только новые транзакции)");
     System.out.println("2. Экспорт в JSON");
+    System.out.println("3. Экспорт в колоночный формат (для аналитики)");
+    System.out.println("4. Полный переэкспорт в CSV");
+    System.out.println("5. Проверить целостность CSV экспорта");
     System.out.print("Выберите формат: ");
 
     String choice = scanner.nextLine().trim();
@@ -476,12 +567,38 @@ public class CLI {
     try {
       if (choice.equals("1")) {
         String filename = username + "_export.csv";
-        fileStorage.exportToCSV(wallet, filename);
-        System.out.println("✓ Данные экспортированы в " + filename);
+        IncrementalCsvExport.Result result = fileStorage.exportToCSVIncremental(wallet, filename);
+        if (result.isFullExport()) {
+          System.out.println(
+              "✓ Данные экспортированы в "
+                  + filename
+                  + " (транзакций: "
+                  + result.getTotalCount()
+                  + ")");
+        } else {
+          System.out.println(
+              "✓ В " + filename + " добавлено новых транзакций: " + result.getAppendedCount());
+        }
       } else if (choice.equals("2")) {
         String filename = username + "_export.json";
         fileStorage.exportToJSON(wallet, filename);
         System.out.println("✓ Данные экспортированы в " + filename);
+      } else if (choice.equals("3")) {
+        String filename = username + "_export" + ColumnarWalletFile.EXTENSION;
+        fileStorage.exportToColumnar(wallet, filename);
+        System.out.println("✓ Данные экспортированы в " + filename);
+      } else if (choice.equals("4")) {
+        String filename = username + "_export.csv";
+        fileStorage.exportToCSV(wallet, filename);
+        System.out.println("✓ Данные экспортированы в " + filename);
+      } else if (choice.equals("5")) {
+        String filename = username + "_export.csv";
+        if (fileStorage.verifyCSVExport(filename)) {
+          System.out.println("✓ Файл " + filename + " не поврежден.");
+        } else {
+          System.out.println(
+              "✗ Файл " + filename + " поврежден или отсутствует. Выполните полный переэкспорт.");
+        }
       } else {
         System.out.println("✗ Неверный выбор.");
       }
@@ -545,4 +662,3 @@ public class CLI {
     running = false;
   }
 }
-
@@ -0,0 +1,143 @@
+package com.finances.core.domain;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Bitmap index of a wallet's transactions by type, category, month and amount bucket.
+ *
+ * <p>Every attribute value maps to an {@link OrdinalBitmap} of the transactions having it, so a
+ * {@link TransactionQuery} is answered with bitmap intersections, unions and differences and never
+ * looks at a transaction that does not match. Transactions added to the wallet are indexed by the
+ * writer under the wallet lock; the wallet's {@link TransactionHistory} is indexed on the first
+ * query. Readers never lock and only see ordinals below their snapshot's size.
+ */
+final class AttributeIndex {
+  private final TransactionHistory history;
+  private final Segment live = new Segment();
+  private volatile Segment historySegment;
+
+  AttributeIndex(TransactionHistory history) {
+    this.history = history;
+  }
+
+  /**
+   * Indexes a transaction appended to the wallet. Called by the single writer.
+   *
+   * @param ordinal the position of the transaction in the wallet's array
+   * @param transaction the transaction
+   */
+  void add(int ordinal, Transaction transaction) {
+    live.add(ordinal, transaction);
+  }
+
+  /**
+   * Selects the transactions meeting a query.
+   *
+   * @param query the query
+   * @param transactions the wallet's transaction array
+   * @param size the number of transactions in the snapshot
+   * @return the selection
+   */
+  TransactionSelection select(TransactionQuery query, Transaction[] transactions, int size) {
+    if (query == null) {
+      throw new IllegalArgumentException("Query cannot be null");
+    }
+    OrdinalBitmap historyMatches =
+        history.size() > 0
+            ? evaluate(query, historySegment(), history.size())
+            : OrdinalBitmap.empty();
+    return new TransactionSelection(
+        history, historyMatches, transactions, evaluate(query, live, size));
+  }
+
+  private static OrdinalBitmap evaluate(TransactionQuery query, Segment segment, int bound) {
+    switch (query.getKind()) {
+      case ALL:
+        return OrdinalBitmap.range(bound);
+      case TYPE:
+        return clip(segment.types.get((TransactionType) query.getKey()), bound);
+      case CATEGORY:
+        return clip(segment.categories.get((String) query.getKey()), bound);
+      case AMOUNT_BUCKET:
+        return clip(segment.amountBuckets.get((Integer) query.getKey()), bound);
+      case MONTHS:
+        OrdinalBitmap months = OrdinalBitmap.empty();
+        for (OrdinalBitmap bitmap :
+            segment
+                .months
+                .subMap((YearMonth) query.getKey(), true, (YearMonth) query.getEndKey(), true)
+                .values()) {
+          months = months.or(bitmap.clip(bound));
+        }
+        return months;
+      case AND:
+        List<TransactionQuery> factors = query.getOperands();
+        OrdinalBitmap all = evaluate(factors.get(0), segment, bound);
+        for (int i = 1; i < factors.size() && all.cardinality() > 0; i++) {
+          all = all.and(evaluate(factors.get(i), segment, bound));
+        }
+        return all;
+      case OR:
+        OrdinalBitmap any = OrdinalBitmap.empty();
+        for (TransactionQuery operand : query.getOperands()) {
+          any = any.or(evaluate(operand, segment, bound));
+        }
+        return any;
+      case NOT:
+        return OrdinalBitmap.range(bound)
+            .andNot(evaluate(query.getOperands().get(0), segment, bound));
+      default:
+        throw new IllegalStateException("Unknown query kind: " + query.getKind());
+    }
+  }
+
+  private static OrdinalBitmap clip(OrdinalBitmap bitmap, int bound) {
+    return bitmap == null ? OrdinalBitmap.empty() : bitmap.clip(bound);
+  }
+
+  private Segment historySegment() {
+    Segment segment = historySegment;
+    if (segment == null) {
+      synchronized (this) {
+        segment = historySegment;
+        if (segment == null) {
+          segment = new Segment();
+          List<Transaction> transactions = history.getTransactions();
+          for (int i = 0; i < transactions.size(); i++) {
+            segment.add(i, transactions.get(i));
+          }
+          historySegment = segment;
+        }
+      }
+    }
+    return segment;
+  }
+
+  /** The bitmaps of one run of transactions. */
+  private static final class Segment {
+    private final Map<TransactionType, OrdinalBitmap> types = new ConcurrentHashMap<>();
+    private final Map<String, OrdinalBitmap> categories = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<YearMonth, OrdinalBitmap> months =
+        new ConcurrentSkipListMap<>();
+    private final Map<Integer, OrdinalBitmap> amountBuckets = new ConcurrentHashMap<>();
+
+    private void add(int ordinal, Transaction transaction) {
+      types.computeIfAbsent(transaction.getType(), key -> new OrdinalBitmap()).add(ordinal);
+      categories
+          .computeIfAbsent(transaction.getCategory(), key -> new OrdinalBitmap())
+          .add(ordinal);
+      months
+          .computeIfAbsent(YearMonth.from(transaction.getTimestamp()), key -> new OrdinalBitmap())
+          .add(ordinal);
+      amountBuckets
+          .computeIfAbsent(
+              TransactionQuery.bucketOf(transaction.getAmount()), key -> new OrdinalBitmap())
+          .add(ordinal);
+    }
+  }
+}
+
@@ -1,22 +1,59 @@
 package com.finances.core.domain;
 
+import com.finances.core.util.Formatting;
 import java.util.Objects;
 
-/** Represents a budget limit for a specific expense category. */
+/**
+ * Represents a budget limit for a specific expense category.
+ *
+ * <p>Without a period the limit applies to all expenses ever made in the category; with a {@link
+ * BudgetPeriod} it applies to each week, month or custom period separately. The limit is in the
+ * budget's currency, and only expenses in that currency count against it.
+ */
 public class Budget {
   private final String category;
   private double limit;
+  private final BudgetPeriod period;
+  private final String currency;
 
   public Budget(String category, double limit) {
+    this(category, limit, null);
+  }
+
+  /**
+   * Creates a budget.
+   *
+   * @param category the expense category
+   * @param limit the limit, per period if a period is given
+   * @param period the period the limit applies to, or null for a lifetime limit
+   * @throws IllegalArgumentException if the category is empty or the limit is negative
+   */
+  public Budget(String category, double limit, BudgetPeriod period) {
+    this(category, limit, period, null);
+  }
+
+  /**
+   * Creates a budget in a given currency.
+   *
+   * @param category the expense category
+   * @param limit the limit, per period if a period is given
+   * @param period the period the limit applies to, or null for a lifetime limit
+   * @param currency the currency of the limit, or null for {@link CurrencyCode#DEFAULT}
+   * @throws IllegalArgumentException if the category is empty, the limit is negative or not finite,
+   *     or the currency code is invalid
+   */
+  public Budget(String category, double limit, BudgetPeriod period, String currency) {
     if (category == null || category.trim().isEmpty()) {
       throw new IllegalArgumentException("Category cannot be null or empty");
     }
-    if (limit < 0) {
-      throw new IllegalArgumentException("Budget limit cannot be negative");
+    if (!Double.isFinite(limit) || limit < 0) {
+      throw new IllegalArgumentException("Budget limit must be finite and not negative");
     }
 
     this.category = category.trim();
     this.limit = limit;
+    this.period = period;
+    this.currency = CurrencyCode.normalize(currency);
   }
 
   public String getCategory() {
@@ -27,9 +64,27 @@ public class Budget {
     return limit;
   }
 
+  /**
+   * Gets the period the limit applies to.
+   *
+   * @return the period, or null for a lifetime limit
+   */
+  public BudgetPeriod getPeriod() {
+    return period;
+  }
+
+  /**
+   * Gets the currency of the limit.
+   *
+   * @return the upper-case currency code
+   */
+  public String getCurrency() {
+    return currency;
+  }
+
   public void setLimit(double limit) {
-    if (limit < 0) {
-      throw new IllegalArgumentException("Budget limit cannot be negative");
+    if (!Double.isFinite(limit) || limit < 0) {
+      throw new IllegalArgumentException("Budget limit must be finite and not negative");
     }
     this.limit = limit;
   }
@@ -53,7 +108,14 @@ public class Budget {
 
   @Override
   public String toString() {
-    return String.format("%s: %.2f", category, limit);
+    StringBuilder text = new StringBuilder(32).append(category).append(": ");
+    Formatting.appendAmount(text, limit);
+    if (!currency.equals(CurrencyCode.DEFAULT)) {
+      text.append(' ').append(currency);
+    }
+    return period == null
+        ? text.toString()
+        : text.append(" (").append(period).append(')').toString();
   }
 }
 
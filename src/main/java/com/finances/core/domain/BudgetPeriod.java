@@ -0,0 +1,179 @@
+package com.finances.core.domain;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Recurring window a budget limit applies to.
+ *
+ * <p>Weeks start on Monday, months on the first day, and custom periods are a fixed number of days
+ * counted from an anchor date. Periods are numbered so that consecutive periods have consecutive
+ * indexes. With rollover, the unspent part of a period's budget is added to the next one.
+ *
+ * <p>The textual form used for storage is {@code WEEKLY}, {@code MONTHLY} or {@code
+ * DAYS:<n>:<anchor>}, followed by {@code +ROLLOVER} when rollover is enabled.
+ */
+public final class BudgetPeriod {
+  /** Kind of period. */
+  public enum Kind {
+    WEEKLY,
+    MONTHLY,
+    DAYS
+  }
+
+  private static final String ROLLOVER_SUFFIX = "+ROLLOVER";
+
+  private final Kind kind;
+  private final int days;
+  private final LocalDate anchor;
+  private final boolean rollover;
+
+  private BudgetPeriod(Kind kind, int days, LocalDate anchor, boolean rollover) {
+    this.kind = kind;
+    this.days = days;
+    this.anchor = anchor;
+    this.rollover = rollover;
+  }
+
+  public static BudgetPeriod weekly(boolean rollover) {
+    return new BudgetPeriod(Kind.WEEKLY, 7, null, rollover);
+  }
+
+  public static BudgetPeriod monthly(boolean rollover) {
+    return new BudgetPeriod(Kind.MONTHLY, 0, null, rollover);
+  }
+
+  /**
+   * Creates a custom period of a fixed number of days.
+   *
+   * @param days the length of a period in days
+   * @param anchor the first day of one of the periods
+   * @param rollover whether unspent budget carries over to the next period
+   * @return the period
+   * @throws IllegalArgumentException if days is not positive or the anchor is null
+   */
+  public static BudgetPeriod days(int days, LocalDate anchor, boolean rollover) {
+    if (days < 1) {
+      throw new IllegalArgumentException("Period length must be positive");
+    }
+    if (anchor == null) {
+      throw new IllegalArgumentException("Period anchor cannot be null");
+    }
+    return new BudgetPeriod(Kind.DAYS, days, anchor, rollover);
+  }
+
+  /**
+   * Parses the textual form of a period, ignoring case.
+   *
+   * @param text the text, e.g. {@code MONTHLY+ROLLOVER} or {@code DAYS:14:2024-01-01}
+   * @return the period
+   * @throws IllegalArgumentException if the text is not a valid period
+   */
+  public static BudgetPeriod parse(String text) {
+    if (text == null) {
+      throw new IllegalArgumentException("Period cannot be null");
+    }
+    String spec = text.trim().toUpperCase(Locale.ROOT);
+    boolean rollover = spec.endsWith(ROLLOVER_SUFFIX);
+    if (rollover) {
+      spec = spec.substring(0, spec.length() - ROLLOVER_SUFFIX.length());
+    }
+    if (spec.equals("WEEKLY")) {
+      return weekly(rollover);
+    }
+    if (spec.equals("MONTHLY")) {
+      return monthly(rollover);
+    }
+    String[] parts = spec.split(":");
+    if (parts.length == 3 && parts[0].equals("DAYS")) {
+      try {
+        return days(Integer.parseInt(parts[1]), LocalDate.parse(parts[2]), rollover);
+      } catch (NumberFormatException | DateTimeParseException e) {
+        throw new IllegalArgumentException("Invalid budget period: " + text, e);
+      }
+    }
+    throw new IllegalArgumentException("Invalid budget period: " + text);
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public boolean isRollover() {
+    return rollover;
+  }
+
+  /**
+   * Gets the index of the period containing a date.
+   *
+   * @param date the date
+   * @return the period index
+   */
+  public long indexOf(LocalDate date) {
+    switch (kind) {
+      case WEEKLY:
+        return Math.floorDiv(date.with(DayOfWeek.MONDAY).toEpochDay(), 7);
+      case MONTHLY:
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+      default:
+        return Math.floorDiv(date.toEpochDay() - anchor.toEpochDay(), days);
+    }
+  }
+
+  /**
+   * Gets the first day of a period.
+   *
+   * @param index the period index
+   * @return the first day
+   */
+  public LocalDate startOf(long index) {
+    switch (kind) {
+      case WEEKLY:
+        // Epoch day 4 (1970-01-05) is a Monday
+        return LocalDate.ofEpochDay(index * 7 + 4);
+      case MONTHLY:
+        return LocalDate.of((int) Math.floorDiv(index, 12), Math.floorMod(index, 12) + 1, 1);
+      default:
+        return anchor.plusDays(index * days);
+    }
+  }
+
+  /**
+   * Gets the textual form of this period.
+   *
+   * @return the text accepted by {@link #parse}
+   */
+  public String format() {
+    String spec = kind == Kind.DAYS ? "DAYS:" + days + ":" + anchor : kind.name();
+    return rollover ? spec + ROLLOVER_SUFFIX : spec;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    BudgetPeriod that = (BudgetPeriod) o;
+    return kind == that.kind
+        && days == that.days
+        && rollover == that.rollover
+        && Objects.equals(anchor, that.anchor);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(kind, days, anchor, rollover);
+  }
+
+  @Override
+  public String toString() {
+    return format();
+  }
+}
+
@@ -0,0 +1,116 @@
+package com.finances.core.domain;
+
+import java.time.LocalDate;
+
+/**
+ * Spending against a budget, as tracked by the wallet.
+ *
+ * <p>The wallet keeps one status per budgeted category and updates it when an expense in that
+ * category is added or the limit changes, so reading it never rescans transactions. For a periodic
+ * budget the figures refer to the period containing the given date, today by default, and the
+ * available amount includes the rollover from earlier periods.
+ */
+public final class BudgetStatus {
+  private final Budget budget;
+  private final double spent;
+  private final PeriodWindow window;
+
+  BudgetStatus(Budget budget, double spent, PeriodWindow window) {
+    this.budget = budget;
+    this.spent = spent;
+    this.window = window;
+  }
+
+  public Budget getBudget() {
+    return budget;
+  }
+
+  public String getCategory() {
+    return budget.getCategory();
+  }
+
+  public double getLimit() {
+    return budget.getLimit();
+  }
+
+  /**
+   * Gets the total spent in the category, regardless of periods.
+   *
+   * @return the lifetime spent amount
+   */
+  public double getTotalSpent() {
+    return spent;
+  }
+
+  public double getSpent() {
+    return getSpent(LocalDate.now());
+  }
+
+  /**
+   * Gets the amount spent in the budget's period containing a date.
+   *
+   * @param date the date
+   * @return the spent amount; the lifetime amount for a budget without a period
+   */
+  public double getSpent(LocalDate date) {
+    return window == null ? spent : window.spentOn(date);
+  }
+
+  /**
+   * Gets the amount that may be spent in the period containing a date: the limit plus any rollover.
+   *
+   * @param date the date
+   * @return the available amount
+   */
+  public double getAvailable(LocalDate date) {
+    return window == null ? budget.getLimit() : budget.getLimit() + window.carryOn(date);
+  }
+
+  public double getRemaining() {
+    return getRemaining(LocalDate.now());
+  }
+
+  public double getRemaining(LocalDate date) {
+    return getAvailable(date) - getSpent(date);
+  }
+
+  public double getUsagePercentage() {
+    return getUsagePercentage(LocalDate.now());
+  }
+
+  /**
+   * Gets the share of the available amount that has been spent.
+   *
+   * @param date the date selecting the period
+   * @return the percentage (0-100+), 0 when nothing is available
+   */
+  public double getUsagePercentage(LocalDate date) {
+    double available = getAvailable(date);
+    return available == 0 ? 0 : (getSpent(date) / available) * 100;
+  }
+
+  public boolean isExceeded() {
+    return getRemaining() < 0;
+  }
+
+  /**
+   * Gets the first day of the budget's period containing a date.
+   *
+   * @param date the date
+   * @return the first day, or null for a budget without a period
+   */
+  public LocalDate getPeriodStart(LocalDate date) {
+    BudgetPeriod period = budget.getPeriod();
+    return period == null ? null : period.startOf(period.indexOf(date));
+  }
+
+  BudgetStatus withExpense(LocalDate date, double amount) {
+    return new BudgetStatus(
+        budget, spent + amount, window == null ? null : window.add(date, amount));
+  }
+
+  PeriodWindow getWindow() {
+    return window;
+  }
+}
+
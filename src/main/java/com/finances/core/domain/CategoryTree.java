@@ -0,0 +1,287 @@
+package com.finances.core.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Income and expense totals per node of the category hierarchy.
+ *
+ * <p>Categories form a tree by their {@code /}-separated segments: {@code Food/Groceries} is a
+ * child of {@code Food}. Every node holds the amounts recorded for its own category and the rollup
+ * over its whole subtree. A tree covers the transactions of one currency, since amounts in
+ * different currencies cannot be added up. The tree is immutable; adding an amount copies only the
+ * nodes on the category's ancestor path and their child tables, so snapshots share the rest and
+ * every query costs O(depth).
+ */
+public final class CategoryTree {
+  /** Separates the segments of a category path. */
+  public static final char SEPARATOR = '/';
+
+  private static final CategoryTree EMPTY = new CategoryTree(Node.EMPTY);
+
+  private final Node root;
+
+  private CategoryTree(Node root) {
+    this.root = root;
+  }
+
+  static CategoryTree empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Builds a tree from per-category totals.
+   *
+   * @param incomeByCategory income per category
+   * @param expenseByCategory expenses per category
+   * @return the tree
+   */
+  static CategoryTree of(
+      Map<String, Double> incomeByCategory, Map<String, Double> expenseByCategory) {
+    CategoryTree tree = EMPTY;
+    for (Map.Entry<String, Double> entry : incomeByCategory.entrySet()) {
+      tree = tree.add(entry.getKey(), TransactionType.INCOME, entry.getValue());
+    }
+    for (Map.Entry<String, Double> entry : expenseByCategory.entrySet()) {
+      tree = tree.add(entry.getKey(), TransactionType.EXPENSE, entry.getValue());
+    }
+    return tree;
+  }
+
+  /**
+   * Records an amount for a category and all of its ancestors.
+   *
+   * @param category the category
+   * @param type the transaction type
+   * @param amount the amount
+   * @return the updated tree
+   */
+  CategoryTree add(String category, TransactionType type, double amount) {
+    return new CategoryTree(root.add(segments(category), 0, type, amount));
+  }
+
+  /**
+   * Gets the income of a category including all of its subcategories.
+   *
+   * @param category the category
+   * @return the rollup income, 0 for an unknown category
+   */
+  public double getIncome(String category) {
+    Node node = find(category);
+    return node == null ? 0 : node.income;
+  }
+
+  /**
+   * Gets the expenses of a category including all of its subcategories.
+   *
+   * @param category the category
+   * @return the rollup expenses, 0 for an unknown category
+   */
+  public double getExpense(String category) {
+    Node node = find(category);
+    return node == null ? 0 : node.expense;
+  }
+
+  /**
+   * Gets the income recorded for exactly this category, without subcategories.
+   *
+   * @param category the category
+   * @return the income, 0 for an unknown category
+   */
+  public double getOwnIncome(String category) {
+    Node node = find(category);
+    return node == null ? 0 : node.ownIncome;
+  }
+
+  /**
+   * Gets the expenses recorded for exactly this category, without subcategories.
+   *
+   * @param category the category
+   * @return the expenses, 0 for an unknown category
+   */
+  public double getOwnExpense(String category) {
+    Node node = find(category);
+    return node == null ? 0 : node.ownExpense;
+  }
+
+  /**
+   * Checks whether anything was recorded for a category or one of its subcategories.
+   *
+   * @param category the category
+   * @return true if the category is a node of the tree
+   */
+  public boolean contains(String category) {
+    return find(category) != null;
+  }
+
+  /**
+   * Checks whether transactions were recorded for exactly this category. Unlike {@link #contains},
+   * a category that only has subcategories does not count.
+   *
+   * @param category the category
+   * @return true if the category has income or expenses of its own
+   */
+  public boolean hasTransactions(String category) {
+    Node node = find(category);
+    // Amounts are positive, so a node with transactions has a non-zero own total
+    return node != null && (node.ownIncome > 0 || node.ownExpense > 0);
+  }
+
+  /**
+   * Gets the amounts recorded for each category itself, without subcategories.
+   *
+   * @param type the transaction type
+   * @return a map of category to its own total, for categories with amounts of that type
+   */
+  Map<String, Double> getOwnTotals(TransactionType type) {
+    Map<String, Double> totals = new HashMap<>();
+    for (Map.Entry<String, Node> child : root.children.entrySet()) {
+      child.getValue().collectOwn(child.getKey(), type == TransactionType.INCOME, totals);
+    }
+    return totals;
+  }
+
+  /**
+   * Gets the top-level categories.
+   *
+   * @return the sorted top-level categories
+   */
+  public Set<String> getRoots() {
+    return new TreeSet<>(root.children.keySet());
+  }
+
+  /**
+   * Gets the direct subcategories of a category.
+   *
+   * @param category the category
+   * @return the sorted full paths of its children, empty for a leaf or unknown category
+   */
+  public Set<String> getChildren(String category) {
+    Node node = find(category);
+    Set<String> children = new TreeSet<>();
+    if (node != null) {
+      for (String segment : node.children.keySet()) {
+        children.add(category + SEPARATOR + segment);
+      }
+    }
+    return children;
+  }
+
+  /**
+   * Gets a category and its ancestors.
+   *
+   * @param category the category
+   * @return the paths from the top-level ancestor down to the category itself
+   */
+  public static List<String> pathOf(String category) {
+    List<String> path = new ArrayList<>(2);
+    int index = category.indexOf(SEPARATOR);
+    while (index >= 0) {
+      path.add(category.substring(0, index));
+      index = category.indexOf(SEPARATOR, index + 1);
+    }
+    path.add(category);
+    return path;
+  }
+
+  /**
+   * Checks whether a category is another category or one of its descendants.
+   *
+   * @param category the category to test
+   * @param ancestor the root of the subtree
+   * @return true if {@code category} lies in the subtree of {@code ancestor}
+   */
+  public static boolean isWithin(String category, String ancestor) {
+    return category.startsWith(ancestor)
+        && (category.length() == ancestor.length()
+            || category.charAt(ancestor.length()) == SEPARATOR);
+  }
+
+  private Node find(String category) {
+    if (category == null) {
+      return null;
+    }
+    Node node = root;
+    int start = 0;
+    while (node != null) {
+      int end = category.indexOf(SEPARATOR, start);
+      String segment = end < 0 ? category.substring(start) : category.substring(start, end);
+      node = node.children.get(segment);
+      if (end < 0) {
+        return node;
+      }
+      start = end + 1;
+    }
+    return null;
+  }
+
+  private static String[] segments(String category) {
+    List<String> segments = new ArrayList<>(2);
+    int start = 0;
+    int end;
+    while ((end = category.indexOf(SEPARATOR, start)) >= 0) {
+      segments.add(category.substring(start, end));
+      start = end + 1;
+    }
+    segments.add(category.substring(start));
+    return segments.toArray(new String[0]);
+  }
+
+  /** Immutable node; the root has no amounts of its own. */
+  private static final class Node {
+    private static final Node EMPTY = new Node(0, 0, 0, 0, Collections.emptyMap());
+
+    private final double ownIncome;
+    private final double ownExpense;
+    private final double income;
+    private final double expense;
+    private final Map<String, Node> children;
+
+    private Node(
+        double ownIncome,
+        double ownExpense,
+        double income,
+        double expense,
+        Map<String, Node> children) {
+      this.ownIncome = ownIncome;
+      this.ownExpense = ownExpense;
+      this.income = income;
+      this.expense = expense;
+      this.children = children;
+    }
+
+    private void collectOwn(String path, boolean income, Map<String, Double> totals) {
+      double own = income ? ownIncome : ownExpense;
+      if (own > 0) {
+        totals.put(path, own);
+      }
+      for (Map.Entry<String, Node> child : children.entrySet()) {
+        child.getValue().collectOwn(path + SEPARATOR + child.getKey(), income, totals);
+      }
+    }
+
+    private Node add(String[] segments, int depth, TransactionType type, double amount) {
+      boolean isIncome = type == TransactionType.INCOME;
+      Map<String, Node> newChildren = children;
+      boolean own = depth == segments.length;
+      if (!own) {
+        Node child = children.getOrDefault(segments[depth], EMPTY);
+        newChildren = new HashMap<>(children);
+        newChildren.put(segments[depth], child.add(segments, depth + 1, type, amount));
+        newChildren = Collections.unmodifiableMap(newChildren);
+      }
+      return new Node(
+          own && isIncome ? ownIncome + amount : ownIncome,
+          own && !isIncome ? ownExpense + amount : ownExpense,
+          isIncome ? income + amount : income,
+          isIncome ? expense : expense + amount,
+          newChildren);
+    }
+  }
+}
+
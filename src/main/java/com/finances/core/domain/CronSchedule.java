@@ -0,0 +1,245 @@
+package com.finances.core.domain;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Cron-like schedule with minute resolution.
+ *
+ * <p>The expression has five space-separated fields: minute (0-59), hour (0-23), day of month
+ * (1-31), month (1-12) and day of week (0-7, where both 0 and 7 are Sunday). A field is {@code *},
+ * a value, a range {@code a-b} or a comma-separated list of those, each optionally followed by a
+ * step {@code /n}. As in cron, a day matches either field when both the day of month and the day of
+ * week are restricted. Instead of the fields the expression may be a macro with its usual meaning:
+ * {@code @hourly}, {@code @daily}, {@code @weekly}, {@code @monthly} or {@code @yearly}.
+ *
+ * <p>Each field is held as a bit mask, so finding the next occurrence skips whole months, days and
+ * hours that cannot match and costs a few mask operations per occurrence.
+ */
+public final class CronSchedule {
+  // Every day-of-month and day-of-week combination recurs within this many years
+  private static final int SEARCH_YEARS = 9;
+
+  private final String expression;
+  private final long minutes;
+  private final long hours;
+  private final long daysOfMonth;
+  private final long months;
+  private final long daysOfWeek;
+  private final boolean eitherDay;
+
+  private CronSchedule(
+      String expression,
+      long minutes,
+      long hours,
+      long daysOfMonth,
+      long months,
+      long daysOfWeek,
+      boolean eitherDay) {
+    this.expression = expression;
+    this.minutes = minutes;
+    this.hours = hours;
+    this.daysOfMonth = daysOfMonth;
+    this.months = months;
+    this.daysOfWeek = daysOfWeek;
+    this.eitherDay = eitherDay;
+  }
+
+  /**
+   * Parses a schedule expression.
+   *
+   * @param text the expression, e.g. {@code 0 9 1 * *} for 09:00 on the first of every month
+   * @return the schedule
+   * @throws IllegalArgumentException if the text is not a valid expression or never matches
+   */
+  public static CronSchedule parse(String text) {
+    if (text == null) {
+      throw new IllegalArgumentException("Schedule cannot be null");
+    }
+    String expression = expand(text.trim().toLowerCase(Locale.ROOT));
+    String[] fields = expression.split("\\s+");
+    if (fields.length != 5) {
+      throw new IllegalArgumentException("Schedule must have 5 fields: " + text);
+    }
+    long daysOfWeek = parseField(fields[4], 0, 7);
+    // Sunday may be written as 7
+    if ((daysOfWeek & (1L << 7)) != 0) {
+      daysOfWeek = (daysOfWeek | 1L) & ~(1L << 7);
+    }
+    CronSchedule schedule =
+        new CronSchedule(
+            expression,
+            parseField(fields[0], 0, 59),
+            parseField(fields[1], 0, 23),
+            parseField(fields[2], 1, 31),
+            parseField(fields[3], 1, 12),
+            daysOfWeek,
+            !fields[2].startsWith("*") && !fields[4].startsWith("*"));
+    if (schedule.search(LocalDate.of(2000, 1, 1).atStartOfDay()) == null) {
+      throw new IllegalArgumentException("Schedule never matches: " + text);
+    }
+    return schedule;
+  }
+
+  /**
+   * Gets the first occurrence at or after a time.
+   *
+   * @param from the earliest allowed time
+   * @return the occurrence, or null if there is none before the end of the supported range
+   */
+  public LocalDateTime first(LocalDateTime from) {
+    LocalDateTime start = from.truncatedTo(ChronoUnit.MINUTES);
+    return search(start.isBefore(from) ? start.plusMinutes(1) : start);
+  }
+
+  /**
+   * Gets the first occurrence strictly after a time.
+   *
+   * @param after the time, usually the previous occurrence
+   * @return the occurrence, or null if there is none before the end of the supported range
+   */
+  public LocalDateTime next(LocalDateTime after) {
+    return search(after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1));
+  }
+
+  /**
+   * Gets the expression with macros expanded.
+   *
+   * @return the expression
+   */
+  public String getExpression() {
+    return expression;
+  }
+
+  private LocalDateTime search(LocalDateTime start) {
+    LocalDateTime time = start;
+    LocalDateTime limit = start.plusYears(SEARCH_YEARS);
+    while (time.isBefore(limit)) {
+      if (!has(months, time.getMonthValue())) {
+        time = time.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay();
+      } else if (!matchesDay(time.toLocalDate())) {
+        time = time.toLocalDate().plusDays(1).atStartOfDay();
+      } else {
+        long hour = hours & (-1L << time.getHour());
+        if (hour == 0) {
+          time = time.toLocalDate().plusDays(1).atStartOfDay();
+          continue;
+        }
+        if (Long.numberOfTrailingZeros(hour) != time.getHour()) {
+          time = time.truncatedTo(ChronoUnit.DAYS).withHour(Long.numberOfTrailingZeros(hour));
+        }
+        long minute = minutes & (-1L << time.getMinute());
+        if (minute == 0) {
+          time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+          continue;
+        }
+        return time.withMinute(Long.numberOfTrailingZeros(minute));
+      }
+    }
+    return null;
+  }
+
+  private boolean matchesDay(LocalDate date) {
+    boolean dayOfMonth = has(daysOfMonth, date.getDayOfMonth());
+    boolean dayOfWeek = has(daysOfWeek, date.getDayOfWeek().getValue() % 7);
+    return eitherDay ? dayOfMonth || dayOfWeek : dayOfMonth && dayOfWeek;
+  }
+
+  private static boolean has(long mask, int value) {
+    return (mask & (1L << value)) != 0;
+  }
+
+  private static String expand(String text) {
+    switch (text) {
+      case "@hourly":
+        return "0 * * * *";
+      case "@daily":
+        return "0 0 * * *";
+      case "@weekly":
+        return "0 0 * * 0";
+      case "@monthly":
+        return "0 0 1 * *";
+      case "@yearly":
+      case "@annually":
+        return "0 0 1 1 *";
+      default:
+        return text;
+    }
+  }
+
+  private static long parseField(String field, int min, int max) {
+    long mask = 0;
+    for (String part : field.split(",", -1)) {
+      int step = 1;
+      String range = part;
+      int slash = part.indexOf('/');
+      if (slash >= 0) {
+        step = parseNumber(part.substring(slash + 1), 1, max, field);
+        range = part.substring(0, slash);
+      }
+      int from;
+      int to;
+      if (range.equals("*")) {
+        from = min;
+        to = max;
+      } else {
+        int dash = range.indexOf('-');
+        from = parseNumber(dash >= 0 ? range.substring(0, dash) : range, min, max, field);
+        to = dash >= 0 ? parseNumber(range.substring(dash + 1), min, max, field) : from;
+        if (slash >= 0 && dash < 0) {
+          to = max;
+        }
+        if (to < from) {
+          throw new IllegalArgumentException("Invalid range in schedule field: " + field);
+        }
+      }
+      for (int value = from; value <= to; value += step) {
+        mask |= 1L << value;
+      }
+    }
+    return mask;
+  }
+
+  private static int parseNumber(String text, int min, int max, String field) {
+    try {
+      int value = Integer.parseInt(text);
+      if (value >= min && value <= max) {
+        return value;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below with the whole field
+    }
+    throw new IllegalArgumentException("Invalid schedule field: " + field);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    CronSchedule that = (CronSchedule) o;
+    return minutes == that.minutes
+        && hours == that.hours
+        && daysOfMonth == that.daysOfMonth
+        && months == that.months
+        && daysOfWeek == that.daysOfWeek
+        && eitherDay == that.eitherDay;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(minutes, hours, daysOfMonth, months, daysOfWeek, eitherDay);
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+}
+
@@ -0,0 +1,45 @@
+package com.finances.core.domain;
+
+import java.util.Locale;
+
+/**
+ * Three-letter currency codes as used by transactions, budgets and {@link ExchangeRates}.
+ *
+ * <p>Codes are kept as upper-case strings such as {@code RUB} or {@code USD}. Amounts without an
+ * explicit currency, including everything stored before currencies existed, are in {@link
+ * #DEFAULT}.
+ */
+public final class CurrencyCode {
+  /** The currency of amounts that do not name one. */
+  public static final String DEFAULT = "RUB";
+
+  private CurrencyCode() {}
+
+  /**
+   * Normalizes a currency code.
+   *
+   * @param code the code in any case, or null for the default currency
+   * @return the upper-case code
+   * @throws IllegalArgumentException if the code is not three Latin letters
+   */
+  public static String normalize(String code) {
+    if (code == null) {
+      return DEFAULT;
+    }
+    String normalized = code.trim().toUpperCase(Locale.ROOT);
+    if (normalized.equals(DEFAULT)) {
+      return DEFAULT;
+    }
+    if (normalized.length() != 3) {
+      throw new IllegalArgumentException("Invalid currency code: " + code);
+    }
+    for (int i = 0; i < normalized.length(); i++) {
+      char c = normalized.charAt(i);
+      if (c < 'A' || c > 'Z') {
+        throw new IllegalArgumentException("Invalid currency code: " + code);
+      }
+    }
+    return normalized;
+  }
+}
+
@@ -0,0 +1,208 @@
+package com.finances.core.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Per-currency view of a wallet's {@link TransactionHistory}, combined with the {@link
+ * CurrencyLedger} of the transactions added to the wallet.
+ *
+ * <p>The history's currencies come from its metadata. While the history is in a single currency its
+ * totals are that currency's totals, and reports in that currency need nothing else; otherwise the
+ * history is loaded once, on the first query that needs its per-currency or per-day sums, into a
+ * ledger shared by all snapshots. Conversions of that ledger stay cached, since the history never
+ * changes. The category trees of the history per currency are built the same way: from the
+ * history's category totals while it has a single currency, otherwise from its transactions.
+ */
+final class CurrencyIndex {
+  private final TransactionHistory history;
+  private volatile Set<String> historyCurrencies;
+  private volatile CurrencyLedger historyLedger;
+  private volatile Map<String, CategoryTree> historyTrees;
+
+  CurrencyIndex(TransactionHistory history) {
+    this.history = history;
+  }
+
+  /**
+   * Checks whether every transaction, in the history and in the ledger, is in one currency.
+   *
+   * @param live the ledger of the transactions added to the wallet
+   * @param currency the currency code
+   * @return true if no transaction is in another currency
+   */
+  boolean isOnly(CurrencyLedger live, String currency) {
+    for (String other : live.getCurrencies()) {
+      if (!other.equals(currency)) {
+        return false;
+      }
+    }
+    for (String other : historyCurrencies()) {
+      if (!other.equals(currency)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the totals per currency.
+   *
+   * @param live the ledger of the transactions added to the wallet
+   * @param type the transaction type
+   * @return the sorted map of currency code to total
+   */
+  Map<String, Double> totalsByCurrency(CurrencyLedger live, TransactionType type) {
+    Map<String, Double> totals = new TreeMap<>();
+    boolean income = type == TransactionType.INCOME;
+    for (String currency : live.getCurrencies()) {
+      totals.put(currency, income ? live.getIncome(currency) : live.getExpense(currency));
+    }
+    Set<String> currencies = historyCurrencies();
+    if (currencies.size() == 1) {
+      totals.merge(
+          currencies.iterator().next(),
+          income ? history.getTotalIncome() : history.getTotalExpense(),
+          Double::sum);
+    } else if (currencies.size() > 1) {
+      CurrencyLedger ledger = historyLedger();
+      for (String currency : ledger.getCurrencies()) {
+        totals.merge(
+            currency,
+            income ? ledger.getIncome(currency) : ledger.getExpense(currency),
+            Double::sum);
+      }
+    }
+    return totals;
+  }
+
+  /**
+   * Gets the totals of one currency, without converting other currencies.
+   *
+   * @param live the ledger of the transactions added to the wallet
+   * @param currency the currency code
+   * @return the income and expense in the currency
+   */
+  double[] totals(CurrencyLedger live, String currency) {
+    double[] totals = {live.getIncome(currency), live.getExpense(currency)};
+    Set<String> currencies = historyCurrencies();
+    if (currencies.size() == 1 && currencies.contains(currency)) {
+      totals[0] += history.getTotalIncome();
+      totals[1] += history.getTotalExpense();
+    } else if (currencies.size() > 1) {
+      CurrencyLedger ledger = historyLedger();
+      totals[0] += ledger.getIncome(currency);
+      totals[1] += ledger.getExpense(currency);
+    }
+    return totals;
+  }
+
+  /**
+   * Converts the totals into one currency, each transaction at the rate of its day.
+   *
+   * @param live the ledger of the transactions added to the wallet
+   * @param target the currency to convert into
+   * @param rates the rate table
+   * @return the converted income and expense
+   * @throws IllegalArgumentException if a currency has no rate for a day with transactions
+   */
+  double[] convert(CurrencyLedger live, String target, ExchangeRates rates) {
+    double[] totals = live.convert(target, rates);
+    Set<String> currencies = historyCurrencies();
+    if (currencies.size() == 1 && currencies.contains(target)) {
+      totals[0] += history.getTotalIncome();
+      totals[1] += history.getTotalExpense();
+    } else if (!currencies.isEmpty()) {
+      double[] converted = historyLedger().convert(target, rates);
+      totals[0] += converted[0];
+      totals[1] += converted[1];
+    }
+    return totals;
+  }
+
+  /**
+   * Gets the category tree of the history's transactions in one currency.
+   *
+   * @param currency the currency code
+   * @return the tree, empty if the history has no transactions in the currency
+   */
+  CategoryTree categoryTree(String currency) {
+    return historyTrees().getOrDefault(currency, CategoryTree.empty());
+  }
+
+  /**
+   * Gets the currencies of the history's transactions.
+   *
+   * @return the currency codes
+   */
+  Set<String> historyCurrencies() {
+    Set<String> currencies = historyCurrencies;
+    if (currencies == null) {
+      currencies = history.size() == 0 ? Set.of() : history.getCurrencies();
+      historyCurrencies = currencies;
+    }
+    return currencies;
+  }
+
+  private Map<String, CategoryTree> historyTrees() {
+    Map<String, CategoryTree> trees = historyTrees;
+    if (trees == null) {
+      synchronized (this) {
+        trees = historyTrees;
+        if (trees == null) {
+          Set<String> currencies = historyCurrencies();
+          if (currencies.size() == 1) {
+            // The history's category totals are those of its only currency
+            trees =
+                Map.of(
+                    currencies.iterator().next(),
+                    CategoryTree.of(history.getIncomeByCategory(), history.getExpenseByCategory()));
+          } else {
+            trees = buildTrees(currencies);
+          }
+          historyTrees = trees;
+        }
+      }
+    }
+    return trees;
+  }
+
+  private Map<String, CategoryTree> buildTrees(Set<String> currencies) {
+    if (currencies.isEmpty()) {
+      return Map.of();
+    }
+    Map<String, Map<String, Double>> income = new HashMap<>();
+    Map<String, Map<String, Double>> expense = new HashMap<>();
+    for (Transaction transaction : history.getTransactions()) {
+      Map<String, Map<String, Double>> sums =
+          transaction.getType() == TransactionType.INCOME ? income : expense;
+      sums.computeIfAbsent(transaction.getCurrency(), k -> new HashMap<>())
+          .merge(transaction.getCategory(), transaction.getAmount(), Double::sum);
+    }
+    Map<String, CategoryTree> trees = new HashMap<>();
+    for (String currency : currencies) {
+      trees.put(
+          currency,
+          CategoryTree.of(
+              income.getOrDefault(currency, Map.of()), expense.getOrDefault(currency, Map.of())));
+    }
+    return trees;
+  }
+
+  private CurrencyLedger historyLedger() {
+    CurrencyLedger ledger = historyLedger;
+    if (ledger == null) {
+      synchronized (this) {
+        ledger = historyLedger;
+        if (ledger == null) {
+          ledger = CurrencyLedger.of(history.getTransactions());
+          historyLedger = ledger;
+        }
+      }
+    }
+    return ledger;
+  }
+}
+
@@ -0,0 +1,221 @@
+package com.finances.core.domain;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Income and expense of a set of transactions per currency and day.
+ *
+ * <p>Every currency has a book with its totals and its amounts summed per day. Converting the book
+ * into another currency multiplies each day's sums by that day's rate, so it costs one rate lookup
+ * per day with transactions instead of one per transaction. The result is cached in the book for
+ * the last rate table and target currency it was converted with.
+ *
+ * <p>The ledger is immutable. Days are grouped into chunks of 32; adding an amount copies the map
+ * of books, the chunk table of its currency and the one chunk it falls into, and the books of the
+ * other currencies keep their cached conversions.
+ */
+final class CurrencyLedger {
+  static final CurrencyLedger EMPTY = new CurrencyLedger(Collections.emptyMap());
+
+  private static final int CHUNK_DAYS = 32;
+
+  private final Map<String, Book> books;
+
+  private CurrencyLedger(Map<String, Book> books) {
+    this.books = books;
+  }
+
+  /**
+   * Builds a ledger of transactions.
+   *
+   * @param transactions the transactions
+   * @return the ledger
+   */
+  static CurrencyLedger of(List<Transaction> transactions) {
+    Map<String, TreeMap<Long, double[]>> days = new HashMap<>();
+    for (Transaction transaction : transactions) {
+      double[] sums =
+          days.computeIfAbsent(transaction.getCurrency(), key -> new TreeMap<>())
+              .computeIfAbsent(
+                  transaction.getTimestamp().toLocalDate().toEpochDay(), key -> new double[2]);
+      sums[transaction.getType() == TransactionType.INCOME ? 0 : 1] += transaction.getAmount();
+    }
+    Map<String, Book> books = new HashMap<>();
+    for (Map.Entry<String, TreeMap<Long, double[]>> entry : days.entrySet()) {
+      books.put(entry.getKey(), Book.of(entry.getValue()));
+    }
+    return new CurrencyLedger(Collections.unmodifiableMap(books));
+  }
+
+  /**
+   * Records a transaction.
+   *
+   * @param transaction the transaction
+   * @return the updated ledger
+   */
+  CurrencyLedger add(Transaction transaction) {
+    String currency = transaction.getCurrency();
+    Book book = books.getOrDefault(currency, Book.EMPTY);
+    Book updated =
+        book.add(
+            transaction.getTimestamp().toLocalDate().toEpochDay(),
+            transaction.getType(),
+            transaction.getAmount());
+    if (books.isEmpty() || (books.size() == 1 && books.containsKey(currency))) {
+      return new CurrencyLedger(Collections.singletonMap(currency, updated));
+    }
+    Map<String, Book> copy = new HashMap<>(books);
+    copy.put(currency, updated);
+    return new CurrencyLedger(Collections.unmodifiableMap(copy));
+  }
+
+  /**
+   * Gets the currencies of the recorded transactions.
+   *
+   * @return the currency codes
+   */
+  Set<String> getCurrencies() {
+    return books.keySet();
+  }
+
+  double getIncome(String currency) {
+    Book book = books.get(currency);
+    return book == null ? 0 : book.income;
+  }
+
+  double getExpense(String currency) {
+    Book book = books.get(currency);
+    return book == null ? 0 : book.expense;
+  }
+
+  /**
+   * Converts the totals into one currency, each day at that day's rate.
+   *
+   * @param target the currency to convert into
+   * @param rates the rate table
+   * @return the converted income and expense
+   * @throws IllegalArgumentException if a currency has no rate for a day with transactions
+   */
+  double[] convert(String target, ExchangeRates rates) {
+    double[] totals = new double[2];
+    for (Map.Entry<String, Book> entry : books.entrySet()) {
+      Conversion conversion = entry.getValue().convert(entry.getKey(), target, rates);
+      totals[0] += conversion.income;
+      totals[1] += conversion.expense;
+    }
+    return totals;
+  }
+
+  /** Totals and daily sums of one currency. */
+  private static final class Book {
+    private static final Book EMPTY = new Book(0, 0, 0, new double[0][]);
+
+    private final double income;
+    private final double expense;
+    private final long firstChunk;
+    // Income and expense of day d of a chunk are at 2 * d and 2 * d + 1; absent chunks are null
+    private final double[][] chunks;
+    private volatile Conversion conversion;
+
+    private Book(double income, double expense, long firstChunk, double[][] chunks) {
+      this.income = income;
+      this.expense = expense;
+      this.firstChunk = firstChunk;
+      this.chunks = chunks;
+    }
+
+    private static Book of(TreeMap<Long, double[]> days) {
+      long firstChunk = Math.floorDiv(days.firstKey(), CHUNK_DAYS);
+      double[][] chunks =
+          new double[(int) (Math.floorDiv(days.lastKey(), CHUNK_DAYS) - firstChunk + 1)][];
+      double income = 0;
+      double expense = 0;
+      for (Map.Entry<Long, double[]> entry : days.entrySet()) {
+        int index = (int) (Math.floorDiv(entry.getKey(), CHUNK_DAYS) - firstChunk);
+        if (chunks[index] == null) {
+          chunks[index] = new double[CHUNK_DAYS * 2];
+        }
+        int slot = Math.floorMod(entry.getKey(), CHUNK_DAYS) * 2;
+        chunks[index][slot] = entry.getValue()[0];
+        chunks[index][slot + 1] = entry.getValue()[1];
+        income += entry.getValue()[0];
+        expense += entry.getValue()[1];
+      }
+      return new Book(income, expense, firstChunk, chunks);
+    }
+
+    private Book add(long day, TransactionType type, double amount) {
+      long chunk = Math.floorDiv(day, CHUNK_DAYS);
+      double[][] table;
+      long first;
+      if (chunks.length == 0) {
+        table = new double[1][];
+        first = chunk;
+      } else {
+        first = Math.min(firstChunk, chunk);
+        long last = Math.max(firstChunk + chunks.length - 1, chunk);
+        table = new double[(int) (last - first + 1)][];
+        System.arraycopy(chunks, 0, table, (int) (firstChunk - first), chunks.length);
+      }
+      int index = (int) (chunk - first);
+      double[] sums = table[index] == null ? new double[CHUNK_DAYS * 2] : table[index].clone();
+      boolean isIncome = type == TransactionType.INCOME;
+      sums[Math.floorMod(day, CHUNK_DAYS) * 2 + (isIncome ? 0 : 1)] += amount;
+      table[index] = sums;
+      return new Book(
+          isIncome ? income + amount : income, isIncome ? expense : expense + amount, first, table);
+    }
+
+    private Conversion convert(String currency, String target, ExchangeRates rates) {
+      Conversion cached = conversion;
+      if (cached != null && cached.rates == rates && cached.target.equals(target)) {
+        return cached;
+      }
+      double convertedIncome = income;
+      double convertedExpense = expense;
+      if (!currency.equals(target)) {
+        convertedIncome = 0;
+        convertedExpense = 0;
+        for (int i = 0; i < chunks.length; i++) {
+          if (chunks[i] == null) {
+            continue;
+          }
+          for (int d = 0; d < CHUNK_DAYS; d++) {
+            double dayIncome = chunks[i][2 * d];
+            double dayExpense = chunks[i][2 * d + 1];
+            if (dayIncome != 0 || dayExpense != 0) {
+              long day = (firstChunk + i) * CHUNK_DAYS + d;
+              double rate = rates.pivotRate(currency, day) / rates.pivotRate(target, day);
+              convertedIncome += dayIncome * rate;
+              convertedExpense += dayExpense * rate;
+            }
+          }
+        }
+      }
+      cached = new Conversion(rates, target, convertedIncome, convertedExpense);
+      conversion = cached;
+      return cached;
+    }
+  }
+
+  /** Totals of a book in another currency, valid for one rate table. */
+  private static final class Conversion {
+    private final ExchangeRates rates;
+    private final String target;
+    private final double income;
+    private final double expense;
+
+    private Conversion(ExchangeRates rates, String target, double income, double expense) {
+      this.rates = rates;
+      this.target = target;
+      this.income = income;
+      this.expense = expense;
+    }
+  }
+}
+
@@ -0,0 +1,49 @@
+package com.finances.core.domain;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/** History of a wallet that was not loaded from storage. */
+final class EmptyTransactionHistory implements TransactionHistory {
+  static final EmptyTransactionHistory INSTANCE = new EmptyTransactionHistory();
+
+  private EmptyTransactionHistory() {}
+
+  @Override
+  public int size() {
+    return 0;
+  }
+
+  @Override
+  public double getTotalIncome() {
+    return 0;
+  }
+
+  @Override
+  public double getTotalExpense() {
+    return 0;
+  }
+
+  @Override
+  public Map<String, Double> getIncomeByCategory() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public Map<String, Double> getExpenseByCategory() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public List<Transaction> getTransactions() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+    return Collections.emptyList();
+  }
+}
+
@@ -0,0 +1,183 @@
+package com.finances.core.domain;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Table of daily exchange rates against one pivot currency.
+ *
+ * <p>Every currency has a series of dated rates, each the price of one unit in the pivot currency.
+ * The rate on a date is the latest one published on or before it, so weekends and holidays use the
+ * rate of the previous business day; a date before a currency's first rate has none. Converting
+ * between two currencies goes through the pivot.
+ *
+ * <p>The table is immutable and loaded once, typically from a local file. Each series keeps its
+ * dates sorted for binary search and, on its first lookup, expands them into an array with one slot
+ * per day, so repeated lookups cost one array access.
+ */
+public final class ExchangeRates {
+  // Series spanning more days than this are searched instead of expanded
+  private static final int MAX_DAILY_SPAN = 40 * 366;
+
+  private final String pivot;
+  private final Map<String, Series> series;
+
+  /**
+   * Creates a table.
+   *
+   * @param pivot the currency the rates are quoted in
+   * @param rates for every other currency, the price of one unit in the pivot currency per date
+   * @throws IllegalArgumentException if a currency code is invalid or a rate is not positive
+   */
+  public ExchangeRates(String pivot, Map<String, ? extends Map<LocalDate, Double>> rates) {
+    if (pivot == null) {
+      throw new IllegalArgumentException("Pivot currency cannot be null");
+    }
+    if (rates == null) {
+      throw new IllegalArgumentException("Rates cannot be null");
+    }
+    this.pivot = CurrencyCode.normalize(pivot);
+    Map<String, Series> series = new HashMap<>();
+    for (Map.Entry<String, ? extends Map<LocalDate, Double>> entry : rates.entrySet()) {
+      String currency = CurrencyCode.normalize(entry.getKey());
+      if (currency.equals(this.pivot)) {
+        throw new IllegalArgumentException("Rates of the pivot currency are always 1: " + currency);
+      }
+      if (!entry.getValue().isEmpty()) {
+        series.put(currency, new Series(currency, entry.getValue()));
+      }
+    }
+    this.series = Collections.unmodifiableMap(series);
+  }
+
+  /**
+   * Gets the currency the rates are quoted in.
+   *
+   * @return the pivot currency code
+   */
+  public String getPivot() {
+    return pivot;
+  }
+
+  /**
+   * Gets the currencies that can be converted, including the pivot.
+   *
+   * @return the currency codes
+   */
+  public Set<String> getCurrencies() {
+    Set<String> currencies = new TreeSet<>(series.keySet());
+    currencies.add(pivot);
+    return currencies;
+  }
+
+  /**
+   * Gets the rate between two currencies on a date.
+   *
+   * @param from the currency converted from
+   * @param to the currency converted to
+   * @param date the date
+   * @return the number of units of {@code to} per unit of {@code from}
+   * @throws IllegalArgumentException if either currency has no rate on or before the date
+   */
+  public double getRate(String from, String to, LocalDate date) {
+    if (from.equals(to)) {
+      return 1;
+    }
+    return pivotRate(from, date.toEpochDay()) / pivotRate(to, date.toEpochDay());
+  }
+
+  /**
+   * Converts an amount at the rate of a date.
+   *
+   * @param amount the amount in {@code from}
+   * @param from the currency converted from
+   * @param to the currency converted to
+   * @param date the date
+   * @return the amount in {@code to}
+   * @throws IllegalArgumentException if either currency has no rate on or before the date
+   */
+  public double convert(double amount, String from, String to, LocalDate date) {
+    return amount * getRate(from, to, date);
+  }
+
+  /**
+   * Gets the price of one unit of a currency in the pivot currency.
+   *
+   * @param currency the currency code
+   * @param epochDay the day
+   * @return the rate
+   * @throws IllegalArgumentException if the currency has no rate on or before the day
+   */
+  double pivotRate(String currency, long epochDay) {
+    if (currency.equals(pivot)) {
+      return 1;
+    }
+    Series rates = series.get(currency);
+    if (rates == null) {
+      throw new IllegalArgumentException("No exchange rates for " + currency);
+    }
+    return rates.get(epochDay);
+  }
+
+  /** Rates of one currency by day. */
+  private static final class Series {
+    private final String currency;
+    private final long[] days;
+    private final double[] rates;
+    private volatile double[] daily;
+
+    private Series(String currency, Map<LocalDate, Double> values) {
+      this.currency = currency;
+      LocalDate[] dates = values.keySet().toArray(new LocalDate[0]);
+      Arrays.sort(dates);
+      this.days = new long[dates.length];
+      this.rates = new double[dates.length];
+      for (int i = 0; i < dates.length; i++) {
+        Double rate = values.get(dates[i]);
+        if (rate == null || !(rate > 0) || Double.isInfinite(rate)) {
+          throw new IllegalArgumentException(
+              "Exchange rate must be positive: " + currency + " on " + dates[i]);
+        }
+        days[i] = dates[i].toEpochDay();
+        rates[i] = rate;
+      }
+    }
+
+    private double get(long day) {
+      if (day < days[0]) {
+        throw new IllegalArgumentException(
+            "No exchange rate for " + currency + " on " + LocalDate.ofEpochDay(day));
+      }
+      long last = days[days.length - 1];
+      if (day >= last) {
+        return rates[rates.length - 1];
+      }
+      if (last - days[0] > MAX_DAILY_SPAN) {
+        int index = Arrays.binarySearch(days, day);
+        return rates[index >= 0 ? index : -index - 2];
+      }
+      double[] table = daily;
+      if (table == null) {
+        table = expand();
+        daily = table;
+      }
+      return table[(int) (day - days[0])];
+    }
+
+    /** Fills every day with the latest rate published on or before it. */
+    private double[] expand() {
+      double[] table = new double[(int) (days[days.length - 1] - days[0]) + 1];
+      for (int i = 0; i < days.length; i++) {
+        int end = i + 1 < days.length ? (int) (days[i + 1] - days[0]) : table.length;
+        Arrays.fill(table, (int) (days[i] - days[0]), end, rates[i]);
+      }
+      return table;
+    }
+  }
+}
+
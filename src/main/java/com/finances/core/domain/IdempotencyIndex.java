@@ -0,0 +1,65 @@
+package com.finances.core.domain;
+
+import com.finances.core.util.BloomFilter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Idempotency keys of a wallet's transactions, used to recognize retried adds.
+ *
+ * <p>Keys of transactions added to the wallet map exactly to the stored transaction. Keys of the
+ * {@link TransactionHistory} are read on the first lookup that reaches them and kept only in a
+ * {@link BloomFilter}, at ten bits per key. The exact history keys are loaded, and then kept, the
+ * first time the filter reports a possible match, so a wallet that only ever sees fresh keys never
+ * holds them. The index is used by the writer under the wallet lock.
+ */
+final class IdempotencyIndex {
+  private final TransactionHistory history;
+  private final Map<String, Transaction> live = new HashMap<>();
+  private BloomFilter historyFilter;
+  private Map<String, Integer> historyKeys;
+
+  IdempotencyIndex(TransactionHistory history) {
+    this.history = history;
+  }
+
+  /**
+   * Finds the transaction stored under a key.
+   *
+   * @param key the idempotency key
+   * @return the transaction, or null if no transaction has the key
+   */
+  Transaction find(String key) {
+    Transaction transaction = live.get(key);
+    if (transaction != null || history.size() == 0) {
+      return transaction;
+    }
+    if (historyFilter == null) {
+      Map<String, Integer> keys = history.getIdempotencyKeys();
+      BloomFilter filter = new BloomFilter(keys.size());
+      for (String historyKey : keys.keySet()) {
+        filter.add(historyKey);
+      }
+      historyFilter = filter;
+    }
+    if (!historyFilter.mightContain(key)) {
+      return null;
+    }
+    if (historyKeys == null) {
+      historyKeys = history.getIdempotencyKeys();
+    }
+    Integer position = historyKeys.get(key);
+    return position == null ? null : history.getTransactions().get(position);
+  }
+
+  /**
+   * Records the key of a transaction added to the wallet.
+   *
+   * @param key the idempotency key
+   * @param transaction the added transaction
+   */
+  void add(String key, Transaction transaction) {
+    live.put(key, transaction);
+  }
+}
+
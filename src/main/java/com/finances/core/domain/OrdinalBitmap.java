@@ -0,0 +1,516 @@
+package com.finances.core.domain;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of transaction ordinals in the style of a roaring bitmap.
+ *
+ * <p>Ordinals are split by their high 16 bits into chunks of 65536. A chunk with at most {@link
+ * #ARRAY_LIMIT} members stores them as a sorted {@code char} array, a denser one as 1024 words of
+ * bits, so a sparse set costs two bytes per member and a dense one at most one bit per ordinal.
+ * Intersection, union and difference work chunk by chunk and never expand an array chunk.
+ *
+ * <p>Bitmaps of an index are filled in ascending order by the wallet's single writer and read
+ * without locking: {@link #clip} only trusts ordinals below the caller's snapshot bound, which the
+ * writer published before that snapshot. Chunks and their arrays are written before the count or
+ * reference that makes them reachable. Bits are only ever set, so a stale or torn word still holds
+ * every bit below the bound. Bitmaps returned by the query methods are never modified again.
+ */
+final class OrdinalBitmap {
+  /** Most members of a chunk stored as an array. */
+  static final int ARRAY_LIMIT = 4096;
+
+  private static final OrdinalBitmap EMPTY = new OrdinalBitmap(new int[0], new Chunk[0], 0);
+
+  private volatile int[] keys;
+  private volatile Chunk[] chunks;
+  private volatile int size;
+
+  OrdinalBitmap() {
+    this(new int[4], new Chunk[4], 0);
+  }
+
+  private OrdinalBitmap(int[] keys, Chunk[] chunks, int size) {
+    this.keys = keys;
+    this.chunks = chunks;
+    this.size = size;
+  }
+
+  static OrdinalBitmap empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Creates the set of all ordinals below a bound.
+   *
+   * @param bound the exclusive upper bound
+   * @return the bitmap
+   */
+  static OrdinalBitmap range(int bound) {
+    int count = (bound + 0xFFFF) >>> 16;
+    int[] keys = new int[count];
+    Chunk[] chunks = new Chunk[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = i;
+      chunks[i] = Chunk.range(Math.min(1 << 16, bound - (i << 16)));
+    }
+    return new OrdinalBitmap(keys, chunks, count);
+  }
+
+  /**
+   * Adds an ordinal greater than every ordinal added before. Called by the single writer.
+   *
+   * @param ordinal the ordinal
+   */
+  void add(int ordinal) {
+    int high = ordinal >>> 16;
+    char low = (char) ordinal;
+    int count = size;
+    int[] currentKeys = keys;
+    Chunk[] currentChunks = chunks;
+    if (count > 0 && currentKeys[count - 1] == high) {
+      Chunk last = currentChunks[count - 1];
+      if (last.isArray() && last.cardinality == ARRAY_LIMIT) {
+        // Publish the denser chunk in a new table so no reader sees it half-written
+        Chunk[] copy = currentChunks.clone();
+        copy[count - 1] = last.toWords();
+        copy[count - 1].add(low);
+        chunks = copy;
+      } else {
+        last.add(low);
+      }
+      return;
+    }
+    if (count == currentKeys.length) {
+      currentKeys = Arrays.copyOf(currentKeys, count * 2);
+      currentChunks = Arrays.copyOf(currentChunks, count * 2);
+    }
+    Chunk chunk = new Chunk();
+    chunk.add(low);
+    currentKeys[count] = high;
+    currentChunks[count] = chunk;
+    keys = currentKeys;
+    chunks = currentChunks;
+    size = count + 1;
+  }
+
+  /**
+   * Copies the ordinals below a bound.
+   *
+   * @param bound the exclusive upper bound
+   * @return a new bitmap
+   */
+  OrdinalBitmap clip(int bound) {
+    int count = size;
+    int[] currentKeys = keys;
+    Chunk[] currentChunks = chunks;
+    Builder result = new Builder(count);
+    for (int i = 0; i < count; i++) {
+      int base = currentKeys[i] << 16;
+      if (base >= bound) {
+        break;
+      }
+      result.add(currentKeys[i], currentChunks[i].clip(Math.min(1 << 16, bound - base)));
+    }
+    return result.build();
+  }
+
+  /**
+   * Intersects this set with another.
+   *
+   * @param other the other set
+   * @return the ordinals in both
+   */
+  OrdinalBitmap and(OrdinalBitmap other) {
+    Builder result = new Builder(Math.min(size, other.size));
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      int comparison = Integer.compare(keys[i], other.keys[j]);
+      if (comparison == 0) {
+        result.add(keys[i], chunks[i].and(other.chunks[j]));
+        i++;
+        j++;
+      } else if (comparison < 0) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return result.build();
+  }
+
+  /**
+   * Unites this set with another.
+   *
+   * @param other the other set
+   * @return the ordinals in either
+   */
+  OrdinalBitmap or(OrdinalBitmap other) {
+    Builder result = new Builder(size + other.size);
+    int i = 0;
+    int j = 0;
+    while (i < size || j < other.size) {
+      int comparison =
+          i == size ? 1 : j == other.size ? -1 : Integer.compare(keys[i], other.keys[j]);
+      if (comparison == 0) {
+        result.add(keys[i], chunks[i].or(other.chunks[j]));
+        i++;
+        j++;
+      } else if (comparison < 0) {
+        result.add(keys[i], chunks[i]);
+        i++;
+      } else {
+        result.add(other.keys[j], other.chunks[j]);
+        j++;
+      }
+    }
+    return result.build();
+  }
+
+  /**
+   * Removes the ordinals of another set from this one.
+   *
+   * @param other the ordinals to remove
+   * @return the ordinals in this set but not in the other
+   */
+  OrdinalBitmap andNot(OrdinalBitmap other) {
+    Builder result = new Builder(size);
+    int j = 0;
+    for (int i = 0; i < size; i++) {
+      while (j < other.size && other.keys[j] < keys[i]) {
+        j++;
+      }
+      boolean shared = j < other.size && other.keys[j] == keys[i];
+      result.add(keys[i], shared ? chunks[i].andNot(other.chunks[j]) : chunks[i]);
+    }
+    return result.build();
+  }
+
+  /**
+   * Counts the members.
+   *
+   * @return the number of ordinals in the set
+   */
+  int cardinality() {
+    int count = size;
+    Chunk[] currentChunks = chunks;
+    int cardinality = 0;
+    for (int i = 0; i < count; i++) {
+      cardinality += currentChunks[i].cardinality;
+    }
+    return cardinality;
+  }
+
+  boolean contains(int ordinal) {
+    int index = Arrays.binarySearch(keys, 0, size, ordinal >>> 16);
+    return index >= 0 && chunks[index].contains((char) ordinal);
+  }
+
+  /**
+   * Visits the members in ascending order.
+   *
+   * @param action the action to run for every ordinal
+   */
+  void forEach(IntConsumer action) {
+    int count = size;
+    int[] currentKeys = keys;
+    Chunk[] currentChunks = chunks;
+    for (int i = 0; i < count; i++) {
+      currentChunks[i].forEach(currentKeys[i] << 16, action);
+    }
+  }
+
+  /**
+   * Estimates the heap used by the set.
+   *
+   * @return the approximate size in bytes
+   */
+  long getMemoryBytes() {
+    int count = size;
+    Chunk[] currentChunks = chunks;
+    long bytes = 32 + 8L * keys.length;
+    for (int i = 0; i < count; i++) {
+      Chunk chunk = currentChunks[i];
+      bytes += 24 + (chunk.isArray() ? 2L * chunk.values.length : 8L * chunk.words.length);
+    }
+    return bytes;
+  }
+
+  /** Collects the non-empty chunks of a result in ascending key order. */
+  private static final class Builder {
+    private int[] keys;
+    private Chunk[] chunks;
+    private int size;
+
+    private Builder(int capacity) {
+      keys = new int[Math.max(1, capacity)];
+      chunks = new Chunk[keys.length];
+    }
+
+    private void add(int key, Chunk chunk) {
+      if (chunk.cardinality == 0) {
+        return;
+      }
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        chunks = Arrays.copyOf(chunks, size * 2);
+      }
+      keys[size] = key;
+      chunks[size] = chunk;
+      size++;
+    }
+
+    private OrdinalBitmap build() {
+      return size == 0 ? EMPTY : new OrdinalBitmap(keys, chunks, size);
+    }
+  }
+
+  /**
+   * The low 16 bits of the members of one chunk: a sorted array while {@code words} is null,
+   * otherwise a bitset. Only the index's writer mutates a chunk, and only the last one of a bitmap.
+   */
+  private static final class Chunk {
+    private static final int WORDS = 1 << 10;
+
+    private volatile char[] values;
+    private final long[] words;
+    private volatile int cardinality;
+
+    private Chunk() {
+      this(new char[4], null, 0);
+    }
+
+    private Chunk(char[] values, long[] words, int cardinality) {
+      this.values = values;
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    /** Creates a chunk holding {@code 0..count-1}. */
+    private static Chunk range(int count) {
+      if (count <= ARRAY_LIMIT) {
+        char[] values = new char[count];
+        for (int i = 0; i < count; i++) {
+          values[i] = (char) i;
+        }
+        return new Chunk(values, null, count);
+      }
+      long[] words = new long[WORDS];
+      Arrays.fill(words, 0, count >>> 6, -1L);
+      if ((count & 63) != 0) {
+        words[count >>> 6] = (1L << count) - 1;
+      }
+      return new Chunk(null, words, count);
+    }
+
+    private boolean isArray() {
+      return words == null;
+    }
+
+    private void add(char low) {
+      int count = cardinality;
+      if (words != null) {
+        words[low >>> 6] |= 1L << low;
+      } else {
+        char[] current = values;
+        if (count == current.length) {
+          current = Arrays.copyOf(current, Math.min(ARRAY_LIMIT, count * 2));
+          values = current;
+        }
+        current[count] = low;
+      }
+      cardinality = count + 1;
+    }
+
+    private Chunk toWords() {
+      long[] bits = new long[WORDS];
+      int count = cardinality;
+      char[] current = values;
+      for (int i = 0; i < count; i++) {
+        bits[current[i] >>> 6] |= 1L << current[i];
+      }
+      return new Chunk(null, bits, count);
+    }
+
+    private boolean contains(char low) {
+      if (words != null) {
+        return (words[low >>> 6] & (1L << low)) != 0;
+      }
+      return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+    }
+
+    /** Copies the members below {@code limit}, which is at most 65536. */
+    private Chunk clip(int limit) {
+      int count = cardinality;
+      if (words == null) {
+        char[] current = values;
+        int end = count;
+        while (end > 0 && current[end - 1] >= limit) {
+          end--;
+        }
+        return new Chunk(Arrays.copyOf(current, end), null, end);
+      }
+      long[] bits = Arrays.copyOf(words, WORDS);
+      int full = limit >>> 6;
+      if (full < WORDS) {
+        bits[full] &= (1L << limit) - 1;
+        Arrays.fill(bits, full + 1, WORDS, 0L);
+      }
+      return fromWords(bits);
+    }
+
+    private Chunk and(Chunk other) {
+      if (words == null && other.words == null) {
+        char[] left = values;
+        char[] right = other.values;
+        int leftCount = cardinality;
+        int rightCount = other.cardinality;
+        char[] result = new char[Math.min(leftCount, rightCount)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < leftCount && j < rightCount) {
+          if (left[i] == right[j]) {
+            result[count++] = left[i];
+            i++;
+            j++;
+          } else if (left[i] < right[j]) {
+            i++;
+          } else {
+            j++;
+          }
+        }
+        return new Chunk(result, null, count);
+      }
+      if (words == null || other.words == null) {
+        Chunk array = words == null ? this : other;
+        long[] bits = words == null ? other.words : words;
+        char[] members = array.values;
+        int arrayCount = array.cardinality;
+        char[] result = new char[arrayCount];
+        int count = 0;
+        for (int i = 0; i < arrayCount; i++) {
+          if ((bits[members[i] >>> 6] & (1L << members[i])) != 0) {
+            result[count++] = members[i];
+          }
+        }
+        return new Chunk(result, null, count);
+      }
+      long[] bits = new long[WORDS];
+      for (int i = 0; i < WORDS; i++) {
+        bits[i] = words[i] & other.words[i];
+      }
+      return fromWords(bits);
+    }
+
+    private Chunk or(Chunk other) {
+      if (words == null && other.words == null) {
+        char[] left = values;
+        char[] right = other.values;
+        int leftCount = cardinality;
+        int rightCount = other.cardinality;
+        char[] result = new char[leftCount + rightCount];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < leftCount || j < rightCount) {
+          if (j == rightCount || (i < leftCount && left[i] < right[j])) {
+            result[count++] = left[i++];
+          } else if (i == leftCount || right[j] < left[i]) {
+            result[count++] = right[j++];
+          } else {
+            result[count++] = left[i];
+            i++;
+            j++;
+          }
+        }
+        Chunk union = new Chunk(result, null, count);
+        return count <= ARRAY_LIMIT ? union : union.toWords();
+      }
+      long[] bits = words != null ? words.clone() : other.words.clone();
+      Chunk rest = words != null ? other : this;
+      if (rest.words == null) {
+        char[] members = rest.values;
+        int restCount = rest.cardinality;
+        for (int i = 0; i < restCount; i++) {
+          bits[members[i] >>> 6] |= 1L << members[i];
+        }
+      } else {
+        for (int i = 0; i < WORDS; i++) {
+          bits[i] |= rest.words[i];
+        }
+      }
+      return fromWords(bits);
+    }
+
+    private Chunk andNot(Chunk other) {
+      if (words == null) {
+        char[] members = values;
+        int memberCount = cardinality;
+        char[] result = new char[memberCount];
+        int count = 0;
+        for (int i = 0; i < memberCount; i++) {
+          if (!other.contains(members[i])) {
+            result[count++] = members[i];
+          }
+        }
+        return new Chunk(result, null, count);
+      }
+      long[] bits = words.clone();
+      if (other.words == null) {
+        char[] members = other.values;
+        int otherCount = other.cardinality;
+        for (int i = 0; i < otherCount; i++) {
+          bits[members[i] >>> 6] &= ~(1L << members[i]);
+        }
+      } else {
+        for (int i = 0; i < WORDS; i++) {
+          bits[i] &= ~other.words[i];
+        }
+      }
+      return fromWords(bits);
+    }
+
+    private void forEach(int base, IntConsumer action) {
+      int count = cardinality;
+      if (words == null) {
+        char[] current = values;
+        for (int i = 0; i < count; i++) {
+          action.accept(base | current[i]);
+        }
+        return;
+      }
+      for (int i = 0; i < WORDS; i++) {
+        long word = words[i];
+        while (word != 0) {
+          action.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    /** Wraps a bitset, converting it back to an array if it is sparse enough. */
+    private static Chunk fromWords(long[] bits) {
+      int count = 0;
+      for (long word : bits) {
+        count += Long.bitCount(word);
+      }
+      if (count > ARRAY_LIMIT) {
+        return new Chunk(null, bits, count);
+      }
+      char[] result = new char[count];
+      int index = 0;
+      for (int i = 0; i < WORDS; i++) {
+        long word = bits[i];
+        while (word != 0) {
+          result[index++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return new Chunk(result, null, count);
+    }
+  }
+}
+
@@ -0,0 +1,166 @@
+package com.finances.core.domain;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable ring of per-period spending for a periodic budget.
+ *
+ * <p>The ring covers the {@link #SIZE} most recent periods up to the newest one that has seen an
+ * expense or was current when the window was built. Each slot holds the amount spent in its period
+ * and the rollover carried into it. Adding an expense copies the two small arrays, so snapshots can
+ * share windows; expenses older than the ring are not tracked.
+ *
+ * <p>Rollover starts with the oldest period that has seen an expense, so a window rebuilt from the
+ * same transactions on another day carries the same amounts.
+ */
+final class PeriodWindow {
+  static final int SIZE = 12;
+
+  private final BudgetPeriod period;
+  private final double limit;
+  private final long latest;
+  private final long first;
+  private final double[] spent;
+  private final double[] carry;
+
+  private PeriodWindow(
+      BudgetPeriod period, double limit, long latest, long first, double[] spent, double[] carry) {
+    this.period = period;
+    this.limit = limit;
+    this.latest = latest;
+    this.first = first;
+    this.spent = spent;
+    this.carry = carry;
+  }
+
+  /**
+   * Creates an empty window whose newest period contains a date.
+   *
+   * @param period the budget period
+   * @param limit the limit per period
+   * @param today the current date
+   * @return the window
+   */
+  static PeriodWindow empty(BudgetPeriod period, double limit, LocalDate today) {
+    return new PeriodWindow(
+        period, limit, period.indexOf(today), Long.MAX_VALUE, new double[SIZE], new double[SIZE]);
+  }
+
+  /**
+   * Gets the first day of the oldest period the window tracks.
+   *
+   * @return the first day of the oldest tracked period
+   */
+  LocalDate getStart() {
+    return period.startOf(latest - SIZE + 1);
+  }
+
+  BudgetPeriod getPeriod() {
+    return period;
+  }
+
+  /**
+   * Records an expense.
+   *
+   * @param date the date of the expense
+   * @param amount the amount
+   * @return the updated window
+   */
+  PeriodWindow add(LocalDate date, double amount) {
+    long index = period.indexOf(date);
+    if (index <= latest - SIZE) {
+      return this;
+    }
+    double[] newSpent = spent.clone();
+    double[] newCarry = carry.clone();
+    long newFirst = Math.min(first, index);
+    long newLatest = latest;
+    while (newLatest < index) {
+      // Each step drops the oldest slot and opens the next period with the rollover into it
+      double rolled = rolloverAfter(newFirst, newLatest, newSpent, newCarry);
+      newLatest++;
+      newSpent[slot(newLatest)] = 0;
+      newCarry[slot(newLatest)] = rolled;
+    }
+    newSpent[slot(index)] += amount;
+    recomputeCarry(limit, newFirst, index + 1, newLatest, newSpent, newCarry);
+    return new PeriodWindow(period, limit, newLatest, newFirst, newSpent, newCarry);
+  }
+
+  /**
+   * Changes the limit per period. Rollover into the tracked periods is recomputed from the oldest
+   * one, whose incoming carry is kept.
+   *
+   * @param newLimit the new limit
+   * @return the updated window
+   */
+  PeriodWindow withLimit(double newLimit) {
+    double[] newCarry = carry.clone();
+    recomputeCarry(newLimit, first, latest - SIZE + 2, latest, spent, newCarry);
+    return new PeriodWindow(period, newLimit, latest, first, spent, newCarry);
+  }
+
+  /**
+   * Gets the amount spent in the period containing a date.
+   *
+   * @param date the date
+   * @return the spent amount, 0 for periods after the newest or before the oldest tracked
+   */
+  double spentOn(LocalDate date) {
+    long index = period.indexOf(date);
+    return index > latest || index <= latest - SIZE ? 0 : spent[slot(index)];
+  }
+
+  /**
+   * Gets the rollover carried into the period containing a date.
+   *
+   * @param date the date
+   * @return the carried amount, 0 without rollover or before the oldest tracked period
+   */
+  double carryOn(LocalDate date) {
+    long index = period.indexOf(date);
+    if (index <= latest - SIZE) {
+      return 0;
+    }
+    if (index <= latest) {
+      return carry[slot(index)];
+    }
+    if (!period.isRollover() || first > latest) {
+      return 0;
+    }
+    // Periods after the newest have no expenses yet
+    double rolled = carry[slot(latest)];
+    double spentInPeriod = spent[slot(latest)];
+    for (long i = latest; i < index; i++) {
+      rolled = Math.max(0, limit + rolled - spentInPeriod);
+      spentInPeriod = 0;
+    }
+    return rolled;
+  }
+
+  private double rolloverAfter(long first, long index, double[] spent, double[] carry) {
+    if (!period.isRollover() || index < first) {
+      return 0;
+    }
+    return Math.max(0, limit + carry[slot(index)] - spent[slot(index)]);
+  }
+
+  /**
+   * Recomputes the rollover into periods {@code from..to}, never past the oldest slot and never
+   * into the first period with an expense.
+   */
+  private void recomputeCarry(
+      double limit, long first, long from, long to, double[] spent, double[] carry) {
+    if (!period.isRollover() || first == Long.MAX_VALUE) {
+      return;
+    }
+    for (long i = Math.max(Math.max(from, first + 1), to - SIZE + 2); i <= to; i++) {
+      carry[slot(i)] = Math.max(0, limit + carry[slot(i - 1)] - spent[slot(i - 1)]);
+    }
+  }
+
+  private static int slot(long index) {
+    return (int) Math.floorMod(index, (long) SIZE);
+  }
+}
+
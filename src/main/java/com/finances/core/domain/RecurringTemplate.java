@@ -0,0 +1,233 @@
+package com.finances.core.domain;
+
+import com.finances.core.util.Formatting;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Template of a transaction that recurs on a {@link CronSchedule}, such as a salary or rent.
+ *
+ * <p>A template is immutable and remembers the next occurrence that has not been posted yet. Every
+ * occurrence becomes a transaction whose idempotency key is derived from the template ID and the
+ * occurrence time, so posting an occurrence twice, for example after a crash between posting and
+ * recording progress, leaves only one transaction in the wallet.
+ */
+public final class RecurringTemplate {
+  private final String id;
+  private final String userId;
+  private final TransactionType type;
+  private final String category;
+  private final double amount;
+  private final String description;
+  private final CronSchedule schedule;
+  private final LocalDateTime nextOccurrence;
+
+  /**
+   * Creates a template whose first occurrence is the first scheduled time at or after a start.
+   *
+   * @param id the template ID
+   * @param userId the owner of the wallet the occurrences are posted to
+   * @param type the transaction type
+   * @param category the category
+   * @param amount the positive amount
+   * @param description optional description
+   * @param schedule the schedule
+   * @param start the earliest time of the first occurrence
+   */
+  public RecurringTemplate(
+      String id,
+      String userId,
+      TransactionType type,
+      String category,
+      double amount,
+      String description,
+      CronSchedule schedule,
+      LocalDateTime start) {
+    this(
+        id,
+        userId,
+        type,
+        category,
+        amount,
+        description,
+        firstOccurrence(schedule, start),
+        schedule);
+  }
+
+  // The progress comes before the schedule to tell this constructor from the public one
+  private RecurringTemplate(
+      String id,
+      String userId,
+      TransactionType type,
+      String category,
+      double amount,
+      String description,
+      LocalDateTime nextOccurrence,
+      CronSchedule schedule) {
+    if (id == null || id.trim().isEmpty()) {
+      throw new IllegalArgumentException("Template ID cannot be null or empty");
+    }
+    if (userId == null || userId.trim().isEmpty()) {
+      throw new IllegalArgumentException("User ID cannot be null or empty");
+    }
+    if (type == null) {
+      throw new IllegalArgumentException("Transaction type cannot be null");
+    }
+    if (category == null || category.trim().isEmpty()) {
+      throw new IllegalArgumentException("Category cannot be null or empty");
+    }
+    if (!Double.isFinite(amount) || amount <= 0) {
+      throw new IllegalArgumentException("Amount must be positive and finite");
+    }
+    this.id = id;
+    this.userId = userId;
+    this.type = type;
+    this.category = category.trim();
+    this.amount = amount;
+    this.description = description != null ? description.trim() : "";
+    this.schedule = schedule;
+    this.nextOccurrence = nextOccurrence;
+  }
+
+  /**
+   * Recreates a stored template together with its progress.
+   *
+   * @param id the template ID
+   * @param userId the owner of the wallet the occurrences are posted to
+   * @param type the transaction type
+   * @param category the category
+   * @param amount the positive amount
+   * @param description optional description
+   * @param schedule the schedule
+   * @param nextOccurrence the first occurrence not posted yet, or null if none is left
+   * @return the template
+   */
+  public static RecurringTemplate restore(
+      String id,
+      String userId,
+      TransactionType type,
+      String category,
+      double amount,
+      String description,
+      CronSchedule schedule,
+      LocalDateTime nextOccurrence) {
+    if (schedule == null) {
+      throw new IllegalArgumentException("Schedule cannot be null");
+    }
+    return new RecurringTemplate(
+        id, userId, type, category, amount, description, nextOccurrence, schedule);
+  }
+
+  private RecurringTemplate(RecurringTemplate template, LocalDateTime nextOccurrence) {
+    this.id = template.id;
+    this.userId = template.userId;
+    this.type = template.type;
+    this.category = template.category;
+    this.amount = template.amount;
+    this.description = template.description;
+    this.schedule = template.schedule;
+    this.nextOccurrence = nextOccurrence;
+  }
+
+  private static LocalDateTime firstOccurrence(CronSchedule schedule, LocalDateTime start) {
+    if (schedule == null) {
+      throw new IllegalArgumentException("Schedule cannot be null");
+    }
+    if (start == null) {
+      throw new IllegalArgumentException("Start cannot be null");
+    }
+    return schedule.first(start);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public TransactionType getType() {
+    return type;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public double getAmount() {
+    return amount;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public CronSchedule getSchedule() {
+    return schedule;
+  }
+
+  /**
+   * Gets the first occurrence that has not been posted.
+   *
+   * @return the occurrence time, or null if the schedule has no further occurrences
+   */
+  public LocalDateTime getNextOccurrence() {
+    return nextOccurrence;
+  }
+
+  /**
+   * Creates a copy that continues after an occurrence.
+   *
+   * @param occurrence the last posted occurrence
+   * @return the template whose next occurrence follows it
+   */
+  public RecurringTemplate after(LocalDateTime occurrence) {
+    return new RecurringTemplate(this, schedule.next(occurrence));
+  }
+
+  /**
+   * Creates the transaction of an occurrence.
+   *
+   * @param transactionId the ID of the new transaction
+   * @param occurrence the occurrence time, used as the timestamp
+   * @return the transaction, keyed by this template and the occurrence
+   */
+  public Transaction toTransaction(String transactionId, LocalDateTime occurrence) {
+    return new Transaction(
+        transactionId, type, category, amount, occurrence, description, occurrenceKey(occurrence));
+  }
+
+  /**
+   * Gets the idempotency key of an occurrence.
+   *
+   * @param occurrence the occurrence time
+   * @return the key
+   */
+  public String occurrenceKey(LocalDateTime occurrence) {
+    return Formatting.appendTimestamp(new StringBuilder(id).append('@'), occurrence).toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    RecurringTemplate that = (RecurringTemplate) o;
+    return Objects.equals(id, that.id);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id);
+  }
+
+  @Override
+  public String toString() {
+    return type + ": " + category + " - " + Formatting.formatAmount(amount) + " [" + schedule + "]";
+  }
+}
+
@@ -0,0 +1,343 @@
+package com.finances.core.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Inverted index over the descriptions and categories of a wallet's transactions.
+ *
+ * <p>Text is split into lower-case runs of letters and digits. Every term maps to a posting list of
+ * transaction ordinals in ascending order, each with a weight: the number of occurrences in the
+ * description plus {@link #CATEGORY_WEIGHT} per occurrence in the category. Transactions added to
+ * the wallet are indexed by the writer under the wallet lock; the wallet's {@link
+ * TransactionHistory} is indexed on the first query. Readers never lock: a snapshot only looks at
+ * ordinals below its own size, and posting lists publish their array before their length.
+ */
+final class SearchIndex {
+  /** Weight of a term occurring in the category rather than in the description. */
+  static final int CATEGORY_WEIGHT = 2;
+
+  /** Most terms a single prefix expands to. */
+  static final int MAX_PREFIX_TERMS = 256;
+
+  private final TransactionHistory history;
+  private final Segment live = new Segment();
+  private volatile Segment historySegment;
+
+  SearchIndex(TransactionHistory history) {
+    this.history = history;
+  }
+
+  /**
+   * Indexes a transaction appended to the wallet. Called by the single writer.
+   *
+   * @param ordinal the position of the transaction after the history
+   * @param transaction the transaction
+   */
+  void add(int ordinal, Transaction transaction) {
+    live.add(ordinal, transaction);
+  }
+
+  /**
+   * Finds transactions containing a term or a term starting with a prefix.
+   *
+   * @param text the term or prefix, tokenized like indexed text; only its first token is used
+   * @param prefix whether to match all terms starting with {@code text}
+   * @param transactions the wallet's transaction array
+   * @param size the number of transactions in the snapshot
+   * @return the matching transactions in insertion order
+   */
+  List<Transaction> find(String text, boolean prefix, Transaction[] transactions, int size) {
+    List<String> tokens = tokenize(text);
+    List<Transaction> result = new ArrayList<>();
+    if (tokens.isEmpty()) {
+      return result;
+    }
+    String term = tokens.get(0);
+    if (history.size() > 0) {
+      List<Transaction> historyTransactions = history.getTransactions();
+      for (int ordinal : historySegment().ordinals(term, prefix, history.size())) {
+        result.add(historyTransactions.get(ordinal));
+      }
+    }
+    for (int ordinal : live.ordinals(term, prefix, size)) {
+      result.add(transactions[ordinal]);
+    }
+    return result;
+  }
+
+  /**
+   * Ranks transactions by relevance to a query.
+   *
+   * <p>A transaction matches if it contains any query term; a word ending in {@code *} matches
+   * every term with that prefix. The score sums, over the matched terms, the posting weight times
+   * the inverse document frequency {@code ln(1 + n / df)}. Ties go to the newer transaction.
+   *
+   * @param query the query
+   * @param limit the maximum number of results
+   * @param transactions the wallet's transaction array
+   * @param size the number of transactions in the snapshot
+   * @return the best matches, best first
+   */
+  List<SearchResult> search(String query, int limit, Transaction[] transactions, int size) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+    int historySize = history.size();
+    Segment historyIndex = historySize > 0 ? historySegment() : Segment.EMPTY;
+    int documents = historySize + size;
+    // Global ordinal: history positions first, then positions in the transaction array
+    Map<Integer, Double> scores = new HashMap<>();
+    for (Map.Entry<String, Boolean> queryTerm : parseQuery(query).entrySet()) {
+      Map<String, Postings[]> matches = new LinkedHashMap<>();
+      historyIndex.collect(queryTerm.getKey(), queryTerm.getValue(), matches, 0);
+      live.collect(queryTerm.getKey(), queryTerm.getValue(), matches, 1);
+      for (Postings[] postings : matches.values()) {
+        int df = count(postings[0], historySize) + count(postings[1], size);
+        if (df == 0) {
+          continue;
+        }
+        double idf = Math.log(1 + (double) documents / df);
+        addScores(postings[0], historySize, 0, idf, scores);
+        addScores(postings[1], size, historySize, idf, scores);
+      }
+    }
+
+    // Keep the best matches in a bounded heap whose head is the worst of them
+    Comparator<Map.Entry<Integer, Double>> byRelevance =
+        Map.Entry.<Integer, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey());
+    PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(byRelevance);
+    for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+      best.add(entry);
+      if (best.size() > limit) {
+        best.poll();
+      }
+    }
+    List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(best);
+    ranked.sort(byRelevance.reversed());
+
+    List<Transaction> historyTransactions = historySize > 0 ? history.getTransactions() : List.of();
+    List<SearchResult> results = new ArrayList<>(ranked.size());
+    for (Map.Entry<Integer, Double> entry : ranked) {
+      int ordinal = entry.getKey();
+      Transaction transaction =
+          ordinal < historySize
+              ? historyTransactions.get(ordinal)
+              : transactions[ordinal - historySize];
+      results.add(new SearchResult(transaction, entry.getValue()));
+    }
+    return results;
+  }
+
+  /**
+   * Estimates the heap used by the index.
+   *
+   * @return the approximate size in bytes, including the history once it has been indexed
+   */
+  long getMemoryBytes() {
+    Segment historyIndex = historySegment;
+    return live.memoryBytes + (historyIndex == null ? 0 : historyIndex.memoryBytes);
+  }
+
+  /**
+   * Splits text into index terms.
+   *
+   * @param text the text
+   * @return the lower-case runs of letters and digits, in order
+   */
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) {
+      return tokens;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (letter && start < 0) {
+        start = i;
+      } else if (!letter && start >= 0) {
+        tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  /** Maps every query term to whether it is a prefix. */
+  private static Map<String, Boolean> parseQuery(String query) {
+    Map<String, Boolean> terms = new LinkedHashMap<>();
+    if (query == null) {
+      return terms;
+    }
+    for (String word : query.trim().split("\\s+")) {
+      List<String> tokens = tokenize(word);
+      for (int i = 0; i < tokens.size(); i++) {
+        boolean prefix = word.endsWith("*") && i == tokens.size() - 1;
+        terms.merge(tokens.get(i), prefix, Boolean::logicalOr);
+      }
+    }
+    return terms;
+  }
+
+  private Segment historySegment() {
+    Segment segment = historySegment;
+    if (segment == null) {
+      synchronized (this) {
+        segment = historySegment;
+        if (segment == null) {
+          segment = new Segment();
+          List<Transaction> transactions = history.getTransactions();
+          for (int i = 0; i < transactions.size(); i++) {
+            segment.add(i, transactions.get(i));
+          }
+          historySegment = segment;
+        }
+      }
+    }
+    return segment;
+  }
+
+  private static int count(Postings postings, int bound) {
+    if (postings == null) {
+      return 0;
+    }
+    int size = postings.size;
+    return Postings.countBelow(postings.entries, size, bound);
+  }
+
+  private static void addScores(
+      Postings postings, int bound, int offset, double idf, Map<Integer, Double> scores) {
+    if (postings == null) {
+      return;
+    }
+    int size = postings.size;
+    int[] entries = postings.entries;
+    for (int i = 0; i < size && entries[2 * i] < bound; i++) {
+      scores.merge(offset + entries[2 * i], entries[2 * i + 1] * idf, Double::sum);
+    }
+  }
+
+  /** The terms and posting lists of one run of transactions. */
+  private static final class Segment {
+    private static final Segment EMPTY = new Segment();
+
+    // Rough heap cost of a new term: skip-list node and index, string, posting list
+    private static final long TERM_OVERHEAD = 48 + 40 + 16 + 16;
+
+    private final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    private volatile long memoryBytes;
+
+    private void add(int ordinal, Transaction transaction) {
+      Map<String, Integer> weights = new HashMap<>();
+      for (String token : tokenize(transaction.getDescription())) {
+        weights.merge(token, 1, Integer::sum);
+      }
+      for (String token : tokenize(transaction.getCategory())) {
+        weights.merge(token, CATEGORY_WEIGHT, Integer::sum);
+      }
+      long memory = memoryBytes;
+      for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+        Postings postings = terms.get(entry.getKey());
+        if (postings == null) {
+          postings = new Postings();
+          terms.put(entry.getKey(), postings);
+          memory += TERM_OVERHEAD + 2L * entry.getKey().length() + 4L * postings.entries.length;
+        }
+        memory += postings.append(ordinal, entry.getValue());
+      }
+      memoryBytes = memory;
+    }
+
+    private int[] ordinals(String term, boolean prefix, int bound) {
+      Map<String, Postings[]> matches = new LinkedHashMap<>();
+      collect(term, prefix, matches, 0);
+      int[] ordinals = new int[0];
+      int count = 0;
+      for (Postings[] postings : matches.values()) {
+        int size = postings[0].size;
+        int[] entries = postings[0].entries;
+        for (int i = 0; i < size && entries[2 * i] < bound; i++) {
+          if (count == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, Math.max(16, count * 2));
+          }
+          ordinals[count++] = entries[2 * i];
+        }
+      }
+      // Each posting list is sorted; a prefix can match a transaction through several terms
+      int[] result = Arrays.copyOf(ordinals, count);
+      if (matches.size() > 1) {
+        result = Arrays.stream(result).sorted().distinct().toArray();
+      }
+      return result;
+    }
+
+    /** Adds the posting lists of the matching terms to {@code matches} at {@code slot}. */
+    private void collect(String term, boolean prefix, Map<String, Postings[]> matches, int slot) {
+      if (!prefix) {
+        Postings postings = terms.get(term);
+        if (postings != null) {
+          matches.computeIfAbsent(term, k -> new Postings[2])[slot] = postings;
+        }
+        return;
+      }
+      NavigableMap<String, Postings> range =
+          terms.subMap(term, true, term + Character.MAX_VALUE, false);
+      int expanded = 0;
+      for (Map.Entry<String, Postings> entry : range.entrySet()) {
+        if (expanded++ == MAX_PREFIX_TERMS) {
+          break;
+        }
+        matches.computeIfAbsent(entry.getKey(), k -> new Postings[2])[slot] = entry.getValue();
+      }
+    }
+  }
+
+  /**
+   * Append-only list of (ordinal, weight) pairs. The single writer stores a pair, replacing the
+   * array when it is full, before publishing the new size; a reader that reads the size first
+   * therefore sees an array holding at least that many pairs.
+   */
+  private static final class Postings {
+    private volatile int[] entries = new int[8];
+    private volatile int size;
+
+    /** Appends a pair and returns the number of bytes the array grew by. */
+    private long append(int ordinal, int weight) {
+      int[] current = entries;
+      long grown = 0;
+      if (2 * size + 2 > current.length) {
+        current = Arrays.copyOf(current, current.length * 2);
+        grown = 4L * (current.length / 2);
+        entries = current;
+      }
+      current[2 * size] = ordinal;
+      current[2 * size + 1] = weight;
+      size = size + 1;
+      return grown;
+    }
+
+    private static int countBelow(int[] entries, int size, int bound) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (entries[2 * mid] < bound) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
+
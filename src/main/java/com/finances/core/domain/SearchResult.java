@@ -0,0 +1,31 @@
+package com.finances.core.domain;
+
+/** A transaction matched by a full-text search, with its relevance score. */
+public final class SearchResult {
+  private final Transaction transaction;
+  private final double score;
+
+  SearchResult(Transaction transaction, double score) {
+    this.transaction = transaction;
+    this.score = score;
+  }
+
+  public Transaction getTransaction() {
+    return transaction;
+  }
+
+  /**
+   * Gets the relevance of the match; higher is better.
+   *
+   * @return the score
+   */
+  public double getScore() {
+    return score;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("SearchResult{score=%.3f, transaction=%s}", score, transaction);
+  }
+}
+
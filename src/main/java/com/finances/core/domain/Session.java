@@ -0,0 +1,71 @@
+package com.finances.core.domain;
+
+import com.finances.core.util.TimerWheel;
+
+/**
+ * Represents an authenticated session of a user.
+ *
+ * <p>A session is identified by an opaque token and carries the user ID that services operate on.
+ * The last access time is updated on every successful validation and drives idle expiration.
+ */
+public class Session {
+  private final String token;
+  private final String userId;
+  private final long createdAt;
+  private volatile long lastAccessedAt;
+  // Guarded by the lock of the wheel the session is scheduled on
+  private TimerWheel.Entry<Session> expiration;
+
+  public Session(String token, String userId, long createdAt) {
+    if (token == null || token.isEmpty()) {
+      throw new IllegalArgumentException("Session token cannot be null or empty");
+    }
+    if (userId == null || userId.trim().isEmpty()) {
+      throw new IllegalArgumentException("User ID cannot be null or empty");
+    }
+
+    this.token = token;
+    this.userId = userId;
+    this.createdAt = createdAt;
+    this.lastAccessedAt = createdAt;
+  }
+
+  public String getToken() {
+    return token;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public long getLastAccessedAt() {
+    return lastAccessedAt;
+  }
+
+  public void touch(long now) {
+    lastAccessedAt = now;
+  }
+
+  /**
+   * Gets the pending idle timeout of the session.
+   *
+   * @return the timer wheel entry, or null if none was scheduled
+   */
+  public TimerWheel.Entry<Session> getExpiration() {
+    return expiration;
+  }
+
+  public void setExpiration(TimerWheel.Entry<Session> expiration) {
+    this.expiration = expiration;
+  }
+
+  @Override
+  public String toString() {
+    return "Session{userId='" + userId + "'}";
+  }
+}
+
@@ -0,0 +1,10 @@
+package com.finances.core.domain;
+
+/** Order in which transactions are listed by time. */
+public enum SortDirection {
+  /** Oldest first. */
+  ASCENDING,
+  /** Newest first. */
+  DESCENDING
+}
+
@@ -0,0 +1,230 @@
+package com.finances.core.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Transactions of a wallet ordered by (timestamp, id) for keyset pagination.
+ *
+ * <p>Transactions added to the wallet go into a concurrent skip list, so the writer inserts without
+ * blocking readers; the wallet's {@link TransactionHistory} is sorted once on the first query.
+ * Entries are keyed by timestamp, then ID, then ordinal, which only breaks ties between identical
+ * IDs. A page walks both sources from the cursor's key and merges them, so it costs O(log n + page)
+ * however deep it lies. A cursor is the key of the last listed transaction: pages never shift when
+ * transactions are appended, and each page only sees the ordinals of its snapshot.
+ */
+final class TimeIndex {
+  private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder CURSOR_DECODER = Base64.getUrlDecoder();
+
+  private final TransactionHistory history;
+  private final ConcurrentSkipListMap<Key, Transaction> live = new ConcurrentSkipListMap<>();
+  private volatile Key[] historyKeys;
+
+  TimeIndex(TransactionHistory history) {
+    this.history = history;
+  }
+
+  /**
+   * Indexes a transaction appended to the wallet. Called by the single writer.
+   *
+   * @param ordinal the position of the transaction counting the history
+   * @param transaction the transaction
+   */
+  void add(int ordinal, Transaction transaction) {
+    live.put(new Key(transaction.getTimestamp(), transaction.getId(), ordinal), transaction);
+  }
+
+  /**
+   * Lists one page of transactions.
+   *
+   * @param filter the conditions for listed transactions
+   * @param direction the time order
+   * @param cursor the cursor returned with the previous page, or null for the first page
+   * @param pageSize the maximum number of transactions on the page
+   * @param bound the number of transactions, counting the history, visible to the caller
+   * @return the page
+   * @throws IllegalArgumentException if the cursor is malformed or the page size is not positive
+   */
+  TransactionPage page(
+      TransactionFilter filter, SortDirection direction, String cursor, int pageSize, int bound) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+    boolean ascending = direction == SortDirection.ASCENDING;
+    Key after = cursor == null ? null : decode(cursor);
+    Key lower = filter.getFrom() == null ? null : Key.first(filter.getFrom());
+    Key upper = filter.getTo() == null ? null : Key.first(filter.getTo());
+
+    NavigableMap<Key, Transaction> view = live;
+    if (lower != null) {
+      view = view.tailMap(lower, true);
+    }
+    if (upper != null) {
+      view = view.headMap(upper, false);
+    }
+    if (after != null) {
+      view = ascending ? view.tailMap(after, false) : view.headMap(after, false);
+    }
+    Iterator<Map.Entry<Key, Transaction>> liveEntries =
+        (ascending ? view : view.descendingMap()).entrySet().iterator();
+
+    Key[] keys = history.size() > 0 ? historyKeys() : new Key[0];
+    List<Transaction> historyTransactions = keys.length > 0 ? history.getTransactions() : null;
+    int low = lower == null ? 0 : insertionPoint(keys, lower, true);
+    int high = upper == null ? keys.length : insertionPoint(keys, upper, true);
+    if (after != null) {
+      if (ascending) {
+        low = Math.max(low, insertionPoint(keys, after, false));
+      } else {
+        high = Math.min(high, insertionPoint(keys, after, true));
+      }
+    }
+    int next = ascending ? low : high - 1;
+
+    // Merge the two sorted sources, taking one extra match to learn whether another page exists
+    List<Transaction> transactions = new ArrayList<>(Math.min(pageSize, 64));
+    Key last = null;
+    Map.Entry<Key, Transaction> liveHead = nextVisible(liveEntries, bound);
+    while (transactions.size() <= pageSize) {
+      boolean historyLeft = ascending ? next < high : next >= low;
+      if (!historyLeft && liveHead == null) {
+        break;
+      }
+      Key key;
+      Transaction transaction;
+      boolean takeHistory =
+          historyLeft
+              && (liveHead == null
+                  || (ascending
+                      ? keys[next].compareTo(liveHead.getKey()) < 0
+                      : keys[next].compareTo(liveHead.getKey()) > 0));
+      if (takeHistory) {
+        key = keys[next];
+        transaction = historyTransactions.get(key.ordinal);
+        next += ascending ? 1 : -1;
+      } else {
+        key = liveHead.getKey();
+        transaction = liveHead.getValue();
+        liveHead = nextVisible(liveEntries, bound);
+      }
+      if (filter.matches(transaction)) {
+        if (transactions.size() == pageSize) {
+          return new TransactionPage(transactions, encode(last));
+        }
+        transactions.add(transaction);
+        last = key;
+      }
+    }
+    return new TransactionPage(transactions, null);
+  }
+
+  private static Map.Entry<Key, Transaction> nextVisible(
+      Iterator<Map.Entry<Key, Transaction>> entries, int bound) {
+    while (entries.hasNext()) {
+      Map.Entry<Key, Transaction> entry = entries.next();
+      if (entry.getKey().ordinal < bound) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private Key[] historyKeys() {
+    Key[] keys = historyKeys;
+    if (keys == null) {
+      synchronized (this) {
+        keys = historyKeys;
+        if (keys == null) {
+          List<Transaction> transactions = history.getTransactions();
+          keys = new Key[transactions.size()];
+          for (int i = 0; i < keys.length; i++) {
+            Transaction transaction = transactions.get(i);
+            keys[i] = new Key(transaction.getTimestamp(), transaction.getId(), i);
+          }
+          Arrays.sort(keys);
+          historyKeys = keys;
+        }
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Finds the first position whose key is at least ({@code inclusive}) or greater than the given
+   * key.
+   */
+  private static int insertionPoint(Key[] keys, Key key, boolean inclusive) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int comparison = keys[mid].compareTo(key);
+      if (comparison < 0 || (!inclusive && comparison == 0)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static String encode(Key key) {
+    String text = key.timestamp + "|" + key.ordinal + "|" + key.id;
+    return CURSOR_ENCODER.encodeToString(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Key decode(String cursor) {
+    try {
+      String text = new String(CURSOR_DECODER.decode(cursor), StandardCharsets.UTF_8);
+      int first = text.indexOf('|');
+      int second = text.indexOf('|', first + 1);
+      if (first < 0 || second < 0) {
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+      }
+      return new Key(
+          LocalDateTime.parse(text.substring(0, first)),
+          text.substring(second + 1),
+          Integer.parseInt(text.substring(first + 1, second)));
+    } catch (DateTimeParseException | NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+    }
+  }
+
+  /** Sort key of a transaction. */
+  private static final class Key implements Comparable<Key> {
+    private final LocalDateTime timestamp;
+    private final String id;
+    private final int ordinal;
+
+    private Key(LocalDateTime timestamp, String id, int ordinal) {
+      this.timestamp = timestamp;
+      this.id = id;
+      this.ordinal = ordinal;
+    }
+
+    /** Gets a key that sorts before every transaction at or after a time. */
+    private static Key first(LocalDateTime timestamp) {
+      return new Key(timestamp, "", Integer.MIN_VALUE);
+    }
+
+    @Override
+    public int compareTo(Key other) {
+      int comparison = timestamp.compareTo(other.timestamp);
+      if (comparison == 0) {
+        comparison = id.compareTo(other.id);
+      }
+      return comparison != 0 ? comparison : Integer.compare(ordinal, other.ordinal);
+    }
+  }
+}
+
@@ -1,5 +1,6 @@
 package com.finances.core.domain;
 
+import com.finances.core.util.Formatting;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -11,6 +12,9 @@ public class Transaction {
   private final double amount;
   private final LocalDateTime timestamp;
   private final String description;
+  private final String idempotencyKey;
+  private final String currency;
+  private final String transferId;
 
   public Transaction(
       String id,
@@ -19,28 +23,83 @@ public class Transaction {
       double amount,
       LocalDateTime timestamp,
       String description) {
-    if (id == null || id.trim().isEmpty()) {
+    this(id, type, category, amount, timestamp, description, null);
+  }
+
+  /**
+   * Creates a transaction carrying a client-supplied idempotency key. A wallet stores at most one
+   * transaction per key, so a retried import with the same key is not posted twice.
+   *
+   * @param id the transaction ID
+   * @param type the type
+   * @param category the category
+   * @param amount the positive amount
+   * @param timestamp the timestamp
+   * @param description optional description
+   * @param idempotencyKey the key, or null for none
+   */
+  public Transaction(
+      String id,
+      TransactionType type,
+      String category,
+      double amount,
+      LocalDateTime timestamp,
+      String description,
+      String idempotencyKey) {
+    this(
+        builder(id, type, category, amount, timestamp)
+            .description(description)
+            .idempotencyKey(idempotencyKey));
+  }
+
+  private Transaction(Builder builder) {
+    if (builder.id == null || builder.id.trim().isEmpty()) {
       throw new IllegalArgumentException("Transaction ID cannot be null or empty");
     }
-    if (type == null) {
+    if (builder.type == null) {
       throw new IllegalArgumentException("Transaction type cannot be null");
     }
-    if (category == null || category.trim().isEmpty()) {
+    if (builder.category == null || builder.category.trim().isEmpty()) {
       throw new IllegalArgumentException("Category cannot be null or empty");
     }
-    if (amount <= 0) {
-      throw new IllegalArgumentException("Amount must be positive");
+    if (!Double.isFinite(builder.amount) || builder.amount <= 0) {
+      throw new IllegalArgumentException("Amount must be positive and finite");
     }
-    if (timestamp == null) {
+    if (builder.timestamp == null) {
       throw new IllegalArgumentException("Timestamp cannot be null");
     }
+    if (builder.idempotencyKey != null && builder.idempotencyKey.isEmpty()) {
+      throw new IllegalArgumentException("Idempotency key cannot be empty");
+    }
+    if (builder.transferId != null && builder.transferId.isEmpty()) {
+      throw new IllegalArgumentException("Transfer ID cannot be empty");
+    }
+
+    this.id = builder.id;
+    this.type = builder.type;
+    this.category = builder.category.trim();
+    this.amount = builder.amount;
+    this.timestamp = builder.timestamp;
+    this.description = builder.description != null ? builder.description.trim() : "";
+    this.idempotencyKey = builder.idempotencyKey;
+    this.currency = CurrencyCode.normalize(builder.currency);
+    this.transferId = builder.transferId;
+  }
 
-    this.id = id;
-    this.type = type;
-    this.category = category.trim();
-    this.amount = amount;
-    this.timestamp = timestamp;
-    this.description = description != null ? description.trim() : "";
+  /**
+   * Starts a transaction with optional fields, such as a currency or a transfer, that the
+   * constructors do not take. The values are validated by {@link Builder#build}.
+   *
+   * @param id the transaction ID
+   * @param type the type
+   * @param category the category
+   * @param amount the positive amount, in the transaction's currency
+   * @param timestamp the timestamp
+   * @return a builder with no description, idempotency key, currency or transfer
+   */
+  public static Builder builder(
+      String id, TransactionType type, String category, double amount, LocalDateTime timestamp) {
+    return new Builder(id, type, category, amount, timestamp);
   }
 
   public String getId() {
@@ -67,6 +126,33 @@ public class Transaction {
     return description;
   }
 
+  /**
+   * Gets the client-supplied idempotency key.
+   *
+   * @return the key, or null if the transaction has none
+   */
+  public String getIdempotencyKey() {
+    return idempotencyKey;
+  }
+
+  /**
+   * Gets the currency of the amount.
+   *
+   * @return the upper-case currency code
+   */
+  public String getCurrency() {
+    return currency;
+  }
+
+  /**
+   * Gets the transfer this transaction is a leg of.
+   *
+   * @return the transfer ID, or null if the transaction is not part of a transfer
+   */
+  public String getTransferId() {
+    return transferId;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -86,9 +172,91 @@ public class Transaction {
 
   @Override
   public String toString() {
-    return String.format(
-        "%s: %s - %.2f (%s) [%s]",
-        type, category, amount, timestamp.toLocalDate(), description);
+    StringBuilder text = new StringBuilder(64);
+    text.append(type).append(": ").append(category).append(" - ");
+    Formatting.appendAmount(text, amount);
+    if (!currency.equals(CurrencyCode.DEFAULT)) {
+      text.append(' ').append(currency);
+    }
+    text.append(" (");
+    Formatting.appendDate(text, timestamp.toLocalDate()).append(") [");
+    return text.append(description).append(']').toString();
+  }
+
+  /** Collects the optional fields of a {@link Transaction}. */
+  public static final class Builder {
+    private final String id;
+    private final TransactionType type;
+    private final String category;
+    private final double amount;
+    private final LocalDateTime timestamp;
+    private String description;
+    private String idempotencyKey;
+    private String currency;
+    private String transferId;
+
+    private Builder(
+        String id, TransactionType type, String category, double amount, LocalDateTime timestamp) {
+      this.id = id;
+      this.type = type;
+      this.category = category;
+      this.amount = amount;
+      this.timestamp = timestamp;
+    }
+
+    /**
+     * Sets the description.
+     *
+     * @param description the description, or null for none
+     * @return this builder
+     */
+    public Builder description(String description) {
+      this.description = description;
+      return this;
+    }
+
+    /**
+     * Sets the client-supplied idempotency key.
+     *
+     * @param idempotencyKey the key, or null for none
+     * @return this builder
+     */
+    public Builder idempotencyKey(String idempotencyKey) {
+      this.idempotencyKey = idempotencyKey;
+      return this;
+    }
+
+    /**
+     * Sets the currency of the amount.
+     *
+     * @param currency the currency code, or null for {@link CurrencyCode#DEFAULT}
+     * @return this builder
+     */
+    public Builder currency(String currency) {
+      this.currency = currency;
+      return this;
+    }
+
+    /**
+     * Makes the transaction a leg of a {@link Transfer}.
+     *
+     * @param transferId the ID of the transfer, or null if the transaction is not part of one
+     * @return this builder
+     */
+    public Builder transferId(String transferId) {
+      this.transferId = transferId;
+      return this;
+    }
+
+    /**
+     * Creates the transaction.
+     *
+     * @return the transaction
+     * @throws IllegalArgumentException if a value is missing or invalid
+     */
+    public Transaction build() {
+      return new Transaction(this);
+    }
   }
 }
 
@@ -0,0 +1,102 @@
+package com.finances.core.domain;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Immutable set of conditions a listed transaction must meet.
+ *
+ * <p>Start from {@link #all()} and narrow it with the {@code with} methods, each of which returns a
+ * new filter. Unset conditions match everything.
+ */
+public final class TransactionFilter {
+  private static final TransactionFilter ALL = new TransactionFilter(null, null, null, null);
+
+  private final TransactionType type;
+  private final Set<String> categories;
+  private final LocalDateTime from;
+  private final LocalDateTime to;
+
+  private TransactionFilter(
+      TransactionType type, Set<String> categories, LocalDateTime from, LocalDateTime to) {
+    this.type = type;
+    this.categories = categories;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Gets a filter that matches every transaction.
+   *
+   * @return the filter
+   */
+  public static TransactionFilter all() {
+    return ALL;
+  }
+
+  /**
+   * Restricts the filter to one transaction type.
+   *
+   * @param type the type, or null for both
+   * @return the new filter
+   */
+  public TransactionFilter withType(TransactionType type) {
+    return new TransactionFilter(type, categories, from, to);
+  }
+
+  /**
+   * Restricts the filter to a set of categories, matched exactly.
+   *
+   * @param categories the categories, or null for all
+   * @return the new filter
+   */
+  public TransactionFilter withCategories(Collection<String> categories) {
+    return new TransactionFilter(
+        type, categories == null ? null : Set.copyOf(categories), from, to);
+  }
+
+  /**
+   * Restricts the filter to a time range.
+   *
+   * @param from the start, inclusive, or null for no lower bound
+   * @param to the end, exclusive, or null for no upper bound
+   * @return the new filter
+   */
+  public TransactionFilter withRange(LocalDateTime from, LocalDateTime to) {
+    if (from != null && to != null && to.isBefore(from)) {
+      throw new IllegalArgumentException("Range end cannot be before its start");
+    }
+    return new TransactionFilter(type, categories, from, to);
+  }
+
+  public TransactionType getType() {
+    return type;
+  }
+
+  public Set<String> getCategories() {
+    return categories;
+  }
+
+  public LocalDateTime getFrom() {
+    return from;
+  }
+
+  public LocalDateTime getTo() {
+    return to;
+  }
+
+  /**
+   * Checks a transaction against the filter.
+   *
+   * @param transaction the transaction
+   * @return true if it meets every condition
+   */
+  public boolean matches(Transaction transaction) {
+    return (type == null || transaction.getType() == type)
+        && (categories == null || categories.contains(transaction.getCategory()))
+        && (from == null || !transaction.getTimestamp().isBefore(from))
+        && (to == null || transaction.getTimestamp().isBefore(to));
+  }
+}
+
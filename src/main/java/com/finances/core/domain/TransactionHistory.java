@@ -0,0 +1,95 @@
+package com.finances.core.domain;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Older transactions of a wallet that live in storage and are loaded on demand.
+ *
+ * <p>A wallet built on a history starts with the history's aggregates and appends new transactions
+ * after it. Aggregates are answered without loading anything; transaction lists are loaded the
+ * first time they are requested. Implementations must be thread-safe and must not change once
+ * handed to a wallet.
+ */
+public interface TransactionHistory {
+  /**
+   * Gets a history without transactions.
+   *
+   * @return the empty history
+   */
+  static TransactionHistory empty() {
+    return EmptyTransactionHistory.INSTANCE;
+  }
+
+  /**
+   * Gets the number of transactions, without loading them.
+   *
+   * @return the number of transactions
+   */
+  int size();
+
+  double getTotalIncome();
+
+  double getTotalExpense();
+
+  Map<String, Double> getIncomeByCategory();
+
+  Map<String, Double> getExpenseByCategory();
+
+  /**
+   * Gets all transactions, loading them if needed.
+   *
+   * @return the transactions in insertion order
+   * @throws java.io.UncheckedIOException if the transactions cannot be loaded
+   */
+  List<Transaction> getTransactions();
+
+  /**
+   * Gets the transactions in a time range, loading only the parts of storage that cover it.
+   *
+   * @param from the start, inclusive
+   * @param to the end, exclusive
+   * @return the matching transactions in insertion order
+   * @throws java.io.UncheckedIOException if the transactions cannot be loaded
+   */
+  List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to);
+
+  /**
+   * Gets the idempotency keys of the transactions. The default implementation loads all
+   * transactions; storage that keeps the keys apart should read only those.
+   *
+   * @return the position in {@link #getTransactions()} of the transaction with each key
+   * @throws java.io.UncheckedIOException if the keys cannot be loaded
+   */
+  default Map<String, Integer> getIdempotencyKeys() {
+    Map<String, Integer> keys = new HashMap<>();
+    List<Transaction> transactions = getTransactions();
+    for (int i = 0; i < transactions.size(); i++) {
+      String key = transactions.get(i).getIdempotencyKey();
+      if (key != null) {
+        keys.putIfAbsent(key, i);
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Gets the currencies of the transactions. The default implementation loads all transactions;
+   * storage that records the currencies in its metadata should answer from there.
+   *
+   * @return the currency codes
+   * @throws java.io.UncheckedIOException if the transactions cannot be loaded
+   */
+  default Set<String> getCurrencies() {
+    Set<String> currencies = new TreeSet<>();
+    for (Transaction transaction : getTransactions()) {
+      currencies.add(transaction.getCurrency());
+    }
+    return currencies;
+  }
+}
+
@@ -0,0 +1,33 @@
+package com.finances.core.domain;
+
+import java.util.Collections;
+import java.util.List;
+
+/** One page of a transaction listing and the cursor to the next page. */
+public final class TransactionPage {
+  private final List<Transaction> transactions;
+  private final String nextCursor;
+
+  TransactionPage(List<Transaction> transactions, String nextCursor) {
+    this.transactions = Collections.unmodifiableList(transactions);
+    this.nextCursor = nextCursor;
+  }
+
+  public List<Transaction> getTransactions() {
+    return transactions;
+  }
+
+  /**
+   * Gets the opaque cursor that continues the listing after this page.
+   *
+   * @return the cursor, or null if this is the last page
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public boolean hasMore() {
+    return nextCursor != null;
+  }
+}
+
@@ -0,0 +1,222 @@
+package com.finances.core.domain;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable condition on transaction attributes, evaluated with the wallet's bitmap index.
+ *
+ * <p>Conditions match the type, the exact category, the calendar month of the timestamp or the
+ * decimal amount bucket ({@link #bucketOf}) of a transaction, and combine with {@link #and}, {@link
+ * #or} and {@link #not}.
+ */
+public final class TransactionQuery {
+  /** The kind of a condition. */
+  enum Kind {
+    ALL,
+    TYPE,
+    CATEGORY,
+    MONTHS,
+    AMOUNT_BUCKET,
+    AND,
+    OR,
+    NOT
+  }
+
+  private static final TransactionQuery ALL =
+      new TransactionQuery(Kind.ALL, null, null, Collections.emptyList());
+
+  private final Kind kind;
+  private final Object key;
+  private final Object endKey;
+  private final List<TransactionQuery> operands;
+
+  private TransactionQuery(Kind kind, Object key, Object endKey, List<TransactionQuery> operands) {
+    this.kind = kind;
+    this.key = key;
+    this.endKey = endKey;
+    this.operands = operands;
+  }
+
+  /**
+   * Creates a condition every transaction meets.
+   *
+   * @return the condition
+   */
+  public static TransactionQuery all() {
+    return ALL;
+  }
+
+  /**
+   * Creates a condition on the transaction type.
+   *
+   * @param type the type
+   * @return the condition
+   */
+  public static TransactionQuery type(TransactionType type) {
+    if (type == null) {
+      throw new IllegalArgumentException("Type cannot be null");
+    }
+    return leaf(Kind.TYPE, type, null);
+  }
+
+  /**
+   * Creates a condition on the exact category.
+   *
+   * @param category the category
+   * @return the condition
+   */
+  public static TransactionQuery category(String category) {
+    if (category == null) {
+      throw new IllegalArgumentException("Category cannot be null");
+    }
+    return leaf(Kind.CATEGORY, category, null);
+  }
+
+  /**
+   * Creates a condition met by transactions in any of the given categories.
+   *
+   * @param categories the categories, matched exactly
+   * @return the condition
+   */
+  public static TransactionQuery categories(Collection<String> categories) {
+    if (categories == null) {
+      throw new IllegalArgumentException("Categories cannot be null");
+    }
+    List<TransactionQuery> operands = new ArrayList<>(categories.size());
+    for (String category : categories) {
+      operands.add(category(category));
+    }
+    return new TransactionQuery(Kind.OR, null, null, Collections.unmodifiableList(operands));
+  }
+
+  /**
+   * Creates a condition on the month of the timestamp.
+   *
+   * @param month the month
+   * @return the condition
+   */
+  public static TransactionQuery month(YearMonth month) {
+    return months(month, month);
+  }
+
+  /**
+   * Creates a condition on a range of months of the timestamp.
+   *
+   * @param from the first month
+   * @param to the last month, inclusive
+   * @return the condition
+   */
+  public static TransactionQuery months(YearMonth from, YearMonth to) {
+    if (from == null || to == null) {
+      throw new IllegalArgumentException("Months cannot be null");
+    }
+    if (to.isBefore(from)) {
+      throw new IllegalArgumentException("Last month cannot be before first month");
+    }
+    return leaf(Kind.MONTHS, from, to);
+  }
+
+  /**
+   * Creates a condition on the amount bucket.
+   *
+   * @param bucket the bucket, as returned by {@link #bucketOf}
+   * @return the condition
+   */
+  public static TransactionQuery amountBucket(int bucket) {
+    return leaf(Kind.AMOUNT_BUCKET, bucket, null);
+  }
+
+  /**
+   * Gets the amount bucket of an amount: bucket {@code n} holds amounts from {@code 10^n} up to,
+   * but excluding, {@code 10^(n+1)}.
+   *
+   * @param amount the positive amount
+   * @return the bucket
+   */
+  public static int bucketOf(double amount) {
+    return (int) Math.floor(Math.log10(amount));
+  }
+
+  /**
+   * Combines this condition with another that must also hold.
+   *
+   * @param other the other condition
+   * @return the combined condition
+   */
+  public TransactionQuery and(TransactionQuery other) {
+    return combine(Kind.AND, other);
+  }
+
+  /**
+   * Combines this condition with an alternative.
+   *
+   * @param other the other condition
+   * @return the combined condition
+   */
+  public TransactionQuery or(TransactionQuery other) {
+    return combine(Kind.OR, other);
+  }
+
+  /**
+   * Negates this condition.
+   *
+   * @return a condition met by the transactions that do not meet this one
+   */
+  public TransactionQuery not() {
+    return new TransactionQuery(Kind.NOT, null, null, List.of(this));
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  Object getKey() {
+    return key;
+  }
+
+  Object getEndKey() {
+    return endKey;
+  }
+
+  List<TransactionQuery> getOperands() {
+    return operands;
+  }
+
+  private static TransactionQuery leaf(Kind kind, Object key, Object endKey) {
+    return new TransactionQuery(kind, key, endKey, Collections.emptyList());
+  }
+
+  private TransactionQuery combine(Kind combined, TransactionQuery other) {
+    if (other == null) {
+      throw new IllegalArgumentException("Query cannot be null");
+    }
+    return new TransactionQuery(combined, null, null, List.of(this, other));
+  }
+
+  @Override
+  public String toString() {
+    switch (kind) {
+      case ALL:
+        return "all";
+      case MONTHS:
+        return key.equals(endKey) ? "month=" + key : "months=" + key + ".." + endKey;
+      case NOT:
+        return "not(" + operands.get(0) + ")";
+      case AND:
+      case OR:
+        List<String> parts = new ArrayList<>();
+        for (TransactionQuery operand : operands) {
+          parts.add(operand.toString());
+        }
+        return kind.name().toLowerCase(Locale.ROOT) + parts;
+      default:
+        return kind.name().toLowerCase(Locale.ROOT) + "=" + key;
+    }
+  }
+}
+
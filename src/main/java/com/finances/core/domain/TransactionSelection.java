@@ -0,0 +1,87 @@
+package com.finances.core.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The transactions of a wallet snapshot that meet a {@link TransactionQuery}.
+ *
+ * <p>The selection holds the matching ordinals as bitmaps; counting them costs a pass over the
+ * bitmap chunks and the aggregates visit only the matching transactions.
+ */
+public final class TransactionSelection {
+  private final TransactionHistory history;
+  private final OrdinalBitmap historyMatches;
+  private final Transaction[] transactions;
+  private final OrdinalBitmap matches;
+
+  TransactionSelection(
+      TransactionHistory history,
+      OrdinalBitmap historyMatches,
+      Transaction[] transactions,
+      OrdinalBitmap matches) {
+    this.history = history;
+    this.historyMatches = historyMatches;
+    this.transactions = transactions;
+    this.matches = matches;
+  }
+
+  /**
+   * Counts the matching transactions.
+   *
+   * @return the number of matches
+   */
+  public int size() {
+    return historyMatches.cardinality() + matches.cardinality();
+  }
+
+  /**
+   * Gets the matching transactions.
+   *
+   * @return the matches in insertion order
+   */
+  public List<Transaction> getTransactions() {
+    List<Transaction> result = new ArrayList<>(size());
+    if (historyMatches.cardinality() > 0) {
+      List<Transaction> historyTransactions = history.getTransactions();
+      historyMatches.forEach(ordinal -> result.add(historyTransactions.get(ordinal)));
+    }
+    matches.forEach(ordinal -> result.add(transactions[ordinal]));
+    return result;
+  }
+
+  /**
+   * Sums the income among the matches.
+   *
+   * @return the total income
+   */
+  public double getTotalIncome() {
+    return sum(TransactionType.INCOME);
+  }
+
+  /**
+   * Sums the expenses among the matches.
+   *
+   * @return the total expenses
+   */
+  public double getTotalExpense() {
+    return sum(TransactionType.EXPENSE);
+  }
+
+  private double sum(TransactionType type) {
+    double[] total = new double[1];
+    if (historyMatches.cardinality() > 0) {
+      List<Transaction> historyTransactions = history.getTransactions();
+      historyMatches.forEach(ordinal -> add(historyTransactions.get(ordinal), type, total));
+    }
+    matches.forEach(ordinal -> add(transactions[ordinal], type, total));
+    return total[0];
+  }
+
+  private static void add(Transaction transaction, TransactionType type, double[] total) {
+    if (transaction.getType() == type) {
+      total[0] += transaction.getAmount();
+    }
+  }
+}
+
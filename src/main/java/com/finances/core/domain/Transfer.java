@@ -0,0 +1,171 @@
+package com.finances.core.domain;
+
+import com.finances.core.util.Formatting;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * A movement of money from one user's wallet to another's, as recorded once in the transfer
+ * journal.
+ *
+ * <p>A transfer is posted as two legs: an expense in the sender's wallet and an income in the
+ * receiver's, both in the {@link #CATEGORY} category and carrying the transfer ID. Each leg also
+ * has an idempotency key derived from the transfer ID, so posting a transfer again, for example to
+ * complete one interrupted between its legs, adds only the legs that are missing.
+ */
+public final class Transfer {
+  /** Category of both legs. */
+  public static final String CATEGORY = "Transfer";
+
+  private final String id;
+  private final String fromUserId;
+  private final String toUserId;
+  private final double amount;
+  private final String currency;
+  private final LocalDateTime timestamp;
+  private final String description;
+
+  /**
+   * Creates a transfer.
+   *
+   * @param id the transfer ID
+   * @param fromUserId the sender's user ID
+   * @param toUserId the receiver's user ID
+   * @param amount the positive amount
+   * @param currency the currency code, or null for {@link CurrencyCode#DEFAULT}
+   * @param timestamp the time of the transfer, used as the timestamp of both legs
+   * @param description optional description
+   * @throws IllegalArgumentException if a value is missing or invalid, or both users are the same
+   */
+  public Transfer(
+      String id,
+      String fromUserId,
+      String toUserId,
+      double amount,
+      String currency,
+      LocalDateTime timestamp,
+      String description) {
+    if (id == null || id.trim().isEmpty()) {
+      throw new IllegalArgumentException("Transfer ID cannot be null or empty");
+    }
+    if (fromUserId == null || fromUserId.trim().isEmpty()) {
+      throw new IllegalArgumentException("Sender cannot be null or empty");
+    }
+    if (toUserId == null || toUserId.trim().isEmpty()) {
+      throw new IllegalArgumentException("Receiver cannot be null or empty");
+    }
+    if (fromUserId.equals(toUserId)) {
+      throw new IllegalArgumentException("Cannot transfer to the same user");
+    }
+    if (!Double.isFinite(amount) || amount <= 0) {
+      throw new IllegalArgumentException("Transfer amount must be positive and finite");
+    }
+    if (timestamp == null) {
+      throw new IllegalArgumentException("Timestamp cannot be null");
+    }
+    this.id = id;
+    this.fromUserId = fromUserId;
+    this.toUserId = toUserId;
+    this.amount = amount;
+    this.currency = CurrencyCode.normalize(currency);
+    this.timestamp = timestamp;
+    this.description = description != null ? description.trim() : "";
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getFromUserId() {
+    return fromUserId;
+  }
+
+  public String getToUserId() {
+    return toUserId;
+  }
+
+  public double getAmount() {
+    return amount;
+  }
+
+  /**
+   * Gets the currency of the amount.
+   *
+   * @return the upper-case currency code
+   */
+  public String getCurrency() {
+    return currency;
+  }
+
+  public LocalDateTime getTimestamp() {
+    return timestamp;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * Creates the sender's leg.
+   *
+   * @param transactionId the ID of the new transaction
+   * @return the expense, linked to this transfer
+   */
+  public Transaction toExpense(String transactionId) {
+    return toLeg(transactionId, TransactionType.EXPENSE, "Transfer to " + toUserId);
+  }
+
+  /**
+   * Creates the receiver's leg.
+   *
+   * @param transactionId the ID of the new transaction
+   * @return the income, linked to this transfer
+   */
+  public Transaction toIncome(String transactionId) {
+    return toLeg(transactionId, TransactionType.INCOME, "Transfer from " + fromUserId);
+  }
+
+  /**
+   * Gets the idempotency key of a leg.
+   *
+   * @param type the type of the leg
+   * @return the key
+   */
+  public String legKey(TransactionType type) {
+    return id + (type == TransactionType.EXPENSE ? ">out" : ">in");
+  }
+
+  private Transaction toLeg(String transactionId, TransactionType type, String text) {
+    return Transaction.builder(transactionId, type, CATEGORY, amount, timestamp)
+        .description(description.isEmpty() ? text : text + ": " + description)
+        .idempotencyKey(legKey(type))
+        .currency(currency)
+        .transferId(id)
+        .build();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return id.equals(((Transfer) o).id);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder(64);
+    text.append(fromUserId).append(" -> ").append(toUserId).append(": ");
+    Formatting.appendAmount(text, amount).append(' ').append(currency).append(" (");
+    Formatting.appendDate(text, timestamp.toLocalDate()).append(") [");
+    return text.append(description).append(']').toString();
+  }
+}
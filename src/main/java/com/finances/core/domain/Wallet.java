@@ -1,115 +1,432 @@
 package com.finances.core.domain;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
-/** Represents a user's wallet containing transactions and budgets. */
+/**
+ * Represents a user's wallet containing transactions and budgets.
+ *
+ * <p>Writers are serialized on the wallet. Every write publishes a new immutable {@link
+ * WalletSnapshot}, and all read methods work on the latest snapshot, so readers never block writers
+ * and never observe a half-applied change.
+ *
+ * <p>A wallet may be built on a {@link TransactionHistory} of persisted transactions that are only
+ * loaded when a query needs them; new transactions are appended after the history.
+ *
+ * <p>For every budget the wallet keeps a {@link BudgetStatus} with the amount spent in its
+ * category, plus a ring of per-period sums for budgets with a {@link BudgetPeriod}. It is updated
+ * when an expense in that category is added and when the limit changes, so budget queries cost O(1)
+ * per budget.
+ *
+ * <p>Categories form a hierarchy by their {@code /}-separated segments. The wallet keeps a {@link
+ * CategoryTree} per currency whose nodes roll up the amounts of their subtrees, and a budget on a
+ * parent category counts the expenses of all its subcategories in the budget's currency.
+ *
+ * <p>Descriptions and categories are indexed for full-text search as transactions are added; see
+ * {@link WalletSnapshot#search}. They are also kept ordered by time for paged listings; see {@link
+ * WalletSnapshot#getPage}.
+ *
+ * <p>Transactions may carry a client-supplied idempotency key. Adding a transaction whose key the
+ * wallet already holds, including keys of the history, leaves the wallet unchanged and returns the
+ * stored transaction, so retried imports are not posted twice.
+ *
+ * <p>Every transaction and budget has a currency. The plain totals and balance are those of {@link
+ * CurrencyCode#DEFAULT}; the wallet keeps a {@link CurrencyLedger} with per-currency totals and
+ * daily sums, from which {@link WalletSnapshot#getBalance(String)} reports one currency and {@link
+ * WalletSnapshot#getTotalIncome(String, ExchangeRates)} and the like convert into a base currency
+ * without visiting single transactions. A budget only counts expenses in its own currency.
+ */
 public class Wallet {
+  private static final int INITIAL_CAPACITY = 16;
+  private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+
   private final String userId;
-  private final List<Transaction> transactions;
   private final Map<String, Budget> budgets;
+  private TransactionHistory history;
+  private Transaction[] transactions;
+  private int size;
+  private double totalIncome;
+  private double incomeCompensation;
+  private double totalExpense;
+  private double expenseCompensation;
+  private Map<String, Budget> budgetsView;
+  private Map<String, BudgetStatus> budgetStatuses;
+  private Map<String, CategoryTree> categories;
+  private AttributeIndex attributeIndex;
+  private SearchIndex searchIndex;
+  private TimeIndex timeIndex;
+  private IdempotencyIndex idempotencyIndex;
+  private CurrencyLedger currencyLedger;
+  private CurrencyIndex currencyIndex;
+  private volatile WalletSnapshot snapshot;
 
   public Wallet(String userId) {
+    this(userId, TransactionHistory.empty());
+  }
+
+  /**
+   * Creates a wallet whose older transactions are provided by a lazily loaded history.
+   *
+   * @param userId the owner of the wallet
+   * @param history the persisted transactions preceding any added to this wallet
+   */
+  public Wallet(String userId, TransactionHistory history) {
     if (userId == null || userId.trim().isEmpty()) {
       throw new IllegalArgumentException("User ID cannot be null or empty");
     }
+    if (history == null) {
+      throw new IllegalArgumentException("History cannot be null");
+    }
     this.userId = userId;
-    this.transactions = new ArrayList<>();
+    this.history = history;
+    this.totalIncome = history.getTotalIncome();
+    this.totalExpense = history.getTotalExpense();
+    this.transactions = new Transaction[INITIAL_CAPACITY];
     this.budgets = new HashMap<>();
+    this.budgetsView = Collections.emptyMap();
+    this.budgetStatuses = Collections.emptyMap();
+    this.categories = Collections.emptyMap();
+    this.attributeIndex = new AttributeIndex(history);
+    this.searchIndex = new SearchIndex(history);
+    this.timeIndex = new TimeIndex(history);
+    this.idempotencyIndex = new IdempotencyIndex(history);
+    this.currencyLedger = CurrencyLedger.EMPTY;
+    this.currencyIndex = new CurrencyIndex(history);
+    publish();
   }
 
   public String getUserId() {
     return userId;
   }
 
-  public void addTransaction(Transaction transaction) {
+  /**
+   * Adds a transaction unless the wallet already holds one with the same idempotency key.
+   *
+   * @param transaction the transaction
+   * @return the transaction stored earlier under the same key, or the given one if it was added
+   */
+  public synchronized Transaction addTransaction(Transaction transaction) {
     if (transaction == null) {
       throw new IllegalArgumentException("Transaction cannot be null");
     }
-    transactions.add(transaction);
+    Transaction stored = append(transaction);
+    if (stored == transaction) {
+      publish();
+    }
+    return stored;
+  }
+
+  /**
+   * Adds transactions in order and publishes a single snapshot with all of them, so a batch costs
+   * one lock acquisition and one snapshot instead of one per transaction. Transactions whose
+   * idempotency key the wallet already holds, or that repeat a key earlier in the batch, are
+   * skipped.
+   *
+   * @param batch the transactions
+   * @return for each transaction, the one stored under its key or the transaction itself
+   */
+  public synchronized List<Transaction> addTransactions(List<Transaction> batch) {
+    if (batch == null) {
+      throw new IllegalArgumentException("Transactions cannot be null");
+    }
+    for (Transaction transaction : batch) {
+      if (transaction == null) {
+        throw new IllegalArgumentException("Transaction cannot be null");
+      }
+    }
+    List<Transaction> stored = new ArrayList<>(batch.size());
+    boolean changed = false;
+    for (Transaction transaction : batch) {
+      Transaction result = append(transaction);
+      changed |= result == transaction;
+      stored.add(result);
+    }
+    if (changed) {
+      publish();
+    }
+    return stored;
+  }
+
+  /**
+   * Finds the transaction stored under an idempotency key.
+   *
+   * @param key the idempotency key
+   * @return the transaction, or null if the wallet holds none with the key
+   */
+  public synchronized Transaction findByIdempotencyKey(String key) {
+    if (key == null) {
+      throw new IllegalArgumentException("Idempotency key cannot be null");
+    }
+    return idempotencyIndex.find(key);
+  }
+
+  /**
+   * Gets a consistent point-in-time view of the wallet.
+   *
+   * @return the latest snapshot
+   */
+  public WalletSnapshot snapshot() {
+    return snapshot;
   }
 
   public List<Transaction> getTransactions() {
-    return Collections.unmodifiableList(transactions);
+    return snapshot.getTransactions();
+  }
+
+  /**
+   * Gets the transactions in a time range, loading only the history that covers it.
+   *
+   * @param from the start, inclusive
+   * @param to the end, exclusive
+   * @return the matching transactions in insertion order
+   */
+  public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+    return snapshot.getTransactionsBetween(from, to);
+  }
+
+  public synchronized void setBudget(String category, double limit) {
+    setBudget(category, limit, null);
+  }
+
+  /**
+   * Sets a budget whose limit applies per period.
+   *
+   * @param category the expense category
+   * @param limit the limit per period
+   * @param period the period, or null for a lifetime limit
+   */
+  public synchronized void setBudget(String category, double limit, BudgetPeriod period) {
+    setBudget(category, limit, period, null);
   }
 
-  public void setBudget(String category, double limit) {
+  /**
+   * Sets a budget in a given currency; only expenses in that currency count against it.
+   *
+   * @param category the expense category
+   * @param limit the limit, per period if a period is given
+   * @param period the period, or null for a lifetime limit
+   * @param currency the currency of the limit, or null for {@link CurrencyCode#DEFAULT}
+   */
+  public synchronized void setBudget(
+      String category, double limit, BudgetPeriod period, String currency) {
     if (category == null || category.trim().isEmpty()) {
       throw new IllegalArgumentException("Category cannot be null or empty");
     }
-    budgets.put(category.trim(), new Budget(category.trim(), limit));
+    Budget budget = new Budget(category.trim(), limit, period, currency);
+    budgets.put(budget.getCategory(), budget);
+    budgetsView = Collections.unmodifiableMap(new HashMap<>(budgets));
+    // A changed limit keeps the sums; a new budget, period or currency scans the category's
+    // expenses once
+    BudgetStatus status = budgetStatuses.get(budget.getCategory());
+    if (status != null && !status.getBudget().getCurrency().equals(budget.getCurrency())) {
+      status = null;
+    }
+    BudgetStatus updated;
+    if (status != null && Objects.equals(status.getBudget().getPeriod(), period)) {
+      PeriodWindow window = status.getWindow();
+      updated =
+          new BudgetStatus(
+              budget, status.getTotalSpent(), window == null ? null : window.withLimit(limit));
+    } else {
+      double spent = status != null ? status.getTotalSpent() : spentIn(budget);
+      updated = new BudgetStatus(budget, spent, period == null ? null : buildWindow(budget));
+    }
+    Map<String, BudgetStatus> statuses = new HashMap<>(budgetStatuses);
+    statuses.put(budget.getCategory(), updated);
+    budgetStatuses = Collections.unmodifiableMap(statuses);
+    publish();
   }
 
   public Budget getBudget(String category) {
-    return budgets.get(category);
+    return snapshot.getBudget(category);
   }
 
   public Map<String, Budget> getAllBudgets() {
-    return Collections.unmodifiableMap(budgets);
+    return snapshot.getAllBudgets();
   }
 
-  public void removeBudget(String category) {
-    budgets.remove(category);
+  public synchronized void removeBudget(String category) {
+    if (budgets.remove(category) != null) {
+      budgetsView = Collections.unmodifiableMap(new HashMap<>(budgets));
+      Map<String, BudgetStatus> statuses = new HashMap<>(budgetStatuses);
+      statuses.remove(category);
+      budgetStatuses = Collections.unmodifiableMap(statuses);
+      publish();
+    }
   }
 
   public double getTotalIncome() {
-    return transactions.stream()
-        .filter(t -> t.getType() == TransactionType.INCOME)
-        .mapToDouble(Transaction::getAmount)
-        .sum();
+    return snapshot.getTotalIncome();
   }
 
   public double getTotalExpense() {
-    return transactions.stream()
-        .filter(t -> t.getType() == TransactionType.EXPENSE)
-        .mapToDouble(Transaction::getAmount)
-        .sum();
+    return snapshot.getTotalExpense();
   }
 
   public double getBalance() {
-    return getTotalIncome() - getTotalExpense();
+    return snapshot.getBalance();
   }
 
   public Map<String, Double> getIncomeByCategory() {
-    return transactions.stream()
-        .filter(t -> t.getType() == TransactionType.INCOME)
-        .collect(
-            Collectors.groupingBy(
-                Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
+    return snapshot.getIncomeByCategory();
   }
 
   public Map<String, Double> getExpenseByCategory() {
-    return transactions.stream()
-        .filter(t -> t.getType() == TransactionType.EXPENSE)
-        .collect(
-            Collectors.groupingBy(
-                Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
+    return snapshot.getExpenseByCategory();
   }
 
   public double getExpenseForCategory(String category) {
-    return transactions.stream()
-        .filter(t -> t.getType() == TransactionType.EXPENSE)
-        .filter(t -> t.getCategory().equals(category))
-        .mapToDouble(Transaction::getAmount)
-        .sum();
+    return snapshot.getExpenseForCategory(category);
   }
 
   public double getRemainingBudget(String category) {
-    Budget budget = budgets.get(category);
-    if (budget == null) {
-      return 0;
-    }
-    double spent = getExpenseForCategory(category);
-    return budget.getLimit() - spent;
+    return snapshot.getRemainingBudget(category);
+  }
+
+  public BudgetStatus getBudgetStatus(String category) {
+    return snapshot.getBudgetStatus(category);
   }
 
-  public void clear() {
-    transactions.clear();
+  public synchronized void clear() {
+    history = TransactionHistory.empty();
+    transactions = new Transaction[INITIAL_CAPACITY];
+    size = 0;
+    totalIncome = 0;
+    incomeCompensation = 0;
+    totalExpense = 0;
+    expenseCompensation = 0;
     budgets.clear();
+    budgetsView = Collections.emptyMap();
+    budgetStatuses = Collections.emptyMap();
+    categories = Collections.emptyMap();
+    attributeIndex = new AttributeIndex(history);
+    searchIndex = new SearchIndex(history);
+    timeIndex = new TimeIndex(history);
+    idempotencyIndex = new IdempotencyIndex(history);
+    currencyLedger = CurrencyLedger.EMPTY;
+    currencyIndex = new CurrencyIndex(history);
+    publish();
+  }
+
+  /** Appends a transaction without publishing, returning the stored one for a known key. */
+  private Transaction append(Transaction transaction) {
+    String key = transaction.getIdempotencyKey();
+    if (key != null) {
+      Transaction existing = idempotencyIndex.find(key);
+      if (existing != null) {
+        return existing;
+      }
+      idempotencyIndex.add(key, transaction);
+    }
+    if (size == transactions.length) {
+      // Published snapshots keep the old array; only the prefix they captured is ever read
+      transactions = Arrays.copyOf(transactions, size * 2);
+    }
+    transactions[size] = transaction;
+    attributeIndex.add(size, transaction);
+    searchIndex.add(size, transaction);
+    timeIndex.add(history.size() + size, transaction);
+    size++;
+    addToCategories(transaction);
+    currencyLedger = currencyLedger.add(transaction);
+
+    // Compensated summation keeps the running totals as accurate as a full rescan
+    if (transaction.getType() == TransactionType.INCOME) {
+      double y = transaction.getAmount() - incomeCompensation;
+      double t = totalIncome + y;
+      incomeCompensation = (t - totalIncome) - y;
+      totalIncome = t;
+    } else {
+      double y = transaction.getAmount() - expenseCompensation;
+      double t = totalExpense + y;
+      expenseCompensation = (t - totalExpense) - y;
+      totalExpense = t;
+      if (!budgetStatuses.isEmpty()) {
+        updateBudgetStatuses(transaction);
+      }
+    }
+    return transaction;
+  }
+
+  /** Adds a transaction to the category tree of its currency, starting from the history's. */
+  private void addToCategories(Transaction transaction) {
+    String currency = transaction.getCurrency();
+    CategoryTree tree =
+        categoryTree(currency)
+            .add(transaction.getCategory(), transaction.getType(), transaction.getAmount());
+    Map<String, CategoryTree> trees = new HashMap<>(categories);
+    trees.put(currency, tree);
+    categories = Collections.unmodifiableMap(trees);
+  }
+
+  private CategoryTree categoryTree(String currency) {
+    CategoryTree tree = categories.get(currency);
+    return tree != null ? tree : currencyIndex.categoryTree(currency);
+  }
+
+  /** Adds an expense to the budgets of its category and of every ancestor category. */
+  private void updateBudgetStatuses(Transaction transaction) {
+    Map<String, BudgetStatus> statuses = null;
+    for (String category : CategoryTree.pathOf(transaction.getCategory())) {
+      BudgetStatus status = budgetStatuses.get(category);
+      if (status != null && status.getBudget().getCurrency().equals(transaction.getCurrency())) {
+        if (statuses == null) {
+          statuses = new HashMap<>(budgetStatuses);
+        }
+        statuses.put(
+            category,
+            status.withExpense(transaction.getTimestamp().toLocalDate(), transaction.getAmount()));
+      }
+    }
+    if (statuses != null) {
+      budgetStatuses = Collections.unmodifiableMap(statuses);
+    }
+  }
+
+  /** Gets the expenses in a budget's category and currency, rolled up over subcategories. */
+  private double spentIn(Budget budget) {
+    return categoryTree(budget.getCurrency()).getExpense(budget.getCategory());
+  }
+
+  private PeriodWindow buildWindow(Budget budget) {
+    PeriodWindow window =
+        PeriodWindow.empty(budget.getPeriod(), budget.getLimit(), LocalDate.now());
+    // Only the history covering the tracked periods is loaded
+    for (Transaction transaction :
+        snapshot.getTransactionsBetween(window.getStart().atStartOfDay(), END_OF_TIME)) {
+      if (transaction.getType() == TransactionType.EXPENSE
+          && transaction.getCurrency().equals(budget.getCurrency())
+          && CategoryTree.isWithin(transaction.getCategory(), budget.getCategory())) {
+        window = window.add(transaction.getTimestamp().toLocalDate(), transaction.getAmount());
+      }
+    }
+    return window;
+  }
+
+  private void publish() {
+    snapshot =
+        new WalletSnapshot(
+            userId,
+            history,
+            transactions,
+            size,
+            totalIncome - incomeCompensation,
+            totalExpense - expenseCompensation,
+            budgetsView,
+            budgetStatuses,
+            categories,
+            attributeIndex,
+            searchIndex,
+            timeIndex,
+            currencyLedger,
+            currencyIndex);
   }
 }
 
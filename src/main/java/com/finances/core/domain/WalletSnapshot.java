@@ -0,0 +1,558 @@
+package com.finances.core.domain;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable point-in-time view of a {@link Wallet}.
+ *
+ * <p>A snapshot shares the wallet's append-only transaction array and only reads the prefix that
+ * existed when it was taken, so creating one is O(1) and later writes never disturb it. Totals are
+ * captured at snapshot time; per-category figures are computed from the captured prefix on top of
+ * the aggregates of the wallet's {@link TransactionHistory}, which is only loaded when transactions
+ * themselves are requested. Totals of single categories and of category subtrees come from the
+ * captured {@link CategoryTree} of their currency; transactions matching attribute conditions come
+ * from the bitmaps of an {@link AttributeIndex}. Totals per currency and totals converted into a
+ * base currency come from the captured {@link CurrencyLedger}.
+ */
+public final class WalletSnapshot {
+  private final String userId;
+  private final TransactionHistory history;
+  private final Transaction[] transactions;
+  private final int size;
+  private final double totalIncome;
+  private final double totalExpense;
+  private final Map<String, Budget> budgets;
+  private final Map<String, BudgetStatus> budgetStatuses;
+  private final Map<String, CategoryTree> categories;
+  private final AttributeIndex attributeIndex;
+  private final SearchIndex searchIndex;
+  private final TimeIndex timeIndex;
+  private final CurrencyLedger currencies;
+  private final CurrencyIndex currencyIndex;
+
+  WalletSnapshot(
+      String userId,
+      TransactionHistory history,
+      Transaction[] transactions,
+      int size,
+      double totalIncome,
+      double totalExpense,
+      Map<String, Budget> budgets,
+      Map<String, BudgetStatus> budgetStatuses,
+      Map<String, CategoryTree> categories,
+      AttributeIndex attributeIndex,
+      SearchIndex searchIndex,
+      TimeIndex timeIndex,
+      CurrencyLedger currencies,
+      CurrencyIndex currencyIndex) {
+    this.userId = userId;
+    this.history = history;
+    this.transactions = transactions;
+    this.size = size;
+    this.totalIncome = totalIncome;
+    this.totalExpense = totalExpense;
+    this.budgets = budgets;
+    this.budgetStatuses = budgetStatuses;
+    this.categories = categories;
+    this.attributeIndex = attributeIndex;
+    this.searchIndex = searchIndex;
+    this.timeIndex = timeIndex;
+    this.currencies = currencies;
+    this.currencyIndex = currencyIndex;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  /**
+   * Gets the transactions captured by this snapshot. History transactions are loaded on the first
+   * access to one of them.
+   *
+   * @return an unmodifiable list in insertion order
+   */
+  public List<Transaction> getTransactions() {
+    return new TransactionList(history, transactions, size);
+  }
+
+  /**
+   * Gets the transactions in a time range, loading only the history that covers it.
+   *
+   * @param from the start, inclusive
+   * @param to the end, exclusive
+   * @return the matching transactions in insertion order
+   */
+  public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+    List<Transaction> result = new ArrayList<>(history.getTransactionsBetween(from, to));
+    for (int i = 0; i < size; i++) {
+      LocalDateTime timestamp = transactions[i].getTimestamp();
+      if (!timestamp.isBefore(from) && timestamp.isBefore(to)) {
+        result.add(transactions[i]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Lists one page of transactions ordered by timestamp and ID.
+   *
+   * <p>The cursor is the key of the last transaction of the previous page, so later pages do not
+   * shift or repeat when transactions are added in between; a page only contains transactions of
+   * this snapshot. Cost grows with the entries walked from the cursor, not with the page's depth.
+   *
+   * @param filter the conditions listed transactions must meet
+   * @param direction oldest or newest first
+   * @param cursor the cursor of the previous page, or null for the first page
+   * @param pageSize the maximum number of transactions on the page
+   * @return the page
+   * @throws IllegalArgumentException if the cursor is malformed or the page size is not positive
+   */
+  public TransactionPage getPage(
+      TransactionFilter filter, SortDirection direction, String cursor, int pageSize) {
+    return timeIndex.page(filter, direction, cursor, pageSize, history.size() + size);
+  }
+
+  public int getTransactionCount() {
+    return history.size() + size;
+  }
+
+  /**
+   * Gets the persisted history this snapshot's wallet was built on.
+   *
+   * @return the history, empty if the wallet was not loaded lazily
+   */
+  public TransactionHistory getHistory() {
+    return history;
+  }
+
+  /**
+   * Gets the total income in {@link CurrencyCode#DEFAULT}. Amounts in other currencies are not
+   * included; see {@link #getIncomeByCurrency} and {@link #getTotalIncome(String, ExchangeRates)}.
+   *
+   * @return the total income in the default currency
+   */
+  public double getTotalIncome() {
+    return getTotalIncome(CurrencyCode.DEFAULT);
+  }
+
+  /**
+   * Gets the total expenses in {@link CurrencyCode#DEFAULT}. Amounts in other currencies are not
+   * included.
+   *
+   * @return the total expenses in the default currency
+   */
+  public double getTotalExpense() {
+    return getTotalExpense(CurrencyCode.DEFAULT);
+  }
+
+  /**
+   * Gets the balance in {@link CurrencyCode#DEFAULT}. Amounts in other currencies are not included.
+   *
+   * @return the balance in the default currency
+   */
+  public double getBalance() {
+    return getBalance(CurrencyCode.DEFAULT);
+  }
+
+  /**
+   * Gets the total income of one currency, without converting other currencies.
+   *
+   * @param currency the currency code
+   * @return the total income in the currency
+   */
+  public double getTotalIncome(String currency) {
+    return totals(currency)[0];
+  }
+
+  /**
+   * Gets the total expenses of one currency, without converting other currencies.
+   *
+   * @param currency the currency code
+   * @return the total expenses in the currency
+   */
+  public double getTotalExpense(String currency) {
+    return totals(currency)[1];
+  }
+
+  /**
+   * Gets the balance of one currency, without converting other currencies.
+   *
+   * @param currency the currency code
+   * @return the income minus the expenses in the currency
+   */
+  public double getBalance(String currency) {
+    double[] totals = totals(currency);
+    return totals[0] - totals[1];
+  }
+
+  /**
+   * Gets the income converted into one currency, each transaction at the rate of its day.
+   * Conversions are cached per currency for the rate table, so repeating the query, or asking after
+   * a transaction was added, only converts the daily sums of currencies that changed.
+   *
+   * @param currency the currency to report in
+   * @param rates the rate table
+   * @return the total income in the currency
+   * @throws IllegalArgumentException if a currency has no rate for a day with transactions
+   */
+  public double getTotalIncome(String currency, ExchangeRates rates) {
+    return convert(currency, rates)[0];
+  }
+
+  /**
+   * Gets the expenses converted into one currency, each transaction at the rate of its day.
+   *
+   * @param currency the currency to report in
+   * @param rates the rate table
+   * @return the total expenses in the currency
+   * @throws IllegalArgumentException if a currency has no rate for a day with transactions
+   */
+  public double getTotalExpense(String currency, ExchangeRates rates) {
+    return convert(currency, rates)[1];
+  }
+
+  /**
+   * Gets the balance converted into one currency, each transaction at the rate of its day.
+   *
+   * @param currency the currency to report in
+   * @param rates the rate table
+   * @return the balance in the currency
+   * @throws IllegalArgumentException if a currency has no rate for a day with transactions
+   */
+  public double getBalance(String currency, ExchangeRates rates) {
+    double[] totals = convert(currency, rates);
+    return totals[0] - totals[1];
+  }
+
+  /**
+   * Gets the income per currency.
+   *
+   * @return a sorted map of currency code to total income
+   */
+  public Map<String, Double> getIncomeByCurrency() {
+    return currencyIndex.totalsByCurrency(currencies, TransactionType.INCOME);
+  }
+
+  /**
+   * Gets the expenses per currency.
+   *
+   * @return a sorted map of currency code to total expenses
+   */
+  public Map<String, Double> getExpenseByCurrency() {
+    return currencyIndex.totalsByCurrency(currencies, TransactionType.EXPENSE);
+  }
+
+  public Budget getBudget(String category) {
+    return budgets.get(category);
+  }
+
+  /**
+   * Gets the budgets captured by this snapshot.
+   *
+   * @return an unmodifiable map of category to budget
+   */
+  public Map<String, Budget> getAllBudgets() {
+    return budgets;
+  }
+
+  /**
+   * Gets the currencies transactions were recorded in.
+   *
+   * @return the sorted currency codes
+   */
+  public Set<String> getCurrencies() {
+    Set<String> currencies = new TreeSet<>(categories.keySet());
+    currencies.addAll(currencyIndex.historyCurrencies());
+    return currencies;
+  }
+
+  /**
+   * Gets the income per category in {@link CurrencyCode#DEFAULT}.
+   *
+   * @return a map of category to income, without subcategories
+   */
+  public Map<String, Double> getIncomeByCategory() {
+    return getIncomeByCategory(CurrencyCode.DEFAULT);
+  }
+
+  /**
+   * Gets the income per category in one currency.
+   *
+   * @param currency the currency code
+   * @return a map of category to income, without subcategories
+   */
+  public Map<String, Double> getIncomeByCategory(String currency) {
+    return getCategoryTree(currency).getOwnTotals(TransactionType.INCOME);
+  }
+
+  /**
+   * Gets the expenses per category in {@link CurrencyCode#DEFAULT}.
+   *
+   * @return a map of category to expenses, without subcategories
+   */
+  public Map<String, Double> getExpenseByCategory() {
+    return getExpenseByCategory(CurrencyCode.DEFAULT);
+  }
+
+  /**
+   * Gets the expenses per category in one currency.
+   *
+   * @param currency the currency code
+   * @return a map of category to expenses, without subcategories
+   */
+  public Map<String, Double> getExpenseByCategory(String currency) {
+    return getCategoryTree(currency).getOwnTotals(TransactionType.EXPENSE);
+  }
+
+  public double getExpenseForCategory(String category) {
+    return getCategoryTree().getOwnExpense(category);
+  }
+
+  /**
+   * Gets the category hierarchy with rollup totals in {@link CurrencyCode#DEFAULT}.
+   *
+   * @return the tree captured by this snapshot
+   */
+  public CategoryTree getCategoryTree() {
+    return getCategoryTree(CurrencyCode.DEFAULT);
+  }
+
+  /**
+   * Gets the category hierarchy with rollup totals in one currency.
+   *
+   * @param currency the currency code
+   * @return the tree captured by this snapshot, empty if nothing was recorded in the currency
+   */
+  public CategoryTree getCategoryTree(String currency) {
+    String code = CurrencyCode.normalize(currency);
+    CategoryTree tree = categories.get(code);
+    return tree != null ? tree : currencyIndex.categoryTree(code);
+  }
+
+  public double getRemainingBudget(String category) {
+    BudgetStatus status = budgetStatuses.get(category);
+    return status == null ? 0 : status.getRemaining();
+  }
+
+  /**
+   * Gets the spending against a category's budget.
+   *
+   * @param category the category
+   * @return the status, or null if the category has no budget
+   */
+  public BudgetStatus getBudgetStatus(String category) {
+    return budgetStatuses.get(category);
+  }
+
+  /**
+   * Gets the spending against every budget.
+   *
+   * @return an unmodifiable map of category to status
+   */
+  public Map<String, BudgetStatus> getBudgetStatuses() {
+    return budgetStatuses;
+  }
+
+  /**
+   * Selects the transactions meeting a condition on type, category, month and amount bucket. The
+   * condition is evaluated on bitmaps, and aggregates of the selection only visit its matches.
+   *
+   * @param query the condition
+   * @return the selection
+   */
+  public TransactionSelection select(TransactionQuery query) {
+    return attributeIndex.select(query, transactions, size);
+  }
+
+  /**
+   * Gets the transactions in any of the given categories.
+   *
+   * @param categories the categories, matched exactly
+   * @return the matching transactions in insertion order
+   */
+  public List<Transaction> getTransactionsForCategories(Collection<String> categories) {
+    return attributeIndex
+        .select(TransactionQuery.categories(categories), transactions, size)
+        .getTransactions();
+  }
+
+  /**
+   * Gets the income of a set of categories in {@link CurrencyCode#DEFAULT}, each counted once and
+   * without subcategories.
+   *
+   * @param categories the categories
+   * @return the total income
+   */
+  public double getIncomeForCategories(Collection<String> categories) {
+    return getIncomeForCategories(CurrencyCode.DEFAULT, categories);
+  }
+
+  /**
+   * Gets the income of a set of categories in one currency, each counted once and without
+   * subcategories.
+   *
+   * @param currency the currency code
+   * @param categories the categories
+   * @return the total income
+   */
+  public double getIncomeForCategories(String currency, Collection<String> categories) {
+    CategoryTree tree = getCategoryTree(currency);
+    double sum = 0;
+    for (String category : new HashSet<>(categories)) {
+      sum += tree.getOwnIncome(category);
+    }
+    return sum;
+  }
+
+  /**
+   * Gets the expenses of a set of categories in {@link CurrencyCode#DEFAULT}, each counted once and
+   * without subcategories.
+   *
+   * @param categories the categories
+   * @return the total expenses
+   */
+  public double getExpenseForCategories(Collection<String> categories) {
+    return getExpenseForCategories(CurrencyCode.DEFAULT, categories);
+  }
+
+  /**
+   * Gets the expenses of a set of categories in one currency, each counted once and without
+   * subcategories.
+   *
+   * @param currency the currency code
+   * @param categories the categories
+   * @return the total expenses
+   */
+  public double getExpenseForCategories(String currency, Collection<String> categories) {
+    CategoryTree tree = getCategoryTree(currency);
+    double sum = 0;
+    for (String category : new HashSet<>(categories)) {
+      sum += tree.getOwnExpense(category);
+    }
+    return sum;
+  }
+
+  /**
+   * Gets the categories no transaction was recorded for, in any currency.
+   *
+   * @param categories the categories to check
+   * @return the unknown ones, without duplicates, in the given order
+   */
+  public List<String> getUnknownCategories(Collection<String> categories) {
+    List<CategoryTree> trees = new ArrayList<>();
+    for (String currency : getCurrencies()) {
+      trees.add(getCategoryTree(currency));
+    }
+    List<String> unknown = new ArrayList<>();
+    for (String category : new LinkedHashSet<>(categories)) {
+      if (trees.stream().noneMatch(tree -> tree.hasTransactions(category))) {
+        unknown.add(category);
+      }
+    }
+    return unknown;
+  }
+
+  /**
+   * Finds transactions whose description or category contains a word.
+   *
+   * @param term the word, matched case-insensitively
+   * @return the matching transactions in insertion order
+   */
+  public List<Transaction> findByTerm(String term) {
+    return searchIndex.find(term, false, transactions, size);
+  }
+
+  /**
+   * Finds transactions whose description or category contains a word starting with a prefix.
+   *
+   * @param prefix the prefix, matched case-insensitively
+   * @return the matching transactions in insertion order
+   */
+  public List<Transaction> findByPrefix(String prefix) {
+    return searchIndex.find(prefix, true, transactions, size);
+  }
+
+  /**
+   * Ranks transactions by relevance to a free-text query. Any query word may match; a word ending
+   * in {@code *} matches as a prefix. Rare words and words in the category weigh more.
+   *
+   * @param query the query
+   * @param limit the maximum number of results
+   * @return the best matches, best first
+   * @throws IllegalArgumentException if the limit is not positive
+   */
+  public List<SearchResult> search(String query, int limit) {
+    return searchIndex.search(query, limit, transactions, size);
+  }
+
+  /**
+   * Estimates the memory used by the wallet's search index.
+   *
+   * @return the approximate size in bytes
+   */
+  public long getSearchIndexMemory() {
+    return searchIndex.getMemoryBytes();
+  }
+
+  private double[] totals(String currency) {
+    String code = CurrencyCode.normalize(currency);
+    // The running totals cover every currency, so they are the answer for a single-currency wallet
+    if (currencyIndex.isOnly(currencies, code)) {
+      return new double[] {totalIncome, totalExpense};
+    }
+    return currencyIndex.totals(currencies, code);
+  }
+
+  private double[] convert(String currency, ExchangeRates rates) {
+    if (rates == null) {
+      throw new IllegalArgumentException("Exchange rates cannot be null");
+    }
+    return currencyIndex.convert(currencies, CurrencyCode.normalize(currency), rates);
+  }
+
+  /**
+   * Read-only list over the history followed by a prefix of the shared transaction array. The
+   * history is only loaded when one of its elements is accessed.
+   */
+  private static final class TransactionList extends AbstractList<Transaction>
+      implements RandomAccess {
+    private final TransactionHistory history;
+    private final int historySize;
+    private final Transaction[] transactions;
+    private final int size;
+
+    private TransactionList(TransactionHistory history, Transaction[] transactions, int size) {
+      this.history = history;
+      this.historySize = history.size();
+      this.transactions = transactions;
+      this.size = size;
+    }
+
+    @Override
+    public Transaction get(int index) {
+      if (index < 0 || index >= historySize + size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (historySize + size));
+      }
+      if (index < historySize) {
+        return history.getTransactions().get(index);
+      }
+      return transactions[index - historySize];
+    }
+
+    @Override
+    public int size() {
+      return historySize + size;
+    }
+  }
+}
+
@@ -0,0 +1,30 @@
+package com.finances.core.repository;
+
+import com.finances.core.domain.RecurringTemplate;
+import java.util.List;
+
+/** Stores recurring transaction templates together with their next occurrence. */
+public interface RecurringTemplateRepository {
+  /**
+   * Saves a template, replacing the stored one with the same ID. The template must be durable when
+   * the method returns.
+   *
+   * @param template the template
+   */
+  void save(RecurringTemplate template);
+
+  /**
+   * Deletes a template.
+   *
+   * @param templateId the template ID
+   */
+  void delete(String templateId);
+
+  /**
+   * Finds all stored templates.
+   *
+   * @return the templates
+   */
+  List<RecurringTemplate> findAll();
+}
+
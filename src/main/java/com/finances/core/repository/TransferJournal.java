@@ -0,0 +1,24 @@
+package com.finances.core.repository;
+
+import com.finances.core.domain.Transfer;
+import java.util.List;
+
+/** Append-only record of transfers between wallets, one entry per transfer with both parties. */
+public interface TransferJournal {
+  /**
+   * Records a transfer. The entry must be durable when the method returns, before any leg of the
+   * transfer is posted.
+   *
+   * @param transfer the transfer
+   */
+  void append(Transfer transfer);
+
+  /**
+   * Finds the transfers a user sent or received.
+   *
+   * @param userId the user ID
+   * @return the transfers in the order they were recorded
+   */
+  List<Transfer> findByUserId(String userId);
+}
+
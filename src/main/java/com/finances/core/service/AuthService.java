@@ -1,5 +1,6 @@
 package com.finances.core.service;
 
+import com.finances.core.domain.Session;
 import com.finances.core.domain.User;
 import com.finances.core.domain.Wallet;
 import com.finances.core.repository.UserRepository;
@@ -9,15 +10,31 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Optional;
 
-/** Service for handling user authentication and registration. */
+/**
+ * Service for handling user authentication and registration.
+ *
+ * <p>The interactive CLI uses the single {@link #getCurrentUser() current user}. Multi-user entry
+ * points open sessions instead and pass the session's user ID to the other services.
+ */
 public class AuthService {
+  private static final long DEFAULT_SESSION_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
   private final UserRepository userRepository;
   private final WalletRepository walletRepository;
+  private final SessionManager sessionManager;
   private User currentUser;
 
   public AuthService(UserRepository userRepository, WalletRepository walletRepository) {
+    this(userRepository, walletRepository, new SessionManager(DEFAULT_SESSION_TIMEOUT_MILLIS));
+  }
+
+  public AuthService(
+      UserRepository userRepository,
+      WalletRepository walletRepository,
+      SessionManager sessionManager) {
     this.userRepository = userRepository;
     this.walletRepository = walletRepository;
+    this.sessionManager = sessionManager;
   }
 
   /**
@@ -58,24 +75,52 @@ public class AuthService {
    * @return true if authentication was successful, false otherwise
    */
   public boolean login(String username, String password) {
-    if (username == null || password == null) {
-      return false;
-    }
-
-    Optional<User> userOpt = userRepository.findByUsername(username);
+    Optional<User> userOpt = authenticate(username, password);
     if (userOpt.isEmpty()) {
       return false;
     }
 
-    User user = userOpt.get();
-    String passwordHash = hashPassword(password);
+    currentUser = userOpt.get();
+    return true;
+  }
 
-    if (user.verifyPassword(passwordHash)) {
-      currentUser = user;
-      return true;
-    }
+  /**
+   * Authenticates a user and opens a new session without touching the current user.
+   *
+   * @param username the username
+   * @param password the password
+   * @return an Optional containing the new session if authentication was successful
+   */
+  public Optional<Session> openSession(String username, String password) {
+    return authenticate(username, password).map(user -> sessionManager.create(user.getUsername()));
+  }
+
+  /**
+   * Resolves a session token.
+   *
+   * @param token the session token
+   * @return the session, or null if the token is unknown or expired
+   */
+  public Session getSession(String token) {
+    return sessionManager.validate(token);
+  }
+
+  /**
+   * Closes a session.
+   *
+   * @param token the session token
+   */
+  public void closeSession(String token) {
+    sessionManager.invalidate(token);
+  }
 
-    return false;
+  /**
+   * Gets the session manager backing this service.
+   *
+   * @return the session manager
+   */
+  public SessionManager getSessionManager() {
+    return sessionManager;
   }
 
   /** Logs out the current user. */
@@ -101,6 +146,17 @@ public class AuthService {
     return currentUser != null;
   }
 
+  private Optional<User> authenticate(String username, String password) {
+    if (username == null || password == null) {
+      return Optional.empty();
+    }
+
+    String passwordHash = hashPassword(password);
+    return userRepository
+        .findByUsername(username)
+        .filter(user -> user.verifyPassword(passwordHash));
+  }
+
   /**
    * Hashes a password using SHA-256.
    *
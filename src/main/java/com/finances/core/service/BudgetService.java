@@ -1,6 +1,8 @@
 package com.finances.core.service;
 
 import com.finances.core.domain.Budget;
+import com.finances.core.domain.BudgetPeriod;
+import com.finances.core.domain.BudgetStatus;
 import com.finances.core.domain.Wallet;
 import com.finances.core.repository.WalletRepository;
 import java.util.Map;
@@ -26,6 +28,34 @@ public class BudgetService {
     walletRepository.save(wallet);
   }
 
+  /**
+   * Sets a budget whose limit applies per week, month or custom period.
+   *
+   * @param userId the user ID
+   * @param category the category
+   * @param limit the budget limit per period
+   * @param period the period, or null for a lifetime limit
+   */
+  public void setBudget(String userId, String category, double limit, BudgetPeriod period) {
+    setBudget(userId, category, limit, period, null);
+  }
+
+  /**
+   * Sets a budget in a given currency; only expenses in that currency count against it.
+   *
+   * @param userId the user ID
+   * @param category the category
+   * @param limit the budget limit, per period if a period is given
+   * @param period the period, or null for a lifetime limit
+   * @param currency the currency code, or null for the default currency
+   */
+  public void setBudget(
+      String userId, String category, double limit, BudgetPeriod period, String currency) {
+    Wallet wallet = getWallet(userId);
+    wallet.setBudget(category, limit, period, currency);
+    walletRepository.save(wallet);
+  }
+
   /**
    * Gets a budget for a category.
    *
@@ -89,14 +119,29 @@ public class BudgetService {
    * @return the percentage (0-100+)
    */
   public double getBudgetUsagePercentage(String userId, String category) {
-    Budget budget = getBudget(userId, category);
-    if (budget == null || budget.getLimit() == 0) {
-      return 0;
-    }
+    BudgetStatus status = getBudgetStatus(userId, category);
+    return status == null ? 0 : status.getUsagePercentage();
+  }
 
-    Wallet wallet = getWallet(userId);
-    double spent = wallet.getExpenseForCategory(category);
-    return (spent / budget.getLimit()) * 100;
+  /**
+   * Gets the spending against a category's budget without rescanning transactions.
+   *
+   * @param userId the user ID
+   * @param category the category
+   * @return the status, or null if the category has no budget
+   */
+  public BudgetStatus getBudgetStatus(String userId, String category) {
+    return getWallet(userId).getBudgetStatus(category);
+  }
+
+  /**
+   * Gets the spending against all budgets of a user from one consistent snapshot.
+   *
+   * @param userId the user ID
+   * @return map of category to budget status
+   */
+  public Map<String, BudgetStatus> getBudgetStatuses(String userId) {
+    return getWallet(userId).snapshot().getBudgetStatuses();
   }
 
   private Wallet getWallet(String userId) {
@@ -0,0 +1,359 @@
+package com.finances.core.service;
+
+import com.finances.core.domain.CronSchedule;
+import com.finances.core.domain.RecurringTemplate;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.repository.RecurringTemplateRepository;
+import com.finances.core.util.TimerWheel;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Posts the occurrences of {@link RecurringTemplate}s as they fall due.
+ *
+ * <p>Each template sits in a timer wheel with one-minute ticks at its next occurrence. {@link
+ * #runDue} advances the wheel to the current time, expands every due template into all of its
+ * occurrences up to now and posts them with one {@link TransactionService#addTransactions} call per
+ * wallet, so catching up after downtime costs one snapshot and one save per wallet however many
+ * occurrences were missed. Occurrences carry idempotency keys, so a batch that is posted again
+ * after a failure does not duplicate anything; templates of a wallet whose batch fails stay due and
+ * are retried on the next run.
+ *
+ * <p>With a {@link RecurringTemplateRepository} every template is stored with its next occurrence
+ * when it is registered, cancelled or advanced, and {@link #restore} schedules the stored templates
+ * again after a restart. Progress is stored after the occurrences are posted, so a crash in between
+ * only makes the next run post them again, which their idempotency keys turn into no-ops.
+ */
+public class RecurringTransactionScheduler {
+  private static final long TICK_SECONDS = 60;
+  private static final int WHEEL_SIZE = 1024;
+
+  private final TransactionService transactionService;
+  private final RecurringTemplateRepository repository;
+  private final Supplier<LocalDateTime> clock;
+  private final ConcurrentMap<String, RecurringTemplate> templates = new ConcurrentHashMap<>();
+  private final TimerWheel<RecurringTemplate> wheel;
+  private ScheduledExecutorService runner;
+
+  /**
+   * Creates a scheduler that uses the system clock.
+   *
+   * @param transactionService the service the occurrences are posted through
+   */
+  public RecurringTransactionScheduler(TransactionService transactionService) {
+    this(transactionService, null, LocalDateTime::now);
+  }
+
+  /**
+   * Creates a scheduler that stores its templates and uses the system clock.
+   *
+   * @param transactionService the service the occurrences are posted through
+   * @param repository the template store, or null to keep templates in memory only
+   */
+  public RecurringTransactionScheduler(
+      TransactionService transactionService, RecurringTemplateRepository repository) {
+    this(transactionService, repository, LocalDateTime::now);
+  }
+
+  /**
+   * Creates a scheduler that keeps templates in memory only.
+   *
+   * @param transactionService the service the occurrences are posted through
+   * @param clock the source of the current time
+   */
+  public RecurringTransactionScheduler(
+      TransactionService transactionService, Supplier<LocalDateTime> clock) {
+    this(transactionService, null, clock);
+  }
+
+  /**
+   * Creates a scheduler.
+   *
+   * @param transactionService the service the occurrences are posted through
+   * @param repository the template store, or null to keep templates in memory only
+   * @param clock the source of the current time
+   */
+  public RecurringTransactionScheduler(
+      TransactionService transactionService,
+      RecurringTemplateRepository repository,
+      Supplier<LocalDateTime> clock) {
+    this.transactionService = transactionService;
+    this.repository = repository;
+    this.clock = clock;
+    this.wheel = new TimerWheel<>(TICK_SECONDS, WHEEL_SIZE, seconds(clock.get()));
+  }
+
+  /**
+   * Creates and schedules a template starting now.
+   *
+   * @param userId the owner of the wallet
+   * @param type the transaction type
+   * @param category the category
+   * @param amount the positive amount
+   * @param description optional description
+   * @param schedule the schedule
+   * @return the template
+   */
+  public RecurringTemplate create(
+      String userId,
+      TransactionType type,
+      String category,
+      double amount,
+      String description,
+      CronSchedule schedule) {
+    RecurringTemplate template =
+        new RecurringTemplate(
+            UUID.randomUUID().toString(),
+            userId,
+            type,
+            category,
+            amount,
+            description,
+            schedule,
+            clock.get());
+    register(template);
+    return template;
+  }
+
+  /**
+   * Schedules and stores a template, replacing one with the same ID. A template whose next
+   * occurrence is in the past is caught up on the next run.
+   *
+   * @param template the template
+   * @throws java.io.UncheckedIOException if the template cannot be stored
+   */
+  public void register(RecurringTemplate template) {
+    if (template == null) {
+      throw new IllegalArgumentException("Template cannot be null");
+    }
+    synchronized (wheel) {
+      // Stored first, so a template that failed to store is not scheduled either
+      store(template);
+      schedule(template);
+    }
+  }
+
+  /**
+   * Schedules every stored template. Occurrences that fell due while the scheduler was not running
+   * are posted on the next run.
+   *
+   * @return the number of templates restored
+   */
+  public int restore() {
+    if (repository == null) {
+      return 0;
+    }
+    List<RecurringTemplate> stored = repository.findAll();
+    synchronized (wheel) {
+      for (RecurringTemplate template : stored) {
+        schedule(template);
+      }
+    }
+    return stored.size();
+  }
+
+  /**
+   * Removes a template; occurrences already posted stay in the wallet.
+   *
+   * @param templateId the template ID
+   * @return true if the template was scheduled
+   */
+  public boolean cancel(String templateId) {
+    if (templateId == null) {
+      return false;
+    }
+    // The wheel entry is skipped when it fires
+    synchronized (wheel) {
+      if (!templates.containsKey(templateId)) {
+        return false;
+      }
+      if (repository != null) {
+        repository.delete(templateId);
+      }
+      templates.remove(templateId);
+      return true;
+    }
+  }
+
+  /**
+   * Gets the templates of a user with their current progress.
+   *
+   * @param userId the user ID
+   * @return the templates
+   */
+  public List<RecurringTemplate> getTemplates(String userId) {
+    List<RecurringTemplate> result = new ArrayList<>();
+    for (RecurringTemplate template : templates.values()) {
+      if (template.getUserId().equals(userId)) {
+        result.add(template);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Posts every occurrence that is due.
+   *
+   * @return the number of transactions added
+   * @throws RuntimeException the first failure of a wallet batch, after all other wallets were
+   *     posted
+   */
+  public synchronized int runDue() {
+    LocalDateTime now = clock.get();
+    List<RecurringTemplate> due = new ArrayList<>();
+    synchronized (wheel) {
+      wheel.advance(
+          seconds(now),
+          template -> {
+            if (templates.get(template.getId()) == template) {
+              due.add(template);
+            }
+          });
+    }
+
+    Map<String, List<Transaction>> batches = new LinkedHashMap<>();
+    Map<String, List<Integer>> templatesByUser = new LinkedHashMap<>();
+    List<RecurringTemplate> advanced = new ArrayList<>(due.size());
+    for (RecurringTemplate template : due) {
+      List<Transaction> batch =
+          batches.computeIfAbsent(template.getUserId(), key -> new ArrayList<>());
+      templatesByUser
+          .computeIfAbsent(template.getUserId(), key -> new ArrayList<>())
+          .add(advanced.size());
+      RecurringTemplate current = template;
+      LocalDateTime occurrence = current.getNextOccurrence();
+      while (occurrence != null && !occurrence.isAfter(now)) {
+        batch.add(current.toTransaction(UUID.randomUUID().toString(), occurrence));
+        current = current.after(occurrence);
+        occurrence = current.getNextOccurrence();
+      }
+      advanced.add(current);
+    }
+
+    int added = 0;
+    RuntimeException failure = null;
+    for (Map.Entry<String, List<Transaction>> batch : batches.entrySet()) {
+      boolean posted = false;
+      try {
+        List<Transaction> stored =
+            transactionService.addTransactions(batch.getKey(), batch.getValue());
+        for (int i = 0; i < stored.size(); i++) {
+          if (stored.get(i) == batch.getValue().get(i)) {
+            added++;
+          }
+        }
+        posted = true;
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+      for (int i : templatesByUser.get(batch.getKey())) {
+        try {
+          reschedule(due.get(i), posted ? advanced.get(i) : due.get(i), posted);
+        } catch (RuntimeException e) {
+          // The template stays scheduled; its stored progress is caught up after a restart
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return added;
+  }
+
+  /**
+   * Gets the number of scheduled templates.
+   *
+   * @return the number of templates
+   */
+  public int size() {
+    return templates.size();
+  }
+
+  /** Starts a background thread that posts due occurrences once per minute. */
+  public synchronized void start() {
+    if (runner != null) {
+      return;
+    }
+    runner =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "recurring-transactions");
+              thread.setDaemon(true);
+              return thread;
+            });
+    runner.scheduleAtFixedRate(this::runQuietly, 0, TICK_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /** Stops the background thread. */
+  public synchronized void stop() {
+    if (runner != null) {
+      runner.shutdownNow();
+      runner = null;
+    }
+  }
+
+  private void runQuietly() {
+    try {
+      runDue();
+    } catch (RuntimeException e) {
+      // A failed periodic run would cancel the task; the templates stay due for the next one
+    }
+  }
+
+  /**
+   * Puts a template back on the wheel unless it was cancelled or replaced meanwhile, storing its
+   * progress if it advanced.
+   */
+  private void reschedule(RecurringTemplate fired, RecurringTemplate next, boolean advanced) {
+    synchronized (wheel) {
+      if (templates.get(fired.getId()) != fired) {
+        return;
+      }
+      // Scheduled first, so a failure to store the progress does not stop the template
+      schedule(next);
+      if (advanced) {
+        store(next);
+      }
+    }
+  }
+
+  // Callers hold the wheel lock
+  private void schedule(RecurringTemplate template) {
+    templates.put(template.getId(), template);
+    if (template.getNextOccurrence() != null) {
+      wheel.schedule(template, seconds(template.getNextOccurrence()));
+    }
+  }
+
+  private void store(RecurringTemplate template) {
+    if (repository != null) {
+      repository.save(template);
+    }
+  }
+
+  private static long seconds(LocalDateTime time) {
+    return time.toEpochSecond(ZoneOffset.UTC);
+  }
+}
+
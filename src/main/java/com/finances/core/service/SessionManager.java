@@ -0,0 +1,195 @@
+package com.finances.core.service;
+
+import com.finances.core.domain.Session;
+import com.finances.core.util.TimerWheel;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Issues and validates session tokens for concurrently logged-in users.
+ *
+ * <p>Sessions live in a concurrent map keyed by token. Validation is a map lookup plus a clock read
+ * and does not allocate. Idle sessions are evicted by a timer wheel: each session is scheduled once
+ * at its idle deadline and, when the deadline fires, is either evicted or rescheduled according to
+ * its last access time, so validation only touches the wheel when it finds a session expired.
+ * Removing a session, by invalidation or by expired validation, cancels its timeout.
+ */
+public class SessionManager {
+  private static final int TOKEN_BYTES = 32;
+  private static final int WHEEL_SIZE = 512;
+
+  private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+  private final TimerWheel<Session> expirations;
+  private final SecureRandom random = new SecureRandom();
+  private final long idleTimeoutMillis;
+  private final LongSupplier clock;
+  private ScheduledExecutorService evictor;
+
+  /**
+   * Creates a session manager that uses the system clock.
+   *
+   * @param idleTimeoutMillis how long a session may stay unused before it expires
+   */
+  public SessionManager(long idleTimeoutMillis) {
+    this(idleTimeoutMillis, System::currentTimeMillis);
+  }
+
+  /**
+   * Creates a session manager.
+   *
+   * @param idleTimeoutMillis how long a session may stay unused before it expires
+   * @param clock the source of the current time in milliseconds
+   */
+  public SessionManager(long idleTimeoutMillis, LongSupplier clock) {
+    if (idleTimeoutMillis <= 0) {
+      throw new IllegalArgumentException("Idle timeout must be positive");
+    }
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.clock = clock;
+    long tick = Math.max(1, idleTimeoutMillis / WHEEL_SIZE);
+    this.expirations = new TimerWheel<>(tick, WHEEL_SIZE, clock.getAsLong());
+  }
+
+  /**
+   * Opens a new session for a user.
+   *
+   * @param userId the user ID
+   * @return the new session
+   */
+  public Session create(String userId) {
+    byte[] bytes = new byte[TOKEN_BYTES];
+    random.nextBytes(bytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+    long now = clock.getAsLong();
+    Session session = new Session(token, userId, now);
+    sessions.put(token, session);
+    synchronized (expirations) {
+      session.setExpiration(expirations.schedule(session, now + idleTimeoutMillis));
+    }
+    return session;
+  }
+
+  /**
+   * Validates a token and refreshes the idle timer of its session.
+   *
+   * @param token the session token
+   * @return the session, or null if the token is unknown or the session has expired
+   */
+  public Session validate(String token) {
+    if (token == null) {
+      return null;
+    }
+    Session session = sessions.get(token);
+    if (session == null) {
+      return null;
+    }
+    long now = clock.getAsLong();
+    if (now - session.getLastAccessedAt() >= idleTimeoutMillis) {
+      if (sessions.remove(token, session)) {
+        cancelExpiration(session);
+      }
+      return null;
+    }
+    session.touch(now);
+    return session;
+  }
+
+  /**
+   * Invalidates a session.
+   *
+   * @param token the session token
+   */
+  public void invalidate(String token) {
+    if (token == null) {
+      return;
+    }
+    Session session = sessions.remove(token);
+    if (session != null) {
+      cancelExpiration(session);
+    }
+  }
+
+  /** Takes a removed session off the wheel, where it would otherwise stay until its deadline. */
+  private void cancelExpiration(Session session) {
+    synchronized (expirations) {
+      expirations.cancel(session.getExpiration());
+      session.setExpiration(null);
+    }
+  }
+
+  /**
+   * Evicts all sessions whose idle deadline has passed.
+   *
+   * @return the number of evicted sessions
+   */
+  public int evictExpired() {
+    long now = clock.getAsLong();
+    int[] evicted = new int[1];
+    synchronized (expirations) {
+      expirations.advance(
+          now,
+          session -> {
+            if (sessions.get(session.getToken()) != session) {
+              return;
+            }
+            long deadline = session.getLastAccessedAt() + idleTimeoutMillis;
+            if (deadline <= now) {
+              sessions.remove(session.getToken(), session);
+              // The wheel already dropped the fired entry
+              session.setExpiration(null);
+              evicted[0]++;
+            } else {
+              session.setExpiration(expirations.schedule(session, deadline));
+            }
+          });
+    }
+    return evicted[0];
+  }
+
+  /**
+   * Gets the number of live sessions.
+   *
+   * @return the number of sessions that have not been evicted yet
+   */
+  public int getActiveSessionCount() {
+    return sessions.size();
+  }
+
+  int getScheduledExpirationCount() {
+    synchronized (expirations) {
+      return expirations.size();
+    }
+  }
+
+  /** Starts a background thread that evicts idle sessions once per wheel tick. */
+  public synchronized void startEviction() {
+    if (evictor != null) {
+      return;
+    }
+    evictor =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "session-evictor");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long period = Math.max(1, idleTimeoutMillis / WHEEL_SIZE);
+    evictor.scheduleAtFixedRate(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /** Stops the background eviction thread. */
+  public synchronized void stopEviction() {
+    if (evictor != null) {
+      evictor.shutdownNow();
+      evictor = null;
+    }
+  }
+}
+
@@ -1,21 +1,49 @@
 package com.finances.core.service;
 
+import com.finances.core.domain.CurrencyCode;
+import com.finances.core.domain.SearchResult;
+import com.finances.core.domain.SortDirection;
 import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionFilter;
+import com.finances.core.domain.TransactionPage;
+import com.finances.core.domain.TransactionQuery;
+import com.finances.core.domain.TransactionSelection;
 import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Transfer;
 import com.finances.core.domain.Wallet;
+import com.finances.core.domain.WalletSnapshot;
+import com.finances.core.repository.TransferJournal;
 import com.finances.core.repository.WalletRepository;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /** Service for managing transactions. */
 public class TransactionService {
   private final WalletRepository walletRepository;
+  private final TransferJournal transferJournal;
 
+  /**
+   * Creates a service without a transfer journal. Transfer legs are still linked by their transfer
+   * ID, but the transfers themselves are not recorded.
+   *
+   * @param walletRepository the wallet repository
+   */
   public TransactionService(WalletRepository walletRepository) {
+    this(walletRepository, null);
+  }
+
+  /**
+   * Creates a service that records every transfer in a journal before posting its legs.
+   *
+   * @param walletRepository the wallet repository
+   * @param transferJournal the transfer journal, or null for none
+   */
+  public TransactionService(WalletRepository walletRepository, TransferJournal transferJournal) {
     this.walletRepository = walletRepository;
+    this.transferJournal = transferJournal;
   }
 
   /**
@@ -28,13 +56,44 @@ public class TransactionService {
    * @return the created transaction
    */
   public Transaction addIncome(String userId, String category, double amount, String description) {
-    Wallet wallet = getWallet(userId);
-    Transaction transaction =
-        new Transaction(
-            generateId(), TransactionType.INCOME, category, amount, LocalDateTime.now(), description);
-    wallet.addTransaction(transaction);
-    walletRepository.save(wallet);
-    return transaction;
+    return addIncome(userId, category, amount, description, null);
+  }
+
+  /**
+   * Adds an income transaction at most once per idempotency key.
+   *
+   * @param userId the user ID
+   * @param category the income category
+   * @param amount the amount
+   * @param description optional description
+   * @param idempotencyKey client-supplied key, or null for none
+   * @return the created transaction, or the one added earlier with the same key
+   */
+  public Transaction addIncome(
+      String userId, String category, double amount, String description, String idempotencyKey) {
+    return addIncome(userId, category, amount, description, idempotencyKey, null);
+  }
+
+  /**
+   * Adds an income transaction in a given currency at most once per idempotency key.
+   *
+   * @param userId the user ID
+   * @param category the income category
+   * @param amount the amount, in the currency
+   * @param description optional description
+   * @param idempotencyKey client-supplied key, or null for none
+   * @param currency the currency code, or null for the default currency
+   * @return the created transaction, or the one added earlier with the same key
+   */
+  public Transaction addIncome(
+      String userId,
+      String category,
+      double amount,
+      String description,
+      String idempotencyKey,
+      String currency) {
+    return add(
+        userId, TransactionType.INCOME, category, amount, description, idempotencyKey, currency);
   }
 
   /**
@@ -47,18 +106,86 @@ public class TransactionService {
    * @return the created transaction
    */
   public Transaction addExpense(String userId, String category, double amount, String description) {
+    return addExpense(userId, category, amount, description, null);
+  }
+
+  /**
+   * Adds an expense transaction at most once per idempotency key.
+   *
+   * @param userId the user ID
+   * @param category the expense category
+   * @param amount the amount
+   * @param description optional description
+   * @param idempotencyKey client-supplied key, or null for none
+   * @return the created transaction, or the one added earlier with the same key
+   */
+  public Transaction addExpense(
+      String userId, String category, double amount, String description, String idempotencyKey) {
+    return addExpense(userId, category, amount, description, idempotencyKey, null);
+  }
+
+  /**
+   * Adds an expense transaction in a given currency at most once per idempotency key.
+   *
+   * @param userId the user ID
+   * @param category the expense category
+   * @param amount the amount, in the currency
+   * @param description optional description
+   * @param idempotencyKey client-supplied key, or null for none
+   * @param currency the currency code, or null for the default currency
+   * @return the created transaction, or the one added earlier with the same key
+   */
+  public Transaction addExpense(
+      String userId,
+      String category,
+      double amount,
+      String description,
+      String idempotencyKey,
+      String currency) {
+    return add(
+        userId, TransactionType.EXPENSE, category, amount, description, idempotencyKey, currency);
+  }
+
+  /**
+   * Adds a batch of transactions to one wallet with a single snapshot and a single save.
+   *
+   * @param userId the user ID
+   * @param transactions the transactions, in order
+   * @return for each transaction, the one stored under its key or the transaction itself
+   */
+  public List<Transaction> addTransactions(String userId, List<Transaction> transactions) {
+    Wallet wallet = getWallet(userId);
+    List<Transaction> stored = wallet.addTransactions(transactions);
+    for (int i = 0; i < stored.size(); i++) {
+      if (stored.get(i) == transactions.get(i)) {
+        walletRepository.save(wallet);
+        break;
+      }
+    }
+    return stored;
+  }
+
+  private Transaction add(
+      String userId,
+      TransactionType type,
+      String category,
+      double amount,
+      String description,
+      String idempotencyKey,
+      String currency) {
     Wallet wallet = getWallet(userId);
     Transaction transaction =
-        new Transaction(
-            generateId(),
-            TransactionType.EXPENSE,
-            category,
-            amount,
-            LocalDateTime.now(),
-            description);
-    wallet.addTransaction(transaction);
-    walletRepository.save(wallet);
-    return transaction;
+        Transaction.builder(generateId(), type, category, amount, LocalDateTime.now())
+            .description(description)
+            .idempotencyKey(idempotencyKey)
+            .currency(currency)
+            .build();
+    Transaction stored = wallet.addTransaction(transaction);
+    // A retry leaves the wallet as it was, so there is nothing to save
+    if (stored == transaction) {
+      walletRepository.save(wallet);
+    }
+    return stored;
   }
 
   /**
@@ -72,7 +199,50 @@ public class TransactionService {
   }
 
   /**
-   * Gets total income for a user.
+   * Gets a user's transactions in a time range. Lazily loaded history is only read for the months
+   * the range covers.
+   *
+   * @param userId the user ID
+   * @param from the start, inclusive
+   * @param to the end, exclusive
+   * @return list of transactions in insertion order
+   */
+  public List<Transaction> getTransactionsBetween(
+      String userId, LocalDateTime from, LocalDateTime to) {
+    return getWallet(userId).getTransactionsBetween(from, to);
+  }
+
+  /**
+   * Lists one page of a user's transactions ordered by time, without materializing the rest.
+   *
+   * @param userId the user ID
+   * @param filter the conditions listed transactions must meet
+   * @param direction oldest or newest first
+   * @param cursor the cursor returned with the previous page, or null for the first page
+   * @param pageSize the maximum number of transactions on the page
+   * @return the page and the cursor to the next one
+   */
+  public TransactionPage getTransactionPage(
+      String userId,
+      TransactionFilter filter,
+      SortDirection direction,
+      String cursor,
+      int pageSize) {
+    return getSnapshot(userId).getPage(filter, direction, cursor, pageSize);
+  }
+
+  /**
+   * Gets a consistent point-in-time view of a user's wallet for reporting.
+   *
+   * @param userId the user ID
+   * @return the wallet snapshot
+   */
+  public WalletSnapshot getSnapshot(String userId) {
+    return getWallet(userId).snapshot();
+  }
+
+  /**
+   * Gets total income for a user in the default currency.
    *
    * @param userId the user ID
    * @return the total income
@@ -82,7 +252,7 @@ public class TransactionService {
   }
 
   /**
-   * Gets total expenses for a user.
+   * Gets total expenses for a user in the default currency.
    *
    * @param userId the user ID
    * @return the total expenses
@@ -92,7 +262,7 @@ public class TransactionService {
   }
 
   /**
-   * Gets income grouped by category.
+   * Gets income in the default currency grouped by category.
    *
    * @param userId the user ID
    * @return map of category to total income
@@ -102,7 +272,7 @@ public class TransactionService {
   }
 
   /**
-   * Gets expenses grouped by category.
+   * Gets expenses in the default currency grouped by category.
    *
    * @param userId the user ID
    * @return map of category to total expenses
@@ -112,33 +282,93 @@ public class TransactionService {
   }
 
   /**
-   * Gets total income for specific categories.
+   * Gets income in the default currency of a category and all of its subcategories.
+   *
+   * @param userId the user ID
+   * @param category the category; {@code Food} includes {@code Food/Groceries}
+   * @return the total income of the category subtree
+   */
+  public double getIncomeWithSubcategories(String userId, String category) {
+    return getSnapshot(userId).getCategoryTree().getIncome(category);
+  }
+
+  /**
+   * Gets expenses in the default currency of a category and all of its subcategories.
+   *
+   * @param userId the user ID
+   * @param category the category; {@code Food} includes {@code Food/Groceries}
+   * @return the total expenses of the category subtree
+   */
+  public double getExpenseWithSubcategories(String userId, String category) {
+    return getSnapshot(userId).getCategoryTree().getExpense(category);
+  }
+
+  /**
+   * Searches transaction descriptions and categories.
+   *
+   * @param userId the user ID
+   * @param query the words to look for; a word ending in {@code *} matches as a prefix
+   * @param limit the maximum number of results
+   * @return the best matches, best first
+   */
+  public List<SearchResult> search(String userId, String query, int limit) {
+    return getSnapshot(userId).search(query, limit);
+  }
+
+  /**
+   * Finds transactions whose description or category contains a word.
+   *
+   * @param userId the user ID
+   * @param term the word
+   * @return the matching transactions in insertion order
+   */
+  public List<Transaction> findByTerm(String userId, String term) {
+    return getSnapshot(userId).findByTerm(term);
+  }
+
+  /**
+   * Finds transactions whose description or category contains a word starting with a prefix.
+   *
+   * @param userId the user ID
+   * @param prefix the prefix
+   * @return the matching transactions in insertion order
+   */
+  public List<Transaction> findByPrefix(String userId, String prefix) {
+    return getSnapshot(userId).findByPrefix(prefix);
+  }
+
+  /**
+   * Gets the approximate memory used by a user's search index.
+   *
+   * @param userId the user ID
+   * @return the size in bytes
+   */
+  public long getSearchIndexMemory(String userId) {
+    return getSnapshot(userId).getSearchIndexMemory();
+  }
+
+  /**
+   * Gets total income in the default currency for specific categories. Each category counts once;
+   * subcategories are not included.
    *
    * @param userId the user ID
    * @param categories list of categories
    * @return the total income for specified categories
    */
   public double getIncomeForCategories(String userId, List<String> categories) {
-    Map<String, Double> incomeByCategory = getIncomeByCategory(userId);
-    return categories.stream()
-        .filter(incomeByCategory::containsKey)
-        .mapToDouble(incomeByCategory::get)
-        .sum();
+    return getSnapshot(userId).getIncomeForCategories(categories);
   }
 
   /**
-   * Gets total expenses for specific categories.
+   * Gets total expenses in the default currency for specific categories. Each category counts
+   * once; subcategories are not included.
    *
    * @param userId the user ID
    * @param categories list of categories
    * @return the total expenses for specified categories
    */
   public double getExpenseForCategories(String userId, List<String> categories) {
-    Map<String, Double> expenseByCategory = getExpenseByCategory(userId);
-    return categories.stream()
-        .filter(expenseByCategory::containsKey)
-        .mapToDouble(expenseByCategory::get)
-        .sum();
+    return getSnapshot(userId).getExpenseForCategories(categories);
   }
 
   /**
@@ -146,16 +376,25 @@ public class TransactionService {
    *
    * @param userId the user ID
    * @param categories list of categories
-   * @return list of transactions
+   * @return list of transactions in insertion order
    */
   public List<Transaction> getTransactionsForCategories(String userId, List<String> categories) {
-    return getTransactions(userId).stream()
-        .filter(t -> categories.contains(t.getCategory()))
-        .collect(Collectors.toList());
+    return getSnapshot(userId).getTransactionsForCategories(categories);
+  }
+
+  /**
+   * Selects a user's transactions meeting a condition on type, category, month and amount bucket.
+   *
+   * @param userId the user ID
+   * @param query the condition
+   * @return the selection
+   */
+  public TransactionSelection select(String userId, TransactionQuery query) {
+    return getSnapshot(userId).select(query);
   }
 
   /**
-   * Gets the current balance for a user.
+   * Gets the current balance for a user in the default currency.
    *
    * @param userId the user ID
    * @return the balance
@@ -167,32 +406,85 @@ public class TransactionService {
   /**
    * Transfers money from one user to another.
    *
+   * <p>The transfer is recorded in the journal first and then posted as an expense in the sender's
+   * wallet and an income in the receiver's, both carrying the transfer ID. A transfer interrupted
+   * after its journal entry was written is found by {@code --reconcile} and completed by {@code
+   * --reconcile --repair}, which passes it to {@link #completeTransfer}.
+   *
    * @param fromUserId the sender's user ID
    * @param toUserId the receiver's user ID
    * @param amount the amount to transfer
    * @param description optional description
+   * @return the recorded transfer
    */
-  public void transfer(String fromUserId, String toUserId, double amount, String description) {
-    if (amount <= 0) {
-      throw new IllegalArgumentException("Transfer amount must be positive");
+  public Transfer transfer(String fromUserId, String toUserId, double amount, String description) {
+    return transfer(fromUserId, toUserId, amount, description, null);
+  }
+
+  /**
+   * Transfers money in a given currency from one user to another. The sender's balance in that
+   * currency must cover the amount; amounts in other currencies do not count.
+   *
+   * @param fromUserId the sender's user ID
+   * @param toUserId the receiver's user ID
+   * @param amount the amount to transfer, in the currency
+   * @param description optional description
+   * @param currency the currency code, or null for the default currency
+   * @return the recorded transfer
+   */
+  public Transfer transfer(
+      String fromUserId, String toUserId, double amount, String description, String currency) {
+    if (!Double.isFinite(amount) || amount <= 0) {
+      throw new IllegalArgumentException("Transfer amount must be positive and finite");
     }
+    String code = CurrencyCode.normalize(currency);
 
     Wallet fromWallet = getWallet(fromUserId);
-    if (fromWallet.getBalance() < amount) {
+    if (fromWallet.snapshot().getBalance(code) < amount) {
       throw new IllegalStateException("Insufficient balance for transfer");
     }
 
     // Check if receiver exists
-    Wallet toWallet = getWallet(toUserId);
+    getWallet(toUserId);
+
+    Transfer transfer =
+        new Transfer(
+            generateId(), fromUserId, toUserId, amount, code, LocalDateTime.now(), description);
+    if (transferJournal != null) {
+      transferJournal.append(transfer);
+    }
+    completeTransfer(transfer);
+    return transfer;
+  }
 
-    // Add expense for sender
-    String transferDesc = "Transfer to " + toUserId + (description != null ? ": " + description : "");
-    addExpense(fromUserId, "Transfer", amount, transferDesc);
+  /**
+   * Posts the legs of a recorded transfer that are not in the wallets yet. Legs already posted are
+   * recognized by their idempotency keys and left alone.
+   *
+   * @param transfer the transfer, as read from the journal
+   */
+  public void completeTransfer(Transfer transfer) {
+    post(getWallet(transfer.getFromUserId()), transfer.toExpense(generateId()));
+    post(getWallet(transfer.getToUserId()), transfer.toIncome(generateId()));
+  }
 
-    // Add income for receiver
-    String receiveDesc =
-        "Transfer from " + fromUserId + (description != null ? ": " + description : "");
-    addIncome(toUserId, "Transfer", amount, receiveDesc);
+  /**
+   * Gets the transfers a user sent or received.
+   *
+   * @param userId the user ID
+   * @return the transfers in the order they were recorded, empty without a journal
+   */
+  public List<Transfer> getTransfers(String userId) {
+    if (transferJournal == null) {
+      return Collections.emptyList();
+    }
+    return transferJournal.findByUserId(userId);
+  }
+
+  private void post(Wallet wallet, Transaction transaction) {
+    if (wallet.addTransaction(transaction) == transaction) {
+      walletRepository.save(wallet);
+    }
   }
 
   private Wallet getWallet(String userId) {
@@ -0,0 +1,96 @@
+package com.finances.core.util;
+
+/**
+ * Fixed-size Bloom filter over strings.
+ *
+ * <p>The filter never reports a string that was added as absent, and reports about one in a hundred
+ * strings that were not added as possibly present while it holds no more than the expected number
+ * of strings. It uses ten bits and seven probes per expected string. The filter is not thread-safe:
+ * callers are expected to guard it with their own lock.
+ */
+public class BloomFilter {
+  private static final int BITS_PER_KEY = 10;
+  private static final int PROBES = 7;
+
+  private final long[] words;
+  private final long bitCount;
+  private int size;
+
+  /**
+   * Creates an empty filter.
+   *
+   * @param expectedKeys the number of strings the filter is sized for
+   */
+  public BloomFilter(int expectedKeys) {
+    if (expectedKeys < 0) {
+      throw new IllegalArgumentException("Expected keys cannot be negative");
+    }
+    long bits = Math.max(Long.SIZE, (long) expectedKeys * BITS_PER_KEY);
+    this.words = new long[(int) ((bits + Long.SIZE - 1) / Long.SIZE)];
+    this.bitCount = (long) words.length * Long.SIZE;
+  }
+
+  /**
+   * Adds a string.
+   *
+   * @param key the string
+   */
+  public void add(String key) {
+    long hash = hash(key);
+    int first = (int) hash;
+    int second = (int) (hash >>> 32);
+    for (int i = 0; i < PROBES; i++) {
+      long bit = Integer.toUnsignedLong(first + i * second) % bitCount;
+      words[(int) (bit >>> 6)] |= 1L << bit;
+    }
+    size++;
+  }
+
+  /**
+   * Checks whether a string may have been added.
+   *
+   * @param key the string
+   * @return false if the string was definitely not added
+   */
+  public boolean mightContain(String key) {
+    long hash = hash(key);
+    int first = (int) hash;
+    int second = (int) (hash >>> 32);
+    for (int i = 0; i < PROBES; i++) {
+      long bit = Integer.toUnsignedLong(first + i * second) % bitCount;
+      if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the number of strings added.
+   *
+   * @return the number of additions
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the size of the bit array.
+   *
+   * @return the number of bytes the bits occupy
+   */
+  public long getMemoryBytes() {
+    return bitCount / Byte.SIZE;
+  }
+
+  /** Spreads the cached string hash over 64 bits; the two halves drive double hashing. */
+  private static long hash(String key) {
+    long hash = key.hashCode() * 0x9E3779B97F4A7C15L;
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    return hash ^ (hash >>> 33);
+  }
+}
+
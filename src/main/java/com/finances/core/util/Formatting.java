@@ -0,0 +1,205 @@
+package com.finances.core.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Allocation-light formatting of amounts and dates for screens and exports.
+ *
+ * <p>{@code String.format} parses its pattern on every call. The methods here write straight into a
+ * {@link StringBuilder} instead and produce exactly the same text as the patterns they replace:
+ * {@code %.2f} in the given locale, {@code %.0f} for percentages, {@link LocalDate#toString()} and
+ * {@code yyyy-MM-dd'T'HH:mm:ss}. Values the fast paths do not cover fall back to the original
+ * formatters. These cases are not-a-number, infinities, magnitudes of a billion or more, locales
+ * with non-ASCII digits and years outside 1 to 9999.
+ */
+public final class Formatting {
+  /** Layout of persisted and exported timestamps. */
+  public static final String TIMESTAMP_PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+
+  private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+      DateTimeFormatter.ofPattern(TIMESTAMP_PATTERN);
+
+  // Magnitudes below this have cents that a double times 100 resolves to far better than 0.001
+  private static final double FAST_LIMIT = 1e9;
+
+  // Fractions of a cent closer than this to one half are rounded from the decimal digits
+  private static final double TIE_MARGIN = 1e-3;
+
+  private static volatile Symbols symbols = new Symbols(Locale.ROOT);
+
+  private Formatting() {}
+
+  /**
+   * Formats an amount like {@code String.format("%.2f", amount)}.
+   *
+   * @param amount the amount
+   * @return the amount with two decimals in the default format locale
+   */
+  public static String formatAmount(double amount) {
+    return formatAmount(amount, Locale.getDefault(Locale.Category.FORMAT));
+  }
+
+  /**
+   * Formats an amount like {@code String.format(locale, "%.2f", amount)}.
+   *
+   * @param amount the amount
+   * @param locale the locale providing the decimal separator
+   * @return the amount with two decimals
+   */
+  public static String formatAmount(double amount, Locale locale) {
+    return appendAmount(new StringBuilder(16), amount, locale).toString();
+  }
+
+  /**
+   * Appends an amount like {@code String.format("%.2f", amount)}.
+   *
+   * @param out the builder
+   * @param amount the amount
+   * @return the builder
+   */
+  public static StringBuilder appendAmount(StringBuilder out, double amount) {
+    return appendAmount(out, amount, Locale.getDefault(Locale.Category.FORMAT));
+  }
+
+  /**
+   * Appends an amount with two decimals, rounded half up like {@link java.util.Formatter}.
+   *
+   * @param out the builder
+   * @param amount the amount
+   * @param locale the locale providing the decimal separator
+   * @return the builder
+   */
+  public static StringBuilder appendAmount(StringBuilder out, double amount, Locale locale) {
+    Symbols current = symbols(locale);
+    double magnitude = Math.abs(amount);
+    if (!current.asciiDigits || !(magnitude < FAST_LIMIT)) {
+      return out.append(String.format(locale, "%.2f", amount));
+    }
+    long cents = cents(magnitude);
+    // The sign bit also marks -0.0 and amounts that round to zero, which keep their minus sign
+    if (Double.doubleToRawLongBits(amount) < 0) {
+      out.append('-');
+    }
+    int fraction = (int) (cents % 100);
+    out.append(cents / 100).append(current.decimalSeparator);
+    if (fraction < 10) {
+      out.append('0');
+    }
+    return out.append(fraction);
+  }
+
+  /**
+   * Appends a percentage rounded to a whole number like {@code String.format("%.0f", percentage)}.
+   *
+   * @param out the builder
+   * @param percentage the percentage
+   * @return the builder
+   */
+  public static StringBuilder appendPercentage(StringBuilder out, double percentage) {
+    Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+    double magnitude = Math.abs(percentage);
+    if (!symbols(locale).asciiDigits || !(magnitude < FAST_LIMIT)) {
+      return out.append(String.format(locale, "%.0f", percentage));
+    }
+    // A fraction of exactly one half is a double itself, so comparing the binary value rounds like
+    // the decimal form Formatter rounds
+    double whole = Math.floor(magnitude);
+    if (Double.doubleToRawLongBits(percentage) < 0) {
+      out.append('-');
+    }
+    return out.append((long) whole + (magnitude - whole >= 0.5 ? 1 : 0));
+  }
+
+  /**
+   * Appends a date like {@link LocalDate#toString()}.
+   *
+   * @param out the builder
+   * @param date the date
+   * @return the builder
+   */
+  public static StringBuilder appendDate(StringBuilder out, LocalDate date) {
+    int year = date.getYear();
+    if (year < 1 || year > 9999) {
+      return out.append(date);
+    }
+    appendDigits(out, year, 4).append('-');
+    appendDigits(out, date.getMonthValue(), 2).append('-');
+    return appendDigits(out, date.getDayOfMonth(), 2);
+  }
+
+  /**
+   * Appends a timestamp in the {@link #TIMESTAMP_PATTERN} layout, truncated to the second.
+   *
+   * @param out the builder
+   * @param timestamp the timestamp
+   * @return the builder
+   */
+  public static StringBuilder appendTimestamp(StringBuilder out, LocalDateTime timestamp) {
+    int year = timestamp.getYear();
+    if (year < 1 || year > 9999) {
+      TIMESTAMP_FORMATTER.formatTo(timestamp, out);
+      return out;
+    }
+    appendDigits(out, year, 4).append('-');
+    appendDigits(out, timestamp.getMonthValue(), 2).append('-');
+    appendDigits(out, timestamp.getDayOfMonth(), 2).append('T');
+    appendDigits(out, timestamp.getHour(), 2).append(':');
+    appendDigits(out, timestamp.getMinute(), 2).append(':');
+    return appendDigits(out, timestamp.getSecond(), 2);
+  }
+
+  /** Converts a finite magnitude below {@link #FAST_LIMIT} to cents, rounding half up. */
+  private static long cents(double magnitude) {
+    double scaled = magnitude * 100;
+    double whole = Math.floor(scaled);
+    double fraction = scaled - whole;
+    if (Math.abs(fraction - 0.5) > TIE_MARGIN) {
+      return (long) whole + (fraction > 0.5 ? 1 : 0);
+    }
+    // Formatter rounds the shortest decimal form of the double, so 1.005 becomes 1.01
+    return BigDecimal.valueOf(magnitude)
+        .setScale(2, RoundingMode.HALF_UP)
+        .unscaledValue()
+        .longValue();
+  }
+
+  /** Appends a non-negative value left-padded with zeros to a width. */
+  private static StringBuilder appendDigits(StringBuilder out, int value, int width) {
+    for (int limit = 10; width > 1; width--, limit *= 10) {
+      if (value < limit) {
+        out.append('0');
+      }
+    }
+    return out.append(value);
+  }
+
+  private static Symbols symbols(Locale locale) {
+    Symbols current = symbols;
+    if (!current.locale.equals(locale)) {
+      current = new Symbols(locale);
+      symbols = current;
+    }
+    return current;
+  }
+
+  /** The number symbols of the most recently used locale. */
+  private static final class Symbols {
+    private final Locale locale;
+    private final char decimalSeparator;
+    private final boolean asciiDigits;
+
+    private Symbols(Locale locale) {
+      DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+      this.locale = locale;
+      this.decimalSeparator = symbols.getDecimalSeparator();
+      this.asciiDigits = symbols.getZeroDigit() == '0';
+    }
+  }
+}
+
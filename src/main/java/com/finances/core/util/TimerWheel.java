@@ -0,0 +1,165 @@
+package com.finances.core.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel for coarse-grained deadlines.
+ *
+ * <p>Scheduling and cancelling are O(1); advancing the wheel costs O(ticks elapsed + entries
+ * expired). Entries whose deadline lies more than one revolution ahead stay in their bucket until
+ * their absolute tick is reached. The wheel is not thread-safe: callers are expected to guard it
+ * with their own lock.
+ *
+ * @param <T> the type of the scheduled items
+ */
+public class TimerWheel<T> {
+  private final long tickDuration;
+  private final int mask;
+  private final Entry<T>[] buckets;
+  private long currentTick;
+  private int size;
+
+  /**
+   * Creates a timer wheel.
+   *
+   * @param tickDuration the duration of one tick, in the caller's time unit
+   * @param wheelSize the number of buckets, rounded up to a power of two
+   * @param startTime the time that corresponds to tick zero
+   */
+  @SuppressWarnings("unchecked")
+  public TimerWheel(long tickDuration, int wheelSize, long startTime) {
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("Tick duration must be positive");
+    }
+    if (wheelSize <= 0) {
+      throw new IllegalArgumentException("Wheel size must be positive");
+    }
+    int normalized = Integer.highestOneBit(wheelSize);
+    if (normalized < wheelSize) {
+      normalized <<= 1;
+    }
+    this.tickDuration = tickDuration;
+    this.mask = normalized - 1;
+    this.buckets = (Entry<T>[]) new Entry<?>[normalized];
+    this.currentTick = Math.floorDiv(startTime, tickDuration);
+  }
+
+  /**
+   * Schedules an item to expire at the given deadline.
+   *
+   * @param item the item to schedule
+   * @param deadline the expiration time, in the caller's time unit
+   * @return a handle that can be used to cancel the timeout
+   */
+  public Entry<T> schedule(T item, long deadline) {
+    if (item == null) {
+      throw new IllegalArgumentException("Item cannot be null");
+    }
+    long tick = Math.max(Math.floorDiv(deadline, tickDuration), currentTick);
+    Entry<T> entry = new Entry<>(item, deadline, tick);
+    int index = (int) (tick & mask);
+    entry.next = buckets[index];
+    if (entry.next != null) {
+      entry.next.prev = entry;
+    }
+    buckets[index] = entry;
+    entry.bucket = index;
+    size++;
+    return entry;
+  }
+
+  /**
+   * Cancels a previously scheduled timeout.
+   *
+   * @param entry the handle returned by {@link #schedule}
+   * @return true if the timeout was pending, false if it already fired or was cancelled
+   */
+  public boolean cancel(Entry<T> entry) {
+    if (entry == null || entry.bucket < 0) {
+      return false;
+    }
+    unlink(entry);
+    return true;
+  }
+
+  /**
+   * Advances the wheel up to the given time and hands every expired item to the consumer.
+   *
+   * @param now the current time, in the caller's time unit
+   * @param onExpire receives each expired item; it may schedule new items
+   * @return the number of expired items
+   */
+  public int advance(long now, Consumer<T> onExpire) {
+    long targetTick = Math.floorDiv(now, tickDuration);
+    int expired = 0;
+    // A full revolution visits every bucket, so longer gaps need no extra iterations
+    long lastTick = Math.min(targetTick, currentTick + mask);
+    for (long tick = currentTick; tick <= lastTick; tick++) {
+      Entry<T> entry = buckets[(int) (tick & mask)];
+      while (entry != null) {
+        Entry<T> next = entry.next;
+        if (entry.tick <= targetTick) {
+          unlink(entry);
+          onExpire.accept(entry.item);
+          expired++;
+        }
+        entry = next;
+      }
+    }
+    currentTick = Math.max(currentTick, targetTick);
+    return expired;
+  }
+
+  /**
+   * Gets the number of pending timeouts.
+   *
+   * @return the number of pending timeouts
+   */
+  public int size() {
+    return size;
+  }
+
+  private void unlink(Entry<T> entry) {
+    if (entry.prev != null) {
+      entry.prev.next = entry.next;
+    } else {
+      buckets[entry.bucket] = entry.next;
+    }
+    if (entry.next != null) {
+      entry.next.prev = entry.prev;
+    }
+    entry.prev = null;
+    entry.next = null;
+    entry.bucket = -1;
+    size--;
+  }
+
+  /**
+   * Handle of a scheduled timeout.
+   *
+   * @param <T> the type of the scheduled item
+   */
+  public static final class Entry<T> {
+    private final T item;
+    private final long deadline;
+    private final long tick;
+    private Entry<T> prev;
+    private Entry<T> next;
+    private int bucket = -1;
+
+    private Entry(T item, long deadline, long tick) {
+      this.item = item;
+      this.deadline = deadline;
+      this.tick = tick;
+    }
+
+    public T getItem() {
+      return item;
+    }
+
+    public long getDeadline() {
+      return deadline;
+    }
+  }
+}
+
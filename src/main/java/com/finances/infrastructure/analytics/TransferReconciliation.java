@@ -0,0 +1,365 @@
+package com.finances.infrastructure.analytics;
+
+import com.finances.core.domain.CurrencyCode;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Transfer;
+import com.finances.infrastructure.persistence.CompressedWalletFile;
+import com.finances.infrastructure.persistence.FileTransferJournal;
+import com.finances.infrastructure.persistence.ShardedWalletStore;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks the wallets of a storage directory against the transfer journal.
+ *
+ * <p>The journal is read first into a table of expected legs keyed by transfer ID. The wallets are
+ * then read once, one file at a time and without building {@code Wallet} objects: JSON files with a
+ * streaming reader, compressed files block by block and sharded wallets through the posting list of
+ * the {@link Transfer#CATEGORY} category alone. Every leg is matched to its transfer by ID, type,
+ * owner, amount and currency, and added to the net of its currency. Since every transfer moves
+ * money between two wallets, the nets must all be zero.
+ *
+ * <p>Memory is proportional to the number of transfers, not of transactions. Legs written before
+ * the journal existed carry no transfer ID; they are counted but cannot be matched.
+ */
+public class TransferReconciliation {
+  // Half of the smallest unit of any currency
+  private static final double TOLERANCE = 0.005;
+
+  private final Path storageDirectory;
+  private final Path journalFile;
+
+  /**
+   * Creates a reconciliation job over the journal kept in the storage directory.
+   *
+   * @param storageDirectory the directory holding the wallet files and the journal
+   */
+  public TransferReconciliation(Path storageDirectory) {
+    this(storageDirectory, storageDirectory.resolve(FileTransferJournal.FILE_NAME));
+  }
+
+  /**
+   * Creates a reconciliation job.
+   *
+   * @param storageDirectory the directory holding the wallet files
+   * @param journalFile the transfer journal
+   */
+  public TransferReconciliation(Path storageDirectory, Path journalFile) {
+    this.storageDirectory = storageDirectory;
+    this.journalFile = journalFile;
+  }
+
+  /**
+   * Reconciles all wallets with the journal.
+   *
+   * @return the report; unreadable wallet files are reported as problems
+   * @throws IOException if the journal cannot be read or the directory cannot be listed
+   */
+  public Report run() throws IOException {
+    Report report = new Report();
+    Map<String, Expected> expected = new LinkedHashMap<>();
+    if (Files.exists(journalFile)) {
+      FileTransferJournal.read(
+          journalFile,
+          transfer -> {
+            if (expected.putIfAbsent(transfer.getId(), new Expected(transfer)) != null) {
+              report.problems.add("transfer " + transfer.getId() + ": recorded more than once");
+            }
+          });
+    }
+    report.transferCount = expected.size();
+
+    ShardedWalletStore shardedStore = new ShardedWalletStore(storageDirectory);
+    for (Path file : WalletAnalytics.listWalletFiles(storageDirectory)) {
+      String name = file.getFileName().toString();
+      String userId = name.substring(0, name.lastIndexOf('.'));
+      try {
+        readLegs(
+            file,
+            userId,
+            shardedStore,
+            (type, category, amount, currency, transferId) ->
+                check(report, expected, userId, type, category, amount, currency, transferId));
+        report.walletCount++;
+      } catch (IOException e) {
+        report.failedWalletCount++;
+        report.problems.add("wallet " + name + ": cannot be read: " + e.getMessage());
+      }
+    }
+
+    for (Expected transfer : expected.values()) {
+      if (!transfer.expensePosted || !transfer.incomePosted) {
+        report.incompleteTransfers.add(transfer.transfer);
+      }
+      if (!transfer.expensePosted) {
+        report.problems.add(
+            "transfer "
+                + transfer.transfer.getId()
+                + ": expense leg missing in wallet "
+                + transfer.transfer.getFromUserId());
+      }
+      if (!transfer.incomePosted) {
+        report.problems.add(
+            "transfer "
+                + transfer.transfer.getId()
+                + ": income leg missing in wallet "
+                + transfer.transfer.getToUserId());
+      }
+    }
+    for (Map.Entry<String, Double> net : report.netByCurrency.entrySet()) {
+      if (Math.abs(net.getValue()) > TOLERANCE) {
+        report.problems.add(
+            "currency " + net.getKey() + ": transfer legs do not balance by " + net.getValue());
+      }
+    }
+    return report;
+  }
+
+  private static void check(
+      Report report,
+      Map<String, Expected> expected,
+      String userId,
+      TransactionType type,
+      String category,
+      double amount,
+      String currency,
+      String transferId) {
+    if (transferId == null) {
+      if (Transfer.CATEGORY.equals(category)) {
+        report.unlinkedLegCount++;
+      }
+      return;
+    }
+    boolean income = type == TransactionType.INCOME;
+    report.legCount++;
+    report.netByCurrency.merge(currency, income ? amount : -amount, Double::sum);
+
+    String leg = (income ? "income" : "expense") + " leg in wallet " + userId;
+    Expected transfer = expected.get(transferId);
+    if (transfer == null) {
+      report.problems.add("transfer " + transferId + ": " + leg + " is not in the journal");
+      return;
+    }
+    String owner = income ? transfer.transfer.getToUserId() : transfer.transfer.getFromUserId();
+    if (!owner.equals(userId)) {
+      report.problems.add("transfer " + transferId + ": " + leg + " belongs to " + owner);
+      return;
+    }
+    if (income ? transfer.incomePosted : transfer.expensePosted) {
+      report.problems.add("transfer " + transferId + ": " + leg + " is posted more than once");
+      return;
+    }
+    if (income) {
+      transfer.incomePosted = true;
+    } else {
+      transfer.expensePosted = true;
+    }
+    if (Math.abs(amount - transfer.transfer.getAmount()) > TOLERANCE
+        || !currency.equals(transfer.transfer.getCurrency())) {
+      report.problems.add(
+          "transfer " + transferId + ": " + leg + " differs from the journal in amount");
+    }
+  }
+
+  private static void readLegs(
+      Path file, String userId, ShardedWalletStore shardedStore, LegVisitor visitor)
+      throws IOException {
+    String name = file.getFileName().toString();
+    if (name.endsWith(ShardedWalletStore.DIRECTORY_SUFFIX)) {
+      // Only the records in the transfer category's posting list are read
+      for (Transaction transaction :
+          shardedStore.find(userId, null, Transfer.CATEGORY, null, null)) {
+        visit(transaction, visitor);
+      }
+      return;
+    }
+    if (name.endsWith(CompressedWalletFile.EXTENSION)) {
+      try (CompressedWalletFile wallet = CompressedWalletFile.open(file)) {
+        for (int block = 0; block < wallet.getBlockCount(); block++) {
+          for (Transaction transaction : wallet.readBlock(block)) {
+            visit(transaction, visitor);
+          }
+        }
+      }
+      return;
+    }
+    // Wallet files are written with the platform charset by FileStorage
+    try (Reader reader = Files.newBufferedReader(file, Charset.defaultCharset());
+        JsonReader json = new JsonReader(reader)) {
+      json.beginObject();
+      while (json.hasNext()) {
+        if (json.nextName().equals("transactions")) {
+          readTransactions(json, visitor);
+        } else {
+          json.skipValue();
+        }
+      }
+      json.endObject();
+    } catch (IllegalStateException | IllegalArgumentException e) {
+      throw new IOException("Malformed wallet file: " + file, e);
+    }
+  }
+
+  private static void readTransactions(JsonReader json, LegVisitor visitor) throws IOException {
+    json.beginArray();
+    while (json.hasNext()) {
+      TransactionType type = null;
+      String category = null;
+      double amount = 0;
+      String currency = null;
+      String transferId = null;
+      json.beginObject();
+      while (json.hasNext()) {
+        switch (json.nextName()) {
+          case "type":
+            type = TransactionType.valueOf(json.nextString());
+            break;
+          case "category":
+            category = json.nextString();
+            break;
+          case "amount":
+            amount = json.nextDouble();
+            break;
+          case "currency":
+            currency = json.nextString();
+            break;
+          case "transferId":
+            transferId = json.nextString();
+            break;
+          default:
+            json.skipValue();
+        }
+      }
+      json.endObject();
+      visitor.visit(type, category, amount, CurrencyCode.normalize(currency), transferId);
+    }
+    json.endArray();
+  }
+
+  private static void visit(Transaction transaction, LegVisitor visitor) {
+    visitor.visit(
+        transaction.getType(),
+        transaction.getCategory(),
+        transaction.getAmount(),
+        transaction.getCurrency(),
+        transaction.getTransferId());
+  }
+
+  /** Receives the fields of one stored transaction that reconciliation looks at. */
+  private interface LegVisitor {
+    void visit(
+        TransactionType type, String category, double amount, String currency, String transferId);
+  }
+
+  /** A journaled transfer and which of its legs were found. */
+  private static final class Expected {
+    private final Transfer transfer;
+    private boolean expensePosted;
+    private boolean incomePosted;
+
+    private Expected(Transfer transfer) {
+      this.transfer = transfer;
+    }
+  }
+
+  /** Outcome of a reconciliation run. */
+  public static final class Report {
+    private int transferCount;
+    private long legCount;
+    private long unlinkedLegCount;
+    private int walletCount;
+    private int failedWalletCount;
+    private final Map<String, Double> netByCurrency = new TreeMap<>();
+    private final List<String> problems = new ArrayList<>();
+    private final List<Transfer> incompleteTransfers = new ArrayList<>();
+
+    private Report() {}
+
+    /**
+     * Gets the number of transfers in the journal.
+     *
+     * @return the number of distinct transfer IDs
+     */
+    public int getTransferCount() {
+      return transferCount;
+    }
+
+    /**
+     * Gets the number of wallet transactions that carry a transfer ID.
+     *
+     * @return the number of legs
+     */
+    public long getLegCount() {
+      return legCount;
+    }
+
+    /**
+     * Gets the number of transfer-category transactions without a transfer ID, such as legs posted
+     * before the journal existed.
+     *
+     * @return the number of unlinked legs
+     */
+    public long getUnlinkedLegCount() {
+      return unlinkedLegCount;
+    }
+
+    public int getWalletCount() {
+      return walletCount;
+    }
+
+    public int getFailedWalletCount() {
+      return failedWalletCount;
+    }
+
+    /**
+     * Gets the income minus the expense of all legs per currency.
+     *
+     * @return the nets by currency code, each zero when transfers are conserved
+     */
+    public Map<String, Double> getNetByCurrency() {
+      return Collections.unmodifiableMap(netByCurrency);
+    }
+
+    /**
+     * Gets the problems found: missing, orphaned, misplaced, duplicated or mismatched legs,
+     * unbalanced currencies and unreadable wallets.
+     *
+     * @return the problem descriptions
+     */
+    public List<String> getProblems() {
+      return Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Gets the journaled transfers with a leg missing, such as ones interrupted by a crash between
+     * the journal entry and the legs. They can be completed with {@code
+     * TransactionService.completeTransfer}.
+     *
+     * @return the transfers in journal order
+     */
+    public List<Transfer> getIncompleteTransfers() {
+      return Collections.unmodifiableList(incompleteTransfers);
+    }
+
+    /**
+     * Checks whether the wallets agree with the journal.
+     *
+     * @return true if no problem was found
+     */
+    public boolean isConsistent() {
+      return problems.isEmpty();
+    }
+  }
+}
+
@@ -0,0 +1,174 @@
+package com.finances.infrastructure.analytics;
+
+import com.finances.core.domain.CurrencyCode;
+import com.finances.core.domain.TransactionHistory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Mergeable aggregate of one or more wallets.
+ *
+ * <p>Each wallet file is reduced to one aggregate, and aggregates are merged pairwise, so only
+ * category totals are kept in memory rather than transactions. Totals are kept per currency, since
+ * amounts in different currencies cannot be added up; the getters without a currency report the
+ * {@link CurrencyCode#DEFAULT default currency}.
+ */
+public class WalletAggregate {
+  private int walletCount;
+  private int failedWalletCount;
+  private long transactionCount;
+  private final Map<String, Totals> totalsByCurrency = new TreeMap<>();
+
+  void addIncome(String category, double amount, String currency) {
+    transactionCount++;
+    Totals totals = totals(currency);
+    totals.income += amount;
+    totals.incomeByCategory.merge(category, amount, Double::sum);
+  }
+
+  void addExpense(String category, double amount, String currency) {
+    transactionCount++;
+    Totals totals = totals(currency);
+    totals.expense += amount;
+    totals.expenseByCategory.merge(category, amount, Double::sum);
+  }
+
+  /**
+   * Adds the running aggregates of a history whose transactions are all in one currency.
+   *
+   * @param history the history
+   * @param currency the currency of every transaction in it
+   */
+  void addHistory(TransactionHistory history, String currency) {
+    transactionCount += history.size();
+    Totals totals = totals(currency);
+    totals.income += history.getTotalIncome();
+    totals.expense += history.getTotalExpense();
+    history
+        .getIncomeByCategory()
+        .forEach((k, v) -> totals.incomeByCategory.merge(k, v, Double::sum));
+    history
+        .getExpenseByCategory()
+        .forEach((k, v) -> totals.expenseByCategory.merge(k, v, Double::sum));
+  }
+
+  void markWallet() {
+    walletCount++;
+  }
+
+  void markFailed() {
+    failedWalletCount++;
+  }
+
+  /**
+   * Merges another aggregate into this one.
+   *
+   * @param other the aggregate to merge
+   * @return this aggregate
+   */
+  public WalletAggregate merge(WalletAggregate other) {
+    walletCount += other.walletCount;
+    failedWalletCount += other.failedWalletCount;
+    transactionCount += other.transactionCount;
+    for (Map.Entry<String, Totals> entry : other.totalsByCurrency.entrySet()) {
+      Totals totals = totals(entry.getKey());
+      Totals added = entry.getValue();
+      totals.income += added.income;
+      totals.expense += added.expense;
+      added.incomeByCategory.forEach((k, v) -> totals.incomeByCategory.merge(k, v, Double::sum));
+      added.expenseByCategory.forEach((k, v) -> totals.expenseByCategory.merge(k, v, Double::sum));
+    }
+    return this;
+  }
+
+  public int getWalletCount() {
+    return walletCount;
+  }
+
+  public int getFailedWalletCount() {
+    return failedWalletCount;
+  }
+
+  public long getTransactionCount() {
+    return transactionCount;
+  }
+
+  /**
+   * Gets the currencies that transactions were found in.
+   *
+   * @return the currency codes in alphabetical order
+   */
+  public Set<String> getCurrencies() {
+    return Collections.unmodifiableSet(totalsByCurrency.keySet());
+  }
+
+  public double getTotalIncome() {
+    return getTotalIncome(CurrencyCode.DEFAULT);
+  }
+
+  public double getTotalIncome(String currency) {
+    Totals totals = totalsByCurrency.get(CurrencyCode.normalize(currency));
+    return totals == null ? 0 : totals.income;
+  }
+
+  public double getTotalExpense() {
+    return getTotalExpense(CurrencyCode.DEFAULT);
+  }
+
+  public double getTotalExpense(String currency) {
+    Totals totals = totalsByCurrency.get(CurrencyCode.normalize(currency));
+    return totals == null ? 0 : totals.expense;
+  }
+
+  public double getTotalBalance() {
+    return getTotalBalance(CurrencyCode.DEFAULT);
+  }
+
+  /**
+   * Gets the sum of all wallet balances in one currency.
+   *
+   * @param currency the currency code
+   * @return total income minus total expense in that currency across all wallets
+   */
+  public double getTotalBalance(String currency) {
+    return getTotalIncome(currency) - getTotalExpense(currency);
+  }
+
+  public Map<String, Double> getIncomeByCategory() {
+    return getIncomeByCategory(CurrencyCode.DEFAULT);
+  }
+
+  public Map<String, Double> getIncomeByCategory(String currency) {
+    Totals totals = totalsByCurrency.get(CurrencyCode.normalize(currency));
+    return totals == null
+        ? Collections.emptyMap()
+        : Collections.unmodifiableMap(totals.incomeByCategory);
+  }
+
+  public Map<String, Double> getExpenseByCategory() {
+    return getExpenseByCategory(CurrencyCode.DEFAULT);
+  }
+
+  public Map<String, Double> getExpenseByCategory(String currency) {
+    Totals totals = totalsByCurrency.get(CurrencyCode.normalize(currency));
+    return totals == null
+        ? Collections.emptyMap()
+        : Collections.unmodifiableMap(totals.expenseByCategory);
+  }
+
+  private Totals totals(String currency) {
+    return totalsByCurrency.computeIfAbsent(CurrencyCode.normalize(currency), k -> new Totals());
+  }
+
+  /** Totals of one currency. */
+  private static final class Totals {
+    private double income;
+    private double expense;
+    private final Map<String, Double> incomeByCategory = new HashMap<>();
+    private final Map<String, Double> expenseByCategory = new HashMap<>();
+  }
+}
+
@@ -0,0 +1,240 @@
+package com.finances.infrastructure.analytics;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionHistory;
+import com.finances.core.domain.TransactionType;
+import com.finances.infrastructure.persistence.CompressedWalletFile;
+import com.finances.infrastructure.persistence.ShardedWalletStore;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Cross-user analytics over the wallet files of a storage directory.
+ *
+ * <p>Files matching {@code *.wallet} or {@code *.walletz} and sharded wallet directories are split
+ * across a fork-join pool. JSON files are read with a streaming JSON reader, compressed files one
+ * block at a time and sharded wallets from their manifest alone, straight into a {@link
+ * WalletAggregate}, so no {@code Wallet} objects are built and memory stays proportional to the
+ * number of categories, not transactions. Only sharded wallets holding more than one currency have
+ * their segments read, since the manifest aggregates do not separate currencies. Partial aggregates
+ * are merged as the fork-join tasks complete.
+ */
+public class WalletAnalytics {
+  private final Path storageDirectory;
+  private final int parallelism;
+
+  /**
+   * Creates an analytics job that uses all available processors.
+   *
+   * @param storageDirectory the directory holding the wallet files
+   */
+  public WalletAnalytics(Path storageDirectory) {
+    this(storageDirectory, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates an analytics job.
+   *
+   * @param storageDirectory the directory holding the wallet files
+   * @param parallelism the number of worker threads
+   */
+  public WalletAnalytics(Path storageDirectory, int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+    this.storageDirectory = storageDirectory;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Aggregates all wallets in the storage directory.
+   *
+   * @return the merged aggregate; unreadable files are counted as failed
+   * @throws IOException if the directory cannot be listed
+   */
+  public WalletAggregate run() throws IOException {
+    List<Path> files = listWalletFiles(storageDirectory);
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      return pool.invoke(new AggregateTask(files, 0, files.size()));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Aggregates a single wallet file.
+   *
+   * @param file the wallet file
+   * @return the aggregate of the file
+   * @throws IOException if the file cannot be read or parsed
+   * @throws UncheckedIOException if a segment of a sharded wallet cannot be read
+   */
+  public static WalletAggregate aggregateFile(Path file) throws IOException {
+    WalletAggregate aggregate = new WalletAggregate();
+    if (file.getFileName().toString().endsWith(ShardedWalletStore.DIRECTORY_SUFFIX)) {
+      TransactionHistory history = ShardedWalletStore.openHistory(file);
+      Set<String> currencies = history.getCurrencies();
+      if (currencies.size() <= 1) {
+        // The manifest already holds the running aggregates; no segment is read
+        String currency = currencies.isEmpty() ? null : currencies.iterator().next();
+        aggregate.addHistory(history, currency);
+      } else {
+        // The manifest aggregates mix currencies, so the segments are read
+        for (Transaction transaction : history.getTransactions()) {
+          add(aggregate, transaction);
+        }
+      }
+      aggregate.markWallet();
+      return aggregate;
+    }
+    if (file.getFileName().toString().endsWith(CompressedWalletFile.EXTENSION)) {
+      aggregateCompressed(file, aggregate);
+      aggregate.markWallet();
+      return aggregate;
+    }
+    // Wallet files are written with the platform charset by FileStorage
+    try (Reader reader = Files.newBufferedReader(file, Charset.defaultCharset());
+        JsonReader json = new JsonReader(reader)) {
+      json.beginObject();
+      while (json.hasNext()) {
+        if (json.nextName().equals("transactions")) {
+          readTransactions(json, aggregate);
+        } else {
+          json.skipValue();
+        }
+      }
+      json.endObject();
+    } catch (IllegalStateException | IllegalArgumentException e) {
+      throw new IOException("Malformed wallet file: " + file, e);
+    }
+    aggregate.markWallet();
+    return aggregate;
+  }
+
+  private static void aggregateCompressed(Path file, WalletAggregate aggregate) throws IOException {
+    // One block at a time keeps memory bounded by the block size
+    try (CompressedWalletFile wallet = CompressedWalletFile.open(file)) {
+      for (int block = 0; block < wallet.getBlockCount(); block++) {
+        for (Transaction transaction : wallet.readBlock(block)) {
+          add(aggregate, transaction);
+        }
+      }
+    }
+  }
+
+  private static void add(WalletAggregate aggregate, Transaction transaction) {
+    if (transaction.getType() == TransactionType.INCOME) {
+      aggregate.addIncome(
+          transaction.getCategory(), transaction.getAmount(), transaction.getCurrency());
+    } else {
+      aggregate.addExpense(
+          transaction.getCategory(), transaction.getAmount(), transaction.getCurrency());
+    }
+  }
+
+  private static void readTransactions(JsonReader json, WalletAggregate aggregate)
+      throws IOException {
+    json.beginArray();
+    while (json.hasNext()) {
+      String type = null;
+      String category = null;
+      double amount = 0;
+      String currency = null;
+      json.beginObject();
+      while (json.hasNext()) {
+        switch (json.nextName()) {
+          case "type":
+            type = json.nextString();
+            break;
+          case "category":
+            category = json.nextString();
+            break;
+          case "amount":
+            amount = json.nextDouble();
+            break;
+          case "currency":
+            currency = json.nextString();
+            break;
+          default:
+            json.skipValue();
+        }
+      }
+      json.endObject();
+      if ("INCOME".equals(type)) {
+        aggregate.addIncome(category, amount, currency);
+      } else if ("EXPENSE".equals(type)) {
+        aggregate.addExpense(category, amount, currency);
+      }
+    }
+    json.endArray();
+  }
+
+  /**
+   * Lists the wallet files and sharded wallet directories of a storage directory.
+   *
+   * @param storageDirectory the storage directory
+   * @return the files, empty if the directory does not exist
+   * @throws IOException if the directory cannot be listed
+   */
+  static List<Path> listWalletFiles(Path storageDirectory) throws IOException {
+    List<Path> files = new ArrayList<>();
+    if (!Files.isDirectory(storageDirectory)) {
+      return files;
+    }
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(storageDirectory, "*.{wallet,walletz,shards}")) {
+      stream.forEach(files::add);
+    }
+    return files;
+  }
+
+  /** Splits the file list in halves until a single file remains. */
+  private static final class AggregateTask extends RecursiveTask<WalletAggregate> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Path> files;
+    private final int from;
+    private final int to;
+
+    private AggregateTask(List<Path> files, int from, int to) {
+      this.files = files;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected WalletAggregate compute() {
+      if (to - from <= 1) {
+        if (from == to) {
+          return new WalletAggregate();
+        }
+        try {
+          return aggregateFile(files.get(from));
+        } catch (IOException | UncheckedIOException e) {
+          // Segments of a sharded wallet are read lazily and fail unchecked
+          WalletAggregate failed = new WalletAggregate();
+          failed.markFailed();
+          return failed;
+        }
+      }
+      int middle = (from + to) >>> 1;
+      AggregateTask left = new AggregateTask(files, from, middle);
+      left.fork();
+      WalletAggregate right = new AggregateTask(files, middle, to).compute();
+      return left.join().merge(right);
+    }
+  }
+}
+
@@ -1,8 +1,11 @@
 package com.finances.infrastructure.notification;
 
-import com.finances.core.domain.Budget;
+import com.finances.core.domain.BudgetStatus;
+import com.finances.core.domain.CategoryTree;
+import com.finances.core.domain.WalletSnapshot;
 import com.finances.core.service.BudgetService;
 import com.finances.core.service.TransactionService;
+import com.finances.core.util.Formatting;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -30,19 +33,20 @@ public class NotificationService {
     notifications.addAll(getBudgetNotifications(userId));
 
     // Check if expenses exceed income
-    double totalIncome = transactionService.getTotalIncome(userId);
-    double totalExpense = transactionService.getTotalExpense(userId);
+    WalletSnapshot snapshot = transactionService.getSnapshot(userId);
+    double totalIncome = snapshot.getTotalIncome();
+    double totalExpense = snapshot.getTotalExpense();
     if (totalExpense > totalIncome) {
-      notifications.add(
-          String.format(
-              "⚠️  ВНИМАНИЕ: Расходы (%.2f) превышают доходы (%.2f) на %.2f",
-              totalExpense, totalIncome, totalExpense - totalIncome));
+      StringBuilder text = new StringBuilder("⚠️  ВНИМАНИЕ: Расходы (");
+      Formatting.appendAmount(text, totalExpense).append(") превышают доходы (");
+      Formatting.appendAmount(text, totalIncome).append(") на ");
+      notifications.add(Formatting.appendAmount(text, totalExpense - totalIncome).toString());
     }
 
     // Check for zero or negative balance
-    double balance = transactionService.getBalance(userId);
+    double balance = snapshot.getBalance();
     if (balance <= 0) {
-      notifications.add(String.format("⚠️  ВНИМАНИЕ: Отрицательный баланс: %.2f", balance));
+      notifications.add("⚠️  ВНИМАНИЕ: Отрицательный баланс: " + Formatting.formatAmount(balance));
     }
 
     return notifications;
@@ -56,23 +60,23 @@ public class NotificationService {
    */
   public List<String> getBudgetNotifications(String userId) {
     List<String> notifications = new ArrayList<>();
-    Map<String, Budget> budgets = budgetService.getAllBudgets(userId);
+    Map<String, BudgetStatus> budgets = budgetService.getBudgetStatuses(userId);
 
-    for (Map.Entry<String, Budget> entry : budgets.entrySet()) {
+    for (Map.Entry<String, BudgetStatus> entry : budgets.entrySet()) {
       String category = entry.getKey();
-      double remaining = budgetService.getRemainingBudget(userId, category);
-      double percentage = budgetService.getBudgetUsagePercentage(userId, category);
+      double remaining = entry.getValue().getRemaining();
+      double percentage = entry.getValue().getUsagePercentage();
 
       if (remaining < 0) {
-        notifications.add(
-            String.format(
-                "🚨 ПРЕВЫШЕНИЕ БЮДЖЕТА: Категория '%s' превышена на %.2f (%.0f%%)",
-                category, Math.abs(remaining), percentage));
+        StringBuilder text = new StringBuilder("🚨 ПРЕВЫШЕНИЕ БЮДЖЕТА: Категория '");
+        text.append(category).append("' превышена на ");
+        Formatting.appendAmount(text, Math.abs(remaining)).append(" (");
+        notifications.add(Formatting.appendPercentage(text, percentage).append("%)").toString());
       } else if (percentage >= 80) {
-        notifications.add(
-            String.format(
-                "⚠️  ПРЕДУПРЕЖДЕНИЕ: Категория '%s' израсходована на %.0f%% (осталось: %.2f)",
-                category, percentage, remaining));
+        StringBuilder text = new StringBuilder("⚠️  ПРЕДУПРЕЖДЕНИЕ: Категория '");
+        text.append(category).append("' израсходована на ");
+        Formatting.appendPercentage(text, percentage).append("% (осталось: ");
+        notifications.add(Formatting.appendAmount(text, remaining).append(')').toString());
       }
     }
 
@@ -80,29 +84,37 @@ public class NotificationService {
   }
 
   /**
-   * Checks and displays notifications after a transaction.
+   * Checks and displays notifications after a transaction, for the budgets of its category and of
+   * every parent category.
    *
    * @param userId the user ID
    * @param category the transaction category
    */
   public void checkAndNotifyAfterTransaction(String userId, String category) {
-    Budget budget = budgetService.getBudget(userId, category);
-    if (budget == null) {
-      return;
+    for (String node : CategoryTree.pathOf(category)) {
+      BudgetStatus budget = budgetService.getBudgetStatus(userId, node);
+      if (budget != null) {
+        notifyBudget(node, budget);
+      }
     }
+  }
 
-    double remaining = budgetService.getRemainingBudget(userId, category);
-    double percentage = budgetService.getBudgetUsagePercentage(userId, category);
+  private void notifyBudget(String category, BudgetStatus budget) {
+    double remaining = budget.getRemaining();
+    double percentage = budget.getUsagePercentage();
 
     if (remaining < 0) {
       System.out.println(
-          String.format(
-              "🚨 ВНИМАНИЕ: Бюджет категории '%s' превышен на %.2f!", category, Math.abs(remaining)));
+          "🚨 ВНИМАНИЕ: Бюджет категории '"
+              + category
+              + "' превышен на "
+              + Formatting.formatAmount(Math.abs(remaining))
+              + "!");
     } else if (percentage >= 80) {
-      System.out.println(
-          String.format(
-              "⚠️  Предупреждение: Использовано %.0f%% бюджета категории '%s' (осталось: %.2f)",
-              percentage, category, remaining));
+      StringBuilder text = new StringBuilder("⚠️  Предупреждение: Использовано ");
+      Formatting.appendPercentage(text, percentage).append("% бюджета категории '");
+      text.append(category).append("' (осталось: ");
+      System.out.println(Formatting.appendAmount(text, remaining).append(')'));
     }
   }
 }
@@ -0,0 +1,694 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.CurrencyCode;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.WalletSnapshot;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar export of wallet transactions for analytics tools.
+ *
+ * <p>Rows are split into row groups; each row group stores every field as a separate typed column
+ * chunk:
+ *
+ * <ul>
+ *   <li>type - one bit per row (set for income)
+ *   <li>category - varint ids into a file-wide dictionary
+ *   <li>amount - raw 8-byte doubles
+ *   <li>timestamp - UTC epoch seconds, zigzag varint deltas from the previous row
+ *   <li>id, description - length-prefixed UTF-8 strings
+ *   <li>currency - varint ids into a second file-wide dictionary
+ * </ul>
+ *
+ * <p>The footer holds the dictionaries and, per row group, the offset and length of each column
+ * chunk plus min/max statistics of amount and timestamp. Readers load the footer once and then read
+ * only the column chunks a query needs, skipping whole row groups whose statistics rule them out.
+ * Timestamps are stored with second precision. Files of the first version, written before
+ * currencies, have no currency column and are read as all in the default currency.
+ *
+ * <pre>
+ * magic | row group 0 columns | ... | footer | footer offset (8) | magic
+ * </pre>
+ */
+public final class ColumnarWalletFile implements Closeable {
+  /** File name extension of columnar exports. */
+  public static final String EXTENSION = ".fwc";
+
+  /** Columns of the file, in storage order within a row group. */
+  public enum Column {
+    ID,
+    TYPE,
+    CATEGORY,
+    AMOUNT,
+    TIMESTAMP,
+    DESCRIPTION,
+    CURRENCY
+  }
+
+  static final int DEFAULT_ROW_GROUP_SIZE = 65_536;
+  private static final int MAGIC = 0x46574332; // "FWC2"
+  private static final int MAGIC_V1 = 0x46574331; // "FWC1", without the currency column
+  private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+  private static final Column[] COLUMNS = Column.values();
+  private static final int ALL_ROWS = -1;
+  private static final int NO_ROWS = -2;
+
+  private final FileChannel channel;
+  private final String userId;
+  private final String[] dictionary;
+  // Null in files of the first version
+  private final String[] currencyDictionary;
+  private final RowGroup[] rowGroups;
+  private final long rowCount;
+  private long bytesRead;
+
+  private ColumnarWalletFile(
+      FileChannel channel,
+      String userId,
+      String[] dictionary,
+      String[] currencyDictionary,
+      RowGroup[] rowGroups) {
+    this.channel = channel;
+    this.userId = userId;
+    this.dictionary = dictionary;
+    this.currencyDictionary = currencyDictionary;
+    this.rowGroups = rowGroups;
+    long count = 0;
+    for (RowGroup rowGroup : rowGroups) {
+      count += rowGroup.rowCount;
+    }
+    this.rowCount = count;
+  }
+
+  /**
+   * Writes the transactions of a snapshot with the default row group size.
+   *
+   * @param snapshot the snapshot to export
+   * @param file the output file
+   * @throws IOException if an I/O error occurs
+   */
+  public static void write(WalletSnapshot snapshot, Path file) throws IOException {
+    write(snapshot, file, DEFAULT_ROW_GROUP_SIZE);
+  }
+
+  /**
+   * Writes the transactions of a snapshot.
+   *
+   * @param snapshot the snapshot to export
+   * @param file the output file
+   * @param rowGroupSize the maximum number of rows per row group
+   * @throws IOException if an I/O error occurs
+   */
+  public static void write(WalletSnapshot snapshot, Path file, int rowGroupSize)
+      throws IOException {
+    if (rowGroupSize <= 0) {
+      throw new IllegalArgumentException("Row group size must be positive");
+    }
+    List<Transaction> transactions = snapshot.getTransactions();
+    Map<String, Integer> dictionaryIds = new HashMap<>();
+    List<String> dictionary = new ArrayList<>();
+    Map<String, Integer> currencyIds = new HashMap<>();
+    List<String> currencyDictionary = new ArrayList<>();
+    List<RowGroup> rowGroups = new ArrayList<>();
+    ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(chunk);
+
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      writeFully(channel, ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC).flip());
+
+      for (int from = 0; from < transactions.size(); from += rowGroupSize) {
+        int to = Math.min(from + rowGroupSize, transactions.size());
+        RowGroup rowGroup = new RowGroup(to - from);
+        for (Column column : COLUMNS) {
+          chunk.reset();
+          if (column == Column.CURRENCY) {
+            writeColumn(
+                column, transactions, from, to, out, rowGroup, currencyIds, currencyDictionary);
+          } else {
+            writeColumn(column, transactions, from, to, out, rowGroup, dictionaryIds, dictionary);
+          }
+          rowGroup.offsets[column.ordinal()] = channel.position();
+          rowGroup.lengths[column.ordinal()] = chunk.size();
+          writeFully(channel, ByteBuffer.wrap(chunk.toByteArray()));
+        }
+        rowGroups.add(rowGroup);
+      }
+
+      long footerOffset = channel.position();
+      chunk.reset();
+      TransactionCodec.writeString(out, snapshot.getUserId());
+      out.writeInt(dictionary.size());
+      for (String category : dictionary) {
+        TransactionCodec.writeString(out, category);
+      }
+      out.writeInt(currencyDictionary.size());
+      for (String currency : currencyDictionary) {
+        TransactionCodec.writeString(out, currency);
+      }
+      out.writeInt(rowGroups.size());
+      for (RowGroup rowGroup : rowGroups) {
+        rowGroup.writeTo(out);
+      }
+      out.writeLong(footerOffset);
+      out.writeInt(MAGIC);
+      writeFully(channel, ByteBuffer.wrap(chunk.toByteArray()));
+    }
+  }
+
+  /**
+   * Opens a columnar file, reading only its footer.
+   *
+   * @param file the file
+   * @return the open file; must be closed
+   * @throws IOException if the file cannot be read or is not a columnar export
+   */
+  public static ColumnarWalletFile open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < Integer.BYTES + TRAILER_SIZE) {
+        throw new IOException("Not a columnar wallet file: " + file);
+      }
+      ByteBuffer head = readAt(channel, 0, Integer.BYTES);
+      ByteBuffer trailer = readAt(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+      long footerOffset = trailer.getLong();
+      int magic = head.getInt();
+      if ((magic != MAGIC && magic != MAGIC_V1) || trailer.getInt() != magic) {
+        throw new IOException("Not a columnar wallet file: " + file);
+      }
+      if (footerOffset < Integer.BYTES || footerOffset > size - TRAILER_SIZE) {
+        throw new IOException("Corrupt footer: " + file);
+      }
+
+      DataInputStream in =
+          stream(readAt(channel, footerOffset, (int) (size - TRAILER_SIZE - footerOffset)));
+      String userId = TransactionCodec.readString(in);
+      String[] dictionary = new String[in.readInt()];
+      for (int i = 0; i < dictionary.length; i++) {
+        dictionary[i] = TransactionCodec.readString(in);
+      }
+      String[] currencyDictionary = null;
+      if (magic == MAGIC) {
+        currencyDictionary = new String[in.readInt()];
+        for (int i = 0; i < currencyDictionary.length; i++) {
+          currencyDictionary[i] = TransactionCodec.readString(in);
+        }
+      }
+      int columnCount = magic == MAGIC ? COLUMNS.length : Column.CURRENCY.ordinal();
+      RowGroup[] rowGroups = new RowGroup[in.readInt()];
+      for (int i = 0; i < rowGroups.length; i++) {
+        rowGroups[i] = RowGroup.readFrom(in, columnCount);
+      }
+      return new ColumnarWalletFile(channel, userId, dictionary, currencyDictionary, rowGroups);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  public int getRowGroupCount() {
+    return rowGroups.length;
+  }
+
+  /**
+   * Gets the number of column chunk bytes read so far, excluding the footer.
+   *
+   * @return the number of bytes read
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Sums amounts in the default currency by category.
+   *
+   * @param type the transaction type to aggregate
+   * @return category to total
+   * @throws IOException if a column chunk cannot be read
+   * @see #aggregateByCategory(TransactionType, String)
+   */
+  public Map<String, Double> aggregateByCategory(TransactionType type) throws IOException {
+    return aggregateByCategory(type, null);
+  }
+
+  /**
+   * Sums amounts in one currency by category, reading only the type, category and amount columns,
+   * plus the currency column if the file holds more than one currency.
+   *
+   * @param type the transaction type to aggregate
+   * @param currency the currency code, or null for the default currency
+   * @return category to total
+   * @throws IOException if a column chunk cannot be read
+   */
+  public Map<String, Double> aggregateByCategory(TransactionType type, String currency)
+      throws IOException {
+    double[] sums = new double[dictionary.length];
+    boolean[] seen = new boolean[dictionary.length];
+    int currencyId = currencyId(currency);
+    if (currencyId != NO_ROWS) {
+      for (RowGroup rowGroup : rowGroups) {
+        aggregate(rowGroup, type, currencyId, null, 0, 0, Double.NEGATIVE_INFINITY, sums, seen);
+      }
+    }
+    return toMap(sums, seen);
+  }
+
+  /**
+   * Sums amounts in the default currency of at least the given size by category.
+   *
+   * @param type the transaction type to aggregate
+   * @param minAmount the smallest amount to include
+   * @return category to total
+   * @throws IOException if a column chunk cannot be read
+   * @see #aggregateByCategory(TransactionType, String, double)
+   */
+  public Map<String, Double> aggregateByCategory(TransactionType type, double minAmount)
+      throws IOException {
+    return aggregateByCategory(type, null, minAmount);
+  }
+
+  /**
+   * Sums amounts in one currency of at least the given size by category. Row groups whose maximum
+   * amount is below the threshold are skipped without reading any of their columns.
+   *
+   * @param type the transaction type to aggregate
+   * @param currency the currency code, or null for the default currency
+   * @param minAmount the smallest amount to include
+   * @return category to total
+   * @throws IOException if a column chunk cannot be read
+   */
+  public Map<String, Double> aggregateByCategory(
+      TransactionType type, String currency, double minAmount) throws IOException {
+    double[] sums = new double[dictionary.length];
+    boolean[] seen = new boolean[dictionary.length];
+    int currencyId = currencyId(currency);
+    if (currencyId != NO_ROWS) {
+      for (RowGroup rowGroup : rowGroups) {
+        if (rowGroup.maxAmount >= minAmount) {
+          aggregate(rowGroup, type, currencyId, null, 0, 0, minAmount, sums, seen);
+        }
+      }
+    }
+    return toMap(sums, seen);
+  }
+
+  /**
+   * Sums amounts in the default currency by category within a time range.
+   *
+   * @param type the transaction type to aggregate
+   * @param from the start, inclusive
+   * @param to the end, exclusive
+   * @return category to total
+   * @throws IOException if a column chunk cannot be read
+   * @see #aggregateByCategory(TransactionType, String, LocalDateTime, LocalDateTime)
+   */
+  public Map<String, Double> aggregateByCategory(
+      TransactionType type, LocalDateTime from, LocalDateTime to) throws IOException {
+    return aggregateByCategory(type, null, from, to);
+  }
+
+  /**
+   * Sums amounts in one currency by category within a time range. Row groups whose timestamp
+   * statistics fall outside the range are skipped without reading any of their columns.
+   *
+   * @param type the transaction type to aggregate
+   * @param currency the currency code, or null for the default currency
+   * @param from the start, inclusive
+   * @param to the end, exclusive
+   * @return category to total
+   * @throws IOException if a column chunk cannot be read
+   */
+  public Map<String, Double> aggregateByCategory(
+      TransactionType type, String currency, LocalDateTime from, LocalDateTime to)
+      throws IOException {
+    long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+    long toSecond = to.toEpochSecond(ZoneOffset.UTC);
+    double[] sums = new double[dictionary.length];
+    boolean[] seen = new boolean[dictionary.length];
+    int currencyId = currencyId(currency);
+    if (currencyId == NO_ROWS) {
+      return toMap(sums, seen);
+    }
+    for (RowGroup rowGroup : rowGroups) {
+      if (rowGroup.maxSecond < fromSecond || rowGroup.minSecond >= toSecond) {
+        continue;
+      }
+      boolean covered = rowGroup.minSecond >= fromSecond && rowGroup.maxSecond < toSecond;
+      long[] seconds = covered ? null : readTimestamps(rowGroup);
+      aggregate(
+          rowGroup,
+          type,
+          currencyId,
+          seconds,
+          fromSecond,
+          toSecond,
+          Double.NEGATIVE_INFINITY,
+          sums,
+          seen);
+    }
+    return toMap(sums, seen);
+  }
+
+  /**
+   * Reads all rows back as transactions.
+   *
+   * @return the transactions in export order
+   * @throws IOException if a column chunk cannot be read
+   */
+  public List<Transaction> readTransactions() throws IOException {
+    List<Transaction> transactions = new ArrayList<>((int) rowCount);
+    for (RowGroup rowGroup : rowGroups) {
+      int rows = rowGroup.rowCount;
+      DataInputStream ids = readColumn(rowGroup, Column.ID);
+      byte[] types = readColumn(rowGroup, Column.TYPE).readAllBytes();
+      DataInputStream categories = readColumn(rowGroup, Column.CATEGORY);
+      DataInputStream amounts = readColumn(rowGroup, Column.AMOUNT);
+      long[] seconds = readTimestamps(rowGroup);
+      DataInputStream descriptions = readColumn(rowGroup, Column.DESCRIPTION);
+      DataInputStream currencies =
+          currencyDictionary == null ? null : readColumn(rowGroup, Column.CURRENCY);
+      for (int row = 0; row < rows; row++) {
+        transactions.add(
+            Transaction.builder(
+                    TransactionCodec.readString(ids),
+                    isIncome(types, row) ? TransactionType.INCOME : TransactionType.EXPENSE,
+                    category(readVarint(categories)),
+                    amounts.readDouble(),
+                    LocalDateTime.ofEpochSecond(seconds[row], 0, ZoneOffset.UTC))
+                .description(TransactionCodec.readString(descriptions))
+                .currency(currencies == null ? null : currency(readVarint(currencies)))
+                .build());
+      }
+    }
+    return transactions;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void aggregate(
+      RowGroup rowGroup,
+      TransactionType type,
+      int currencyId,
+      long[] seconds,
+      long fromSecond,
+      long toSecond,
+      double minAmount,
+      double[] sums,
+      boolean[] seen)
+      throws IOException {
+    byte[] types = readColumn(rowGroup, Column.TYPE).readAllBytes();
+    DataInputStream categories = readColumn(rowGroup, Column.CATEGORY);
+    DataInputStream amounts = readColumn(rowGroup, Column.AMOUNT);
+    DataInputStream currencies =
+        currencyId == ALL_ROWS ? null : readColumn(rowGroup, Column.CURRENCY);
+    boolean income = type == TransactionType.INCOME;
+    for (int row = 0; row < rowGroup.rowCount; row++) {
+      int category = readVarint(categories);
+      double amount = amounts.readDouble();
+      if (currencies != null && readVarint(currencies) != currencyId) {
+        continue;
+      }
+      if (isIncome(types, row) != income || amount < minAmount) {
+        continue;
+      }
+      if (seconds != null && (seconds[row] < fromSecond || seconds[row] >= toSecond)) {
+        continue;
+      }
+      if (category < 0 || category >= sums.length) {
+        throw new IOException("Category id out of range: " + category);
+      }
+      sums[category] += amount;
+      seen[category] = true;
+    }
+  }
+
+  private long[] readTimestamps(RowGroup rowGroup) throws IOException {
+    DataInputStream in = readColumn(rowGroup, Column.TIMESTAMP);
+    long[] seconds = new long[rowGroup.rowCount];
+    long previous = 0;
+    for (int row = 0; row < seconds.length; row++) {
+      long zigzag = readVarLong(in);
+      previous += (zigzag >>> 1) ^ -(zigzag & 1);
+      seconds[row] = previous;
+    }
+    return seconds;
+  }
+
+  private DataInputStream readColumn(RowGroup rowGroup, Column column) throws IOException {
+    int length = rowGroup.lengths[column.ordinal()];
+    bytesRead += length;
+    return stream(readAt(channel, rowGroup.offsets[column.ordinal()], length));
+  }
+
+  private String category(int id) throws IOException {
+    if (id < 0 || id >= dictionary.length) {
+      throw new IOException("Category id out of range: " + id);
+    }
+    return dictionary[id];
+  }
+
+  /**
+   * Resolves a currency to its dictionary id, or to {@link #ALL_ROWS} when every row is in it and
+   * the currency column need not be read, or to {@link #NO_ROWS} when no row is.
+   */
+  private int currencyId(String currency) {
+    String code = CurrencyCode.normalize(currency);
+    if (currencyDictionary == null) {
+      return code.equals(CurrencyCode.DEFAULT) ? ALL_ROWS : NO_ROWS;
+    }
+    if (currencyDictionary.length == 1 && currencyDictionary[0].equals(code)) {
+      return ALL_ROWS;
+    }
+    for (int i = 0; i < currencyDictionary.length; i++) {
+      if (currencyDictionary[i].equals(code)) {
+        return i;
+      }
+    }
+    return NO_ROWS;
+  }
+
+  private String currency(int id) throws IOException {
+    if (id < 0 || id >= currencyDictionary.length) {
+      throw new IOException("Currency id out of range: " + id);
+    }
+    return currencyDictionary[id];
+  }
+
+  private Map<String, Double> toMap(double[] sums, boolean[] seen) {
+    Map<String, Double> result = new HashMap<>();
+    for (int i = 0; i < sums.length; i++) {
+      if (seen[i]) {
+        result.put(dictionary[i], sums[i]);
+      }
+    }
+    return result;
+  }
+
+  private static void writeColumn(
+      Column column,
+      List<Transaction> transactions,
+      int from,
+      int to,
+      DataOutputStream out,
+      RowGroup rowGroup,
+      Map<String, Integer> dictionaryIds,
+      List<String> dictionary)
+      throws IOException {
+    switch (column) {
+      case ID:
+        for (int i = from; i < to; i++) {
+          TransactionCodec.writeString(out, transactions.get(i).getId());
+        }
+        break;
+      case TYPE:
+        byte[] bits = new byte[(to - from + 7) / 8];
+        for (int i = from; i < to; i++) {
+          if (transactions.get(i).getType() == TransactionType.INCOME) {
+            bits[(i - from) >> 3] |= (byte) (1 << ((i - from) & 7));
+          }
+        }
+        out.write(bits);
+        break;
+      case CATEGORY:
+        for (int i = from; i < to; i++) {
+          String category = transactions.get(i).getCategory();
+          Integer id = dictionaryIds.get(category);
+          if (id == null) {
+            id = dictionary.size();
+            dictionaryIds.put(category, id);
+            dictionary.add(category);
+          }
+          writeVarLong(out, id);
+        }
+        break;
+      case AMOUNT:
+        for (int i = from; i < to; i++) {
+          double amount = transactions.get(i).getAmount();
+          rowGroup.minAmount = Math.min(rowGroup.minAmount, amount);
+          rowGroup.maxAmount = Math.max(rowGroup.maxAmount, amount);
+          out.writeDouble(amount);
+        }
+        break;
+      case TIMESTAMP:
+        long previous = 0;
+        for (int i = from; i < to; i++) {
+          long second = transactions.get(i).getTimestamp().toEpochSecond(ZoneOffset.UTC);
+          rowGroup.minSecond = Math.min(rowGroup.minSecond, second);
+          rowGroup.maxSecond = Math.max(rowGroup.maxSecond, second);
+          long delta = second - previous;
+          writeVarLong(out, (delta << 1) ^ (delta >> 63));
+          previous = second;
+        }
+        break;
+      case DESCRIPTION:
+        for (int i = from; i < to; i++) {
+          TransactionCodec.writeString(out, transactions.get(i).getDescription());
+        }
+        break;
+      case CURRENCY:
+        for (int i = from; i < to; i++) {
+          String currency = transactions.get(i).getCurrency();
+          Integer id = dictionaryIds.get(currency);
+          if (id == null) {
+            id = dictionary.size();
+            dictionaryIds.put(currency, id);
+            dictionary.add(currency);
+          }
+          writeVarLong(out, id);
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unexpected column: " + column);
+    }
+    out.flush();
+  }
+
+  private static boolean isIncome(byte[] bits, int row) {
+    return (bits[row >> 3] & (1 << (row & 7))) != 0;
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  private static int readVarint(DataInputStream in) throws IOException {
+    return (int) readVarLong(in);
+  }
+
+  private static DataInputStream stream(ByteBuffer buffer) {
+    return new DataInputStream(
+        new ByteArrayInputStream(buffer.array(), buffer.position(), buffer.remaining()));
+  }
+
+  private static ByteBuffer readAt(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file at " + (position + buffer.position()));
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+  }
+
+  /** Footer entry of one row group: column chunk locations and statistics. */
+  private static final class RowGroup {
+    private final int rowCount;
+    private final long[] offsets = new long[COLUMNS.length];
+    private final int[] lengths = new int[COLUMNS.length];
+    private double minAmount = Double.POSITIVE_INFINITY;
+    private double maxAmount = Double.NEGATIVE_INFINITY;
+    private long minSecond = Long.MAX_VALUE;
+    private long maxSecond = Long.MIN_VALUE;
+
+    private RowGroup(int rowCount) {
+      this.rowCount = rowCount;
+    }
+
+    private void writeTo(DataOutputStream out) throws IOException {
+      out.writeInt(rowCount);
+      for (int i = 0; i < COLUMNS.length; i++) {
+        out.writeLong(offsets[i]);
+        out.writeInt(lengths[i]);
+      }
+      out.writeDouble(minAmount);
+      out.writeDouble(maxAmount);
+      out.writeLong(minSecond);
+      out.writeLong(maxSecond);
+    }
+
+    private static RowGroup readFrom(DataInputStream in, int columnCount) throws IOException {
+      RowGroup rowGroup = new RowGroup(in.readInt());
+      if (rowGroup.rowCount < 0) {
+        throw new IOException("Corrupt row group entry");
+      }
+      for (int i = 0; i < columnCount; i++) {
+        rowGroup.offsets[i] = in.readLong();
+        rowGroup.lengths[i] = in.readInt();
+        if (rowGroup.offsets[i] < 0 || rowGroup.lengths[i] < 0) {
+          throw new IOException("Corrupt column chunk entry");
+        }
+      }
+      rowGroup.minAmount = in.readDouble();
+      rowGroup.maxAmount = in.readDouble();
+      rowGroup.minSecond = in.readLong();
+      rowGroup.maxSecond = in.readLong();
+      return rowGroup;
+    }
+  }
+}
+
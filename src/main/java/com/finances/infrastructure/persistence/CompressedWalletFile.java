@@ -0,0 +1,501 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.Budget;
+import com.finances.core.domain.BudgetPeriod;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.Wallet;
+import com.finances.core.domain.WalletSnapshot;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block-compressed wallet file.
+ *
+ * <p>Transactions are encoded with {@link TransactionCodec} and grouped into blocks of a fixed
+ * number of records. Each block is deflated on its own, so any block can be decompressed without
+ * touching the others. Budgets are stored as one more block. The block index at the end of the file
+ * records, per block, its offset, sizes, CRC, record count and timestamp range, which lets readers
+ * fetch a slice by position or time with positioned reads of only the blocks involved.
+ *
+ * <pre>
+ * magic | block 0 | ... | block n-1 | budgets block | index | index offset (8) | magic
+ * </pre>
+ */
+public final class CompressedWalletFile implements Closeable {
+  /** File name extension of block-compressed wallets. */
+  public static final String EXTENSION = ".walletz";
+
+  static final int DEFAULT_BLOCK_SIZE = 1024;
+  private static final int MAGIC = 0x46574231; // "FWB1"
+  private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+  private final FileChannel channel;
+  private final String userId;
+  private final BlockInfo[] blocks;
+  private final BlockInfo budgetsBlock;
+  private final int transactionCount;
+  private final Inflater inflater = new Inflater();
+
+  private CompressedWalletFile(
+      FileChannel channel, String userId, BlockInfo[] blocks, BlockInfo budgetsBlock) {
+    this.channel = channel;
+    this.userId = userId;
+    this.blocks = blocks;
+    this.budgetsBlock = budgetsBlock;
+    int count = 0;
+    for (BlockInfo block : blocks) {
+      count += block.transactionCount;
+    }
+    this.transactionCount = count;
+  }
+
+  /**
+   * Writes a wallet snapshot with the default block size.
+   *
+   * @param snapshot the snapshot to write
+   * @param file the target file; replaced atomically
+   * @throws IOException if an I/O error occurs
+   */
+  public static void write(WalletSnapshot snapshot, Path file) throws IOException {
+    write(snapshot, file, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Writes a wallet snapshot.
+   *
+   * @param snapshot the snapshot to write
+   * @param file the target file; replaced atomically
+   * @param blockSize the number of transactions per block
+   * @throws IOException if an I/O error occurs
+   */
+  public static void write(WalletSnapshot snapshot, Path file, int blockSize) throws IOException {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("Block size must be positive");
+    }
+    List<Transaction> transactions = snapshot.getTransactions();
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    Deflater deflater = new Deflater();
+    ByteArrayOutputStream raw = new ByteArrayOutputStream();
+    DataOutputStream rawOut = new DataOutputStream(raw);
+    List<BlockInfo> index = new ArrayList<>();
+
+    try (FileChannel out =
+        FileChannel.open(
+            temp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      writeFully(out, ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC).flip());
+
+      for (int from = 0; from < transactions.size(); from += blockSize) {
+        int to = Math.min(from + blockSize, transactions.size());
+        raw.reset();
+        long minSecond = Long.MAX_VALUE;
+        long maxSecond = Long.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+          Transaction transaction = transactions.get(i);
+          TransactionCodec.write(rawOut, transaction);
+          long second = TransactionCodec.epochSecond(transaction.getTimestamp());
+          minSecond = Math.min(minSecond, second);
+          maxSecond = Math.max(maxSecond, second);
+        }
+        index.add(writeBlock(out, deflater, raw, to - from, minSecond, maxSecond));
+      }
+
+      raw.reset();
+      rawOut.writeInt(snapshot.getAllBudgets().size());
+      for (var entry : snapshot.getAllBudgets().entrySet()) {
+        TransactionCodec.writeString(rawOut, entry.getKey());
+        rawOut.writeDouble(entry.getValue().getLimit());
+      }
+      // Periods follow the limits; files written before periods existed end here
+      for (var entry : snapshot.getAllBudgets().entrySet()) {
+        BudgetPeriod period = entry.getValue().getPeriod();
+        TransactionCodec.writeString(rawOut, period == null ? "" : period.format());
+      }
+      // Currencies follow the periods, likewise
+      for (var entry : snapshot.getAllBudgets().entrySet()) {
+        TransactionCodec.writeString(rawOut, entry.getValue().getCurrency());
+      }
+      BlockInfo budgets = writeBlock(out, deflater, raw, 0, 0, 0);
+
+      long indexOffset = out.position();
+      raw.reset();
+      TransactionCodec.writeString(rawOut, snapshot.getUserId());
+      rawOut.writeInt(index.size());
+      for (BlockInfo block : index) {
+        block.writeTo(rawOut);
+      }
+      budgets.writeTo(rawOut);
+      rawOut.writeLong(indexOffset);
+      rawOut.writeInt(MAGIC);
+      writeFully(out, ByteBuffer.wrap(raw.toByteArray()));
+      out.force(false);
+    } finally {
+      deflater.end();
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Opens a block-compressed wallet file, reading only its index.
+   *
+   * @param file the file
+   * @return the open file; must be closed
+   * @throws IOException if the file cannot be read or is not a valid wallet file
+   */
+  public static CompressedWalletFile open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < Integer.BYTES + TRAILER_SIZE) {
+        throw new IOException("Not a compressed wallet file: " + file);
+      }
+      ByteBuffer head = readAt(channel, 0, Integer.BYTES);
+      ByteBuffer trailer = readAt(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+      long indexOffset = trailer.getLong();
+      if (head.getInt() != MAGIC || trailer.getInt() != MAGIC) {
+        throw new IOException("Not a compressed wallet file: " + file);
+      }
+      if (indexOffset < Integer.BYTES || indexOffset > size - TRAILER_SIZE) {
+        throw new IOException("Corrupt block index: " + file);
+      }
+
+      ByteBuffer indexBytes =
+          readAt(channel, indexOffset, (int) (size - TRAILER_SIZE - indexOffset));
+      DataInputStream in =
+          new DataInputStream(
+              new ByteArrayInputStream(indexBytes.array(), 0, indexBytes.remaining()));
+      String userId = TransactionCodec.readString(in);
+      int blockCount = in.readInt();
+      if (blockCount < 0) {
+        throw new IOException("Corrupt block index: " + file);
+      }
+      BlockInfo[] blocks = new BlockInfo[blockCount];
+      for (int i = 0; i < blockCount; i++) {
+        blocks[i] = BlockInfo.readFrom(in);
+      }
+      BlockInfo budgets = BlockInfo.readFrom(in);
+      return new CompressedWalletFile(channel, userId, blocks, budgets);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public int getBlockCount() {
+    return blocks.length;
+  }
+
+  public int getTransactionCount() {
+    return transactionCount;
+  }
+
+  /**
+   * Reads the transactions of one block.
+   *
+   * @param block the block number
+   * @return the transactions in insertion order
+   * @throws IOException if the block cannot be read or fails its checksum
+   */
+  public List<Transaction> readBlock(int block) throws IOException {
+    if (block < 0 || block >= blocks.length) {
+      throw new IndexOutOfBoundsException("Block: " + block + ", Blocks: " + blocks.length);
+    }
+    BlockInfo info = blocks[block];
+    DataInputStream in = inflate(info);
+    List<Transaction> transactions = new ArrayList<>(info.transactionCount);
+    for (int i = 0; i < info.transactionCount; i++) {
+      transactions.add(TransactionCodec.read(in));
+    }
+    return transactions;
+  }
+
+  /**
+   * Reads a range of transactions by position, decompressing only the blocks that hold it.
+   *
+   * @param from the first position, inclusive
+   * @param to the last position, exclusive
+   * @return the transactions in insertion order
+   * @throws IOException if a block cannot be read
+   */
+  public List<Transaction> readTransactions(int from, int to) throws IOException {
+    if (from < 0 || to > transactionCount || from > to) {
+      throw new IndexOutOfBoundsException(
+          "Range: [" + from + ", " + to + "), Size: " + transactionCount);
+    }
+    List<Transaction> result = new ArrayList<>(to - from);
+    int blockStart = 0;
+    for (int block = 0; block < blocks.length && blockStart < to; block++) {
+      int blockEnd = blockStart + blocks[block].transactionCount;
+      if (blockEnd > from) {
+        List<Transaction> transactions = readBlock(block);
+        int start = Math.max(from, blockStart) - blockStart;
+        int end = Math.min(to, blockEnd) - blockStart;
+        result.addAll(transactions.subList(start, end));
+      }
+      blockStart = blockEnd;
+    }
+    return result;
+  }
+
+  /**
+   * Reads the transactions in a time range, skipping blocks whose range does not overlap it.
+   *
+   * @param from the start, inclusive
+   * @param to the end, exclusive
+   * @return the matching transactions in insertion order
+   * @throws IOException if a block cannot be read
+   */
+  public List<Transaction> readBetween(LocalDateTime from, LocalDateTime to) throws IOException {
+    long fromSecond = TransactionCodec.epochSecond(from);
+    long toSecond = TransactionCodec.epochSecond(to);
+    List<Transaction> result = new ArrayList<>();
+    for (int block = 0; block < blocks.length; block++) {
+      if (blocks[block].maxSecond < fromSecond || blocks[block].minSecond > toSecond) {
+        continue;
+      }
+      for (Transaction transaction : readBlock(block)) {
+        if (!transaction.getTimestamp().isBefore(from) && transaction.getTimestamp().isBefore(to)) {
+          result.add(transaction);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the budget limits.
+   *
+   * @return category to limit, in stored order
+   * @throws IOException if the budgets block cannot be read
+   */
+  public Map<String, Double> readBudgets() throws IOException {
+    Map<String, Double> budgets = new LinkedHashMap<>();
+    for (Budget budget : readBudgetDefinitions()) {
+      budgets.put(budget.getCategory(), budget.getLimit());
+    }
+    return budgets;
+  }
+
+  /**
+   * Reads the budgets with their periods and currencies.
+   *
+   * @return the budgets, in stored order
+   * @throws IOException if the budgets block cannot be read
+   */
+  public List<Budget> readBudgetDefinitions() throws IOException {
+    DataInputStream in = inflate(budgetsBlock);
+    int count = in.readInt();
+    String[] categories = new String[count];
+    double[] limits = new double[count];
+    for (int i = 0; i < count; i++) {
+      categories[i] = TransactionCodec.readString(in);
+      limits[i] = in.readDouble();
+    }
+    List<Budget> budgets = new ArrayList<>(count);
+    // Blocks are inflated into memory, so available() is the exact number of bytes left
+    boolean hasPeriods = count > 0 && in.available() > 0;
+    String[] periods = new String[count];
+    for (int i = 0; i < count; i++) {
+      periods[i] = hasPeriods ? TransactionCodec.readString(in) : "";
+    }
+    boolean hasCurrencies = hasPeriods && in.available() > 0;
+    for (int i = 0; i < count; i++) {
+      String currency = hasCurrencies ? TransactionCodec.readString(in) : null;
+      budgets.add(
+          new Budget(
+              categories[i],
+              limits[i],
+              periods[i].isEmpty() ? null : BudgetPeriod.parse(periods[i]),
+              currency));
+    }
+    return budgets;
+  }
+
+  /**
+   * Reads the whole wallet.
+   *
+   * @return the wallet
+   * @throws IOException if any block cannot be read
+   */
+  public Wallet readWallet() throws IOException {
+    List<Transaction> transactions = new ArrayList<>();
+    for (int block = 0; block < blocks.length; block++) {
+      transactions.addAll(readBlock(block));
+    }
+    Wallet wallet = new Wallet(userId);
+    wallet.addTransactions(transactions);
+    for (Budget budget : readBudgetDefinitions()) {
+      wallet.setBudget(
+          budget.getCategory(), budget.getLimit(), budget.getPeriod(), budget.getCurrency());
+    }
+    return wallet;
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    channel.close();
+  }
+
+  private DataInputStream inflate(BlockInfo info) throws IOException {
+    ByteBuffer compressed = readAt(channel, info.offset, info.compressedLength);
+    CRC32 crc = new CRC32();
+    crc.update(compressed.array(), 0, info.compressedLength);
+    if ((int) crc.getValue() != info.crc) {
+      throw new IOException("Block checksum mismatch at offset " + info.offset);
+    }
+    byte[] raw = new byte[info.rawLength];
+    inflater.reset();
+    inflater.setInput(compressed.array(), 0, info.compressedLength);
+    try {
+      int length = 0;
+      while (length < raw.length && !inflater.finished()) {
+        int n = inflater.inflate(raw, length, raw.length - length);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        length += n;
+      }
+      if (length != raw.length) {
+        throw new IOException("Truncated block at offset " + info.offset);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt block at offset " + info.offset, e);
+    }
+    return new DataInputStream(new ByteArrayInputStream(raw));
+  }
+
+  private static BlockInfo writeBlock(
+      FileChannel out,
+      Deflater deflater,
+      ByteArrayOutputStream raw,
+      int transactionCount,
+      long minSecond,
+      long maxSecond)
+      throws IOException {
+    byte[] input = raw.toByteArray();
+    deflater.reset();
+    deflater.setInput(input);
+    deflater.finish();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 4 + 64);
+    byte[] buffer = new byte[8192];
+    while (!deflater.finished()) {
+      int n = deflater.deflate(buffer);
+      compressed.write(buffer, 0, n);
+    }
+    byte[] bytes = compressed.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+
+    long offset = out.position();
+    writeFully(out, ByteBuffer.wrap(bytes));
+    return new BlockInfo(
+        offset,
+        bytes.length,
+        input.length,
+        (int) crc.getValue(),
+        transactionCount,
+        minSecond,
+        maxSecond);
+  }
+
+  private static ByteBuffer readAt(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file at " + (position + buffer.position()));
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+  }
+
+  /** Index entry of one compressed block. */
+  private static final class BlockInfo {
+    private final long offset;
+    private final int compressedLength;
+    private final int rawLength;
+    private final int crc;
+    private final int transactionCount;
+    private final long minSecond;
+    private final long maxSecond;
+
+    private BlockInfo(
+        long offset,
+        int compressedLength,
+        int rawLength,
+        int crc,
+        int transactionCount,
+        long minSecond,
+        long maxSecond) {
+      this.offset = offset;
+      this.compressedLength = compressedLength;
+      this.rawLength = rawLength;
+      this.crc = crc;
+      this.transactionCount = transactionCount;
+      this.minSecond = minSecond;
+      this.maxSecond = maxSecond;
+    }
+
+    private void writeTo(DataOutputStream out) throws IOException {
+      out.writeLong(offset);
+      out.writeInt(compressedLength);
+      out.writeInt(rawLength);
+      out.writeInt(crc);
+      out.writeInt(transactionCount);
+      out.writeLong(minSecond);
+      out.writeLong(maxSecond);
+    }
+
+    private static BlockInfo readFrom(DataInputStream in) throws IOException {
+      BlockInfo info =
+          new BlockInfo(
+              in.readLong(),
+              in.readInt(),
+              in.readInt(),
+              in.readInt(),
+              in.readInt(),
+              in.readLong(),
+              in.readLong());
+      if (info.offset < 0
+          || info.compressedLength < 0
+          || info.rawLength < 0
+          || info.transactionCount < 0) {
+        throw new IOException("Corrupt block index entry");
+      }
+      return info;
+    }
+  }
+}
+
@@ -0,0 +1,73 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.CurrencyCode;
+import com.finances.core.domain.ExchangeRates;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads {@link ExchangeRates} from a local CSV file.
+ *
+ * <p>Every line is {@code date,currency,quote,rate}: on the ISO date one unit of the currency cost
+ * {@code rate} units of the quote currency, e.g. {@code 2024-03-01,USD,RUB,91.5}. All lines must
+ * share the quote currency, which becomes the pivot of the table. Blank lines, lines starting with
+ * {@code #} and a header line starting with {@code date} are skipped; a later line for the same
+ * currency and date replaces an earlier one.
+ */
+public final class ExchangeRateFile {
+  private ExchangeRateFile() {}
+
+  /**
+   * Reads a rate file.
+   *
+   * @param file the file
+   * @return the rate table
+   * @throws IOException if the file cannot be read or has a malformed line
+   */
+  public static ExchangeRates read(Path file) throws IOException {
+    String pivot = null;
+    Map<String, Map<LocalDate, Double>> rates = new HashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      int number = 0;
+      while ((line = reader.readLine()) != null) {
+        number++;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#") || line.startsWith("date")) {
+          continue;
+        }
+        String[] fields = line.split(",", -1);
+        if (fields.length != 4) {
+          throw new IOException(file + ":" + number + ": expected date,currency,quote,rate");
+        }
+        try {
+          String quote = CurrencyCode.normalize(fields[2]);
+          if (pivot == null) {
+            pivot = quote;
+          } else if (!pivot.equals(quote)) {
+            throw new IOException(
+                file + ":" + number + ": quote currency " + quote + " differs from " + pivot);
+          }
+          rates
+              .computeIfAbsent(CurrencyCode.normalize(fields[1]), key -> new HashMap<>())
+              .put(LocalDate.parse(fields[0].trim()), Double.parseDouble(fields[3].trim()));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+          throw new IOException(file + ":" + number + ": " + e.getMessage(), e);
+        }
+      }
+    }
+    try {
+      return new ExchangeRates(pivot == null ? CurrencyCode.DEFAULT : pivot, rates);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(file + ": " + e.getMessage(), e);
+    }
+  }
+}
+
@@ -0,0 +1,165 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.CronSchedule;
+import com.finances.core.domain.RecurringTemplate;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.repository.RecurringTemplateRepository;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recurring templates kept in a JSON file in the storage directory.
+ *
+ * <p>The file holds an array with one object per template, including the next occurrence that has
+ * not been posted yet. Templates are few and change at most once per occurrence, so every change
+ * rewrites the whole file: it is written to a temporary file, forced to disk and moved over the old
+ * one, so a crash leaves either the old or the new file.
+ */
+public class FileRecurringTemplateRepository implements RecurringTemplateRepository {
+  /** Name of the template file in the storage directory. */
+  public static final String FILE_NAME = "recurring.json";
+
+  private final Path file;
+
+  // Guarded by this
+  private final Map<String, RecurringTemplate> templates = new LinkedHashMap<>();
+
+  /**
+   * Opens a repository, reading the file if it exists.
+   *
+   * @param file the template file
+   * @throws IOException if the file cannot be read or is malformed
+   */
+  public FileRecurringTemplateRepository(Path file) throws IOException {
+    this.file = file;
+    if (Files.exists(file)) {
+      for (RecurringTemplate template : read(file)) {
+        templates.put(template.getId(), template);
+      }
+    }
+  }
+
+  /**
+   * Saves a template and rewrites the file.
+   *
+   * @param template the template
+   * @throws UncheckedIOException if the file cannot be written
+   */
+  @Override
+  public synchronized void save(RecurringTemplate template) {
+    if (template == null) {
+      throw new IllegalArgumentException("Template cannot be null");
+    }
+    templates.put(template.getId(), template);
+    write();
+  }
+
+  /**
+   * Deletes a template and rewrites the file.
+   *
+   * @param templateId the template ID
+   * @throws UncheckedIOException if the file cannot be written
+   */
+  @Override
+  public synchronized void delete(String templateId) {
+    if (templates.remove(templateId) != null) {
+      write();
+    }
+  }
+
+  @Override
+  public synchronized List<RecurringTemplate> findAll() {
+    return new ArrayList<>(templates.values());
+  }
+
+  private void write() {
+    JsonArray array = new JsonArray();
+    for (RecurringTemplate template : templates.values()) {
+      array.add(toJson(template));
+    }
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try {
+      try (OutputStream out =
+          Files.newOutputStream(
+              temp,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.SYNC)) {
+        out.write(array.toString().getBytes(StandardCharsets.UTF_8));
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static List<RecurringTemplate> read(Path file) throws IOException {
+    List<RecurringTemplate> result = new ArrayList<>();
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      for (JsonElement element : JsonParser.parseReader(reader).getAsJsonArray()) {
+        result.add(fromJson(element.getAsJsonObject()));
+      }
+    } catch (JsonParseException
+        | IllegalStateException
+        | IllegalArgumentException
+        | DateTimeException e) {
+      throw new IOException("Malformed template file: " + file, e);
+    }
+    return result;
+  }
+
+  private static JsonObject toJson(RecurringTemplate template) {
+    JsonObject json = new JsonObject();
+    json.addProperty("id", template.getId());
+    json.addProperty("userId", template.getUserId());
+    json.addProperty("type", template.getType().name());
+    json.addProperty("category", template.getCategory());
+    json.addProperty("amount", template.getAmount());
+    json.addProperty("description", template.getDescription());
+    json.addProperty("schedule", template.getSchedule().getExpression());
+    if (template.getNextOccurrence() != null) {
+      json.addProperty("nextOccurrence", TimestampCodec.format(template.getNextOccurrence()));
+    }
+    return json;
+  }
+
+  private static RecurringTemplate fromJson(JsonObject json) {
+    JsonElement next = json.get("nextOccurrence");
+    return RecurringTemplate.restore(
+        field(json, "id").getAsString(),
+        field(json, "userId").getAsString(),
+        TransactionType.valueOf(field(json, "type").getAsString()),
+        field(json, "category").getAsString(),
+        field(json, "amount").getAsDouble(),
+        field(json, "description").getAsString(),
+        CronSchedule.parse(field(json, "schedule").getAsString()),
+        next == null ? null : TimestampCodec.parse(next.getAsString()));
+  }
+
+  private static JsonElement field(JsonObject json, String name) {
+    JsonElement value = json.get(name);
+    if (value == null || value.isJsonNull()) {
+      throw new JsonParseException("Missing field: " + name);
+    }
+    return value;
+  }
+}
+
@@ -1,9 +1,12 @@
 package com.finances.infrastructure.persistence;
 
 import com.finances.core.domain.Budget;
+import com.finances.core.domain.BudgetPeriod;
+import com.finances.core.domain.CurrencyCode;
 import com.finances.core.domain.Transaction;
 import com.finances.core.domain.TransactionType;
 import com.finances.core.domain.Wallet;
+import com.finances.core.domain.WalletSnapshot;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
@@ -12,22 +15,83 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
-/** Service for persisting wallet data to JSON files. */
+/** Service for persisting wallet data to JSON, block-compressed or sharded files. */
 public class FileStorage {
+  /** On-disk format used when saving wallets. */
+  public enum Format {
+    /** Pretty-printed JSON, {@code <user>.wallet}. */
+    JSON,
+    /** Block-compressed binary, {@code <user>.walletz}; see {@link CompressedWalletFile}. */
+    COMPRESSED,
+    /** Per-month segment files and a manifest; see {@link ShardedWalletStore}. */
+    SHARDED
+  }
+
   private static final String STORAGE_DIR = "wallets";
-  private static final DateTimeFormatter DATE_FORMATTER =
-      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+  private final String storageDir;
+  private final Format format;
   private final Gson gson;
+  private final StreamingExporter exporter;
+  private final IncrementalCsvExport csvExport;
+  private final ShardedWalletStore shardedStore;
 
   public FileStorage() {
+    this(STORAGE_DIR);
+  }
+
+  /**
+   * Creates a file storage in the default directory that saves wallets in the given format.
+   *
+   * @param format the format used when saving
+   */
+  public FileStorage(Format format) {
+    this(STORAGE_DIR, format);
+  }
+
+  /**
+   * Creates a file storage rooted at the given directory.
+   *
+   * @param storageDir the directory wallet files are kept in
+   */
+  public FileStorage(String storageDir) {
+    this(storageDir, Format.JSON);
+  }
+
+  /**
+   * Creates a file storage rooted at the given directory that saves wallets in the given format.
+   *
+   * <p>Wallets are loaded from whichever format is present, so switching formats needs no
+   * migration: each wallet is converted the next time it is saved.
+   *
+   * @param storageDir the directory wallet files are kept in
+   * @param format the format used when saving
+   */
+  public FileStorage(String storageDir, Format format) {
+    this.storageDir = storageDir;
+    this.format = format;
     this.gson = new GsonBuilder().setPrettyPrinting().create();
+    this.exporter = new StreamingExporter();
+    this.csvExport = new IncrementalCsvExport(exporter);
+    this.shardedStore = new ShardedWalletStore(Path.of(storageDir));
     createStorageDirectory();
   }
 
+  /**
+   * Gets the directory wallet files are kept in.
+   *
+   * @return the storage directory
+   */
+  public Path getStorageDirectory() {
+    return Path.of(storageDir);
+  }
+
   /**
    * Saves a wallet to a file.
    *
@@ -35,38 +99,78 @@ public class FileStorage {
    * @throws IOException if an I/O error occurs
    */
   public void saveWallet(Wallet wallet) throws IOException {
-    String filename = getWalletFilename(wallet.getUserId());
+    WalletSnapshot snapshot = wallet.snapshot();
+    String userId = snapshot.getUserId();
+    if (format == Format.COMPRESSED) {
+      CompressedWalletFile.write(snapshot, getCompressedWalletPath(userId));
+      new File(getWalletFilename(userId)).delete();
+      shardedStore.delete(userId);
+      return;
+    }
+    if (format == Format.SHARDED) {
+      shardedStore.save(snapshot);
+      new File(getWalletFilename(userId)).delete();
+      Files.deleteIfExists(getCompressedWalletPath(userId));
+      return;
+    }
+    String filename = getWalletFilename(snapshot.getUserId());
     JsonObject json = new JsonObject();
 
-    json.addProperty("userId", wallet.getUserId());
-    json.addProperty("balance", wallet.getBalance());
-    json.addProperty("totalIncome", wallet.getTotalIncome());
-    json.addProperty("totalExpense", wallet.getTotalExpense());
+    json.addProperty("userId", snapshot.getUserId());
+    json.addProperty("balance", snapshot.getBalance());
+    json.addProperty("totalIncome", snapshot.getTotalIncome());
+    json.addProperty("totalExpense", snapshot.getTotalExpense());
 
     // Serialize transactions
     JsonArray transactionsArray = new JsonArray();
-    for (Transaction transaction : wallet.getTransactions()) {
+    for (Transaction transaction : snapshot.getTransactions()) {
       JsonObject transactionJson = new JsonObject();
       transactionJson.addProperty("id", transaction.getId());
       transactionJson.addProperty("type", transaction.getType().name());
       transactionJson.addProperty("category", transaction.getCategory());
       transactionJson.addProperty("amount", transaction.getAmount());
-      transactionJson.addProperty("timestamp", transaction.getTimestamp().format(DATE_FORMATTER));
+      transactionJson.addProperty("timestamp", TimestampCodec.format(transaction.getTimestamp()));
       transactionJson.addProperty("description", transaction.getDescription());
+      if (transaction.getIdempotencyKey() != null) {
+        transactionJson.addProperty("idempotencyKey", transaction.getIdempotencyKey());
+      }
+      if (!transaction.getCurrency().equals(CurrencyCode.DEFAULT)) {
+        transactionJson.addProperty("currency", transaction.getCurrency());
+      }
+      if (transaction.getTransferId() != null) {
+        transactionJson.addProperty("transferId", transaction.getTransferId());
+      }
       transactionsArray.add(transactionJson);
     }
     json.add("transactions", transactionsArray);
 
     // Serialize budgets
     JsonObject budgetsJson = new JsonObject();
-    for (Map.Entry<String, Budget> entry : wallet.getAllBudgets().entrySet()) {
+    JsonObject periodsJson = new JsonObject();
+    JsonObject currenciesJson = new JsonObject();
+    for (Map.Entry<String, Budget> entry : snapshot.getAllBudgets().entrySet()) {
       budgetsJson.addProperty(entry.getKey(), entry.getValue().getLimit());
+      if (entry.getValue().getPeriod() != null) {
+        periodsJson.addProperty(entry.getKey(), entry.getValue().getPeriod().format());
+      }
+      if (!entry.getValue().getCurrency().equals(CurrencyCode.DEFAULT)) {
+        currenciesJson.addProperty(entry.getKey(), entry.getValue().getCurrency());
+      }
     }
     json.add("budgets", budgetsJson);
+    // Kept apart from the limits so files without periods stay readable by older versions
+    if (periodsJson.size() > 0) {
+      json.add("budgetPeriods", periodsJson);
+    }
+    if (currenciesJson.size() > 0) {
+      json.add("budgetCurrencies", currenciesJson);
+    }
 
     try (FileWriter writer = new FileWriter(filename)) {
       gson.toJson(json, writer);
     }
+    Files.deleteIfExists(getCompressedWalletPath(userId));
+    shardedStore.delete(userId);
   }
 
   /**
@@ -77,6 +181,16 @@ public class FileStorage {
    * @throws IOException if an I/O error occurs
    */
   public Wallet loadWallet(String userId) throws IOException {
+    if (shardedStore.exists(userId)) {
+      return shardedStore.load(userId);
+    }
+    Path compressed = getCompressedWalletPath(userId);
+    if (Files.exists(compressed)) {
+      try (CompressedWalletFile file = CompressedWalletFile.open(compressed)) {
+        return file.readWallet();
+      }
+    }
+
     String filename = getWalletFilename(userId);
     File file = new File(filename);
 
@@ -91,29 +205,57 @@ public class FileStorage {
       // Deserialize transactions
       if (json.has("transactions")) {
         JsonArray transactionsArray = json.getAsJsonArray("transactions");
+        List<Transaction> transactions = new ArrayList<>(transactionsArray.size());
         for (int i = 0; i < transactionsArray.size(); i++) {
           JsonObject transactionJson = transactionsArray.get(i).getAsJsonObject();
           Transaction transaction =
-              new Transaction(
-                  transactionJson.get("id").getAsString(),
-                  TransactionType.valueOf(transactionJson.get("type").getAsString()),
-                  transactionJson.get("category").getAsString(),
-                  transactionJson.get("amount").getAsDouble(),
-                  LocalDateTime.parse(
-                      transactionJson.get("timestamp").getAsString(), DATE_FORMATTER),
-                  transactionJson.has("description")
-                      ? transactionJson.get("description").getAsString()
-                      : "");
-          wallet.addTransaction(transaction);
+              Transaction.builder(
+                      transactionJson.get("id").getAsString(),
+                      TransactionType.valueOf(transactionJson.get("type").getAsString()),
+                      transactionJson.get("category").getAsString(),
+                      transactionJson.get("amount").getAsDouble(),
+                      TimestampCodec.parse(transactionJson.get("timestamp").getAsString()))
+                  .description(
+                      transactionJson.has("description")
+                          ? transactionJson.get("description").getAsString()
+                          : "")
+                  .idempotencyKey(
+                      transactionJson.has("idempotencyKey")
+                          ? transactionJson.get("idempotencyKey").getAsString()
+                          : null)
+                  .currency(
+                      transactionJson.has("currency")
+                          ? transactionJson.get("currency").getAsString()
+                          : null)
+                  .transferId(
+                      transactionJson.has("transferId")
+                          ? transactionJson.get("transferId").getAsString()
+                          : null)
+                  .build();
+          transactions.add(transaction);
         }
+        // One snapshot for the whole file instead of one per transaction
+        wallet.addTransactions(transactions);
       }
 
       // Deserialize budgets
       if (json.has("budgets")) {
         JsonObject budgetsJson = json.getAsJsonObject("budgets");
+        JsonObject periodsJson =
+            json.has("budgetPeriods") ? json.getAsJsonObject("budgetPeriods") : new JsonObject();
+        JsonObject currenciesJson =
+            json.has("budgetCurrencies")
+                ? json.getAsJsonObject("budgetCurrencies")
+                : new JsonObject();
         for (String category : budgetsJson.keySet()) {
           double limit = budgetsJson.get(category).getAsDouble();
-          wallet.setBudget(category, limit);
+          BudgetPeriod period =
+              periodsJson.has(category)
+                  ? BudgetPeriod.parse(periodsJson.get(category).getAsString())
+                  : null;
+          String currency =
+              currenciesJson.has(category) ? currenciesJson.get(category).getAsString() : null;
+          wallet.setBudget(category, limit, period, currency);
         }
       }
 
@@ -121,6 +263,37 @@ public class FileStorage {
     }
   }
 
+  /**
+   * Finds stored transactions matching a filter. Sharded wallets are queried through their index
+   * and only the matching records are read; other formats are loaded and filtered in memory.
+   *
+   * @param userId the user ID
+   * @param type the transaction type, or null for any
+   * @param category the category, or null for any
+   * @param from the start, inclusive, or null for unbounded
+   * @param to the end, exclusive, or null for unbounded
+   * @return the matching transactions in insertion order
+   * @throws IOException if an I/O error occurs
+   */
+  public List<Transaction> findTransactions(
+      String userId, TransactionType type, String category, LocalDateTime from, LocalDateTime to)
+      throws IOException {
+    if (shardedStore.exists(userId)) {
+      return shardedStore.find(userId, type, category, from, to);
+    }
+    List<Transaction> result = new ArrayList<>();
+    for (Transaction transaction : loadWallet(userId).getTransactions()) {
+      LocalDateTime timestamp = transaction.getTimestamp();
+      if ((type == null || transaction.getType() == type)
+          && (category == null || transaction.getCategory().equals(category))
+          && (from == null || !timestamp.isBefore(from))
+          && (to == null || timestamp.isBefore(to))) {
+        result.add(transaction);
+      }
+    }
+    return result;
+  }
+
   /**
    * Deletes a wallet file.
    *
@@ -130,7 +303,9 @@ public class FileStorage {
   public boolean deleteWallet(String userId) {
     String filename = getWalletFilename(userId);
     File file = new File(filename);
-    return file.delete();
+    boolean deletedCompressed = getCompressedWalletPath(userId).toFile().delete();
+    boolean deletedSharded = shardedStore.delete(userId);
+    return file.delete() || deletedCompressed || deletedSharded;
   }
 
   /**
@@ -142,7 +317,9 @@ public class FileStorage {
   public boolean walletExists(String userId) {
     String filename = getWalletFilename(userId);
     File file = new File(filename);
-    return file.exists();
+    return file.exists()
+        || Files.exists(getCompressedWalletPath(userId))
+        || shardedStore.exists(userId);
   }
 
   /**
@@ -153,69 +330,71 @@ public class FileStorage {
    * @throws IOException if an I/O error occurs
    */
   public void exportToCSV(Wallet wallet, String outputPath) throws IOException {
-    try (FileWriter writer = new FileWriter(outputPath)) {
-      writer.write("Type,Category,Amount,Date,Description\n");
-      for (Transaction transaction : wallet.getTransactions()) {
-        writer.write(
-            String.format(
-                "%s,%s,%.2f,%s,%s\n",
-                transaction.getType(),
-                transaction.getCategory(),
-                transaction.getAmount(),
-                transaction.getTimestamp().toLocalDate(),
-                transaction.getDescription().replace(",", ";")));
-      }
-    }
+    csvExport.export(wallet.snapshot(), Path.of(outputPath), true);
   }
 
   /**
-   * Exports wallet data to a JSON file.
+   * Appends the transactions added since the previous export of this file. Falls back to a full
+   * export if there is no previous export or the file no longer matches its high-water mark.
    *
    * @param wallet the wallet to export
    * @param outputPath the output file path
+   * @return what was written
    * @throws IOException if an I/O error occurs
+   * @see IncrementalCsvExport
    */
-  public void exportToJSON(Wallet wallet, String outputPath) throws IOException {
-    JsonObject json = new JsonObject();
-
-    json.addProperty("userId", wallet.getUserId());
-    json.addProperty("balance", wallet.getBalance());
-    json.addProperty("totalIncome", wallet.getTotalIncome());
-    json.addProperty("totalExpense", wallet.getTotalExpense());
+  public IncrementalCsvExport.Result exportToCSVIncremental(Wallet wallet, String outputPath)
+      throws IOException {
+    return csvExport.export(wallet.snapshot(), Path.of(outputPath), false);
+  }
 
-    JsonArray transactionsArray = new JsonArray();
-    for (Transaction transaction : wallet.getTransactions()) {
-      JsonObject transactionJson = new JsonObject();
-      transactionJson.addProperty("id", transaction.getId());
-      transactionJson.addProperty("type", transaction.getType().name());
-      transactionJson.addProperty("category", transaction.getCategory());
-      transactionJson.addProperty("amount", transaction.getAmount());
-      transactionJson.addProperty("timestamp", transaction.getTimestamp().format(DATE_FORMATTER));
-      transactionJson.addProperty("description", transaction.getDescription());
-      transactionsArray.add(transactionJson);
-    }
-    json.add("transactions", transactionsArray);
+  /**
+   * Checks a CSV export against the checksums recorded when it was written.
+   *
+   * @param outputPath the export file path
+   * @return true if the file is intact
+   * @throws IOException if the file cannot be read
+   */
+  public boolean verifyCSVExport(String outputPath) throws IOException {
+    return csvExport.verify(Path.of(outputPath));
+  }
 
-    JsonObject budgetsJson = new JsonObject();
-    for (Map.Entry<String, Budget> entry : wallet.getAllBudgets().entrySet()) {
-      budgetsJson.addProperty(entry.getKey(), entry.getValue().getLimit());
-    }
-    json.add("budgets", budgetsJson);
+  /**
+   * Exports wallet data to a JSON file.
+   *
+   * @param wallet the wallet to export
+   * @param outputPath the output file path
+   * @throws IOException if an I/O error occurs
+   */
+  public void exportToJSON(Wallet wallet, String outputPath) throws IOException {
+    exporter.exportJson(wallet.snapshot(), Path.of(outputPath));
+  }
 
-    try (FileWriter writer = new FileWriter(outputPath)) {
-      gson.toJson(json, writer);
-    }
+  /**
+   * Exports wallet transactions to a columnar file for analytics tools.
+   *
+   * @param wallet the wallet to export
+   * @param outputPath the output file path
+   * @throws IOException if an I/O error occurs
+   * @see ColumnarWalletFile
+   */
+  public void exportToColumnar(Wallet wallet, String outputPath) throws IOException {
+    ColumnarWalletFile.write(wallet.snapshot(), Path.of(outputPath));
   }
 
   private void createStorageDirectory() {
-    File dir = new File(STORAGE_DIR);
+    File dir = new File(storageDir);
     if (!dir.exists()) {
       dir.mkdirs();
     }
   }
 
   private String getWalletFilename(String userId) {
-    return STORAGE_DIR + File.separator + userId + ".wallet";
+    return storageDir + File.separator + userId + ".wallet";
+  }
+
+  private Path getCompressedWalletPath(String userId) {
+    return Path.of(storageDir, userId + CompressedWalletFile.EXTENSION);
   }
 }
 
@@ -0,0 +1,221 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.Transfer;
+import com.finances.core.repository.TransferJournal;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Transfer journal kept in an append-only file.
+ *
+ * <p>Every transfer is one record framed like the write-ahead log: payload length, CRC-32 of the
+ * payload, then the payload: transfer id, sender, receiver, amount (8 bytes), currency, timestamp
+ * as UTC epoch second (8 bytes) and nanosecond (4 bytes), and description, with strings encoded as
+ * in {@link TransactionCodec}. {@link #append} returns once the record is forced to disk.
+ *
+ * <p>The file is never rewritten. A torn or corrupt tail, left by a crash during an append, ends
+ * the journal: it is ignored by {@link #read} and cut off when the journal is opened.
+ */
+public class FileTransferJournal implements TransferJournal, Closeable {
+  /** Name of the journal file in the storage directory. */
+  public static final String FILE_NAME = "transfers.journal";
+
+  private static final int MAX_RECORD_SIZE = 1 << 20;
+
+  private final Path file;
+  private final FileChannel channel;
+
+  // Guarded by this
+  private long length;
+
+  /**
+   * Opens a journal, creating the file if needed and cutting off a torn tail.
+   *
+   * @param file the journal file
+   * @throws IOException if the file cannot be opened
+   */
+  public FileTransferJournal(Path file) throws IOException {
+    this.file = file;
+    this.length = Files.exists(file) ? scan(file, transfer -> {}) : 0;
+    this.channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (channel.size() > length) {
+      channel.truncate(length);
+      channel.force(true);
+    }
+    channel.position(length);
+  }
+
+  /**
+   * Appends a transfer and waits until it is on disk.
+   *
+   * @param transfer the transfer
+   * @throws UncheckedIOException if the journal cannot be written
+   */
+  @Override
+  public void append(Transfer transfer) {
+    if (transfer == null) {
+      throw new IllegalArgumentException("Transfer cannot be null");
+    }
+    try {
+      ByteBuffer record = ByteBuffer.wrap(encode(transfer));
+      synchronized (this) {
+        try {
+          while (record.hasRemaining()) {
+            channel.write(record);
+          }
+          channel.force(false);
+          length = channel.position();
+        } catch (IOException e) {
+          // Drop a partly written record so later appends are not hidden behind it
+          channel.truncate(length);
+          channel.position(length);
+          throw e;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Finds the transfers a user sent or received by reading the whole journal.
+   *
+   * @param userId the user ID
+   * @return the transfers in the order they were recorded
+   * @throws UncheckedIOException if the journal cannot be read
+   */
+  @Override
+  public synchronized List<Transfer> findByUserId(String userId) {
+    List<Transfer> result = new ArrayList<>();
+    try {
+      scan(
+          file,
+          transfer -> {
+            if (transfer.getFromUserId().equals(userId) || transfer.getToUserId().equals(userId)) {
+              result.add(transfer);
+            }
+          });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Reads a journal file record by record, without holding more than one record in memory.
+   *
+   * @param file the journal file
+   * @param consumer receives the transfers in the order they were recorded
+   * @throws IOException if the file cannot be read or a record with a valid checksum is malformed
+   */
+  public static void read(Path file, Consumer<? super Transfer> consumer) throws IOException {
+    scan(file, consumer);
+  }
+
+  /** Reads the valid records and returns the byte length they take. */
+  private static long scan(Path file, Consumer<? super Transfer> consumer) throws IOException {
+    long valid = 0;
+    CRC32 crc = new CRC32();
+    try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+      DataInputStream in = new DataInputStream(stream);
+      while (true) {
+        int size;
+        int checksum;
+        byte[] payload;
+        try {
+          size = in.readInt();
+          checksum = in.readInt();
+          if (size <= 0 || size > MAX_RECORD_SIZE) {
+            break;
+          }
+          payload = new byte[size];
+          in.readFully(payload);
+        } catch (EOFException e) {
+          break;
+        }
+        crc.reset();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+        consumer.accept(decode(payload));
+        valid += 2 * Integer.BYTES + size;
+      }
+    }
+    return valid;
+  }
+
+  private static byte[] encode(Transfer transfer) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(payload);
+    TransactionCodec.writeString(out, transfer.getId());
+    TransactionCodec.writeString(out, transfer.getFromUserId());
+    TransactionCodec.writeString(out, transfer.getToUserId());
+    out.writeDouble(transfer.getAmount());
+    TransactionCodec.writeString(out, transfer.getCurrency());
+    out.writeLong(TransactionCodec.epochSecond(transfer.getTimestamp()));
+    out.writeInt(transfer.getTimestamp().getNano());
+    TransactionCodec.writeString(out, transfer.getDescription());
+
+    CRC32 crc = new CRC32();
+    crc.update(payload.toByteArray());
+    ByteArrayOutputStream record = new ByteArrayOutputStream(payload.size() + 2 * Integer.BYTES);
+    DataOutputStream frame = new DataOutputStream(record);
+    frame.writeInt(payload.size());
+    frame.writeInt((int) crc.getValue());
+    payload.writeTo(frame);
+    return record.toByteArray();
+  }
+
+  private static Transfer decode(byte[] payload) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    String id = TransactionCodec.readString(in);
+    String fromUserId = TransactionCodec.readString(in);
+    String toUserId = TransactionCodec.readString(in);
+    double amount = in.readDouble();
+    String currency = TransactionCodec.readString(in);
+    long second = in.readLong();
+    int nano = in.readInt();
+    String description = TransactionCodec.readString(in);
+    try {
+      return new Transfer(
+          id,
+          fromUserId,
+          toUserId,
+          amount,
+          currency,
+          LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC),
+          description);
+    } catch (IllegalArgumentException | DateTimeException e) {
+      throw new IOException("Malformed transfer record: " + e.getMessage(), e);
+    }
+  }
+}
+
@@ -0,0 +1,28 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.Transfer;
+import com.finances.core.repository.TransferJournal;
+import java.util.ArrayList;
+import java.util.List;
+
+/** In-memory implementation of the TransferJournal. */
+public class InMemoryTransferJournal implements TransferJournal {
+  private final List<Transfer> transfers = new ArrayList<>();
+
+  @Override
+  public synchronized void append(Transfer transfer) {
+    transfers.add(transfer);
+  }
+
+  @Override
+  public synchronized List<Transfer> findByUserId(String userId) {
+    List<Transfer> result = new ArrayList<>();
+    for (Transfer transfer : transfers) {
+      if (transfer.getFromUserId().equals(userId) || transfer.getToUserId().equals(userId)) {
+        result.add(transfer);
+      }
+    }
+    return result;
+  }
+}
+
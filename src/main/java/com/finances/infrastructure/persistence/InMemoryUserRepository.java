@@ -2,13 +2,13 @@ package com.finances.infrastructure.persistence;
 
 import com.finances.core.domain.User;
 import com.finances.core.repository.UserRepository;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** In-memory implementation of the UserRepository. */
 public class InMemoryUserRepository implements UserRepository {
-  private final Map<String, User> users = new HashMap<>();
+  private final Map<String, User> users = new ConcurrentHashMap<>();
 
   @Override
   public void save(User user) {
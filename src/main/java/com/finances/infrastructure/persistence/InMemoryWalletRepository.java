@@ -2,13 +2,13 @@ package com.finances.infrastructure.persistence;
 
 import com.finances.core.domain.Wallet;
 import com.finances.core.repository.WalletRepository;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** In-memory implementation of the WalletRepository. */
 public class InMemoryWalletRepository implements WalletRepository {
-  private final Map<String, Wallet> wallets = new HashMap<>();
+  private final Map<String, Wallet> wallets = new ConcurrentHashMap<>();
 
   @Override
   public void save(Wallet wallet) {
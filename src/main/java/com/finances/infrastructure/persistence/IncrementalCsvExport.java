@@ -0,0 +1,280 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.WalletSnapshot;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * CSV export that appends only the transactions added since the previous export.
+ *
+ * <p>A sidecar file {@code <export>.hwm} records the high-water mark: how many transactions of the
+ * wallet were exported, the id of the last one, and the offset, length and CRC32 of the segments
+ * written to the export file. An appended run extends the last segment, with the checksums
+ * combined, so the mark stays the same size however many times the export is resumed. Because
+ * wallet transactions are append-only, an export resumes at the recorded position. Before
+ * appending, the export file length, the last exported id and the CSV header are checked; if any
+ * does not match, or the mark is missing, the file is rewritten in full. {@link #verify} re-reads
+ * the file and checks every segment checksum.
+ */
+public class IncrementalCsvExport {
+  private static final String MARK_SUFFIX = ".hwm";
+
+  private final StreamingExporter exporter;
+  private final Gson gson = new Gson();
+
+  public IncrementalCsvExport(StreamingExporter exporter) {
+    this.exporter = exporter;
+  }
+
+  /**
+   * Exports the transactions not yet in the file.
+   *
+   * @param snapshot the wallet snapshot
+   * @param output the CSV file
+   * @param full true to rewrite the file from scratch
+   * @return what was written
+   * @throws IOException if an I/O error occurs
+   */
+  public Result export(WalletSnapshot snapshot, Path output, boolean full) throws IOException {
+    Mark mark = full ? null : readMark(output);
+    if (mark != null && !canAppend(mark, snapshot, output)) {
+      mark = null;
+    }
+    boolean rewrite = mark == null;
+    if (rewrite) {
+      mark = new Mark();
+      mark.userId = snapshot.getUserId();
+      mark.header = StreamingExporter.CSV_HEADER;
+    }
+
+    int from = mark.count;
+    CRC32 crc = new CRC32();
+    long offset = mark.length;
+    long written = exporter.writeCsv(snapshot, output, from, !rewrite, crc);
+
+    int count = snapshot.getTransactionCount();
+    mark.count = count;
+    mark.lastId = count == 0 ? null : snapshot.getTransactions().get(count - 1).getId();
+    mark.length = offset + written;
+    if (written > 0) {
+      Segment last = mark.segments.isEmpty() ? null : mark.segments.get(mark.segments.size() - 1);
+      if (last != null && last.offset + last.length == offset) {
+        // Adjacent runs share one segment, so the mark does not grow with every export
+        last.crc = combineCrc(last.crc, crc.getValue(), written);
+        last.length += written;
+      } else {
+        mark.segments.add(new Segment(offset, written, crc.getValue()));
+      }
+    }
+    writeMark(output, mark);
+    return new Result(count - from, count, rewrite);
+  }
+
+  /**
+   * Checks an export file against its high-water mark.
+   *
+   * @param output the CSV file
+   * @return true if the file has the recorded length and every segment matches its checksum
+   * @throws IOException if the file cannot be read
+   */
+  public boolean verify(Path output) throws IOException {
+    Mark mark = readMark(output);
+    if (mark == null || !Files.exists(output) || Files.size(output) != mark.length) {
+      return false;
+    }
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = Files.newInputStream(output)) {
+      long position = 0;
+      for (Segment segment : mark.segments) {
+        if (segment.offset != position) {
+          return false;
+        }
+        CRC32 crc = new CRC32();
+        long remaining = segment.length;
+        while (remaining > 0) {
+          int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+          if (n < 0) {
+            return false;
+          }
+          crc.update(buffer, 0, n);
+          remaining -= n;
+        }
+        if (crc.getValue() != segment.crc) {
+          return false;
+        }
+        position += segment.length;
+      }
+      return position == mark.length;
+    }
+  }
+
+  /**
+   * Gets the high-water mark file of an export.
+   *
+   * @param output the CSV file
+   * @return the sidecar path
+   */
+  public static Path markPath(Path output) {
+    return output.resolveSibling(output.getFileName() + MARK_SUFFIX);
+  }
+
+  private static boolean canAppend(Mark mark, WalletSnapshot snapshot, Path output)
+      throws IOException {
+    if (!snapshot.getUserId().equals(mark.userId)
+        || !StreamingExporter.CSV_HEADER.equals(mark.header)
+        || mark.count > snapshot.getTransactionCount()
+        || !Files.exists(output)
+        || Files.size(output) != mark.length) {
+      return false;
+    }
+    if (mark.count == 0) {
+      return mark.length > 0;
+    }
+    Transaction last = snapshot.getTransactions().get(mark.count - 1);
+    return last.getId().equals(mark.lastId);
+  }
+
+  /**
+   * Computes the CRC32 of two byte ranges written one after the other from the CRC32 of each, as
+   * zlib's {@code crc32_combine} does: the first checksum is advanced over {@code length2} zero
+   * bytes by repeated squaring of the CRC shift operator.
+   */
+  static long combineCrc(long crc1, long crc2, long length2) {
+    if (length2 <= 0) {
+      return crc1;
+    }
+    long[] even = new long[32];
+    long[] odd = new long[32];
+    // Operator for one zero bit
+    odd[0] = 0xEDB88320L;
+    long row = 1;
+    for (int n = 1; n < 32; n++) {
+      odd[n] = row;
+      row <<= 1;
+    }
+    square(even, odd);
+    square(odd, even);
+    long crc = crc1;
+    do {
+      square(even, odd);
+      if ((length2 & 1) != 0) {
+        crc = times(even, crc);
+      }
+      length2 >>= 1;
+      if (length2 == 0) {
+        break;
+      }
+      square(odd, even);
+      if ((length2 & 1) != 0) {
+        crc = times(odd, crc);
+      }
+      length2 >>= 1;
+    } while (length2 != 0);
+    return crc ^ crc2;
+  }
+
+  private static long times(long[] matrix, long vector) {
+    long sum = 0;
+    for (int i = 0; vector != 0; i++, vector >>>= 1) {
+      if ((vector & 1) != 0) {
+        sum ^= matrix[i];
+      }
+    }
+    return sum;
+  }
+
+  private static void square(long[] square, long[] matrix) {
+    for (int n = 0; n < 32; n++) {
+      square[n] = times(matrix, matrix[n]);
+    }
+  }
+
+  private Mark readMark(Path output) throws IOException {
+    Path path = markPath(output);
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      Mark mark = gson.fromJson(reader, Mark.class);
+      return mark == null || mark.segments == null ? null : mark;
+    } catch (JsonParseException e) {
+      return null;
+    }
+  }
+
+  private void writeMark(Path output, Mark mark) throws IOException {
+    Path path = markPath(output);
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      gson.toJson(mark, writer);
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Outcome of an incremental export. */
+  public static class Result {
+    private final int appendedCount;
+    private final int totalCount;
+    private final boolean fullExport;
+
+    public Result(int appendedCount, int totalCount, boolean fullExport) {
+      this.appendedCount = appendedCount;
+      this.totalCount = totalCount;
+      this.fullExport = fullExport;
+    }
+
+    public int getAppendedCount() {
+      return appendedCount;
+    }
+
+    public int getTotalCount() {
+      return totalCount;
+    }
+
+    /**
+     * Tells whether the file was rewritten from scratch.
+     *
+     * @return true for a full export, false if rows were appended
+     */
+    public boolean isFullExport() {
+      return fullExport;
+    }
+  }
+
+  /** Persisted high-water mark; serialized with Gson. */
+  private static final class Mark {
+    private String userId;
+    // Rows are appended only under the same columns; null in marks written before currencies
+    private String header;
+    private int count;
+    private String lastId;
+    private long length;
+    private List<Segment> segments = new ArrayList<>();
+  }
+
+  /** Byte range written by one or more consecutive export runs. */
+  private static final class Segment {
+    private long offset;
+    private long length;
+    private long crc;
+
+    private Segment(long offset, long length, long crc) {
+      this.offset = offset;
+      this.length = length;
+      this.crc = crc;
+    }
+  }
+}
+
@@ -0,0 +1,289 @@
+package com.finances.infrastructure.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secondary index sidecars of a sharded wallet.
+ *
+ * <p>Two kinds of append-only files live next to the segments:
+ *
+ * <ul>
+ *   <li>{@code cat-<id>.idx} - posting list of one category, in insertion order
+ *   <li>{@code time.idx} - blocks of entries sorted by timestamp; each save appends one block with
+ *       a header holding the entry count and the block's time range
+ * </ul>
+ *
+ * <p>Every entry locates one record (segment month, byte offset and length) and carries its
+ * position, type and timestamp, so filters are applied to the index before any record is read. The
+ * valid length of each file is kept in the wallet manifest as {@link State}; bytes past it are
+ * ignored by readers and truncated before the next append.
+ */
+final class ShardIndex {
+  static final int ENTRY_SIZE = 25;
+  private static final int BLOCK_HEADER_SIZE = Integer.BYTES + 2 * Long.BYTES;
+  private static final int MAX_TIME_BLOCKS = 64;
+  private static final String TIME_INDEX = "time.idx";
+  private static final String INDEX_SUFFIX = ".idx";
+
+  private ShardIndex() {}
+
+  /** Index part of the manifest; serialized with Gson. */
+  static final class State {
+    private List<String> categories = new ArrayList<>();
+    private List<Long> postingLengths = new ArrayList<>();
+    private long timeIndexLength;
+    private int timeIndexBlocks;
+
+    int categoryId(String category) {
+      return categories.indexOf(category);
+    }
+  }
+
+  /** Location and filter fields of one record. */
+  static final class Entry {
+    final int position;
+    final String month;
+    final int offset;
+    final int length;
+    final long second;
+    final byte type;
+
+    Entry(int position, String month, int offset, int length, long second, byte type) {
+      this.position = position;
+      this.month = month;
+      this.offset = offset;
+      this.length = length;
+      this.second = second;
+      this.type = type;
+    }
+  }
+
+  /**
+   * Appends entries of newly written records to the category and time indexes.
+   *
+   * @param directory the wallet directory
+   * @param state the index state from the manifest; updated in place
+   * @param entries the new entries, in insertion order
+   * @param categories the category of each entry
+   * @throws IOException if an I/O error occurs
+   */
+  static void append(Path directory, State state, List<Entry> entries, List<String> categories)
+      throws IOException {
+    if (entries.isEmpty()) {
+      return;
+    }
+    Map<Integer, ByteArrayOutputStream> postings = new HashMap<>();
+    for (int i = 0; i < entries.size(); i++) {
+      int id = state.categoryId(categories.get(i));
+      if (id < 0) {
+        id = state.categories.size();
+        state.categories.add(categories.get(i));
+        state.postingLengths.add(0L);
+      }
+      write(postings.computeIfAbsent(id, key -> new ByteArrayOutputStream()), entries.get(i));
+    }
+    for (Map.Entry<Integer, ByteArrayOutputStream> posting : postings.entrySet()) {
+      int id = posting.getKey();
+      long length = state.postingLengths.get(id);
+      appendAt(postingPath(directory, id), length, posting.getValue().toByteArray());
+      state.postingLengths.set(id, length + posting.getValue().size());
+    }
+
+    List<Entry> sorted = new ArrayList<>(entries);
+    if (state.timeIndexBlocks >= MAX_TIME_BLOCKS) {
+      // Merge all blocks into one so range queries keep a bounded number of blocks to search
+      sorted.addAll(readTimeEntries(directory, state, Long.MIN_VALUE, Long.MAX_VALUE));
+      state.timeIndexLength = 0;
+      state.timeIndexBlocks = 0;
+    }
+    sorted.sort(Comparator.comparingLong((Entry entry) -> entry.second));
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(block);
+    out.writeInt(sorted.size());
+    out.writeLong(sorted.get(0).second);
+    out.writeLong(sorted.get(sorted.size() - 1).second);
+    for (Entry entry : sorted) {
+      write(block, entry);
+    }
+    appendAt(directory.resolve(TIME_INDEX), state.timeIndexLength, block.toByteArray());
+    state.timeIndexLength += block.size();
+    state.timeIndexBlocks++;
+  }
+
+  /**
+   * Reads the posting list of a category.
+   *
+   * @param directory the wallet directory
+   * @param state the index state from the manifest
+   * @param category the category
+   * @return the entries in insertion order, empty if the category is unknown
+   * @throws IOException if the posting file cannot be read
+   */
+  static List<Entry> readPostings(Path directory, State state, String category) throws IOException {
+    int id = state.categoryId(category);
+    if (id < 0) {
+      return new ArrayList<>();
+    }
+    long length = state.postingLengths.get(id);
+    List<Entry> entries = new ArrayList<>((int) (length / ENTRY_SIZE));
+    Map<Integer, String> monthNames = new HashMap<>();
+    try (FileChannel channel = FileChannel.open(postingPath(directory, id))) {
+      ByteBuffer buffer = readAt(channel, 0, (int) length);
+      while (buffer.hasRemaining()) {
+        entries.add(read(buffer, monthNames));
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Reads the entries with a timestamp in a range, skipping blocks outside it and binary searching
+   * the others.
+   *
+   * @param directory the wallet directory
+   * @param state the index state from the manifest
+   * @param fromSecond the start, inclusive
+   * @param toSecond the end, exclusive
+   * @return the matching entries in no particular order
+   * @throws IOException if the index cannot be read
+   */
+  static List<Entry> readTimeEntries(Path directory, State state, long fromSecond, long toSecond)
+      throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    if (state.timeIndexLength == 0) {
+      return entries;
+    }
+    Map<Integer, String> monthNames = new HashMap<>();
+    try (FileChannel channel = FileChannel.open(directory.resolve(TIME_INDEX))) {
+      long position = 0;
+      while (position < state.timeIndexLength) {
+        ByteBuffer header = readAt(channel, position, BLOCK_HEADER_SIZE);
+        int count = header.getInt();
+        long min = header.getLong();
+        long max = header.getLong();
+        long body = position + BLOCK_HEADER_SIZE;
+        position = body + (long) count * ENTRY_SIZE;
+        if (max < fromSecond || min >= toSecond) {
+          continue;
+        }
+        int first = lowerBound(channel, body, count, fromSecond);
+        int last = lowerBound(channel, body, count, toSecond);
+        if (first < last) {
+          ByteBuffer buffer =
+              readAt(channel, body + (long) first * ENTRY_SIZE, (last - first) * ENTRY_SIZE);
+          while (buffer.hasRemaining()) {
+            entries.add(read(buffer, monthNames));
+          }
+        }
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Deletes all index files of a wallet.
+   *
+   * @param directory the wallet directory
+   * @throws IOException if a file cannot be deleted
+   */
+  static void delete(Path directory) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + INDEX_SUFFIX)) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  private static int lowerBound(FileChannel channel, long body, int count, long second)
+      throws IOException {
+    int low = 0;
+    int high = count;
+    ByteBuffer key = ByteBuffer.allocate(Long.BYTES);
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      key.clear();
+      // The timestamp is the fifth field of an entry
+      long keyPosition = body + (long) mid * ENTRY_SIZE + 3 * Integer.BYTES + Integer.BYTES;
+      while (key.hasRemaining()) {
+        if (channel.read(key, keyPosition + key.position()) < 0) {
+          throw new IOException("Truncated time index");
+        }
+      }
+      if (key.flip().getLong() < second) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static void write(ByteArrayOutputStream bytes, Entry entry) {
+    ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE);
+    buffer.putInt(entry.position);
+    buffer.putInt(monthKey(entry.month));
+    buffer.putInt(entry.offset);
+    buffer.putInt(entry.length);
+    buffer.putLong(entry.second);
+    buffer.put(entry.type);
+    bytes.write(buffer.array(), 0, ENTRY_SIZE);
+  }
+
+  private static Entry read(ByteBuffer buffer, Map<Integer, String> monthNames) {
+    int position = buffer.getInt();
+    int month = buffer.getInt();
+    int offset = buffer.getInt();
+    int length = buffer.getInt();
+    long second = buffer.getLong();
+    byte type = buffer.get();
+    String monthName =
+        monthNames.computeIfAbsent(month, key -> String.format("%04d-%02d", key / 100, key % 100));
+    return new Entry(position, monthName, offset, length, second, type);
+  }
+
+  private static int monthKey(String month) {
+    return Integer.parseInt(month.substring(0, month.length() - 3)) * 100
+        + Integer.parseInt(month.substring(month.length() - 2));
+  }
+
+  private static Path postingPath(Path directory, int id) {
+    return directory.resolve("cat-" + id + INDEX_SUFFIX);
+  }
+
+  private static void appendAt(Path file, long validLength, byte[] bytes) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      channel.truncate(validLength);
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      long position = validLength;
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      channel.force(false);
+    }
+  }
+
+  static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file at " + (position + buffer.position()));
+      }
+    }
+    return buffer.flip();
+  }
+}
+
@@ -0,0 +1,699 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.Budget;
+import com.finances.core.domain.BudgetPeriod;
+import com.finances.core.domain.CurrencyCode;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionHistory;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.finances.core.domain.WalletSnapshot;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time-partitioned wallet storage.
+ *
+ * <p>Each wallet is a directory {@code <user>.shards} with one segment file per calendar month
+ * ({@code 2024-03.seg}) and a small {@code manifest.json}. Segments hold {@link TransactionCodec}
+ * records, each prefixed with the transaction's position in the wallet so insertion order survives
+ * partitioning. The manifest holds the budgets, running totals and per-category sums, the
+ * currencies of the stored transactions, the id of the last stored transaction and the record count
+ * and byte length of every segment.
+ *
+ * <p>{@link #load} reads only the manifest and returns a wallet whose {@link TransactionHistory}
+ * faults segments in when a query touches their months. {@link #save} appends the transactions
+ * added since the last save to their month segments and rewrites the manifest last, so a crash
+ * mid-save leaves the previous manifest valid; bytes past a segment's recorded length are discarded
+ * on the next append. If the wallet no longer continues the stored history, every segment is
+ * rewritten.
+ *
+ * <p>Each save also appends the new records to the {@link ShardIndex} sidecars: a posting list per
+ * category and sorted timestamp blocks. {@link #find} filters on the index alone and then reads
+ * just the matching records with positioned reads, without decoding whole segments. A manifest
+ * written before the index existed gets its index rebuilt from the segments on the next save.
+ *
+ * <p>Idempotency keys are also appended to {@code idempotency.keys} with the position of their
+ * transaction, so a loaded wallet can check retried adds against its history without decoding any
+ * segment.
+ */
+public class ShardedWalletStore {
+  /** Suffix of the per-wallet directory. */
+  public static final String DIRECTORY_SUFFIX = ".shards";
+
+  private static final String MANIFEST = "manifest.json";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String KEYS = "idempotency.keys";
+  private static final int READ_GAP = 4096;
+
+  private final Path storageDirectory;
+  private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+  public ShardedWalletStore(Path storageDirectory) {
+    this.storageDirectory = storageDirectory;
+  }
+
+  /**
+   * Checks if a sharded wallet exists.
+   *
+   * @param userId the user ID
+   * @return true if the wallet has a manifest
+   */
+  public boolean exists(String userId) {
+    return Files.exists(walletDirectory(userId).resolve(MANIFEST));
+  }
+
+  /**
+   * Loads a wallet by reading only its manifest.
+   *
+   * @param userId the user ID
+   * @return the wallet; its history is loaded lazily
+   * @throws IOException if the manifest cannot be read
+   */
+  public Wallet load(String userId) throws IOException {
+    Path directory = walletDirectory(userId);
+    Manifest manifest = readManifest(directory);
+    if (manifest == null) {
+      return new Wallet(userId);
+    }
+    Wallet wallet = new Wallet(userId, new ShardedHistory(directory, manifest));
+    for (Map.Entry<String, Double> budget : manifest.budgets.entrySet()) {
+      String period =
+          manifest.budgetPeriods == null ? null : manifest.budgetPeriods.get(budget.getKey());
+      String currency =
+          manifest.budgetCurrencies == null ? null : manifest.budgetCurrencies.get(budget.getKey());
+      wallet.setBudget(
+          budget.getKey(),
+          budget.getValue(),
+          period == null ? null : BudgetPeriod.parse(period),
+          currency);
+    }
+    return wallet;
+  }
+
+  /**
+   * Opens the history of a stored wallet without building a wallet.
+   *
+   * @param directory the wallet directory
+   * @return the lazily loaded history
+   * @throws IOException if the manifest is missing or cannot be read
+   */
+  public static TransactionHistory openHistory(Path directory) throws IOException {
+    Manifest manifest = readManifest(directory);
+    if (manifest == null) {
+      throw new IOException("Missing manifest: " + directory);
+    }
+    return new ShardedHistory(directory, manifest);
+  }
+
+  /**
+   * Saves a wallet, appending only the transactions added since the last save.
+   *
+   * @param snapshot the wallet snapshot
+   * @throws IOException if an I/O error occurs
+   */
+  public void save(WalletSnapshot snapshot) throws IOException {
+    Path directory = walletDirectory(snapshot.getUserId());
+    Files.createDirectories(directory);
+    Manifest manifest = readManifest(directory);
+    List<Transaction> transactions = snapshot.getTransactions();
+    int total = snapshot.getTransactionCount();
+
+    if (manifest == null || !continuesHistory(manifest, snapshot, transactions)) {
+      deleteSegments(directory);
+      ShardIndex.delete(directory);
+      Files.deleteIfExists(directory.resolve(KEYS));
+      manifest = new Manifest();
+      manifest.userId = snapshot.getUserId();
+    }
+
+    if (manifest.currencies == null) {
+      manifest.currencies = new TreeSet<>();
+      if (manifest.count > 0) {
+        manifest.currencies.add(CurrencyCode.DEFAULT);
+      }
+    }
+    List<ShardIndex.Entry> indexEntries = new ArrayList<>();
+    List<String> indexCategories = new ArrayList<>();
+    if (manifest.index == null) {
+      ShardIndex.delete(directory);
+      manifest.index = new ShardIndex.State();
+      for (Map.Entry<String, SegmentInfo> segment : manifest.segments.entrySet()) {
+        indexSegment(
+            directory, segment.getKey(), segment.getValue(), indexEntries, indexCategories);
+      }
+    }
+
+    Map<String, ByteArrayOutputStream> appended = new TreeMap<>();
+    Map<String, Integer> appendedCounts = new HashMap<>();
+    ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+    DataOutputStream keyOut = new DataOutputStream(keyBytes);
+    int keyCount = 0;
+    for (int i = manifest.count; i < total; i++) {
+      Transaction transaction = transactions.get(i);
+      String month = YearMonth.from(transaction.getTimestamp()).toString();
+      ByteArrayOutputStream bytes =
+          appended.computeIfAbsent(month, key -> new ByteArrayOutputStream());
+      SegmentInfo existing = manifest.segments.get(month);
+      long base = existing == null ? 0 : existing.length;
+      int start = bytes.size();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(i);
+      TransactionCodec.write(out, transaction);
+      indexEntries.add(
+          new ShardIndex.Entry(
+              i,
+              month,
+              (int) (base + start),
+              bytes.size() - start,
+              TransactionCodec.epochSecond(transaction.getTimestamp()),
+              (byte) transaction.getType().ordinal()));
+      indexCategories.add(transaction.getCategory());
+      appendedCounts.merge(month, 1, Integer::sum);
+      manifest.currencies.add(transaction.getCurrency());
+      if (transaction.getIdempotencyKey() != null) {
+        keyOut.writeInt(i);
+        TransactionCodec.writeString(keyOut, transaction.getIdempotencyKey());
+        keyCount++;
+      }
+      if (transaction.getType() == TransactionType.INCOME) {
+        manifest.totalIncome += transaction.getAmount();
+        manifest.incomeByCategory.merge(
+            transaction.getCategory(), transaction.getAmount(), Double::sum);
+      } else {
+        manifest.totalExpense += transaction.getAmount();
+        manifest.expenseByCategory.merge(
+            transaction.getCategory(), transaction.getAmount(), Double::sum);
+      }
+    }
+
+    for (Map.Entry<String, ByteArrayOutputStream> entry : appended.entrySet()) {
+      SegmentInfo segment =
+          manifest.segments.computeIfAbsent(entry.getKey(), key -> new SegmentInfo());
+      append(directory.resolve(entry.getKey() + SEGMENT_SUFFIX), segment, entry.getValue());
+      segment.count += appendedCounts.get(entry.getKey());
+    }
+    if (keyCount > 0) {
+      if (manifest.keys == null) {
+        manifest.keys = new SegmentInfo();
+      }
+      append(directory.resolve(KEYS), manifest.keys, keyBytes);
+      manifest.keys.count += keyCount;
+    }
+    ShardIndex.append(directory, manifest.index, indexEntries, indexCategories);
+
+    manifest.count = total;
+    manifest.lastId = total == 0 ? null : transactions.get(total - 1).getId();
+    manifest.budgets = new LinkedHashMap<>();
+    manifest.budgetPeriods = new LinkedHashMap<>();
+    manifest.budgetCurrencies = null;
+    for (Map.Entry<String, Budget> budget : snapshot.getAllBudgets().entrySet()) {
+      manifest.budgets.put(budget.getKey(), budget.getValue().getLimit());
+      if (budget.getValue().getPeriod() != null) {
+        manifest.budgetPeriods.put(budget.getKey(), budget.getValue().getPeriod().format());
+      }
+      if (!budget.getValue().getCurrency().equals(CurrencyCode.DEFAULT)) {
+        if (manifest.budgetCurrencies == null) {
+          manifest.budgetCurrencies = new LinkedHashMap<>();
+        }
+        manifest.budgetCurrencies.put(budget.getKey(), budget.getValue().getCurrency());
+      }
+    }
+    writeManifest(directory, manifest);
+  }
+
+  /**
+   * Finds stored transactions through the index, reading only the matching records.
+   *
+   * <p>A category restricts the lookup to its posting list; otherwise the timestamp index is range
+   * searched. Transactions added after the last save are not included.
+   *
+   * @param userId the user ID
+   * @param type the transaction type, or null for any
+   * @param category the category, or null for any
+   * @param from the start, inclusive, or null for unbounded
+   * @param to the end, exclusive, or null for unbounded
+   * @return the matching transactions in insertion order, empty if the wallet is not stored
+   * @throws IOException if the index or a segment cannot be read
+   */
+  public List<Transaction> find(
+      String userId, TransactionType type, String category, LocalDateTime from, LocalDateTime to)
+      throws IOException {
+    Path directory = walletDirectory(userId);
+    Manifest manifest = readManifest(directory);
+    if (manifest == null) {
+      return new ArrayList<>();
+    }
+    if (manifest.index == null) {
+      // Written before the index existed; a save rebuilds it
+      save(load(userId).snapshot());
+      manifest = readManifest(directory);
+    }
+    long fromSecond = from == null ? Long.MIN_VALUE : TransactionCodec.epochSecond(from);
+    long toSecond = to == null ? Long.MAX_VALUE : TransactionCodec.epochSecond(to);
+    if (to != null && to.getNano() > 0) {
+      // Keep records in the last, partial second; they are filtered exactly after decoding
+      toSecond++;
+    }
+    List<ShardIndex.Entry> entries =
+        category == null
+            ? ShardIndex.readTimeEntries(directory, manifest.index, fromSecond, toSecond)
+            : ShardIndex.readPostings(directory, manifest.index, category);
+
+    List<ShardIndex.Entry> matching = new ArrayList<>();
+    for (ShardIndex.Entry entry : entries) {
+      if ((type == null || entry.type == type.ordinal())
+          && entry.second >= fromSecond
+          && entry.second < toSecond) {
+        matching.add(entry);
+      }
+    }
+    matching.sort(Comparator.comparingInt((ShardIndex.Entry entry) -> entry.position));
+
+    Transaction[] records = new Transaction[matching.size()];
+    Map<String, List<Integer>> byMonth = new TreeMap<>();
+    for (int i = 0; i < matching.size(); i++) {
+      byMonth.computeIfAbsent(matching.get(i).month, key -> new ArrayList<>()).add(i);
+    }
+    for (Map.Entry<String, List<Integer>> month : byMonth.entrySet()) {
+      readRecords(
+          directory.resolve(month.getKey() + SEGMENT_SUFFIX), matching, month.getValue(), records);
+    }
+
+    List<Transaction> result = new ArrayList<>(records.length);
+    for (Transaction transaction : records) {
+      LocalDateTime timestamp = transaction.getTimestamp();
+      if ((from == null || !timestamp.isBefore(from)) && (to == null || timestamp.isBefore(to))) {
+        result.add(transaction);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the records of one segment. Records closer than {@link #READ_GAP} bytes apart are fetched
+   * with a single positioned read.
+   */
+  private static void readRecords(
+      Path segment, List<ShardIndex.Entry> entries, List<Integer> indexes, Transaction[] records)
+      throws IOException {
+    indexes.sort(Comparator.comparingInt(index -> entries.get(index).offset));
+    try (FileChannel channel = FileChannel.open(segment)) {
+      int first = 0;
+      while (first < indexes.size()) {
+        int start = entries.get(indexes.get(first)).offset;
+        int end = start + entries.get(indexes.get(first)).length;
+        int last = first + 1;
+        while (last < indexes.size() && entries.get(indexes.get(last)).offset - end <= READ_GAP) {
+          ShardIndex.Entry entry = entries.get(indexes.get(last));
+          end = Math.max(end, entry.offset + entry.length);
+          last++;
+        }
+        byte[] run = ShardIndex.readAt(channel, start, end - start).array();
+        for (int i = first; i < last; i++) {
+          ShardIndex.Entry entry = entries.get(indexes.get(i));
+          // Skip the position prefix; the index already holds it
+          DataInputStream in =
+              new DataInputStream(
+                  new ByteArrayInputStream(
+                      run, entry.offset - start + Integer.BYTES, entry.length - Integer.BYTES));
+          records[indexes.get(i)] = TransactionCodec.read(in);
+        }
+        first = last;
+      }
+    }
+  }
+
+  /**
+   * Deletes a sharded wallet.
+   *
+   * @param userId the user ID
+   * @return true if anything was deleted
+   */
+  public boolean delete(String userId) {
+    Path directory = walletDirectory(userId);
+    if (!Files.isDirectory(directory)) {
+      return false;
+    }
+    try {
+      deleteSegments(directory);
+      ShardIndex.delete(directory);
+      Files.deleteIfExists(directory.resolve(KEYS));
+      Files.deleteIfExists(directory.resolve(MANIFEST));
+      Files.deleteIfExists(directory);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private Path walletDirectory(String userId) {
+    return storageDirectory.resolve(userId + DIRECTORY_SUFFIX);
+  }
+
+  private static boolean continuesHistory(
+      Manifest manifest, WalletSnapshot snapshot, List<Transaction> transactions) {
+    if (manifest.count > snapshot.getTransactionCount()) {
+      return false;
+    }
+    if (manifest.count == 0) {
+      return true;
+    }
+    // Avoid faulting in the history just to compare the last stored id
+    if (snapshot.getHistory() instanceof ShardedHistory history
+        && history.size() == manifest.count) {
+      return manifest.lastId.equals(history.lastId);
+    }
+    return transactions.get(manifest.count - 1).getId().equals(manifest.lastId);
+  }
+
+  /** Appends bytes after the recorded length of a file, dropping anything a failed save left. */
+  private static void append(Path file, SegmentInfo info, ByteArrayOutputStream appended)
+      throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      channel.truncate(info.length);
+      channel.position(info.length);
+      ByteBuffer bytes = ByteBuffer.wrap(appended.toByteArray());
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      channel.force(false);
+    }
+    info.length += appended.size();
+  }
+
+  private static void deleteSegments(Path directory) throws IOException {
+    try (DirectoryStream<Path> segments =
+        Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+      for (Path segment : segments) {
+        Files.delete(segment);
+      }
+    }
+  }
+
+  private static void indexSegment(
+      Path directory,
+      String month,
+      SegmentInfo info,
+      List<ShardIndex.Entry> entries,
+      List<String> categories)
+      throws IOException {
+    byte[] bytes = Files.readAllBytes(directory.resolve(month + SEGMENT_SUFFIX));
+    if (bytes.length < info.length) {
+      throw new IOException("Truncated segment: " + month);
+    }
+    ByteArrayInputStream stream = new ByteArrayInputStream(bytes, 0, (int) info.length);
+    DataInputStream in = new DataInputStream(stream);
+    for (int i = 0; i < info.count; i++) {
+      int offset = (int) info.length - stream.available();
+      int position = in.readInt();
+      Transaction transaction = TransactionCodec.read(in);
+      entries.add(
+          new ShardIndex.Entry(
+              position,
+              month,
+              offset,
+              (int) info.length - stream.available() - offset,
+              TransactionCodec.epochSecond(transaction.getTimestamp()),
+              (byte) transaction.getType().ordinal()));
+      categories.add(transaction.getCategory());
+    }
+  }
+
+  private static Manifest readManifest(Path directory) throws IOException {
+    Path path = directory.resolve(MANIFEST);
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      Manifest manifest = new Gson().fromJson(reader, Manifest.class);
+      if (manifest == null || manifest.segments == null || manifest.count < 0) {
+        throw new IOException("Malformed manifest: " + path);
+      }
+      return manifest;
+    } catch (JsonParseException e) {
+      throw new IOException("Malformed manifest: " + path, e);
+    }
+  }
+
+  private void writeManifest(Path directory, Manifest manifest) throws IOException {
+    Path path = directory.resolve(MANIFEST);
+    Path temp = directory.resolve(MANIFEST + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      gson.toJson(manifest, writer);
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Manifest of a sharded wallet; serialized with Gson. */
+  private static final class Manifest {
+    private String userId;
+    private int count;
+    private String lastId;
+    private double totalIncome;
+    private double totalExpense;
+    private Map<String, Double> incomeByCategory = new HashMap<>();
+    private Map<String, Double> expenseByCategory = new HashMap<>();
+    private Map<String, Double> budgets = new LinkedHashMap<>();
+    // Null in manifests written before budget periods existed
+    private Map<String, String> budgetPeriods;
+    // Null unless a budget is in another currency than the default
+    private Map<String, String> budgetCurrencies;
+    // Null in manifests written before currencies, whose transactions all use the default one
+    private TreeSet<String> currencies;
+    private TreeMap<String, SegmentInfo> segments = new TreeMap<>();
+    // Null in manifests written before the index existed
+    private ShardIndex.State index;
+    // Null until a transaction with an idempotency key is saved
+    private SegmentInfo keys;
+  }
+
+  /** Record count and valid byte length of one month segment or of the key file. */
+  private static final class SegmentInfo {
+    private int count;
+    private long length;
+  }
+
+  /**
+   * History backed by the segments as they were when the manifest was read. Segments are read once
+   * and cached; records appended later are ignored.
+   */
+  private static final class ShardedHistory implements TransactionHistory {
+    private final Path directory;
+    private final int count;
+    private final String lastId;
+    private final double totalIncome;
+    private final double totalExpense;
+    private final Map<String, Double> incomeByCategory;
+    private final Map<String, Double> expenseByCategory;
+    private final TreeMap<String, SegmentInfo> segments;
+    private final SegmentInfo keys;
+    private final Set<String> currencies;
+    private final Map<String, Segment> loaded = new ConcurrentHashMap<>();
+    private volatile List<Transaction> all;
+
+    private ShardedHistory(Path directory, Manifest manifest) {
+      this.directory = directory;
+      this.count = manifest.count;
+      this.lastId = manifest.lastId;
+      this.totalIncome = manifest.totalIncome;
+      this.totalExpense = manifest.totalExpense;
+      this.incomeByCategory = Collections.unmodifiableMap(new HashMap<>(manifest.incomeByCategory));
+      this.expenseByCategory =
+          Collections.unmodifiableMap(new HashMap<>(manifest.expenseByCategory));
+      this.segments = new TreeMap<>(manifest.segments);
+      this.keys = manifest.keys;
+      if (manifest.currencies != null) {
+        this.currencies = Collections.unmodifiableSet(new TreeSet<>(manifest.currencies));
+      } else {
+        this.currencies = count > 0 ? Set.of(CurrencyCode.DEFAULT) : Set.of();
+      }
+    }
+
+    @Override
+    public int size() {
+      return count;
+    }
+
+    @Override
+    public double getTotalIncome() {
+      return totalIncome;
+    }
+
+    @Override
+    public double getTotalExpense() {
+      return totalExpense;
+    }
+
+    @Override
+    public Map<String, Double> getIncomeByCategory() {
+      return incomeByCategory;
+    }
+
+    @Override
+    public Map<String, Double> getExpenseByCategory() {
+      return expenseByCategory;
+    }
+
+    @Override
+    public List<Transaction> getTransactions() {
+      List<Transaction> result = all;
+      if (result == null) {
+        synchronized (this) {
+          result = all;
+          if (result == null) {
+            Transaction[] ordered = new Transaction[count];
+            for (String month : segments.keySet()) {
+              Segment segment = segment(month);
+              for (int i = 0; i < segment.positions.length; i++) {
+                ordered[segment.positions[i]] = segment.transactions[i];
+              }
+            }
+            for (Transaction transaction : ordered) {
+              if (transaction == null) {
+                throw new UncheckedIOException(
+                    new IOException("Missing records in segments: " + directory));
+              }
+            }
+            result = Collections.unmodifiableList(Arrays.asList(ordered));
+            all = result;
+          }
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+      if (!from.isBefore(to)) {
+        return Collections.emptyList();
+      }
+      String first = YearMonth.from(from).toString();
+      String last = YearMonth.from(to.minusNanos(1)).toString();
+      TreeMap<Integer, Transaction> matches = new TreeMap<>();
+      for (String month : segments.subMap(first, true, last, true).keySet()) {
+        Segment segment = segment(month);
+        for (int i = 0; i < segment.transactions.length; i++) {
+          LocalDateTime timestamp = segment.transactions[i].getTimestamp();
+          if (!timestamp.isBefore(from) && timestamp.isBefore(to)) {
+            matches.put(segment.positions[i], segment.transactions[i]);
+          }
+        }
+      }
+      return new ArrayList<>(matches.values());
+    }
+
+    @Override
+    public Set<String> getCurrencies() {
+      return currencies;
+    }
+
+    @Override
+    public Map<String, Integer> getIdempotencyKeys() {
+      Map<String, Integer> result = new HashMap<>();
+      if (keys == null) {
+        return result;
+      }
+      try {
+        byte[] bytes = read(directory.resolve(KEYS), keys.length);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        for (int i = 0; i < keys.count; i++) {
+          int position = in.readInt();
+          String key = TransactionCodec.readString(in);
+          if (position < 0 || position >= count) {
+            throw new IOException("Key position out of range in " + directory.resolve(KEYS));
+          }
+          result.putIfAbsent(key, position);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return result;
+    }
+
+    private Segment segment(String month) {
+      return loaded.computeIfAbsent(
+          month,
+          key -> {
+            try {
+              return readSegment(key, segments.get(key));
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    }
+
+    private Segment readSegment(String month, SegmentInfo info) throws IOException {
+      Path path = directory.resolve(month + SEGMENT_SUFFIX);
+      byte[] bytes = read(path, info.length);
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+      int[] positions = new int[info.count];
+      Transaction[] transactions = new Transaction[info.count];
+      for (int i = 0; i < info.count; i++) {
+        positions[i] = in.readInt();
+        if (positions[i] < 0 || positions[i] >= count) {
+          throw new IOException("Record position out of range in " + path);
+        }
+        transactions[i] = TransactionCodec.read(in);
+      }
+      return new Segment(positions, transactions);
+    }
+
+    private static byte[] read(Path path, long length) throws IOException {
+      byte[] bytes = new byte[(int) length];
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer) < 0) {
+            throw new IOException("Truncated file: " + path);
+          }
+        }
+      }
+      return bytes;
+    }
+  }
+
+  /** Decoded records of one segment. */
+  private static final class Segment {
+    private final int[] positions;
+    private final Transaction[] transactions;
+
+    private Segment(int[] positions, Transaction[] transactions) {
+      this.positions = positions;
+      this.transactions = transactions;
+    }
+  }
+}
+
@@ -0,0 +1,401 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.Budget;
+import com.finances.core.domain.CurrencyCode;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.WalletSnapshot;
+import com.finances.core.util.Formatting;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Checksum;
+
+/**
+ * Writes wallet exports without materializing the whole document.
+ *
+ * <p>Transactions are split into fixed-size chunks. Chunks are formatted on an executor into
+ * reusable UTF-8 byte buffers and written strictly in order through a {@link FileChannel}. At most
+ * {@code 2 * parallelism} chunks are in flight, so memory is bounded by the chunk size, not by the
+ * size of the wallet. Small wallets are formatted on the calling thread.
+ */
+public class StreamingExporter {
+  static final int DEFAULT_CHUNK_SIZE = 4096;
+  static final String CSV_HEADER = "Type,Category,Amount,Currency,Date,Description\n";
+
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final int chunkSize;
+
+  /** Creates an exporter that formats on the common fork-join pool. */
+  public StreamingExporter() {
+    this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates an exporter.
+   *
+   * @param executor the executor chunks are formatted on
+   * @param parallelism the number of chunks formatted concurrently
+   * @param chunkSize the number of transactions per chunk
+   */
+  public StreamingExporter(ExecutorService executor, int parallelism, int chunkSize) {
+    if (parallelism <= 0 || chunkSize <= 0) {
+      throw new IllegalArgumentException("Parallelism and chunk size must be positive");
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Exports a snapshot as RFC 4180 CSV.
+   *
+   * <p>Fields containing a comma, a double quote or a line break are quoted, with embedded quotes
+   * doubled. Amounts always use a dot as the decimal separator and are followed by their currency.
+   *
+   * @param snapshot the wallet snapshot
+   * @param output the output file
+   * @throws IOException if an I/O error occurs
+   */
+  public void exportCsv(WalletSnapshot snapshot, Path output) throws IOException {
+    export(
+        snapshot.getTransactions(),
+        0,
+        output,
+        false,
+        CSV_HEADER,
+        "",
+        StreamingExporter::formatCsvRow,
+        null);
+  }
+
+  /**
+   * Exports a snapshot as pretty-printed JSON with the same layout as the wallet files, so an
+   * export can be loaded back by {@link FileStorage}.
+   *
+   * @param snapshot the wallet snapshot
+   * @param output the output file
+   * @throws IOException if an I/O error occurs
+   */
+  public void exportJson(WalletSnapshot snapshot, Path output) throws IOException {
+    StringBuilder header = new StringBuilder();
+    header.append("{\n  \"userId\": ");
+    appendJsonString(header, snapshot.getUserId());
+    header.append(",\n  \"balance\": ").append(snapshot.getBalance());
+    header.append(",\n  \"totalIncome\": ").append(snapshot.getTotalIncome());
+    header.append(",\n  \"totalExpense\": ").append(snapshot.getTotalExpense());
+    header.append(",\n  \"transactions\": [");
+
+    List<Transaction> transactions = snapshot.getTransactions();
+    StringBuilder footer = new StringBuilder();
+    footer.append(transactions.isEmpty() ? "]" : "\n  ]");
+    Map<String, Budget> budgets = snapshot.getAllBudgets();
+    Map<String, String> periods = new LinkedHashMap<>();
+    Map<String, String> currencies = new LinkedHashMap<>();
+    footer.append(",\n  \"budgets\": {");
+    boolean first = true;
+    for (Map.Entry<String, Budget> entry : budgets.entrySet()) {
+      footer.append(first ? "\n    " : ",\n    ");
+      appendJsonString(footer, entry.getKey());
+      footer.append(": ").append(entry.getValue().getLimit());
+      first = false;
+      if (entry.getValue().getPeriod() != null) {
+        periods.put(entry.getKey(), entry.getValue().getPeriod().format());
+      }
+      if (!entry.getValue().getCurrency().equals(CurrencyCode.DEFAULT)) {
+        currencies.put(entry.getKey(), entry.getValue().getCurrency());
+      }
+    }
+    footer.append(first ? "}" : "\n  }");
+    // Written only when present, as FileStorage does
+    if (!periods.isEmpty()) {
+      footer.append(",\n  \"budgetPeriods\": ");
+      appendJsonObject(footer, periods);
+    }
+    if (!currencies.isEmpty()) {
+      footer.append(",\n  \"budgetCurrencies\": ");
+      appendJsonObject(footer, currencies);
+    }
+    footer.append("\n}");
+
+    export(
+        transactions,
+        0,
+        output,
+        false,
+        header.toString(),
+        footer.toString(),
+        StreamingExporter::formatJsonRow,
+        null);
+  }
+
+  /**
+   * Writes CSV rows for the transactions from the given position on.
+   *
+   * @param snapshot the wallet snapshot
+   * @param output the output file
+   * @param from the position of the first transaction to write
+   * @param append true to append rows to the file, false to replace it and start with a header
+   * @param checksum updated with every byte written
+   * @return the number of bytes written
+   * @throws IOException if an I/O error occurs
+   */
+  long writeCsv(WalletSnapshot snapshot, Path output, int from, boolean append, Checksum checksum)
+      throws IOException {
+    return export(
+        snapshot.getTransactions(),
+        from,
+        output,
+        append,
+        append ? "" : CSV_HEADER,
+        "",
+        StreamingExporter::formatCsvRow,
+        checksum);
+  }
+
+  private long export(
+      List<Transaction> transactions,
+      int start,
+      Path output,
+      boolean append,
+      String header,
+      String footer,
+      RowFormatter rowFormatter,
+      Checksum checksum)
+      throws IOException {
+    int chunkCount = (transactions.size() - start + chunkSize - 1) / chunkSize;
+    Deque<ChunkBuffer> freeBuffers = new ArrayDeque<>();
+    Deque<Future<ChunkBuffer>> inFlight = new ArrayDeque<>();
+    int window = 2 * parallelism;
+    long written = 0;
+
+    try (FileChannel channel =
+        FileChannel.open(
+            output,
+            StandardOpenOption.CREATE,
+            append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      written +=
+          writeFully(channel, ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8)), checksum);
+
+      if (chunkCount <= 1) {
+        ChunkBuffer buffer = new ChunkBuffer();
+        buffer.format(transactions, start, transactions.size(), rowFormatter);
+        written += writeFully(channel, buffer.bytes, checksum);
+      } else {
+        try {
+          for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (inFlight.size() == window) {
+              written += writeNext(channel, inFlight, freeBuffers, checksum);
+            }
+            ChunkBuffer buffer = freeBuffers.isEmpty() ? new ChunkBuffer() : freeBuffers.pop();
+            int from = start + chunk * chunkSize;
+            int to = Math.min(from + chunkSize, transactions.size());
+            inFlight.add(
+                executor.submit(() -> buffer.format(transactions, from, to, rowFormatter)));
+          }
+          while (!inFlight.isEmpty()) {
+            written += writeNext(channel, inFlight, freeBuffers, checksum);
+          }
+        } finally {
+          for (Future<ChunkBuffer> pending : inFlight) {
+            pending.cancel(true);
+          }
+        }
+      }
+
+      written +=
+          writeFully(channel, ByteBuffer.wrap(footer.getBytes(StandardCharsets.UTF_8)), checksum);
+    }
+    return written;
+  }
+
+  private static int writeNext(
+      FileChannel channel,
+      Deque<Future<ChunkBuffer>> inFlight,
+      Deque<ChunkBuffer> freeBuffers,
+      Checksum checksum)
+      throws IOException {
+    ChunkBuffer buffer;
+    try {
+      buffer = inFlight.poll().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Export interrupted");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to format export chunk", e.getCause());
+    }
+    int written = writeFully(channel, buffer.bytes, checksum);
+    freeBuffers.push(buffer);
+    return written;
+  }
+
+  private static int writeFully(FileChannel channel, ByteBuffer bytes, Checksum checksum)
+      throws IOException {
+    int length = bytes.remaining();
+    if (checksum != null) {
+      checksum.update(bytes.duplicate());
+    }
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+    return length;
+  }
+
+  private static void formatCsvRow(Transaction transaction, int index, ChunkBuffer out) {
+    StringBuilder text = out.text;
+    text.append(transaction.getType()).append(',');
+    appendCsvField(text, transaction.getCategory());
+    text.append(',');
+    Formatting.appendAmount(text, transaction.getAmount(), Locale.ROOT).append(',');
+    text.append(transaction.getCurrency()).append(',');
+    Formatting.appendDate(text, transaction.getTimestamp().toLocalDate()).append(',');
+    appendCsvField(text, transaction.getDescription());
+    text.append('\n');
+  }
+
+  private static void formatJsonRow(Transaction transaction, int index, ChunkBuffer out) {
+    StringBuilder text = out.text;
+    text.append(index == 0 ? "\n    {\n      \"id\": " : ",\n    {\n      \"id\": ");
+    appendJsonString(text, transaction.getId());
+    text.append(",\n      \"type\": \"").append(transaction.getType().name());
+    text.append("\",\n      \"category\": ");
+    appendJsonString(text, transaction.getCategory());
+    text.append(",\n      \"amount\": ").append(transaction.getAmount());
+    text.append(",\n      \"timestamp\": \"");
+    Formatting.appendTimestamp(text, transaction.getTimestamp());
+    text.append("\",\n      \"description\": ");
+    appendJsonString(text, transaction.getDescription());
+    if (transaction.getIdempotencyKey() != null) {
+      text.append(",\n      \"idempotencyKey\": ");
+      appendJsonString(text, transaction.getIdempotencyKey());
+    }
+    if (!transaction.getCurrency().equals(CurrencyCode.DEFAULT)) {
+      text.append(",\n      \"currency\": ");
+      appendJsonString(text, transaction.getCurrency());
+    }
+    if (transaction.getTransferId() != null) {
+      text.append(",\n      \"transferId\": ");
+      appendJsonString(text, transaction.getTransferId());
+    }
+    text.append("\n    }");
+  }
+
+  private static void appendJsonObject(StringBuilder out, Map<String, String> values) {
+    boolean first = true;
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      out.append(first ? "{\n    " : ",\n    ");
+      appendJsonString(out, entry.getKey());
+      out.append(": ");
+      appendJsonString(out, entry.getValue());
+      first = false;
+    }
+    out.append("\n  }");
+  }
+
+  static void appendCsvField(StringBuilder out, String value) {
+    boolean needsQuotes = false;
+    for (int i = 0; i < value.length() && !needsQuotes; i++) {
+      char c = value.charAt(i);
+      needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!needsQuotes) {
+      out.append(value);
+      return;
+    }
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') {
+        out.append('"');
+      }
+      out.append(c);
+    }
+    out.append('"');
+  }
+
+  static void appendJsonString(StringBuilder out, String value) {
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+            out.append(String.format("\\u%04x", (int) c));
+          } else {
+            out.append(c);
+          }
+      }
+    }
+    out.append('"');
+  }
+
+  /** Formats one transaction into a chunk. */
+  @FunctionalInterface
+  private interface RowFormatter {
+    void format(Transaction transaction, int index, ChunkBuffer out);
+  }
+
+  /** Reusable text and byte buffers for one chunk; used by one thread at a time. */
+  private static final class ChunkBuffer {
+    private final StringBuilder text = new StringBuilder();
+    private final CharsetEncoder encoder =
+        StandardCharsets.UTF_8
+            .newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes = ByteBuffer.allocate(0);
+
+    private ChunkBuffer format(
+        List<Transaction> transactions, int from, int to, RowFormatter rowFormatter) {
+      text.setLength(0);
+      for (int i = from; i < to; i++) {
+        rowFormatter.format(transactions.get(i), i, this);
+      }
+
+      int maxBytes = (int) (text.length() * (double) encoder.maxBytesPerChar());
+      if (bytes.capacity() < maxBytes) {
+        bytes = ByteBuffer.allocate(maxBytes);
+      }
+      bytes.clear();
+      encoder.reset();
+      encoder.encode(CharBuffer.wrap(text), bytes, true);
+      encoder.flush(bytes);
+      bytes.flip();
+      return this;
+    }
+  }
+}
+
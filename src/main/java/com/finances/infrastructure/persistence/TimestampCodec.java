@@ -0,0 +1,90 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.util.Formatting;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads and writes timestamps in the fixed 19-character {@code yyyy-MM-dd'T'HH:mm:ss} layout of the
+ * JSON wallet files.
+ *
+ * <p>Parsing reads the digits straight from the text and builds the timestamp with {@link
+ * LocalDateTime#of}, without the parsed-field maps and resolver steps of a {@link
+ * DateTimeFormatter}. Text that is not a valid timestamp in exactly that layout goes to the
+ * formatter instead. The result is therefore always the formatter's, including its smart resolution
+ * of values such as {@code 2024-02-30} or {@code 24:00:00} and its exceptions.
+ */
+public final class TimestampCodec {
+  /** Length of an encoded timestamp. */
+  public static final int LENGTH = 19;
+
+  private static final DateTimeFormatter FORMATTER =
+      DateTimeFormatter.ofPattern(Formatting.TIMESTAMP_PATTERN);
+
+  private TimestampCodec() {}
+
+  /**
+   * Writes a timestamp, dropping fractions of a second.
+   *
+   * @param timestamp the timestamp
+   * @return the encoded text
+   */
+  public static String format(LocalDateTime timestamp) {
+    return Formatting.appendTimestamp(new StringBuilder(LENGTH), timestamp).toString();
+  }
+
+  /**
+   * Reads a timestamp.
+   *
+   * @param text the encoded text
+   * @return the timestamp
+   * @throws DateTimeParseException if the text is not a timestamp in this layout
+   */
+  public static LocalDateTime parse(CharSequence text) {
+    if (text.length() == LENGTH
+        && text.charAt(4) == '-'
+        && text.charAt(7) == '-'
+        && text.charAt(10) == 'T'
+        && text.charAt(13) == ':'
+        && text.charAt(16) == ':') {
+      int year = digits(text, 0, 4);
+      int month = digits(text, 5, 2);
+      int day = digits(text, 8, 2);
+      int hour = digits(text, 11, 2);
+      int minute = digits(text, 14, 2);
+      int second = digits(text, 17, 2);
+      // A negative field marks a non-digit; out-of-range values are left to the resolver
+      if (year >= 1
+          && month >= 1
+          && month <= 12
+          && day >= 1
+          && day <= Month.of(month).length(Year.isLeap(year))
+          && hour >= 0
+          && hour <= 23
+          && minute >= 0
+          && minute <= 59
+          && second >= 0
+          && second <= 59) {
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+      }
+    }
+    return LocalDateTime.parse(text, FORMATTER);
+  }
+
+  /** Reads a run of ASCII digits, or returns -1 if any character is not one. */
+  private static int digits(CharSequence text, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = text.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+}
+
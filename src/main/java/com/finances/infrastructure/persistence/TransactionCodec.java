@@ -0,0 +1,133 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.CurrencyCode;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary encoding of transactions shared by the binary storage formats.
+ *
+ * <p>A record is: id, type ordinal (1 byte), category, amount (8 bytes), timestamp as UTC epoch
+ * second (8 bytes) and nanosecond (4 bytes), description. Strings are written as a 4-byte length
+ * followed by UTF-8 bytes, so they are not limited to 64 KB like {@link DataOutput#writeUTF}.
+ *
+ * <p>A transaction with an idempotency key has the high bit of the type byte set and the key
+ * appended after the description. A transaction in another currency than {@link
+ * CurrencyCode#DEFAULT} has the next bit set and the currency code appended, and a leg of a
+ * transfer has the third bit set and the transfer ID appended last. Records without a key, currency
+ * or transfer are unchanged from earlier versions.
+ */
+public final class TransactionCodec {
+  private static final TransactionType[] TYPES = TransactionType.values();
+  private static final int KEY_FLAG = 0x80;
+  private static final int CURRENCY_FLAG = 0x40;
+  private static final int TRANSFER_FLAG = 0x20;
+
+  private TransactionCodec() {}
+
+  /**
+   * Writes a transaction.
+   *
+   * @param out the output
+   * @param transaction the transaction
+   * @throws IOException if an I/O error occurs
+   */
+  public static void write(DataOutput out, Transaction transaction) throws IOException {
+    writeString(out, transaction.getId());
+    String key = transaction.getIdempotencyKey();
+    boolean foreign = !transaction.getCurrency().equals(CurrencyCode.DEFAULT);
+    String transferId = transaction.getTransferId();
+    out.writeByte(
+        transaction.getType().ordinal()
+            | (key == null ? 0 : KEY_FLAG)
+            | (foreign ? CURRENCY_FLAG : 0)
+            | (transferId == null ? 0 : TRANSFER_FLAG));
+    writeString(out, transaction.getCategory());
+    out.writeDouble(transaction.getAmount());
+    out.writeLong(epochSecond(transaction.getTimestamp()));
+    out.writeInt(transaction.getTimestamp().getNano());
+    writeString(out, transaction.getDescription());
+    if (key != null) {
+      writeString(out, key);
+    }
+    if (foreign) {
+      writeString(out, transaction.getCurrency());
+    }
+    if (transferId != null) {
+      writeString(out, transferId);
+    }
+  }
+
+  /**
+   * Reads a transaction written by {@link #write}.
+   *
+   * @param in the input
+   * @return the transaction
+   * @throws IOException if an I/O error occurs or the record is malformed
+   */
+  public static Transaction read(DataInput in) throws IOException {
+    String id = readString(in);
+    int flags = in.readUnsignedByte();
+    int type = flags & ~(KEY_FLAG | CURRENCY_FLAG | TRANSFER_FLAG);
+    if (type >= TYPES.length) {
+      throw new IOException("Unknown transaction type: " + type);
+    }
+    String category = readString(in);
+    double amount = in.readDouble();
+    long second = in.readLong();
+    int nano = in.readInt();
+    String description = readString(in);
+    String key = (flags & KEY_FLAG) != 0 ? readString(in) : null;
+    String currency = (flags & CURRENCY_FLAG) != 0 ? readString(in) : null;
+    String transferId = (flags & TRANSFER_FLAG) != 0 ? readString(in) : null;
+    try {
+      return Transaction.builder(
+              id,
+              TYPES[type],
+              category,
+              amount,
+              LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC))
+          .description(description)
+          .idempotencyKey(key)
+          .currency(currency)
+          .transferId(transferId)
+          .build();
+    } catch (IllegalArgumentException | DateTimeException e) {
+      throw new IOException("Malformed transaction record: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Converts a timestamp to the epoch second used by the encoding.
+   *
+   * @param timestamp the timestamp
+   * @return seconds since the epoch, treating the timestamp as UTC
+   */
+  public static long epochSecond(LocalDateTime timestamp) {
+    return timestamp.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  static void writeString(DataOutput out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Negative string length: " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
+
@@ -0,0 +1,525 @@
+package com.finances.infrastructure.persistence;
+
+import com.finances.core.domain.Budget;
+import com.finances.core.domain.BudgetPeriod;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionHistory;
+import com.finances.core.domain.Wallet;
+import com.finances.core.domain.WalletSnapshot;
+import com.finances.core.repository.WalletRepository;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Wallet repository that makes every saved mutation durable in a write-ahead log.
+ *
+ * <p>{@link #save} compares the wallet with what has already been logged for it and appends only
+ * the difference: new transactions with their position in the wallet, and budget changes. It
+ * returns once the records are on disk. Concurrent saves share fsyncs (group commit): the first
+ * waiting thread writes and forces everything appended so far while the others wait for it.
+ *
+ * <p>A wallet instance the repository has not seen before is first written to the {@link
+ * FileStorage} and marked with a reset record, so the log only ever describes changes on top of
+ * stored wallets. When the log grows past the checkpoint size, all wallets are saved to the file
+ * storage and the log is truncated.
+ *
+ * <p>On construction the log left by a crash is replayed onto the stored wallets and checkpointed.
+ * Replay is idempotent: transactions already present in a stored wallet are skipped by position,
+ * and a torn or corrupt tail ends the log.
+ */
+public class WriteAheadLogWalletRepository implements WalletRepository, Closeable {
+  /** Name of the log file in the storage directory. */
+  public static final String LOG_FILE = "wallets.wal";
+
+  /** Default log size that triggers a checkpoint. */
+  public static final long DEFAULT_CHECKPOINT_BYTES = 8L << 20;
+
+  private static final byte ADD = 1;
+  private static final byte SET_BUDGET = 2;
+  private static final byte REMOVE_BUDGET = 3;
+  private static final byte RESET = 4;
+  private static final byte DELETE = 5;
+  private static final int MAX_RECORD_SIZE = 1 << 24;
+
+  private final FileStorage fileStorage;
+  private final long checkpointBytes;
+  private final Map<String, Logged> wallets = new ConcurrentHashMap<>();
+  private final FileChannel channel;
+
+  // Guarded by this
+  private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+  private long appendedBatches;
+  private long durableBatches;
+  private boolean flushing;
+  private long logLength;
+  private long syncCount;
+  private long checkpointCount;
+  private IOException failure;
+
+  /**
+   * Opens the log in the storage directory, replaying any records left by a previous run.
+   *
+   * @param fileStorage the storage holding the checkpointed wallets
+   * @throws IOException if the log cannot be opened or replayed
+   */
+  public WriteAheadLogWalletRepository(FileStorage fileStorage) throws IOException {
+    this(fileStorage, DEFAULT_CHECKPOINT_BYTES);
+  }
+
+  /**
+   * Opens the log in the storage directory, replaying any records left by a previous run.
+   *
+   * @param fileStorage the storage holding the checkpointed wallets
+   * @param checkpointBytes the log size that triggers a checkpoint
+   * @throws IOException if the log cannot be opened or replayed
+   */
+  public WriteAheadLogWalletRepository(FileStorage fileStorage, long checkpointBytes)
+      throws IOException {
+    if (checkpointBytes <= 0) {
+      throw new IllegalArgumentException("Checkpoint size must be positive");
+    }
+    this.fileStorage = fileStorage;
+    this.checkpointBytes = checkpointBytes;
+    Path log = fileStorage.getStorageDirectory().resolve(LOG_FILE);
+    Map<String, Wallet> recovered = replay(log);
+    this.channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    this.logLength = channel.size();
+    for (Wallet wallet : recovered.values()) {
+      wallets.put(wallet.getUserId(), new Logged(wallet));
+    }
+    checkpoint();
+  }
+
+  /**
+   * Saves a wallet and waits until its changes are durable.
+   *
+   * @param wallet the wallet to save
+   * @throws UncheckedIOException if the log cannot be written
+   */
+  @Override
+  public void save(Wallet wallet) {
+    String userId = wallet.getUserId();
+    long batch;
+    try {
+      Logged logged = wallets.computeIfAbsent(userId, key -> new Logged(null));
+      synchronized (logged) {
+        WalletSnapshot snapshot = wallet.snapshot();
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        if (logged.wallet != wallet || !logged.continues(snapshot)) {
+          writeRecord(records, RESET, userId, out -> {});
+          batch = register(logged, wallet, snapshot, records.toByteArray());
+        } else {
+          appendChanges(records, logged, snapshot);
+          if (records.size() == 0) {
+            return;
+          }
+          batch = append(records.toByteArray());
+        }
+      }
+      awaitDurable(batch);
+      if (needsCheckpoint()) {
+        checkpoint();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public Optional<Wallet> findByUserId(String userId) {
+    Logged logged = wallets.get(userId);
+    return Optional.ofNullable(logged == null ? null : logged.wallet);
+  }
+
+  @Override
+  public void deleteByUserId(String userId) {
+    try {
+      Logged logged = wallets.remove(userId);
+      if (logged == null) {
+        return;
+      }
+      ByteArrayOutputStream records = new ByteArrayOutputStream();
+      writeRecord(records, DELETE, userId, out -> {});
+      long batch;
+      synchronized (logged) {
+        batch = append(records.toByteArray());
+      }
+      awaitDurable(batch);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Saves every wallet to the file storage and truncates the log.
+   *
+   * @throws IOException if a wallet cannot be saved or the log cannot be truncated
+   */
+  public synchronized void checkpoint() throws IOException {
+    checkFailure();
+    while (flushing) {
+      waitUninterruptibly();
+    }
+    for (Logged logged : wallets.values()) {
+      Wallet wallet = logged.wallet;
+      if (wallet != null) {
+        fileStorage.saveWallet(wallet);
+      }
+    }
+    // Everything appended so far is reflected in the wallets just saved
+    channel.truncate(0);
+    channel.force(true);
+    pending = new ByteArrayOutputStream();
+    durableBatches = appendedBatches;
+    logLength = 0;
+    checkpointCount++;
+    notifyAll();
+  }
+
+  /**
+   * Gets the number of fsyncs issued for commits, for measuring group commit.
+   *
+   * @return the number of log syncs
+   */
+  public synchronized long getSyncCount() {
+    return syncCount;
+  }
+
+  /**
+   * Gets the number of completed checkpoints, including the one after recovery.
+   *
+   * @return the number of checkpoints
+   */
+  public synchronized long getCheckpointCount() {
+    return checkpointCount;
+  }
+
+  /**
+   * Checkpoints all wallets and closes the log.
+   *
+   * @throws IOException if the final checkpoint fails
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      checkpoint();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void appendChanges(ByteArrayOutputStream records, Logged logged, WalletSnapshot snapshot)
+      throws IOException {
+    String userId = snapshot.getUserId();
+    int count = snapshot.getTransactionCount();
+    if (count > logged.count) {
+      List<Transaction> transactions = snapshot.getTransactions();
+      for (int i = logged.count; i < count; i++) {
+        int position = i;
+        Transaction transaction = transactions.get(i);
+        writeRecord(
+            records,
+            ADD,
+            userId,
+            out -> {
+              out.writeInt(position);
+              TransactionCodec.write(out, transaction);
+            });
+      }
+      logged.count = count;
+      logged.lastId = transactions.get(count - 1).getId();
+    }
+
+    Map<String, Budget> budgets = snapshot.getAllBudgets();
+    for (Map.Entry<String, Budget> budget : budgets.entrySet()) {
+      Budget previous = logged.budgets.get(budget.getKey());
+      BudgetPeriod period = budget.getValue().getPeriod();
+      if (previous == null
+          || previous.getLimit() != budget.getValue().getLimit()
+          || !Objects.equals(previous.getPeriod(), period)
+          || !previous.getCurrency().equals(budget.getValue().getCurrency())) {
+        writeRecord(
+            records,
+            SET_BUDGET,
+            userId,
+            out -> {
+              TransactionCodec.writeString(out, budget.getKey());
+              out.writeDouble(budget.getValue().getLimit());
+              TransactionCodec.writeString(out, period == null ? "" : period.format());
+              TransactionCodec.writeString(out, budget.getValue().getCurrency());
+            });
+      }
+    }
+    for (String category : logged.budgets.keySet()) {
+      if (!budgets.containsKey(category)) {
+        writeRecord(
+            records, REMOVE_BUDGET, userId, out -> TransactionCodec.writeString(out, category));
+      }
+    }
+    logged.budgets = copies(budgets);
+  }
+
+  /**
+   * Stores a wallet the log has no base for and appends its reset record. Runs under the log
+   * monitor so it never overlaps a checkpoint saving the same wallet.
+   */
+  private synchronized long register(
+      Logged logged, Wallet wallet, WalletSnapshot snapshot, byte[] records) throws IOException {
+    checkFailure();
+    fileStorage.saveWallet(wallet);
+    logged.reset(wallet, snapshot);
+    pending.write(records);
+    return ++appendedBatches;
+  }
+
+  private synchronized long append(byte[] records) throws IOException {
+    checkFailure();
+    pending.write(records);
+    return ++appendedBatches;
+  }
+
+  private void awaitDurable(long batch) throws IOException {
+    while (true) {
+      byte[] bytes;
+      long lastBatch;
+      long position;
+      synchronized (this) {
+        while (flushing && durableBatches < batch) {
+          waitUninterruptibly();
+        }
+        checkFailure();
+        if (durableBatches >= batch) {
+          return;
+        }
+        // Become the leader: flush every batch appended so far with one fsync
+        flushing = true;
+        bytes = pending.toByteArray();
+        pending = new ByteArrayOutputStream();
+        lastBatch = appendedBatches;
+        position = logLength;
+      }
+      IOException error = null;
+      try {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long offset = position;
+        while (buffer.hasRemaining()) {
+          offset += channel.write(buffer, offset);
+        }
+        channel.force(false);
+      } catch (IOException e) {
+        error = e;
+      }
+      synchronized (this) {
+        flushing = false;
+        if (error == null) {
+          durableBatches = lastBatch;
+          logLength = position + bytes.length;
+          syncCount++;
+        } else {
+          failure = error;
+        }
+        notifyAll();
+      }
+    }
+  }
+
+  private synchronized boolean needsCheckpoint() {
+    return logLength >= checkpointBytes;
+  }
+
+  private void checkFailure() throws IOException {
+    if (failure != null) {
+      throw new IOException("Write-ahead log failed earlier", failure);
+    }
+  }
+
+  private void waitUninterruptibly() {
+    try {
+      wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Map<String, Wallet> replay(Path log) throws IOException {
+    Map<String, Wallet> recovered = new LinkedHashMap<>();
+    if (!Files.exists(log)) {
+      return recovered;
+    }
+    byte[] bytes = Files.readAllBytes(log);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    CRC32 crc = new CRC32();
+    List<DataInputStream> records = new ArrayList<>();
+    List<Byte> kinds = new ArrayList<>();
+    List<String> users = new ArrayList<>();
+    Map<String, Integer> lastReset = new HashMap<>();
+    while (buffer.remaining() >= 2 * Integer.BYTES) {
+      int length = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (length <= 0 || length > MAX_RECORD_SIZE || length > buffer.remaining()) {
+        break;
+      }
+      crc.reset();
+      crc.update(bytes, buffer.position(), length);
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+      DataInputStream in =
+          new DataInputStream(new ByteArrayInputStream(bytes, buffer.position(), length));
+      buffer.position(buffer.position() + length);
+      byte kind = in.readByte();
+      String userId = TransactionCodec.readString(in);
+      if (kind == RESET || kind == DELETE) {
+        lastReset.put(userId, records.size());
+      }
+      records.add(in);
+      users.add(userId);
+      kinds.add(kind);
+    }
+
+    // Records before a user's last reset describe a wallet that was replaced in the storage
+    for (int i = 0; i < records.size(); i++) {
+      String userId = users.get(i);
+      if (i >= lastReset.getOrDefault(userId, 0)) {
+        apply(recovered, kinds.get(i), userId, records.get(i));
+      }
+    }
+    return recovered;
+  }
+
+  private void apply(Map<String, Wallet> recovered, byte kind, String userId, DataInputStream in)
+      throws IOException {
+    if (kind == DELETE) {
+      recovered.remove(userId);
+      return;
+    }
+    if (kind == RESET || !recovered.containsKey(userId)) {
+      recovered.put(userId, fileStorage.loadWallet(userId));
+    }
+    Wallet wallet = recovered.get(userId);
+    switch (kind) {
+      case RESET:
+        break;
+      case ADD:
+        int position = in.readInt();
+        Transaction transaction = TransactionCodec.read(in);
+        int count = wallet.snapshot().getTransactionCount();
+        if (position > count) {
+          throw new IOException(
+              "Log record " + position + " does not follow stored wallet of " + userId);
+        }
+        if (position == count) {
+          wallet.addTransaction(transaction);
+        }
+        break;
+      case SET_BUDGET:
+        String category = TransactionCodec.readString(in);
+        double limit = in.readDouble();
+        // Records written before budget periods existed end after the limit
+        String period = in.available() > 0 ? TransactionCodec.readString(in) : "";
+        // and before currencies existed after the period
+        String currency = in.available() > 0 ? TransactionCodec.readString(in) : null;
+        wallet.setBudget(
+            category, limit, period.isEmpty() ? null : BudgetPeriod.parse(period), currency);
+        break;
+      case REMOVE_BUDGET:
+        wallet.removeBudget(TransactionCodec.readString(in));
+        break;
+      default:
+        throw new IOException("Unknown log record type: " + kind);
+    }
+  }
+
+  private static void writeRecord(
+      ByteArrayOutputStream records, byte kind, String userId, RecordBody body) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(payload);
+    out.writeByte(kind);
+    TransactionCodec.writeString(out, userId);
+    body.write(out);
+    CRC32 crc = new CRC32();
+    crc.update(payload.toByteArray());
+    DataOutputStream frame = new DataOutputStream(records);
+    frame.writeInt(payload.size());
+    frame.writeInt((int) crc.getValue());
+    payload.writeTo(frame);
+  }
+
+  private static Map<String, Budget> copies(Map<String, Budget> budgets) {
+    Map<String, Budget> copies = new HashMap<>();
+    for (Budget budget : budgets.values()) {
+      copies.put(
+          budget.getCategory(),
+          new Budget(
+              budget.getCategory(), budget.getLimit(), budget.getPeriod(), budget.getCurrency()));
+    }
+    return copies;
+  }
+
+  /** Body of a log record after its type and user ID. */
+  private interface RecordBody {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  /** What has been logged for one wallet; guarded by its own monitor. */
+  private static final class Logged {
+    private volatile Wallet wallet;
+    private TransactionHistory history;
+    private int count;
+    private String lastId;
+    private Map<String, Budget> budgets = new HashMap<>();
+
+    private Logged(Wallet wallet) {
+      if (wallet != null) {
+        reset(wallet, wallet.snapshot());
+      }
+    }
+
+    private void reset(Wallet wallet, WalletSnapshot snapshot) {
+      this.wallet = wallet;
+      this.history = snapshot.getHistory();
+      this.count = snapshot.getTransactionCount();
+      this.lastId = count == 0 ? null : lastId(snapshot);
+      this.budgets = copies(snapshot.getAllBudgets());
+    }
+
+    /** Checks that the logged prefix is still the start of the wallet, e.g. after a clear. */
+    private boolean continues(WalletSnapshot snapshot) {
+      if (snapshot.getTransactionCount() < count || snapshot.getHistory() != history) {
+        return false;
+      }
+      // Transactions within an unchanged history cannot have changed; avoid loading it
+      if (count <= history.size()) {
+        return true;
+      }
+      return snapshot.getTransactions().get(count - 1).getId().equals(lastId);
+    }
+
+    private String lastId(WalletSnapshot snapshot) {
+      // Only read when the last transaction is in memory, so lazy history stays unloaded
+      return count > snapshot.getHistory().size()
+          ? snapshot.getTransactions().get(count - 1).getId()
+          : null;
+    }
+  }
+}
+
@@ -0,0 +1,296 @@
+package com.finances.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.ExchangeRates;
+import com.finances.core.domain.Wallet;
+import com.finances.core.repository.WalletRepository;
+import com.finances.core.service.AuthService;
+import com.finances.core.service.BudgetService;
+import com.finances.core.service.TransactionService;
+import com.finances.infrastructure.notification.NotificationService;
+import com.finances.infrastructure.persistence.FileStorage;
+import com.finances.infrastructure.persistence.InMemoryUserRepository;
+import com.finances.infrastructure.persistence.InMemoryWalletRepository;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ApiServerTest {
+  private static final String USER1 = "apiAlice";
+  private static final String USER2 = "apiBob";
+
+  private ApiServer server;
+  private FileStorage fileStorage;
+  private HttpClient client;
+
+  @TempDir Path tempDir;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    WalletRepository walletRepository = new InMemoryWalletRepository();
+    AuthService authService = new AuthService(new InMemoryUserRepository(), walletRepository);
+    TransactionService transactionService = new TransactionService(walletRepository);
+    BudgetService budgetService = new BudgetService(walletRepository);
+    fileStorage = new FileStorage(tempDir.toString());
+    server =
+        new ApiServer(
+            authService,
+            transactionService,
+            budgetService,
+            new NotificationService(budgetService, transactionService),
+            fileStorage,
+            walletRepository);
+    server.start(0);
+    client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  void shouldRegisterLoginAndTrackBalance() throws Exception {
+    String token = registerAndLogin(USER1);
+
+    assertEquals(
+        200, post("/api/income", token, "{\"category\":\"Salary\",\"amount\":5000}").statusCode());
+    assertEquals(
+        200, post("/api/expense", token, "{\"category\":\"Food\",\"amount\":300}").statusCode());
+
+    JsonObject balance = json(get("/api/balance", token)).getAsJsonObject();
+    assertEquals(4700.0, balance.get("balance").getAsDouble());
+    assertEquals(2, json(get("/api/transactions", token)).getAsJsonArray().size());
+  }
+
+  @Test
+  void shouldCreateListAndCancelRecurringTemplates() throws Exception {
+    String token = registerAndLogin(USER1);
+
+    HttpResponse<String> created =
+        post(
+            "/api/recurring",
+            token,
+            "{\"type\":\"expense\",\"category\":\"Rent\",\"amount\":800,"
+                + "\"schedule\":\"0 0 1 * *\"}");
+    assertEquals(200, created.statusCode());
+    String id = json(created).getAsJsonObject().get("id").getAsString();
+    assertEquals(
+        400,
+        post(
+                "/api/recurring",
+                token,
+                "{\"type\":\"expense\",\"category\":\"Rent\","
+                    + "\"amount\":800,\"schedule\":\"0 0 31 2 *\"}")
+            .statusCode());
+
+    JsonObject template =
+        json(get("/api/recurring", token)).getAsJsonArray().get(0).getAsJsonObject();
+    assertEquals(id, template.get("id").getAsString());
+    assertEquals("0 0 1 * *", template.get("schedule").getAsString());
+
+    HttpRequest cancel = request("/api/recurring?id=" + id, token).DELETE().build();
+    assertEquals(200, client.send(cancel, HttpResponse.BodyHandlers.ofString()).statusCode());
+    assertEquals(0, json(get("/api/recurring", token)).getAsJsonArray().size());
+  }
+
+  @Test
+  void shouldPageTransactionsWithCursor() throws Exception {
+    String token = registerAndLogin(USER1);
+    for (int i = 1; i <= 5; i++) {
+      post("/api/expense", token, "{\"category\":\"Food\",\"amount\":" + i + "}");
+    }
+    post("/api/income", token, "{\"category\":\"Salary\",\"amount\":100}");
+
+    JsonObject first =
+        json(get("/api/transactions?limit=2&order=asc&type=expense", token)).getAsJsonObject();
+    JsonObject second =
+        json(get(
+                "/api/transactions?limit=10&order=asc&type=expense&cursor="
+                    + first.get("nextCursor").getAsString(),
+                token))
+            .getAsJsonObject();
+
+    assertEquals(2, first.getAsJsonArray("transactions").size());
+    assertEquals(3, second.getAsJsonArray("transactions").size());
+    assertFalse(second.has("nextCursor"));
+    assertEquals(400, get("/api/transactions?limit=2&order=sideways", token).statusCode());
+    assertEquals(400, get("/api/transactions?limit=2&from=yesterday", token).statusCode());
+  }
+
+  @Test
+  void shouldRejectRequestsWithoutToken() throws Exception {
+    assertEquals(401, get("/api/balance", null).statusCode());
+    assertEquals(401, get("/api/balance", "bogus").statusCode());
+  }
+
+  @Test
+  void shouldRejectWrongPassword() throws Exception {
+    post("/api/register", null, credentials(USER1, "secret"));
+
+    assertEquals(401, post("/api/login", null, credentials(USER1, "wrong")).statusCode());
+  }
+
+  @Test
+  void shouldReportValidationErrors() throws Exception {
+    String token = registerAndLogin(USER1);
+
+    HttpResponse<String> response =
+        post("/api/income", token, "{\"category\":\"Salary\",\"amount\":-5}");
+
+    assertEquals(400, response.statusCode());
+    assertTrue(json(response).getAsJsonObject().has("error"));
+    for (String amount : new String[] {"\"NaN\"", "\"Infinity\"", "\"-Infinity\"", "{}", "[]"}) {
+      assertEquals(
+          400,
+          post("/api/income", token, "{\"category\":\"Salary\",\"amount\":" + amount + "}")
+              .statusCode());
+    }
+    assertEquals(
+        400, post("/api/budgets", token, "{\"category\":\"Food\",\"limit\":\"NaN\"}").statusCode());
+    assertEquals(
+        0.0, json(get("/api/balance", token)).getAsJsonObject().get("balance").getAsDouble());
+  }
+
+  @Test
+  void shouldManageBudgetsAndNotifications() throws Exception {
+    String token = registerAndLogin(USER1);
+    post("/api/budgets", token, "{\"category\":\"Food\",\"limit\":100}");
+    post("/api/expense", token, "{\"category\":\"Food\",\"amount\":150}");
+
+    JsonArray budgets = json(get("/api/budgets", token)).getAsJsonArray();
+    assertEquals(1, budgets.size());
+    assertEquals(-50.0, budgets.get(0).getAsJsonObject().get("remaining").getAsDouble());
+    assertFalse(json(get("/api/notifications", token)).getAsJsonArray().isEmpty());
+  }
+
+  @Test
+  void shouldReportStatisticsPerCurrencyAndConverted() throws Exception {
+    String token = registerAndLogin(USER1);
+    post("/api/income", token, "{\"category\":\"Salary\",\"amount\":10,\"currency\":\"usd\"}");
+    post("/api/expense", token, "{\"category\":\"Food\",\"amount\":500}");
+
+    JsonObject statistics = json(get("/api/statistics", token)).getAsJsonObject();
+    assertEquals(10.0, statistics.getAsJsonObject("incomeByCurrency").get("USD").getAsDouble());
+    assertEquals(500.0, statistics.getAsJsonObject("expenseByCurrency").get("RUB").getAsDouble());
+    assertFalse(statistics.getAsJsonObject("incomeByCategory").has("Salary"));
+    JsonObject usd = statistics.getAsJsonObject("categoriesByCurrency").getAsJsonObject("USD");
+    assertEquals(10.0, usd.getAsJsonObject("incomeByCategory").get("Salary").getAsDouble());
+    assertEquals(409, get("/api/statistics?currency=RUB", token).statusCode());
+
+    server.setExchangeRates(
+        new ExchangeRates("RUB", Map.of("USD", Map.of(LocalDate.now().minusDays(1), 90.0))));
+    JsonObject converted =
+        json(get("/api/statistics?currency=RUB", token))
+            .getAsJsonObject()
+            .getAsJsonObject("converted");
+    assertEquals(900.0, converted.get("totalIncome").getAsDouble(), 0.001);
+    assertEquals(400.0, converted.get("balance").getAsDouble(), 0.001);
+  }
+
+  @Test
+  void shouldTransferBetweenSessions() throws Exception {
+    String alice = registerAndLogin(USER1);
+    String bob = registerAndLogin(USER2);
+    post("/api/income", alice, "{\"category\":\"Salary\",\"amount\":1000}");
+
+    HttpResponse<String> response =
+        post("/api/transfer", alice, "{\"to\":\"" + USER2 + "\",\"amount\":400}");
+
+    assertEquals(200, response.statusCode());
+    assertEquals(
+        600.0, json(get("/api/balance", alice)).getAsJsonObject().get("balance").getAsDouble());
+    assertEquals(
+        400.0, json(get("/api/balance", bob)).getAsJsonObject().get("balance").getAsDouble());
+    assertEquals(
+        409,
+        post("/api/transfer", alice, "{\"to\":\"" + USER2 + "\",\"amount\":5000}").statusCode());
+  }
+
+  @Test
+  void shouldSaveWalletsAfterTransferAndOnStop() throws Exception {
+    String alice = registerAndLogin(USER1);
+    registerAndLogin(USER2);
+    post("/api/income", alice, "{\"category\":\"Salary\",\"amount\":1000}");
+    post("/api/transfer", alice, "{\"to\":\"" + USER2 + "\",\"amount\":400}");
+
+    assertEquals(600.0, fileStorage.loadWallet(USER1).getBalance());
+    assertEquals(400.0, fileStorage.loadWallet(USER2).getBalance());
+
+    post("/api/expense", alice, "{\"category\":\"Food\",\"amount\":100}");
+    server.stop();
+
+    assertEquals(500.0, fileStorage.loadWallet(USER1).getBalance());
+  }
+
+  @Test
+  void shouldRefuseRegistrationOverStoredWallet() throws Exception {
+    Wallet stored = new Wallet(USER2);
+    stored.setBudget("Food", 100);
+    fileStorage.saveWallet(stored);
+
+    assertEquals(409, post("/api/register", null, credentials(USER2, "secret")).statusCode());
+    assertEquals(401, post("/api/login", null, credentials(USER2, "secret")).statusCode());
+  }
+
+  @Test
+  void shouldKeepUnsavedBudgetsOnRepeatedLogin() throws Exception {
+    String token = registerAndLogin(USER1);
+    post("/api/logout", token, "{}");
+    token = registerAndLogin(USER1);
+    post("/api/budgets", token, "{\"category\":\"Food\",\"limit\":100}");
+
+    String again = registerAndLogin(USER1);
+
+    assertEquals(1, json(get("/api/budgets", again)).getAsJsonArray().size());
+  }
+
+  private String registerAndLogin(String username) throws Exception {
+    post("/api/register", null, credentials(username, "secret"));
+    HttpResponse<String> response = post("/api/login", null, credentials(username, "secret"));
+    assertEquals(200, response.statusCode());
+    return json(response).getAsJsonObject().get("token").getAsString();
+  }
+
+  private static String credentials(String username, String password) {
+    return "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}";
+  }
+
+  private HttpResponse<String> get(String path, String token) throws Exception {
+    return client.send(request(path, token).GET().build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> post(String path, String token, String body) throws Exception {
+    return client.send(
+        request(path, token).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpRequest.Builder request(String path, String token) {
+    HttpRequest.Builder builder =
+        HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+    if (token != null) {
+      builder.header("Authorization", "Bearer " + token);
+    }
+    return builder;
+  }
+
+  private static JsonElement json(HttpResponse<String> response) {
+    return JsonParser.parseString(response.body());
+  }
+}
+
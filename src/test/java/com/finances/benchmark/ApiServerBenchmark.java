@@ -0,0 +1,149 @@
+package com.finances.benchmark;
+
+import com.finances.api.ApiServer;
+import com.finances.core.repository.WalletRepository;
+import com.finances.core.service.AuthService;
+import com.finances.core.service.BudgetService;
+import com.finances.core.service.TransactionService;
+import com.finances.infrastructure.notification.NotificationService;
+import com.finances.infrastructure.persistence.FileStorage;
+import com.finances.infrastructure.persistence.InMemoryUserRepository;
+import com.finances.infrastructure.persistence.InMemoryWalletRepository;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Load-test harness for the HTTP API.
+ *
+ * <p>Starts an in-memory server on a free localhost port, logs in one session per client and lets
+ * every client alternate expense writes and balance reads for a fixed duration. Prints requests per
+ * second and the error count.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.finances.benchmark.ApiServerBenchmark -Dexec.args="<clients> <seconds>"}.
+ */
+public class ApiServerBenchmark {
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+    // Wallets saved by the server go to a scratch directory, not to ./wallets
+    Path directory = Files.createTempDirectory("api-bench");
+    try {
+      run(directory, clients, seconds);
+    } finally {
+      deleteRecursively(directory);
+    }
+  }
+
+  private static void run(Path directory, int clients, int seconds) throws Exception {
+    WalletRepository walletRepository = new InMemoryWalletRepository();
+    AuthService authService = new AuthService(new InMemoryUserRepository(), walletRepository);
+    TransactionService transactionService = new TransactionService(walletRepository);
+    BudgetService budgetService = new BudgetService(walletRepository);
+    ApiServer server =
+        new ApiServer(
+            authService,
+            transactionService,
+            budgetService,
+            new NotificationService(budgetService, transactionService),
+            new FileStorage(directory.toString()),
+            walletRepository);
+    server.start(0);
+    String baseUrl = "http://localhost:" + server.getPort();
+    ExecutorService clientExecutor = Executors.newCachedThreadPool();
+    HttpClient client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(clientExecutor)
+            .build();
+
+    List<String> tokens = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      String credentials = "{\"username\":\"bench" + i + "\",\"password\":\"secret\"}";
+      send(client, post(baseUrl + "/api/register", null, credentials));
+      HttpResponse<String> login = send(client, post(baseUrl + "/api/login", null, credentials));
+      tokens.add(JsonParser.parseString(login.body()).getAsJsonObject().get("token").getAsString());
+    }
+
+    LongAdder requests = new LongAdder();
+    LongAdder errors = new LongAdder();
+    long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+    ExecutorService workers = Executors.newFixedThreadPool(clients);
+    List<Future<?>> futures = new ArrayList<>();
+    long start = System.nanoTime();
+    for (String token : tokens) {
+      futures.add(
+          workers.submit(
+              () -> {
+                HttpRequest expense =
+                    post(baseUrl + "/api/expense", token, "{\"category\":\"Food\",\"amount\":1}");
+                HttpRequest balance =
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/api/balance"))
+                        .header("Authorization", "Bearer " + token)
+                        .GET()
+                        .build();
+                boolean write = true;
+                while (System.nanoTime() < deadline) {
+                  HttpResponse<String> response = send(client, write ? expense : balance);
+                  if (response == null || response.statusCode() != 200) {
+                    errors.increment();
+                  }
+                  requests.increment();
+                  write = !write;
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    double elapsed = (System.nanoTime() - start) / 1e9;
+    workers.shutdown();
+    clientExecutor.shutdown();
+    server.stop();
+
+    System.out.printf(
+        "clients=%d duration=%.1fs requests=%d errors=%d throughput=%.0f req/s%n",
+        clients, elapsed, requests.sum(), errors.sum(), requests.sum() / elapsed);
+  }
+
+  private static void deleteRecursively(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private static HttpRequest post(String url, String token, String body) {
+    HttpRequest.Builder builder =
+        HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.ofString(body));
+    if (token != null) {
+      builder.header("Authorization", "Bearer " + token);
+    }
+    return builder.build();
+  }
+
+  private static HttpResponse<String> send(HttpClient client, HttpRequest request) {
+    try {
+      return client.send(request, HttpResponse.BodyHandlers.ofString());
+    } catch (Exception e) {
+      return null;
+    }
+  }
+}
+
@@ -0,0 +1,112 @@
+package com.finances.benchmark;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionQuery;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.finances.core.domain.WalletSnapshot;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Attribute filters with the wallet's bitmap index versus a stream pass over all transactions.
+ *
+ * <p>Builds one wallet spread over three years, then times a selective, a broad and a negated
+ * filter over type, category, month and amount bucket, each as a count and as an expense sum.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.finances.benchmark.AttributeIndexBenchmark -Dexec.args="<transactions>"}.
+ */
+public class AttributeIndexBenchmark {
+  private static final String[] CATEGORIES = {
+    "Food/Groceries", "Food/Cafe", "Transport", "Rent", "Fun", "Health", "Gifts", "Books"
+  };
+  private static final int ROUNDS = 20;
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    Random random = new Random(42);
+    LocalDateTime start = LocalDateTime.of(2022, 1, 1, 0, 0);
+
+    Wallet wallet = new Wallet("user");
+    for (int i = 0; i < count; i++) {
+      boolean income = random.nextInt(10) == 0;
+      wallet.addTransaction(
+          new Transaction(
+              UUID.randomUUID().toString(),
+              income ? TransactionType.INCOME : TransactionType.EXPENSE,
+              income ? "Salary" : CATEGORIES[random.nextInt(CATEGORIES.length)],
+              1 + random.nextInt(100_000) / 100.0,
+              start.plusMinutes((long) i * 3 * 365 * 24 * 60 / count),
+              ""));
+    }
+    WalletSnapshot snapshot = wallet.snapshot();
+    System.out.printf("transactions=%d%n", count);
+
+    YearMonth march = YearMonth.of(2023, 3);
+    time(
+        "cafe/month",
+        TransactionQuery.category("Food/Cafe").and(TransactionQuery.month(march)),
+        t -> t.getCategory().equals("Food/Cafe") && YearMonth.from(t.getTimestamp()).equals(march),
+        snapshot);
+    time(
+        "expense/100s",
+        TransactionQuery.type(TransactionType.EXPENSE).and(TransactionQuery.amountBucket(2)),
+        t ->
+            t.getType() == TransactionType.EXPENSE && TransactionQuery.bucketOf(t.getAmount()) == 2,
+        snapshot);
+    time(
+        "not rent/2023",
+        TransactionQuery.category("Rent")
+            .not()
+            .and(TransactionQuery.months(YearMonth.of(2023, 1), YearMonth.of(2023, 12))),
+        t -> !t.getCategory().equals("Rent") && t.getTimestamp().getYear() == 2023,
+        snapshot);
+  }
+
+  private static void time(
+      String name,
+      TransactionQuery query,
+      Predicate<Transaction> predicate,
+      WalletSnapshot snapshot) {
+    time(
+        name + " count",
+        () -> (double) snapshot.select(query).size(),
+        () -> (double) snapshot.getTransactions().stream().filter(predicate).count());
+    time(
+        name + " sum",
+        () -> snapshot.select(query).getTotalExpense(),
+        () ->
+            snapshot.getTransactions().stream()
+                .filter(predicate)
+                .filter(t -> t.getType() == TransactionType.EXPENSE)
+                .mapToDouble(Transaction::getAmount)
+                .sum());
+  }
+
+  private static void time(String name, Supplier<Double> indexed, Supplier<Double> scanned) {
+    for (int i = 0; i < ROUNDS; i++) {
+      indexed.get();
+      scanned.get();
+    }
+    long start = System.nanoTime();
+    double result = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      result = indexed.get();
+    }
+    double indexMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+    start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      scanned.get();
+    }
+    double scanMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+    System.out.printf(
+        "%-19s result=%14.2f index=%8.3f ms scan=%8.3f ms%n",
+        name, result, indexMillis, scanMillis);
+  }
+}
+
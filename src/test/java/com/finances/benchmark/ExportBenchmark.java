@@ -0,0 +1,67 @@
+package com.finances.benchmark;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.finances.infrastructure.persistence.StreamingExporter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Export throughput and heap growth of {@link StreamingExporter} for a large wallet.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.finances.benchmark.ExportBenchmark -Dexec.args="<transactions>"}.
+ */
+public class ExportBenchmark {
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    Wallet wallet = new Wallet("benchmark");
+    LocalDateTime now = LocalDateTime.now();
+    for (int i = 0; i < count; i++) {
+      wallet.addTransaction(
+          new Transaction(
+              UUID.randomUUID().toString(),
+              i % 10 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+              "Category " + (i % 20),
+              1 + (i % 10_000) / 100.0,
+              now,
+              "Description, with comma " + i));
+    }
+
+    StreamingExporter exporter = new StreamingExporter();
+    Path output = Files.createTempFile("export-bench", ".out");
+    try {
+      for (String format : new String[] {"csv", "json"}) {
+        for (int round = 0; round < ROUNDS; round++) {
+          System.gc();
+          Runtime runtime = Runtime.getRuntime();
+          long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+          long start = System.nanoTime();
+          if (format.equals("csv")) {
+            exporter.exportCsv(wallet.snapshot(), output);
+          } else {
+            exporter.exportJson(wallet.snapshot(), output);
+          }
+          double millis = (System.nanoTime() - start) / 1e6;
+          long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+          System.out.printf(
+              "%s round %d: %8.1f ms, %6.1f MB written, %8.0f rows/ms, heap delta %+d MB%n",
+              format,
+              round,
+              millis,
+              Files.size(output) / 1e6,
+              count / millis,
+              (heapAfter - heapBefore) >> 20);
+        }
+      }
+    } finally {
+      Files.deleteIfExists(output);
+    }
+  }
+}
+
@@ -0,0 +1,115 @@
+package com.finances.benchmark;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.util.Formatting;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Formatter;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+/**
+ * Amount, date and row formatting with {@link Formatting} versus the {@code String.format} and
+ * {@link DateTimeFormatter} calls it replaced.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.finances.benchmark.FormattingBenchmark -Dexec.args="<values>"}.
+ */
+public class FormattingBenchmark {
+  private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+      DateTimeFormatter.ofPattern(Formatting.TIMESTAMP_PATTERN);
+  private static final int ROUNDS = 10;
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    Random random = new Random(42);
+    Transaction[] transactions = new Transaction[count];
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    for (int i = 0; i < count; i++) {
+      transactions[i] =
+          new Transaction(
+              "id" + i,
+              TransactionType.EXPENSE,
+              "Food",
+              1 + random.nextInt(1_000_000) / 100.0,
+              start.plusSeconds(random.nextInt(365 * 24 * 3600)),
+              "lunch");
+    }
+    StringBuilder text = new StringBuilder();
+    Formatter formatter = new Formatter(text, Locale.ROOT);
+
+    time(
+        "amount",
+        transactions,
+        t -> {
+          text.setLength(0);
+          formatter.format("%.2f", t.getAmount());
+          return text.length();
+        },
+        t -> {
+          text.setLength(0);
+          return Formatting.appendAmount(text, t.getAmount(), Locale.ROOT).length();
+        });
+    time(
+        "timestamp",
+        transactions,
+        t -> {
+          text.setLength(0);
+          TIMESTAMP_FORMATTER.formatTo(t.getTimestamp(), text);
+          return text.length();
+        },
+        t -> {
+          text.setLength(0);
+          return Formatting.appendTimestamp(text, t.getTimestamp()).length();
+        });
+    time(
+        "toString",
+        transactions,
+        t ->
+            String.format(
+                    "%s: %s - %.2f (%s) [%s]",
+                    t.getType(),
+                    t.getCategory(),
+                    t.getAmount(),
+                    t.getTimestamp().toLocalDate(),
+                    t.getDescription())
+                .length(),
+        t -> t.toString().length());
+  }
+
+  private static void time(
+      String name,
+      Transaction[] transactions,
+      ToIntFunction<Transaction> before,
+      ToIntFunction<Transaction> after) {
+    long[] nanos = new long[2];
+    long checksum = 0;
+    for (int round = 0; round < ROUNDS; round++) {
+      // The first half of the rounds warms up both variants
+      long start = System.nanoTime();
+      for (Transaction transaction : transactions) {
+        checksum += before.applyAsInt(transaction);
+      }
+      long middle = System.nanoTime();
+      for (Transaction transaction : transactions) {
+        checksum -= after.applyAsInt(transaction);
+      }
+      long end = System.nanoTime();
+      if (round >= ROUNDS / 2) {
+        nanos[0] += middle - start;
+        nanos[1] += end - middle;
+      }
+    }
+    double perRound = transactions.length * (ROUNDS - ROUNDS / 2);
+    System.out.printf(
+        "%-10s before=%6.1f ns after=%6.1f ns speedup=%4.1fx same-length=%b%n",
+        name,
+        nanos[0] / perRound,
+        nanos[1] / perRound,
+        (double) nanos[0] / nanos[1],
+        checksum == 0);
+  }
+}
+
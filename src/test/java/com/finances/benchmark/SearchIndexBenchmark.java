@@ -0,0 +1,106 @@
+package com.finances.benchmark;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.finances.core.domain.WalletSnapshot;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Description search with the wallet's inverted index versus a scan with {@code contains}.
+ *
+ * <p>Builds one wallet with synthetic descriptions, then times a rare term, a common term, a prefix
+ * and a ranked query against the scan that callers used before, and prints the time to index the
+ * wallet and the estimated index memory.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.finances.benchmark.SearchIndexBenchmark -Dexec.args="<transactions>"}.
+ */
+public class SearchIndexBenchmark {
+  private static final String[] CATEGORIES = {
+    "Food/Groceries", "Food/Cafe", "Transport", "Rent", "Fun", "Health"
+  };
+  private static final String[] WORDS = {
+    "milk", "bread", "coffee", "taxi", "bus", "cinema", "pharmacy", "rent", "gift", "lunch",
+    "dinner", "ticket", "book", "shoes", "phone", "internet", "water", "fruit", "cheese", "pizza"
+  };
+  private static final int ROUNDS = 20;
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    Random random = new Random(42);
+    LocalDateTime now = LocalDateTime.now();
+
+    long start = System.nanoTime();
+    Wallet wallet = new Wallet("user");
+    for (int i = 0; i < count; i++) {
+      // Each description has three common words and one of count / 10 rare codes
+      String description =
+          WORDS[random.nextInt(WORDS.length)]
+              + " "
+              + WORDS[random.nextInt(WORDS.length)]
+              + " "
+              + WORDS[random.nextInt(WORDS.length)]
+              + " order"
+              + random.nextInt(Math.max(1, count / 10));
+      wallet.addTransaction(
+          new Transaction(
+              UUID.randomUUID().toString(),
+              TransactionType.EXPENSE,
+              CATEGORIES[random.nextInt(CATEGORIES.length)],
+              1 + random.nextInt(10_000) / 100.0,
+              now,
+              description));
+    }
+    long buildMillis = (System.nanoTime() - start) / 1_000_000;
+    WalletSnapshot snapshot = wallet.snapshot();
+    System.out.printf(
+        "transactions=%d build=%d ms index=%.1f MB%n",
+        count, buildMillis, snapshot.getSearchIndexMemory() / 1e6);
+
+    time("term rare", () -> snapshot.findByTerm("order7").size(), () -> scan(snapshot, "order7 "));
+    time("term common", () -> snapshot.findByTerm("pizza").size(), () -> scan(snapshot, "pizza"));
+    time("prefix", () -> snapshot.findByPrefix("order12").size(), () -> scan(snapshot, "order12"));
+    time(
+        "ranked top10",
+        () -> snapshot.search("coffee order42", 10).size(),
+        () -> scan(snapshot, "coffee"));
+  }
+
+  private static int scan(WalletSnapshot snapshot, String word) {
+    List<Transaction> transactions = snapshot.getTransactions();
+    int matches = 0;
+    for (Transaction transaction : transactions) {
+      if ((transaction.getDescription() + " ").toLowerCase(Locale.ROOT).contains(word)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  private static void time(String name, Supplier<Integer> indexed, Supplier<Integer> scanned) {
+    for (int i = 0; i < ROUNDS; i++) {
+      indexed.get();
+      scanned.get();
+    }
+    long start = System.nanoTime();
+    int matches = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      matches = indexed.get();
+    }
+    double indexMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+    start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      scanned.get();
+    }
+    double scanMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+    System.out.printf(
+        "%-13s matches=%7d index=%8.3f ms scan=%8.3f ms%n", name, matches, indexMillis, scanMillis);
+  }
+}
+
@@ -0,0 +1,134 @@
+package com.finances.benchmark;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.finances.infrastructure.persistence.CompressedWalletFile;
+import com.finances.infrastructure.persistence.FileStorage;
+import com.finances.infrastructure.persistence.ShardedWalletStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * File size, save time and load time of the wallet storage formats.
+ *
+ * <p>Also measures a partial read of the last 100 transactions from the compressed file, which only
+ * decompresses the blocks holding them, and a filtered query through {@link
+ * FileStorage#findTransactions}, which the sharded format answers from its index.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.finances.benchmark.StorageFormatBenchmark -Dexec.args="<transactions>"}.
+ */
+public class StorageFormatBenchmark {
+  private static final String[] CATEGORIES = {
+    "Еда", "Транспорт", "Коммунальные услуги", "Зарплата"
+  };
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    Wallet wallet = new Wallet("benchmark");
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    for (int i = 0; i < count; i++) {
+      wallet.addTransaction(
+          new Transaction(
+              UUID.randomUUID().toString(),
+              i % 10 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+              CATEGORIES[i % CATEGORIES.length],
+              1 + (i % 10_000) / 100.0,
+              start.plusMinutes(i),
+              i % 3 == 0 ? "" : "Покупка " + (i % 100)));
+    }
+
+    Path directory = Files.createTempDirectory("storage-bench");
+    try {
+      for (FileStorage.Format format : FileStorage.Format.values()) {
+        FileStorage storage = new FileStorage(directory.toString(), format);
+        Path file =
+            directory.resolve(
+                format == FileStorage.Format.JSON
+                    ? "benchmark.wallet"
+                    : format == FileStorage.Format.COMPRESSED
+                        ? "benchmark" + CompressedWalletFile.EXTENSION
+                        : "benchmark" + ShardedWalletStore.DIRECTORY_SUFFIX);
+        long saveNanos = Long.MAX_VALUE;
+        long loadNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+          long begin = System.nanoTime();
+          storage.saveWallet(wallet);
+          saveNanos = Math.min(saveNanos, System.nanoTime() - begin);
+          begin = System.nanoTime();
+          storage.loadWallet("benchmark");
+          loadNanos = Math.min(loadNanos, System.nanoTime() - begin);
+        }
+        System.out.printf(
+            "%-10s size=%8.2f MB save=%7.1f ms load=%7.1f ms%n",
+            format, sizeOf(file) / 1e6, saveNanos / 1e6, loadNanos / 1e6);
+
+        if (format == FileStorage.Format.COMPRESSED) {
+          long partialNanos = Long.MAX_VALUE;
+          for (int round = 0; round < ROUNDS; round++) {
+            long begin = System.nanoTime();
+            try (CompressedWalletFile compressed = CompressedWalletFile.open(file)) {
+              compressed.readTransactions(count - 100, count);
+            }
+            partialNanos = Math.min(partialNanos, System.nanoTime() - begin);
+          }
+          System.out.printf("%-10s last 100 transactions: %.2f ms%n", format, partialNanos / 1e6);
+        }
+        if (format == FileStorage.Format.SHARDED) {
+          // Appending one transaction to a loaded wallet touches one segment and the manifest
+          Wallet loaded = storage.loadWallet("benchmark");
+          long appendNanos = Long.MAX_VALUE;
+          for (int round = 0; round < ROUNDS; round++) {
+            loaded.addTransaction(
+                new Transaction(
+                    UUID.randomUUID().toString(),
+                    TransactionType.EXPENSE,
+                    CATEGORIES[0],
+                    1.0,
+                    start.plusMinutes(count + round),
+                    ""));
+            long begin = System.nanoTime();
+            storage.saveWallet(loaded);
+            appendNanos = Math.min(appendNanos, System.nanoTime() - begin);
+          }
+          System.out.printf(
+              "%-10s save after one new transaction: %.2f ms%n", format, appendNanos / 1e6);
+        }
+        // Expenses of one category in one week; only the sharded index avoids a full load
+        LocalDateTime from = start.plusDays(30);
+        long queryNanos = Long.MAX_VALUE;
+        int found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+          long begin = System.nanoTime();
+          found =
+              storage
+                  .findTransactions(
+                      "benchmark", TransactionType.EXPENSE, CATEGORIES[1], from, from.plusDays(7))
+                  .size();
+          queryNanos = Math.min(queryNanos, System.nanoTime() - begin);
+        }
+        System.out.printf(
+            "%-10s category+week query: %d rows in %.2f ms%n", format, found, queryNanos / 1e6);
+        storage.deleteWallet("benchmark");
+      }
+    } finally {
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  private static long sizeOf(Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      return Files.size(path);
+    }
+    try (Stream<Path> files = Files.walk(path)) {
+      return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+    }
+  }
+}
+
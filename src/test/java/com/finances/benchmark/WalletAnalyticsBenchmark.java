@@ -0,0 +1,76 @@
+package com.finances.benchmark;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.finances.infrastructure.analytics.WalletAggregate;
+import com.finances.infrastructure.analytics.WalletAnalytics;
+import com.finances.infrastructure.persistence.FileStorage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Cores-vs-throughput scaling of {@link WalletAnalytics}.
+ *
+ * <p>Writes synthetic wallets to a temporary directory and aggregates them with 1, 2, 4, ... up to
+ * the number of available processors, printing wallets per second and the speedup over one thread.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.finances.benchmark.WalletAnalyticsBenchmark -Dexec.args="<wallets>
+ * <transactions per wallet>"}.
+ */
+public class WalletAnalyticsBenchmark {
+  private static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Fun", "Health"};
+
+  public static void main(String[] args) throws Exception {
+    int wallets = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int transactionsPerWallet = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+    Path directory = Files.createTempDirectory("analytics-bench");
+    FileStorage fileStorage = new FileStorage(directory.toString());
+    Random random = new Random(42);
+    LocalDateTime now = LocalDateTime.now();
+    for (int w = 0; w < wallets; w++) {
+      Wallet wallet = new Wallet("user" + w);
+      for (int t = 0; t < transactionsPerWallet; t++) {
+        TransactionType type = t % 10 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+        wallet.addTransaction(
+            new Transaction(
+                UUID.randomUUID().toString(),
+                type,
+                CATEGORIES[random.nextInt(CATEGORIES.length)],
+                1 + random.nextInt(10_000) / 100.0,
+                now,
+                "benchmark"));
+      }
+      fileStorage.saveWallet(wallet);
+    }
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    System.out.printf(
+        "wallets=%d transactions/wallet=%d cores=%d%n", wallets, transactionsPerWallet, cores);
+    new WalletAnalytics(directory, cores).run(); // warm-up
+    double baseline = 0;
+    for (int threads = 1; threads <= cores; threads *= 2) {
+      long start = System.nanoTime();
+      WalletAggregate aggregate = new WalletAnalytics(directory, threads).run();
+      double seconds = (System.nanoTime() - start) / 1e9;
+      double throughput = aggregate.getWalletCount() / seconds;
+      if (threads == 1) {
+        baseline = throughput;
+      }
+      System.out.printf(
+          "threads=%2d time=%7.1f ms throughput=%8.0f wallets/s speedup=%.2fx%n",
+          threads, seconds * 1e3, throughput, throughput / baseline);
+    }
+
+    try (var files = Files.list(directory)) {
+      files.forEach(file -> file.toFile().delete());
+    }
+    Files.delete(directory);
+  }
+}
+
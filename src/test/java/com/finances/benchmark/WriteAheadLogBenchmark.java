@@ -0,0 +1,101 @@
+package com.finances.benchmark;
+
+import com.finances.core.domain.Wallet;
+import com.finances.core.service.TransactionService;
+import com.finances.infrastructure.persistence.FileStorage;
+import com.finances.infrastructure.persistence.WriteAheadLogWalletRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Durable commit latency and throughput of the write-ahead log repository.
+ *
+ * <p>Every writer thread owns one wallet and adds expenses through {@link TransactionService}; each
+ * call returns only after its log record is forced to disk. Prints commits per second, latency
+ * percentiles and the average number of commits sharing one fsync for a growing number of writers.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.finances.benchmark.WriteAheadLogBenchmark -Dexec.args="<commits per writer>
+ * [directory]"}. Pass a directory on the disk to measure; the default temporary directory may be a
+ * RAM disk where fsync is free.
+ */
+public class WriteAheadLogBenchmark {
+  private static final int[] WRITERS = {1, 2, 4, 8, 16, 32};
+
+  public static void main(String[] args) throws Exception {
+    int commits = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+    Path parent = args.length > 1 ? Path.of(args[1]) : null;
+
+    for (int writers : WRITERS) {
+      Path directory =
+          parent == null
+              ? Files.createTempDirectory("wal-bench")
+              : Files.createTempDirectory(parent, "wal-bench");
+      try {
+        run(directory, writers, commits);
+      } finally {
+        deleteRecursively(directory);
+      }
+    }
+  }
+
+  private static void run(Path directory, int writers, int commits) throws Exception {
+    FileStorage storage = new FileStorage(directory.toString(), FileStorage.Format.SHARDED);
+    long[] latencies = new long[writers * commits];
+    long syncs;
+    long elapsed;
+    try (WriteAheadLogWalletRepository repository =
+        new WriteAheadLogWalletRepository(storage, Long.MAX_VALUE)) {
+      TransactionService service = new TransactionService(repository);
+      for (int w = 0; w < writers; w++) {
+        repository.save(new Wallet("writer" + w));
+      }
+      long syncsBefore = repository.getSyncCount();
+      List<Thread> threads = new ArrayList<>();
+      for (int w = 0; w < writers; w++) {
+        String userId = "writer" + w;
+        int offset = w * commits;
+        threads.add(
+            new Thread(
+                () -> {
+                  for (int i = 0; i < commits; i++) {
+                    long begin = System.nanoTime();
+                    service.addExpense(userId, "Еда", 1.0, "");
+                    latencies[offset + i] = System.nanoTime() - begin;
+                  }
+                }));
+      }
+      long start = System.nanoTime();
+      threads.forEach(Thread::start);
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      elapsed = System.nanoTime() - start;
+      syncs = repository.getSyncCount() - syncsBefore;
+    }
+
+    Arrays.sort(latencies);
+    System.out.printf(
+        "writers=%2d commits/s=%9.0f p50=%7.3f ms p99=%7.3f ms commits/fsync=%6.2f%n",
+        writers,
+        latencies.length * 1e9 / elapsed,
+        latencies[latencies.length / 2] / 1e6,
+        latencies[(int) (latencies.length * 0.99)] / 1e6,
+        (double) latencies.length / Math.max(1, syncs));
+  }
+
+  private static void deleteRecursively(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+}
+
@@ -0,0 +1,162 @@
+package com.finances.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.Wallet;
+import com.finances.core.repository.WalletRepository;
+import com.finances.core.service.BudgetService;
+import com.finances.core.service.TransactionService;
+import com.finances.infrastructure.persistence.FileStorage;
+import com.finances.infrastructure.persistence.InMemoryWalletRepository;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchRunnerTest {
+  private static final String USER1 = "batchAlice";
+  private static final String USER2 = "batchBob";
+
+  @TempDir Path tempDir;
+
+  private FileStorage fileStorage;
+  private BatchRunner batchRunner;
+
+  @BeforeEach
+  void setUp() {
+    WalletRepository walletRepository = new InMemoryWalletRepository();
+    fileStorage = new FileStorage();
+    batchRunner =
+        new BatchRunner(
+            new TransactionService(walletRepository),
+            new BudgetService(walletRepository),
+            fileStorage,
+            walletRepository);
+  }
+
+  @AfterEach
+  void tearDown() {
+    fileStorage.deleteWallet(USER1);
+    fileStorage.deleteWallet(USER2);
+    new File(USER1 + "_export.csv").delete();
+    new File(USER1 + "_export.csv.hwm").delete();
+  }
+
+  @Test
+  void shouldParseQuotedArguments() {
+    BatchCommand command = BatchCommand.parse(1, "expense \"Коммунальные услуги\" 3000 \"за май\"");
+
+    assertEquals(BatchCommand.Kind.EXPENSE, command.getKind());
+    assertEquals("Коммунальные услуги", command.getTarget());
+    assertEquals(3000.0, command.getAmount());
+    assertEquals("за май", command.getText());
+  }
+
+  @Test
+  void shouldSkipBlankLinesAndComments() {
+    List<BatchCommand> commands = BatchCommand.parseAll(List.of("", "  # comment", "user alice"));
+
+    assertEquals(1, commands.size());
+  }
+
+  @Test
+  void shouldRejectMalformedLinesWithLineNumber() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BatchCommand.parseAll(List.of("user alice", "income Salary abc")));
+
+    assertTrue(e.getMessage().startsWith("Line 2"));
+    assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "withdraw 10"));
+    assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "expense Food -5"));
+    assertThrows(IllegalArgumentException.class, () -> BatchCommand.parse(1, "income Gift NaN"));
+    assertThrows(
+        IllegalArgumentException.class, () -> BatchCommand.parse(1, "budget Food Infinity"));
+  }
+
+  @Test
+  void shouldRunCommandsAndFlushWallets() throws IOException {
+    fileStorage.saveWallet(new Wallet(USER2));
+    Path script =
+        Files.writeString(
+            tempDir.resolve("commands.txt"),
+            String.join(
+                "\n",
+                "user " + USER1,
+                "income Salary 5000 \"Monthly salary\"",
+                "expense Food 300",
+                "budget Food 1000",
+                "transfer " + USER2 + " 700 Gift",
+                "export csv"));
+
+    BatchRunner.Report report = batchRunner.run(script);
+
+    assertEquals(6, report.getCommandCount());
+    assertTrue(report.getErrors().isEmpty());
+    assertTrue(report.getCommandsPerSecond() > 0);
+    assertTrue(new File(USER1 + "_export.csv").exists());
+
+    Wallet alice = fileStorage.loadWallet(USER1);
+    assertEquals(4000.0, alice.getBalance());
+    assertEquals(1000.0, alice.getBudget("Food").getLimit());
+    assertEquals(700.0, fileStorage.loadWallet(USER2).getBalance());
+  }
+
+  @Test
+  void shouldSaveWalletOncePerRunOfTransactions() throws IOException {
+    AtomicInteger saves = new AtomicInteger();
+    WalletRepository countingRepository =
+        new InMemoryWalletRepository() {
+          @Override
+          public void save(Wallet wallet) {
+            saves.incrementAndGet();
+            super.save(wallet);
+          }
+        };
+    BatchRunner runner =
+        new BatchRunner(
+            new TransactionService(countingRepository),
+            new BudgetService(countingRepository),
+            fileStorage,
+            countingRepository);
+
+    BatchRunner.Report report =
+        runner.run(
+            BatchCommand.parseAll(
+                List.of(
+                    "user " + USER1,
+                    "income Salary 5000",
+                    "expense Food 300",
+                    "expense \"\" 10",
+                    "expense Rent 1000")));
+
+    assertEquals(List.of("Line 4: Category cannot be null or empty"), report.getErrors());
+    assertEquals(2, saves.get());
+    assertEquals(3700.0, fileStorage.loadWallet(USER1).getBalance());
+  }
+
+  @Test
+  void shouldReportExecutionErrorsAndContinue() throws IOException {
+    Path script =
+        Files.writeString(
+            tempDir.resolve("commands.txt"),
+            String.join(
+                "\n",
+                "income Salary 100",
+                "user " + USER1,
+                "transfer nobody 10",
+                "income Salary 100"));
+
+    BatchRunner.Report report = batchRunner.run(script);
+
+    assertEquals(2, report.getErrors().size());
+    assertEquals(100.0, fileStorage.loadWallet(USER1).getBalance());
+  }
+}
+
@@ -0,0 +1,174 @@
+package com.finances.core.domain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class AttributeIndexTest {
+  private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+  @Test
+  void shouldFindTransactionsOfCategoriesInInsertionOrder() {
+    Wallet wallet = new Wallet("testUser");
+    wallet.addTransaction(transaction("1", TransactionType.EXPENSE, "Food", 10));
+    wallet.addTransaction(transaction("2", TransactionType.INCOME, "Salary", 100));
+    wallet.addTransaction(transaction("3", TransactionType.EXPENSE, "Transport", 5));
+    wallet.addTransaction(transaction("4", TransactionType.EXPENSE, "Food", 20));
+    wallet.addTransaction(transaction("5", TransactionType.EXPENSE, "Food/Cafe", 7));
+
+    WalletSnapshot snapshot = wallet.snapshot();
+    assertEquals(
+        List.of("1", "3", "4"),
+        ids(snapshot.getTransactionsForCategories(List.of("Transport", "Food", "Food"))));
+    assertEquals(List.of("5"), ids(snapshot.getTransactionsForCategories(List.of("Food/Cafe"))));
+    assertTrue(snapshot.getTransactionsForCategories(List.of("Unknown")).isEmpty());
+  }
+
+  @Test
+  void shouldOnlySeeTransactionsOfSnapshot() {
+    Wallet wallet = new Wallet("testUser");
+    wallet.addTransaction(transaction("1", TransactionType.EXPENSE, "Food", 10));
+    WalletSnapshot before = wallet.snapshot();
+    for (int i = 2; i <= 20; i++) {
+      wallet.addTransaction(transaction(String.valueOf(i), TransactionType.EXPENSE, "Food", i));
+    }
+
+    assertEquals(List.of("1"), ids(before.getTransactionsForCategories(List.of("Food"))));
+    assertEquals(20, wallet.snapshot().getTransactionsForCategories(List.of("Food")).size());
+  }
+
+  @Test
+  void shouldMergeHistoryAndLoadItOnlyForTransactionQueries() {
+    List<Transaction> persisted = new ArrayList<>();
+    persisted.add(transaction("h1", TransactionType.EXPENSE, "Food", 10));
+    persisted.add(transaction("h2", TransactionType.EXPENSE, "Rent", 500));
+    persisted.add(transaction("h3", TransactionType.INCOME, "Salary", 1000));
+    AtomicInteger loads = new AtomicInteger();
+    Wallet wallet = new Wallet("testUser", new ListTransactionHistory(persisted, loads));
+    wallet.addTransaction(transaction("n1", TransactionType.EXPENSE, "Food", 15));
+    wallet.addTransaction(transaction("n2", TransactionType.EXPENSE, "Rent", 500));
+
+    WalletSnapshot snapshot = wallet.snapshot();
+    assertEquals(25.0, snapshot.getExpenseForCategories(List.of("Food")), 0.001);
+    assertEquals(1000.0, snapshot.getIncomeForCategories(List.of("Salary", "Food")), 0.001);
+    assertEquals(List.of("Other"), snapshot.getUnknownCategories(List.of("Food", "Other")));
+    assertEquals(0, loads.get());
+
+    assertEquals(
+        List.of("h1", "h2", "n1", "n2"),
+        ids(snapshot.getTransactionsForCategories(List.of("Rent", "Food"))));
+    assertEquals(List.of("h3"), ids(snapshot.getTransactionsForCategories(List.of("Salary"))));
+  }
+
+  @Test
+  void shouldTreatCategoriesWithOnlySubcategoriesAsUnknown() {
+    Wallet wallet = new Wallet("testUser");
+    wallet.addTransaction(transaction("1", TransactionType.EXPENSE, "Food/Cafe", 10));
+
+    WalletSnapshot snapshot = wallet.snapshot();
+    assertEquals(
+        List.of("Food", "Cafe"),
+        snapshot.getUnknownCategories(List.of("Food", "Food/Cafe", "Cafe", "Food")));
+    assertEquals(0.0, snapshot.getExpenseForCategories(List.of("Food")), 0.001);
+    assertEquals(10.0, snapshot.getExpenseForCategories(List.of("Food/Cafe", "Food/Cafe")), 0.001);
+  }
+
+  @Test
+  void shouldCombineAttributeConditions() {
+    Wallet wallet = new Wallet("testUser");
+    wallet.addTransaction(at("1", TransactionType.EXPENSE, "Food", 12, 2024, 1));
+    wallet.addTransaction(at("2", TransactionType.EXPENSE, "Food", 250, 2024, 2));
+    wallet.addTransaction(at("3", TransactionType.INCOME, "Salary", 5000, 2024, 2));
+    wallet.addTransaction(at("4", TransactionType.EXPENSE, "Rent", 800, 2024, 3));
+    wallet.addTransaction(at("5", TransactionType.EXPENSE, "Food", 40, 2024, 3));
+
+    WalletSnapshot snapshot = wallet.snapshot();
+    TransactionQuery expenses = TransactionQuery.type(TransactionType.EXPENSE);
+    TransactionQuery spring = TransactionQuery.months(YearMonth.of(2024, 2), YearMonth.of(2024, 3));
+    TransactionQuery hundreds = TransactionQuery.amountBucket(TransactionQuery.bucketOf(250));
+
+    TransactionSelection selection = snapshot.select(expenses.and(spring));
+    assertEquals(List.of("2", "4", "5"), ids(selection.getTransactions()));
+    assertEquals(3, selection.size());
+    assertEquals(1090.0, selection.getTotalExpense(), 0.001);
+    assertEquals(0.0, selection.getTotalIncome(), 0.001);
+
+    assertEquals(
+        List.of("1", "5"),
+        ids(
+            snapshot
+                .select(TransactionQuery.category("Food").and(hundreds.not()))
+                .getTransactions()));
+    assertEquals(
+        List.of("2", "3", "4"),
+        ids(snapshot.select(hundreds.or(TransactionQuery.amountBucket(3))).getTransactions()));
+    assertEquals(
+        List.of("1", "3"),
+        ids(
+            snapshot
+                .select(TransactionQuery.month(YearMonth.of(2024, 1)).or(expenses.not()))
+                .getTransactions()));
+    assertEquals(5, snapshot.select(TransactionQuery.all()).size());
+    assertEquals(0, snapshot.select(TransactionQuery.category("Travel")).size());
+  }
+
+  @Test
+  void shouldSelectAcrossHistoryAndNewTransactions() {
+    List<Transaction> persisted = new ArrayList<>();
+    persisted.add(at("h1", TransactionType.EXPENSE, "Food", 10, 2023, 12));
+    persisted.add(at("h2", TransactionType.INCOME, "Salary", 1000, 2024, 1));
+    Wallet wallet =
+        new Wallet("testUser", new ListTransactionHistory(persisted, new AtomicInteger()));
+    wallet.addTransaction(at("n1", TransactionType.EXPENSE, "Food", 20, 2024, 1));
+    WalletSnapshot before = wallet.snapshot();
+    wallet.addTransaction(at("n2", TransactionType.EXPENSE, "Food", 30, 2024, 1));
+
+    TransactionQuery food = TransactionQuery.category("Food");
+    assertEquals(List.of("h1", "n1"), ids(before.select(food).getTransactions()));
+    assertEquals(60.0, wallet.snapshot().select(food).getTotalExpense(), 0.001);
+    assertEquals(
+        List.of("h2", "n1", "n2"),
+        ids(
+            wallet
+                .snapshot()
+                .select(TransactionQuery.month(YearMonth.of(2024, 1)))
+                .getTransactions()));
+  }
+
+  @Test
+  void shouldRejectInvalidQueries() {
+    assertThrows(IllegalArgumentException.class, () -> TransactionQuery.type(null));
+    assertThrows(IllegalArgumentException.class, () -> TransactionQuery.category(null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> TransactionQuery.months(YearMonth.of(2024, 3), YearMonth.of(2024, 2)));
+    assertThrows(IllegalArgumentException.class, () -> TransactionQuery.all().and(null));
+    assertEquals(2, TransactionQuery.bucketOf(100));
+    assertEquals(1, TransactionQuery.bucketOf(99.99));
+    assertEquals(-1, TransactionQuery.bucketOf(0.5));
+  }
+
+  private static Transaction at(
+      String id, TransactionType type, String category, double amount, int year, int month) {
+    return new Transaction(id, type, category, amount, LocalDateTime.of(year, month, 10, 9, 0), "");
+  }
+
+  private static Transaction transaction(
+      String id, TransactionType type, String category, double amount) {
+    return new Transaction(id, type, category, amount, BASE, "");
+  }
+
+  private static List<String> ids(List<Transaction> transactions) {
+    List<String> ids = new ArrayList<>();
+    for (Transaction transaction : transactions) {
+      ids.add(transaction.getId());
+    }
+    return ids;
+  }
+}
+
@@ -0,0 +1,64 @@
+package com.finances.core.domain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+class BudgetPeriodTest {
+
+  @Test
+  void shouldMapEveryDayToThePeriodStartingOnOrBeforeIt() {
+    BudgetPeriod[] periods = {
+      BudgetPeriod.weekly(false),
+      BudgetPeriod.monthly(false),
+      BudgetPeriod.days(10, LocalDate.of(2024, 1, 3), false)
+    };
+    for (BudgetPeriod period : periods) {
+      for (LocalDate date = LocalDate.of(2023, 11, 1);
+          date.isBefore(LocalDate.of(2024, 4, 1));
+          date = date.plusDays(1)) {
+        long index = period.indexOf(date);
+        LocalDate start = period.startOf(index);
+        assertFalse(start.isAfter(date), period + " " + date);
+        assertTrue(period.startOf(index + 1).isAfter(date), period + " " + date);
+        assertEquals(index, period.indexOf(start));
+      }
+    }
+  }
+
+  @Test
+  void shouldStartWeeksOnMondayAndMonthsOnFirstDay() {
+    LocalDate sunday = LocalDate.of(2024, 3, 17);
+
+    BudgetPeriod weekly = BudgetPeriod.weekly(false);
+    assertEquals(DayOfWeek.MONDAY, weekly.startOf(weekly.indexOf(sunday)).getDayOfWeek());
+    assertEquals(LocalDate.of(2024, 3, 11), weekly.startOf(weekly.indexOf(sunday)));
+
+    BudgetPeriod monthly = BudgetPeriod.monthly(false);
+    assertEquals(LocalDate.of(2024, 3, 1), monthly.startOf(monthly.indexOf(sunday)));
+  }
+
+  @Test
+  void shouldParseWhatItFormats() {
+    BudgetPeriod[] periods = {
+      BudgetPeriod.weekly(true),
+      BudgetPeriod.monthly(false),
+      BudgetPeriod.days(14, LocalDate.of(2024, 2, 29), true)
+    };
+    for (BudgetPeriod period : periods) {
+      assertEquals(period, BudgetPeriod.parse(period.format()));
+    }
+    assertEquals(BudgetPeriod.monthly(true), BudgetPeriod.parse(" monthly+rollover "));
+  }
+
+  @Test
+  void shouldRejectInvalidPeriods() {
+    assertThrows(IllegalArgumentException.class, () -> BudgetPeriod.parse("yearly"));
+    assertThrows(IllegalArgumentException.class, () -> BudgetPeriod.parse("days:0:2024-01-01"));
+    assertThrows(IllegalArgumentException.class, () -> BudgetPeriod.parse("days:7:tomorrow"));
+    assertThrows(IllegalArgumentException.class, () -> BudgetPeriod.days(7, null, false));
+  }
+}
+
@@ -29,6 +29,14 @@ class BudgetTest {
     assertThrows(IllegalArgumentException.class, () -> new Budget("Food", -100.0));
   }
 
+  @Test
+  void shouldThrowExceptionWhenLimitIsNotFinite() {
+    assertThrows(IllegalArgumentException.class, () -> new Budget("Food", Double.NaN));
+    assertThrows(
+        IllegalArgumentException.class, () -> new Budget("Food", Double.POSITIVE_INFINITY));
+    assertThrows(IllegalArgumentException.class, () -> new Budget("Food", 1).setLimit(Double.NaN));
+  }
+
   @Test
   void shouldAllowZeroLimit() {
     Budget budget = new Budget("Food", 0.0);
@@ -0,0 +1,63 @@
+package com.finances.core.domain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class CategoryTreeTest {
+
+  @Test
+  void shouldRollUpAmountsAlongAncestorPath() {
+    CategoryTree tree =
+        CategoryTree.empty()
+            .add("Food/Groceries", TransactionType.EXPENSE, 300.0)
+            .add("Food/Cafe", TransactionType.EXPENSE, 120.0)
+            .add("Food", TransactionType.EXPENSE, 30.0)
+            .add("Food/Groceries/Fruit", TransactionType.EXPENSE, 50.0)
+            .add("Food/Cafe", TransactionType.INCOME, 10.0);
+
+    assertEquals(500.0, tree.getExpense("Food"));
+    assertEquals(30.0, tree.getOwnExpense("Food"));
+    assertEquals(350.0, tree.getExpense("Food/Groceries"));
+    assertEquals(300.0, tree.getOwnExpense("Food/Groceries"));
+    assertEquals(10.0, tree.getIncome("Food"));
+    assertEquals(0.0, tree.getOwnIncome("Food"));
+    assertEquals(0.0, tree.getExpense("Food/Groc"));
+    assertFalse(tree.contains("Rent"));
+    assertEquals(Set.of("Food"), tree.getRoots());
+    assertEquals(Set.of("Food/Cafe", "Food/Groceries"), tree.getChildren("Food"));
+  }
+
+  @Test
+  void shouldLeaveEarlierVersionsUnchanged() {
+    CategoryTree before = CategoryTree.empty().add("Food/Cafe", TransactionType.EXPENSE, 100.0);
+    CategoryTree after = before.add("Food/Cafe", TransactionType.EXPENSE, 50.0);
+
+    assertEquals(100.0, before.getExpense("Food"));
+    assertEquals(150.0, after.getExpense("Food"));
+  }
+
+  @Test
+  void shouldBuildFromCategoryTotals() {
+    CategoryTree tree =
+        CategoryTree.of(
+            Map.of("Work/Salary", 5000.0, "Work/Bonus", 500.0), Map.of("Home/Rent", 2000.0));
+
+    assertEquals(5500.0, tree.getIncome("Work"));
+    assertEquals(2000.0, tree.getExpense("Home"));
+  }
+
+  @Test
+  void shouldResolvePathsAndSubtrees() {
+    assertEquals(List.of("A", "A/B", "A/B/C"), CategoryTree.pathOf("A/B/C"));
+    assertEquals(List.of("Food"), CategoryTree.pathOf("Food"));
+    assertTrue(CategoryTree.isWithin("Food/Cafe", "Food"));
+    assertTrue(CategoryTree.isWithin("Food", "Food"));
+    assertFalse(CategoryTree.isWithin("Foodstuff", "Food"));
+    assertFalse(CategoryTree.isWithin("Food", "Food/Cafe"));
+  }
+}
+
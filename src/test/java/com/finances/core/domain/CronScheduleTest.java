@@ -0,0 +1,66 @@
+package com.finances.core.domain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+class CronScheduleTest {
+  private static final LocalDateTime START = LocalDateTime.of(2024, 1, 15, 10, 30, 20);
+
+  @Test
+  void shouldFindNextOccurrenceOfFixedTime() {
+    CronSchedule schedule = CronSchedule.parse("0 9 1 * *");
+
+    assertEquals(LocalDateTime.of(2024, 2, 1, 9, 0), schedule.next(START));
+    assertEquals(
+        LocalDateTime.of(2024, 3, 1, 9, 0), schedule.next(LocalDateTime.of(2024, 2, 1, 9, 0)));
+  }
+
+  @Test
+  void shouldSupportListsRangesAndSteps() {
+    CronSchedule schedule = CronSchedule.parse("*/15 8-17/3 * * 1-5");
+
+    assertEquals(LocalDateTime.of(2024, 1, 15, 11, 0), schedule.next(START));
+    assertEquals(
+        LocalDateTime.of(2024, 1, 15, 11, 15), schedule.next(LocalDateTime.of(2024, 1, 15, 11, 0)));
+    // Friday 17:45 is followed by Monday 08:00
+    assertEquals(
+        LocalDateTime.of(2024, 1, 22, 8, 0), schedule.next(LocalDateTime.of(2024, 1, 19, 17, 45)));
+  }
+
+  @Test
+  void shouldMatchEitherDayWhenBothDayFieldsAreRestricted() {
+    CronSchedule schedule = CronSchedule.parse("0 0 13 * 5");
+
+    // Friday the 19th comes before the 13th of February
+    assertEquals(LocalDateTime.of(2024, 1, 19, 0, 0), schedule.next(START));
+    assertEquals(
+        LocalDateTime.of(2024, 2, 13, 0, 0), schedule.next(LocalDateTime.of(2024, 2, 9, 0, 0)));
+  }
+
+  @Test
+  void shouldIncludeStartInFirstOccurrence() {
+    CronSchedule schedule = CronSchedule.parse("@daily");
+
+    assertEquals(
+        LocalDateTime.of(2024, 1, 15, 0, 0), schedule.first(LocalDateTime.of(2024, 1, 15, 0, 0)));
+    assertEquals(LocalDateTime.of(2024, 1, 16, 0, 0), schedule.first(START));
+    assertEquals("0 0 * * *", schedule.toString());
+    assertEquals(CronSchedule.parse("0 0 * * 7"), CronSchedule.parse("@weekly"));
+    assertEquals(
+        LocalDateTime.of(2028, 2, 29, 12, 0),
+        CronSchedule.parse("0 12 29 2 *").next(LocalDateTime.of(2024, 3, 1, 0, 0)));
+  }
+
+  @Test
+  void shouldRejectInvalidExpressions() {
+    assertThrows(IllegalArgumentException.class, () -> CronSchedule.parse("0 9 1 *"));
+    assertThrows(IllegalArgumentException.class, () -> CronSchedule.parse("60 * * * *"));
+    assertThrows(IllegalArgumentException.class, () -> CronSchedule.parse("0 9 5-1 * *"));
+    assertThrows(IllegalArgumentException.class, () -> CronSchedule.parse("*/0 * * * *"));
+    assertThrows(IllegalArgumentException.class, () -> CronSchedule.parse("0 0 30 2 *"));
+    assertThrows(IllegalArgumentException.class, () -> CronSchedule.parse(null));
+  }
+}
+
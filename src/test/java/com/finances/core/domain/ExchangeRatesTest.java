@@ -0,0 +1,47 @@
+package com.finances.core.domain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ExchangeRatesTest {
+  private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+
+  private final ExchangeRates rates =
+      new ExchangeRates(
+          "RUB",
+          Map.of(
+              "USD", Map.of(MONDAY, 90.0, MONDAY.plusDays(1), 92.0),
+              "EUR", Map.of(MONDAY, 99.0)));
+
+  @Test
+  void shouldUseLatestRateOnOrBeforeDate() {
+    assertEquals(90.0, rates.getRate("USD", "RUB", MONDAY));
+    assertEquals(92.0, rates.getRate("USD", "RUB", MONDAY.plusDays(1)));
+    assertEquals(92.0, rates.getRate("USD", "RUB", MONDAY.plusDays(5)));
+    assertEquals(1.0, rates.getRate("CNY", "CNY", MONDAY));
+  }
+
+  @Test
+  void shouldConvertBetweenCurrenciesThroughPivot() {
+    assertEquals(1.1, rates.getRate("EUR", "USD", MONDAY), 1e-9);
+    assertEquals(900.0, rates.convert(10.0, "USD", "RUB", MONDAY), 1e-9);
+    assertEquals(0.5, rates.convert(45.0, "RUB", "USD", MONDAY), 1e-9);
+  }
+
+  @Test
+  void shouldRejectDatesBeforeFirstRateAndUnknownCurrencies() {
+    assertThrows(
+        IllegalArgumentException.class, () -> rates.getRate("USD", "RUB", MONDAY.minusDays(1)));
+    assertThrows(IllegalArgumentException.class, () -> rates.getRate("CNY", "RUB", MONDAY));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ExchangeRates("RUB", Map.of("USD", Map.of(MONDAY, 0.0))));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ExchangeRates("RUB", Map.of("US", Map.of(MONDAY, 1.0))));
+  }
+}
+
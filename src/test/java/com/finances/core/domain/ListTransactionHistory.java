@@ -0,0 +1,92 @@
+package com.finances.core.domain;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** History backed by a list that counts how often its transactions are loaded. */
+final class ListTransactionHistory implements TransactionHistory {
+  private final List<Transaction> transactions;
+  private final AtomicInteger loads;
+
+  ListTransactionHistory(List<Transaction> transactions, AtomicInteger loads) {
+    this.transactions = transactions;
+    this.loads = loads;
+  }
+
+  @Override
+  public int size() {
+    return transactions.size();
+  }
+
+  @Override
+  public double getTotalIncome() {
+    return total(TransactionType.INCOME);
+  }
+
+  @Override
+  public double getTotalExpense() {
+    return total(TransactionType.EXPENSE);
+  }
+
+  @Override
+  public Map<String, Double> getIncomeByCategory() {
+    return byCategory(TransactionType.INCOME);
+  }
+
+  @Override
+  public Map<String, Double> getExpenseByCategory() {
+    return byCategory(TransactionType.EXPENSE);
+  }
+
+  @Override
+  public List<Transaction> getTransactions() {
+    loads.incrementAndGet();
+    return transactions;
+  }
+
+  @Override
+  public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+    loads.incrementAndGet();
+    List<Transaction> result = new ArrayList<>();
+    for (Transaction transaction : transactions) {
+      if (!transaction.getTimestamp().isBefore(from) && transaction.getTimestamp().isBefore(to)) {
+        result.add(transaction);
+      }
+    }
+    return result;
+  }
+
+  /** Answers like storage that records the currencies in its metadata, without a load. */
+  @Override
+  public Set<String> getCurrencies() {
+    Set<String> currencies = new TreeSet<>();
+    for (Transaction transaction : transactions) {
+      currencies.add(transaction.getCurrency());
+    }
+    return currencies;
+  }
+
+  private double total(TransactionType type) {
+    return transactions.stream()
+        .filter(t -> t.getType() == type)
+        .mapToDouble(Transaction::getAmount)
+        .sum();
+  }
+
+  private Map<String, Double> byCategory(TransactionType type) {
+    Map<String, Double> sums = new HashMap<>();
+    for (Transaction transaction : transactions) {
+      if (transaction.getType() == type) {
+        sums.merge(transaction.getCategory(), transaction.getAmount(), Double::sum);
+      }
+    }
+    return sums;
+  }
+}
+
@@ -0,0 +1,100 @@
+package com.finances.core.domain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class OrdinalBitmapTest {
+  private static final int UNIVERSE = 3 * 65536 + 1000;
+
+  @Test
+  void shouldMatchBitSetForSparseAndDenseChunks() {
+    Random random = new Random(7);
+    // Densities on both sides of the array limit, so chunks of both kinds meet in every operation
+    double[] densities = {0.001, 0.05, 0.5};
+    for (double left : densities) {
+      for (double right : densities) {
+        BitSet leftBits = new BitSet();
+        BitSet rightBits = new BitSet();
+        OrdinalBitmap leftBitmap = fill(random, left, leftBits);
+        OrdinalBitmap rightBitmap = fill(random, right, rightBits);
+
+        BitSet and = (BitSet) leftBits.clone();
+        and.and(rightBits);
+        BitSet or = (BitSet) leftBits.clone();
+        or.or(rightBits);
+        BitSet andNot = (BitSet) leftBits.clone();
+        andNot.andNot(rightBits);
+
+        assertSame(and, leftBitmap.and(rightBitmap));
+        assertSame(or, leftBitmap.or(rightBitmap));
+        assertSame(andNot, leftBitmap.andNot(rightBitmap));
+      }
+    }
+  }
+
+  @Test
+  void shouldClipToBound() {
+    BitSet bits = new BitSet();
+    OrdinalBitmap bitmap = fill(new Random(3), 0.2, bits);
+    for (int bound : new int[] {0, 1, 63, 64, 65535, 65536, 70000, 2 * 65536 + 17, UNIVERSE}) {
+      assertSame(bits.get(0, bound), bitmap.clip(bound));
+    }
+  }
+
+  @Test
+  void shouldCreateRangeAndNegate() {
+    BitSet bits = new BitSet();
+    OrdinalBitmap bitmap = fill(new Random(5), 0.3, bits);
+    for (int bound : new int[] {0, 10, 4096, 4097, 65536, UNIVERSE}) {
+      BitSet range = new BitSet();
+      range.set(0, bound);
+      assertSame(range, OrdinalBitmap.range(bound));
+
+      range.andNot(bits);
+      assertSame(range, OrdinalBitmap.range(bound).andNot(bitmap.clip(bound)));
+    }
+  }
+
+  @Test
+  void shouldStoreDenseChunksAsBits() {
+    OrdinalBitmap sparse = new OrdinalBitmap();
+    OrdinalBitmap dense = new OrdinalBitmap();
+    for (int i = 0; i < 65536; i++) {
+      if (i % 100 == 0) {
+        sparse.add(i);
+      }
+      dense.add(i);
+    }
+
+    assertEquals(656, sparse.cardinality());
+    assertEquals(65536, dense.cardinality());
+    // Two bytes per sparse member, one bit per dense ordinal, plus a fixed overhead
+    assertTrue(sparse.getMemoryBytes() < 2 * 1024 + 256);
+    assertTrue(dense.getMemoryBytes() < 8 * 1024 + 256);
+    assertTrue(dense.contains(4097));
+    assertFalse(sparse.contains(101));
+  }
+
+  private static OrdinalBitmap fill(Random random, double density, BitSet bits) {
+    OrdinalBitmap bitmap = new OrdinalBitmap();
+    for (int i = 0; i < UNIVERSE; i++) {
+      if (random.nextDouble() < density) {
+        bitmap.add(i);
+        bits.set(i);
+      }
+    }
+    assertSame(bits, bitmap);
+    return bitmap;
+  }
+
+  private static void assertSame(BitSet expected, OrdinalBitmap actual) {
+    BitSet bits = new BitSet();
+    actual.forEach(bits::set);
+    assertEquals(expected, bits);
+    assertEquals(expected.cardinality(), actual.cardinality());
+  }
+}
+
@@ -0,0 +1,118 @@
+package com.finances.core.domain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SearchIndexTest {
+  private Wallet wallet;
+
+  @BeforeEach
+  void setUp() {
+    wallet = new Wallet("testUser");
+    wallet.addTransaction(expense("1", "Food/Groceries", "Milk and bread"));
+    wallet.addTransaction(expense("2", "Food/Cafe", "Coffee with Anna"));
+    wallet.addTransaction(expense("3", "Transport", "Taxi to the airport"));
+    wallet.addTransaction(expense("4", "Еда", "Молоко, хлеб и МОЛОКО"));
+  }
+
+  @Test
+  void shouldTokenizeIntoLowerCaseWords() {
+    assertEquals(
+        List.of("taxi", "2", "аэропорт", "x1"), SearchIndex.tokenize("Taxi #2 -> Аэропорт, x1!"));
+    assertTrue(SearchIndex.tokenize("  --  ").isEmpty());
+  }
+
+  @Test
+  void shouldFindByTermInDescriptionAndCategory() {
+    assertEquals(List.of("1"), ids(wallet.snapshot().findByTerm("MILK")));
+    assertEquals(List.of("1", "2"), ids(wallet.snapshot().findByTerm("food")));
+    assertEquals(List.of("4"), ids(wallet.snapshot().findByTerm("молоко")));
+    assertTrue(wallet.snapshot().findByTerm("mil").isEmpty());
+  }
+
+  @Test
+  void shouldFindByPrefix() {
+    wallet.addTransaction(expense("5", "Fun", "Cafeteria lunch"));
+
+    assertEquals(List.of("2", "5"), ids(wallet.snapshot().findByPrefix("caf")));
+    assertEquals(List.of("3"), ids(wallet.snapshot().findByPrefix("Air")));
+  }
+
+  @Test
+  void shouldRankRareAndCategoryMatchesFirst() {
+    wallet.addTransaction(expense("5", "Fun", "Coffee beans"));
+    wallet.addTransaction(expense("6", "Fun", "Cafe coffee"));
+
+    List<SearchResult> results = wallet.snapshot().search("cafe coffee", 10);
+
+    assertEquals(
+        List.of("2", "6", "5"), ids(results.stream().map(SearchResult::getTransaction).toList()));
+    assertTrue(results.get(0).getScore() > results.get(1).getScore());
+    assertEquals(1, wallet.snapshot().search("cafe coffee", 1).size());
+    assertEquals(
+        List.of("3"),
+        ids(
+            wallet.snapshot().search("airp*", 5).stream()
+                .map(SearchResult::getTransaction)
+                .toList()));
+    assertThrows(IllegalArgumentException.class, () -> wallet.snapshot().search("x", 0));
+  }
+
+  @Test
+  void shouldNotSeeTransactionsAddedAfterSnapshot() {
+    WalletSnapshot snapshot = wallet.snapshot();
+
+    for (int i = 0; i < 100; i++) {
+      wallet.addTransaction(expense("n" + i, "Food", "Milk"));
+    }
+
+    assertEquals(1, snapshot.findByTerm("milk").size());
+    assertEquals(1, snapshot.search("milk", 200).size());
+    assertEquals(101, wallet.snapshot().findByTerm("milk").size());
+  }
+
+  @Test
+  void shouldIndexHistoryOnFirstQuery() {
+    List<Transaction> stored =
+        List.of(expense("h1", "Rent", "Flat rent"), expense("h2", "Food", "Milk"));
+    AtomicInteger loads = new AtomicInteger();
+    Wallet lazy = new Wallet("lazyUser", new ListTransactionHistory(stored, loads));
+    lazy.addTransaction(expense("n1", "Food", "Milk again"));
+
+    assertEquals(0, loads.get());
+    assertEquals(List.of("h2", "n1"), ids(lazy.snapshot().findByTerm("milk")));
+    assertEquals(
+        List.of("h1"),
+        ids(lazy.snapshot().search("rent", 5).stream().map(SearchResult::getTransaction).toList()));
+    assertTrue(loads.get() > 0);
+  }
+
+  @Test
+  void shouldReportGrowingIndexMemory() {
+    long before = wallet.snapshot().getSearchIndexMemory();
+
+    for (int i = 0; i < 1000; i++) {
+      wallet.addTransaction(expense("m" + i, "Food", "Item number " + i));
+    }
+
+    assertTrue(before > 0);
+    assertTrue(wallet.snapshot().getSearchIndexMemory() > before + 1000 * 4);
+    wallet.clear();
+    assertEquals(0, wallet.snapshot().getSearchIndexMemory());
+  }
+
+  private static List<String> ids(List<Transaction> transactions) {
+    return transactions.stream().map(Transaction::getId).toList();
+  }
+
+  private static Transaction expense(String id, String category, String description) {
+    return new Transaction(
+        id, TransactionType.EXPENSE, category, 1.0, LocalDateTime.now(), description);
+  }
+}
+
@@ -0,0 +1,148 @@
+package com.finances.core.domain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TimeIndexTest {
+  private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+  private Wallet wallet;
+
+  @BeforeEach
+  void setUp() {
+    wallet = new Wallet("testUser");
+    // Added out of time order; t3 and t3b share a timestamp and sort by ID
+    wallet.addTransaction(transaction("t5", TransactionType.EXPENSE, "Food", 5));
+    wallet.addTransaction(transaction("t1", TransactionType.INCOME, "Salary", 1));
+    wallet.addTransaction(transaction("t3b", TransactionType.EXPENSE, "Rent", 3));
+    wallet.addTransaction(transaction("t3", TransactionType.EXPENSE, "Food", 3));
+    wallet.addTransaction(transaction("t2", TransactionType.EXPENSE, "Transport", 2));
+    wallet.addTransaction(transaction("t4", TransactionType.INCOME, "Gift", 4));
+  }
+
+  @Test
+  void shouldPageThroughTransactionsInBothDirections() {
+    assertEquals(
+        List.of("t1", "t2", "t3", "t3b", "t4", "t5"),
+        listAll(wallet.snapshot(), TransactionFilter.all(), SortDirection.ASCENDING, 4));
+    assertEquals(
+        List.of("t5", "t4", "t3b", "t3", "t2", "t1"),
+        listAll(wallet.snapshot(), TransactionFilter.all(), SortDirection.DESCENDING, 1));
+
+    TransactionPage first =
+        wallet.snapshot().getPage(TransactionFilter.all(), SortDirection.ASCENDING, null, 6);
+    assertEquals(6, first.getTransactions().size());
+    assertFalse(first.hasMore());
+  }
+
+  @Test
+  void shouldApplyFilters() {
+    TransactionFilter expenses = TransactionFilter.all().withType(TransactionType.EXPENSE);
+    TransactionFilter food = TransactionFilter.all().withCategories(Set.of("Food", "Gift"));
+    TransactionFilter range = TransactionFilter.all().withRange(at(2), at(4));
+
+    assertEquals(
+        List.of("t2", "t3", "t3b", "t5"),
+        listAll(wallet.snapshot(), expenses, SortDirection.ASCENDING, 2));
+    assertEquals(
+        List.of("t5", "t4", "t3"), listAll(wallet.snapshot(), food, SortDirection.DESCENDING, 2));
+    assertEquals(
+        List.of("t3b", "t3", "t2"), listAll(wallet.snapshot(), range, SortDirection.DESCENDING, 2));
+    assertEquals(
+        List.of("t3"),
+        listAll(
+            wallet.snapshot(), range.withCategories(Set.of("Food")), SortDirection.ASCENDING, 1));
+  }
+
+  @Test
+  void shouldKeepCursorStableWhenTransactionsAreAdded() {
+    TransactionPage first =
+        wallet.snapshot().getPage(TransactionFilter.all(), SortDirection.ASCENDING, null, 3);
+    assertEquals(List.of("t1", "t2", "t3"), ids(first.getTransactions()));
+
+    wallet.addTransaction(transaction("t0", TransactionType.EXPENSE, "Food", 0));
+    wallet.addTransaction(transaction("t6", TransactionType.EXPENSE, "Food", 6));
+    WalletSnapshot before = wallet.snapshot();
+    wallet.addTransaction(transaction("t7", TransactionType.EXPENSE, "Food", 7));
+
+    TransactionPage second =
+        before.getPage(TransactionFilter.all(), SortDirection.ASCENDING, first.getNextCursor(), 10);
+    assertEquals(List.of("t3b", "t4", "t5", "t6"), ids(second.getTransactions()));
+    assertFalse(second.hasMore());
+  }
+
+  @Test
+  void shouldMergeLazyHistoryWithNewTransactions() {
+    List<Transaction> stored =
+        List.of(
+            transaction("h4", TransactionType.EXPENSE, "Food", 4),
+            transaction("h1", TransactionType.EXPENSE, "Food", 1));
+    AtomicInteger loads = new AtomicInteger();
+    Wallet lazy = new Wallet("lazyUser", new ListTransactionHistory(stored, loads));
+    lazy.addTransaction(transaction("n2", TransactionType.EXPENSE, "Food", 2));
+    lazy.addTransaction(transaction("n5", TransactionType.INCOME, "Salary", 5));
+
+    assertEquals(
+        List.of("h1", "n2", "h4", "n5"),
+        listAll(lazy.snapshot(), TransactionFilter.all(), SortDirection.ASCENDING, 1));
+    assertEquals(
+        List.of("h4", "n2", "h1"),
+        listAll(
+            lazy.snapshot(),
+            TransactionFilter.all().withType(TransactionType.EXPENSE),
+            SortDirection.DESCENDING,
+            2));
+    assertTrue(loads.get() > 0);
+  }
+
+  @Test
+  void shouldRejectInvalidArguments() {
+    WalletSnapshot snapshot = wallet.snapshot();
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> snapshot.getPage(TransactionFilter.all(), SortDirection.ASCENDING, "@@", 10));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> snapshot.getPage(TransactionFilter.all(), SortDirection.ASCENDING, "Zm9v", 10));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> snapshot.getPage(TransactionFilter.all(), SortDirection.ASCENDING, null, 0));
+    assertThrows(
+        IllegalArgumentException.class, () -> TransactionFilter.all().withRange(at(3), at(2)));
+  }
+
+  private static List<String> listAll(
+      WalletSnapshot snapshot, TransactionFilter filter, SortDirection direction, int pageSize) {
+    List<String> ids = new ArrayList<>();
+    String cursor = null;
+    do {
+      TransactionPage page = snapshot.getPage(filter, direction, cursor, pageSize);
+      assertTrue(page.getTransactions().size() <= pageSize);
+      ids.addAll(ids(page.getTransactions()));
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+    return ids;
+  }
+
+  private static List<String> ids(List<Transaction> transactions) {
+    return transactions.stream().map(Transaction::getId).toList();
+  }
+
+  private static LocalDateTime at(int hour) {
+    return BASE.plusHours(hour);
+  }
+
+  private static Transaction transaction(
+      String id, TransactionType type, String category, int hour) {
+    return new Transaction(id, type, category, 10.0, at(hour), "");
+  }
+}
+
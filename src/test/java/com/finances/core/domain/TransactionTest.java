@@ -46,6 +46,17 @@ class TransactionTest {
                 "1", TransactionType.INCOME, "Salary", -100.0, LocalDateTime.now(), ""));
   }
 
+  @Test
+  void shouldThrowExceptionWhenAmountIsNotFinite() {
+    for (double amount : new double[] {Double.NaN, Double.POSITIVE_INFINITY}) {
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              new Transaction(
+                  "1", TransactionType.INCOME, "Salary", amount, LocalDateTime.now(), ""));
+    }
+  }
+
   @Test
   void shouldThrowExceptionWhenAmountIsZero() {
     assertThrows(
@@ -72,6 +83,32 @@ class TransactionTest {
     assertEquals("", transaction.getDescription());
   }
 
+  @Test
+  void shouldBuildTransferLegInCurrency() {
+    LocalDateTime now = LocalDateTime.now();
+    Transaction leg =
+        Transaction.builder("1", TransactionType.EXPENSE, "Transfer", 20.0, now)
+            .description(" To bob ")
+            .idempotencyKey("t-1>out")
+            .currency("eur")
+            .transferId("t-1")
+            .build();
+
+    assertEquals("To bob", leg.getDescription());
+    assertEquals("t-1>out", leg.getIdempotencyKey());
+    assertEquals("EUR", leg.getCurrency());
+    assertEquals("t-1", leg.getTransferId());
+    assertEquals(
+        CurrencyCode.DEFAULT,
+        Transaction.builder("2", TransactionType.INCOME, "Salary", 1.0, now).build().getCurrency());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            Transaction.builder("3", TransactionType.INCOME, "Salary", 1.0, now)
+                .transferId("")
+                .build());
+  }
+
   @Test
   void shouldBeEqualWhenIdIsEqual() {
     LocalDateTime now = LocalDateTime.now();
@@ -0,0 +1,103 @@
+package com.finances.core.domain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WalletSnapshotTest {
+  private Wallet wallet;
+
+  @BeforeEach
+  void setUp() {
+    wallet = new Wallet("testUser");
+  }
+
+  @Test
+  void shouldNotSeeTransactionsAddedAfterSnapshot() {
+    wallet.addTransaction(income("1", 1000.0));
+    WalletSnapshot snapshot = wallet.snapshot();
+
+    for (int i = 2; i < 100; i++) {
+      wallet.addTransaction(expense(String.valueOf(i), 1.0));
+    }
+
+    assertEquals(1, snapshot.getTransactions().size());
+    assertEquals(1000.0, snapshot.getBalance());
+    assertEquals(99, wallet.getTransactions().size());
+    assertEquals(902.0, wallet.getBalance());
+  }
+
+  @Test
+  void shouldNotSeeBudgetChangesAfterSnapshot() {
+    wallet.setBudget("Food", 500.0);
+    WalletSnapshot snapshot = wallet.snapshot();
+
+    wallet.setBudget("Transport", 200.0);
+    wallet.removeBudget("Food");
+
+    assertEquals(1, snapshot.getAllBudgets().size());
+    assertNotNull(snapshot.getBudget("Food"));
+    assertNull(wallet.getBudget("Food"));
+  }
+
+  @Test
+  void shouldKeepSnapshotAfterClear() {
+    wallet.addTransaction(income("1", 1000.0));
+    WalletSnapshot snapshot = wallet.snapshot();
+
+    wallet.clear();
+
+    assertEquals(1, snapshot.getTransactionCount());
+    assertTrue(wallet.getTransactions().isEmpty());
+    assertEquals(0.0, wallet.getBalance());
+  }
+
+  @Test
+  void shouldReturnUnmodifiableTransactions() {
+    wallet.addTransaction(income("1", 1000.0));
+
+    List<Transaction> transactions = wallet.getTransactions();
+
+    assertThrows(UnsupportedOperationException.class, () -> transactions.add(income("2", 1.0)));
+  }
+
+  @Test
+  void shouldIterateConsistentlyWhileWriterAppends() throws InterruptedException {
+    AtomicBoolean running = new AtomicBoolean(true);
+    Thread writer =
+        new Thread(
+            () -> {
+              int i = 0;
+              while (running.get()) {
+                wallet.addTransaction(expense("w" + i++, 1.0));
+              }
+            });
+    writer.start();
+    try {
+      for (int round = 0; round < 200; round++) {
+        WalletSnapshot snapshot = wallet.snapshot();
+        double sum = 0;
+        for (Transaction transaction : snapshot.getTransactions()) {
+          sum += transaction.getAmount();
+        }
+        assertEquals(snapshot.getTotalExpense(), sum);
+      }
+    } finally {
+      running.set(false);
+      writer.join();
+    }
+  }
+
+  private static Transaction income(String id, double amount) {
+    return new Transaction(id, TransactionType.INCOME, "Salary", amount, LocalDateTime.now(), "");
+  }
+
+  private static Transaction expense(String id, double amount) {
+    return new Transaction(id, TransactionType.EXPENSE, "Food", amount, LocalDateTime.now(), "");
+  }
+}
+
@@ -2,8 +2,14 @@ package com.finances.core.domain;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -146,5 +152,268 @@ class WalletTest {
     assertTrue(wallet.getTransactions().isEmpty());
     assertTrue(wallet.getAllBudgets().isEmpty());
   }
+
+  @Test
+  void shouldTrackBudgetStatusOnExpenseAndLimitChange() {
+    wallet.addTransaction(expense("1", "Food", 200.0));
+    wallet.setBudget("Food", 1000.0);
+    WalletSnapshot before = wallet.snapshot();
+
+    wallet.addTransaction(expense("2", "Food", 300.0));
+    wallet.addTransaction(expense("3", "Transport", 50.0));
+    wallet.addTransaction(
+        new Transaction("4", TransactionType.INCOME, "Food", 999.0, LocalDateTime.now(), ""));
+    wallet.setBudget("Food", 400.0);
+
+    BudgetStatus status = wallet.getBudgetStatus("Food");
+    assertEquals(500.0, status.getSpent());
+    assertEquals(400.0, status.getLimit());
+    assertEquals(-100.0, status.getRemaining());
+    assertEquals(125.0, status.getUsagePercentage());
+    assertTrue(status.isExceeded());
+    assertEquals(200.0, before.getBudgetStatus("Food").getSpent());
+    assertNull(wallet.getBudgetStatus("Transport"));
+  }
+
+  @Test
+  void shouldDropBudgetStatusOnRemoveAndClear() {
+    wallet.setBudget("Food", 100.0);
+    wallet.setBudget("Rent", 100.0);
+
+    wallet.removeBudget("Food");
+    assertNull(wallet.getBudgetStatus("Food"));
+    assertEquals(1, wallet.snapshot().getBudgetStatuses().size());
+
+    wallet.clear();
+    assertTrue(wallet.snapshot().getBudgetStatuses().isEmpty());
+  }
+
+  @Test
+  void shouldResetSpendingEveryPeriod() {
+    LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+    wallet.addTransaction(expense("1", "Food", 80.0, thisMonth.minusMonths(1)));
+    wallet.setBudget("Food", 100.0, BudgetPeriod.monthly(false));
+    wallet.addTransaction(expense("2", "Food", 30.0, thisMonth));
+
+    BudgetStatus status = wallet.getBudgetStatus("Food");
+    assertEquals(30.0, status.getSpent());
+    assertEquals(80.0, status.getSpent(thisMonth.minusMonths(1)));
+    assertEquals(110.0, status.getTotalSpent());
+    assertEquals(70.0, status.getRemaining());
+    assertEquals(thisMonth, status.getPeriodStart(LocalDate.now()));
+    assertEquals(0.0, status.getSpent(thisMonth.plusMonths(1)));
+  }
+
+  @Test
+  void shouldRollOverUnspentLimit() {
+    LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+    wallet.setBudget("Food", 100.0, BudgetPeriod.monthly(true));
+    wallet.addTransaction(expense("1", "Food", 80.0, thisMonth.minusMonths(1)));
+    wallet.addTransaction(expense("2", "Food", 30.0, thisMonth));
+
+    BudgetStatus status = wallet.getBudgetStatus("Food");
+    assertEquals(100.0, status.getAvailable(thisMonth.minusMonths(1)));
+    assertEquals(120.0, status.getAvailable(thisMonth));
+    assertEquals(90.0, status.getRemaining());
+    assertEquals(190.0, status.getAvailable(thisMonth.plusMonths(1)));
+
+    // A backdated expense starts the rollover chain earlier
+    wallet.addTransaction(expense("3", "Food", 50.0, thisMonth.minusMonths(2)));
+    assertEquals(170.0, wallet.getBudgetStatus("Food").getAvailable(thisMonth));
+
+    wallet.setBudget("Food", 200.0, BudgetPeriod.monthly(true));
+    assertEquals(470.0, wallet.getBudgetStatus("Food").getAvailable(thisMonth));
+  }
+
+  @Test
+  void shouldRebuildWindowWhenPeriodChanges() {
+    LocalDate today = LocalDate.now();
+    wallet.addTransaction(expense("1", "Food", 40.0, today.minusWeeks(1)));
+    wallet.addTransaction(expense("2", "Food", 10.0, today));
+    wallet.setBudget("Food", 100.0, BudgetPeriod.weekly(true));
+    BudgetStatus weekly = wallet.getBudgetStatus("Food");
+
+    wallet.setBudget("Food", 100.0);
+
+    assertEquals(10.0, weekly.getSpent());
+    assertEquals(160.0, weekly.getAvailable(today));
+    assertEquals(50.0, wallet.getBudgetStatus("Food").getSpent());
+    assertEquals(50.0, wallet.getBudgetStatus("Food").getRemaining());
+    assertNull(wallet.getBudget("Food").getPeriod());
+  }
+
+  @Test
+  void shouldApplyParentBudgetToSubcategories() {
+    wallet.addTransaction(expense("1", "Food/Groceries", 300.0));
+    wallet.setBudget("Food", 1000.0);
+    wallet.setBudget("Food/Cafe", 100.0, BudgetPeriod.monthly(false));
+
+    wallet.addTransaction(expense("2", "Food/Cafe", 150.0));
+    wallet.addTransaction(expense("3", "Foodstuff", 999.0));
+
+    assertEquals(450.0, wallet.getBudgetStatus("Food").getSpent());
+    assertEquals(150.0, wallet.getBudgetStatus("Food/Cafe").getSpent());
+    assertTrue(wallet.getBudgetStatus("Food/Cafe").isExceeded());
+    assertEquals(450.0, wallet.snapshot().getCategoryTree().getExpense("Food"));
+    assertEquals(0.0, wallet.getExpenseForCategory("Food"));
+    assertEquals(150.0, wallet.getExpenseForCategory("Food/Cafe"));
+  }
+
+  @Test
+  void shouldNotAddTransactionTwiceForSameIdempotencyKey() {
+    Transaction first = keyed("1", "import-1");
+    Transaction retry = keyed("2", "import-1");
+
+    assertSame(first, wallet.addTransaction(first));
+    assertSame(first, wallet.addTransaction(retry));
+    assertSame(first, wallet.findByIdempotencyKey("import-1"));
+    assertEquals(1, wallet.getTransactions().size());
+    assertEquals(100.0, wallet.getTotalExpense());
+  }
+
+  @Test
+  void shouldLoadHistoryOnlyWhenIdempotencyKeyMayMatch() {
+    AtomicInteger loads = new AtomicInteger();
+    List<Transaction> stored = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      stored.add(keyed("h" + i, "import-" + i));
+    }
+    Wallet loaded = new Wallet("user", new ListTransactionHistory(stored, loads));
+
+    for (int i = 100; i < 200; i++) {
+      loaded.addTransaction(keyed("n" + i, "fresh-" + i));
+    }
+    int loadsForFreshKeys = loads.get();
+    Transaction retried = loaded.addTransaction(keyed("n-retry", "import-42"));
+
+    assertEquals("h42", retried.getId());
+    assertEquals(200, loaded.snapshot().getTransactionCount());
+    assertEquals(1, loadsForFreshKeys);
+    assertNull(loaded.findByIdempotencyKey("missing"));
+  }
+
+  @Test
+  void shouldAddBatchWithSingleSnapshot() {
+    WalletSnapshot before = wallet.snapshot();
+    wallet.addTransaction(keyed("0", "import-0"));
+
+    List<Transaction> stored =
+        wallet.addTransactions(
+            List.of(keyed("1", "import-1"), keyed("2", "import-0"), keyed("3", "import-1")));
+
+    assertEquals(List.of("1", "0", "1"), stored.stream().map(Transaction::getId).toList());
+    assertEquals(2, wallet.snapshot().getTransactionCount());
+    assertEquals(0, before.getTransactionCount());
+    assertEquals(200.0, wallet.getTotalExpense());
+    List<Transaction> withNull = Arrays.asList(keyed("4", null), null);
+    assertThrows(IllegalArgumentException.class, () -> wallet.addTransactions(withNull));
+    assertEquals(2, wallet.snapshot().getTransactionCount());
+  }
+
+  @Test
+  void shouldReportTotalsPerCurrencyAndConvertAtDailyRates() {
+    LocalDate day = LocalDate.of(2024, 1, 1);
+    ExchangeRates rates =
+        new ExchangeRates("RUB", Map.of("USD", Map.of(day, 90.0, day.plusDays(2), 100.0)));
+    wallet.addTransaction(foreign("1", TransactionType.INCOME, 10.0, day.plusDays(1), "USD"));
+    wallet.addTransaction(foreign("2", TransactionType.EXPENSE, 5.0, day.plusDays(4), "USD"));
+    wallet.addTransaction(foreign("3", TransactionType.INCOME, 1000.0, day.plusDays(2), null));
+
+    WalletSnapshot snapshot = wallet.snapshot();
+    assertEquals(Map.of("RUB", 1000.0, "USD", 10.0), snapshot.getIncomeByCurrency());
+    assertEquals(Map.of("RUB", 0.0, "USD", 5.0), snapshot.getExpenseByCurrency());
+    assertEquals(1900.0, snapshot.getTotalIncome("RUB", rates), 0.001);
+    assertEquals(500.0, snapshot.getTotalExpense("rub", rates), 0.001);
+    assertEquals(1400.0, snapshot.getBalance("RUB", rates), 0.001);
+    assertEquals(20.0, snapshot.getTotalIncome("USD", rates), 0.001);
+    assertThrows(IllegalArgumentException.class, () -> snapshot.getTotalIncome("EUR", rates));
+
+    wallet.addTransaction(foreign("4", TransactionType.EXPENSE, 1.0, day.plusDays(5), "USD"));
+    assertEquals(600.0, wallet.snapshot().getTotalExpense("RUB", rates), 0.001);
+    assertEquals(500.0, snapshot.getTotalExpense("RUB", rates), 0.001);
+  }
+
+  @Test
+  void shouldCountOnlyExpensesInBudgetCurrency() {
+    LocalDate day = LocalDate.now();
+    wallet.setBudget("Food", 100.0, null, "usd");
+    wallet.addTransaction(foreign("1", TransactionType.EXPENSE, 30.0, day, null));
+    wallet.addTransaction(foreign("2", TransactionType.EXPENSE, 20.0, day, "USD"));
+
+    assertEquals("USD", wallet.getBudget("Food").getCurrency());
+    assertEquals(80.0, wallet.getRemainingBudget("Food"), 0.001);
+
+    wallet.setBudget("Food", 100.0);
+    assertEquals(70.0, wallet.getRemainingBudget("Food"), 0.001);
+  }
+
+  @Test
+  void shouldLoadMixedCurrencyHistoryOnceForConversions() {
+    LocalDate day = LocalDate.of(2024, 1, 1);
+    ExchangeRates rates = new ExchangeRates("RUB", Map.of("USD", Map.of(day, 90.0)));
+    AtomicInteger loads = new AtomicInteger();
+    List<Transaction> stored =
+        List.of(
+            foreign("h1", TransactionType.INCOME, 10.0, day, "USD"),
+            foreign("h2", TransactionType.INCOME, 100.0, day, null));
+    Wallet loaded = new Wallet("user", new ListTransactionHistory(stored, loads));
+    loaded.addTransaction(foreign("n1", TransactionType.INCOME, 1.0, day, "USD"));
+
+    assertEquals(1090.0, loaded.snapshot().getTotalIncome("RUB", rates), 0.001);
+    int loadsAfterFirstReport = loads.get();
+    loaded.addTransaction(foreign("n2", TransactionType.EXPENSE, 2.0, day, "USD"));
+
+    assertEquals(1090.0, loaded.snapshot().getTotalIncome("RUB", rates), 0.001);
+    assertEquals(180.0, loaded.snapshot().getTotalExpense("RUB", rates), 0.001);
+    assertEquals(Map.of("RUB", 100.0, "USD", 11.0), loaded.snapshot().getIncomeByCurrency());
+    assertEquals(loadsAfterFirstReport, loads.get());
+  }
+
+  @Test
+  void shouldKeepCategoryTotalsPerCurrency() {
+    LocalDate day = LocalDate.of(2024, 1, 1);
+    Wallet loaded =
+        new Wallet(
+            "user",
+            new ListTransactionHistory(
+                List.of(
+                    foreign("h1", TransactionType.EXPENSE, 4.0, day, "EUR"),
+                    foreign("h2", TransactionType.EXPENSE, 3.0, day, null)),
+                new AtomicInteger()));
+    loaded.addTransaction(
+        new Transaction(
+            "1", TransactionType.EXPENSE, "Food/Groceries", 10.0, day.atTime(12, 0), ""));
+    loaded.addTransaction(foreign("2", TransactionType.EXPENSE, 7.0, day, "EUR"));
+
+    WalletSnapshot snapshot = loaded.snapshot();
+    assertEquals(13.0, snapshot.getCategoryTree().getExpense("Food"));
+    assertEquals(snapshot.getTotalExpense(), snapshot.getCategoryTree().getExpense("Food"));
+    assertEquals(11.0, snapshot.getCategoryTree("eur").getExpense("Food"));
+    assertEquals(Map.of("Food", 3.0, "Food/Groceries", 10.0), snapshot.getExpenseByCategory());
+    assertEquals(Map.of("Food", 11.0), snapshot.getExpenseByCategory("EUR"));
+    assertEquals(3.0, snapshot.getExpenseForCategories(List.of("Food")));
+    assertEquals(11.0, snapshot.getExpenseForCategories("EUR", List.of("Food")));
+    assertEquals(Set.of("EUR", "RUB"), snapshot.getCurrencies());
+    assertEquals(List.of("Other"), snapshot.getUnknownCategories(List.of("Food", "Other")));
+  }
+
+  private static Transaction foreign(
+      String id, TransactionType type, double amount, LocalDate date, String currency) {
+    return Transaction.builder(id, type, "Food", amount, date.atTime(12, 0))
+        .currency(currency)
+        .build();
+  }
+
+  private static Transaction keyed(String id, String key) {
+    return new Transaction(id, TransactionType.EXPENSE, "Food", 100.0, LocalDateTime.now(), "", key);
+  }
+
+  private static Transaction expense(String id, String category, double amount, LocalDate date) {
+    return new Transaction(id, TransactionType.EXPENSE, category, amount, date.atTime(12, 0), "");
+  }
+
+  private static Transaction expense(String id, String category, double amount) {
+    return new Transaction(id, TransactionType.EXPENSE, category, amount, LocalDateTime.now(), "");
+  }
 }
 
@@ -2,9 +2,11 @@ package com.finances.core.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.finances.core.domain.Session;
 import com.finances.core.domain.User;
 import com.finances.infrastructure.persistence.InMemoryUserRepository;
 import com.finances.infrastructure.persistence.InMemoryWalletRepository;
+import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -86,5 +88,37 @@ class AuthServiceTest {
     assertFalse(authService.isAuthenticated());
     assertNull(authService.getCurrentUser());
   }
+
+  @Test
+  void shouldOpenIndependentSessions() {
+    authService.register("alice", "password123");
+    authService.register("bob", "password456");
+
+    Optional<Session> alice = authService.openSession("alice", "password123");
+    Optional<Session> bob = authService.openSession("bob", "password456");
+
+    assertTrue(alice.isPresent());
+    assertTrue(bob.isPresent());
+    assertEquals("alice", authService.getSession(alice.get().getToken()).getUserId());
+    assertEquals("bob", authService.getSession(bob.get().getToken()).getUserId());
+    assertFalse(authService.isAuthenticated());
+  }
+
+  @Test
+  void shouldNotOpenSessionWithIncorrectPassword() {
+    authService.register("testUser", "password123");
+
+    assertTrue(authService.openSession("testUser", "wrongPassword").isEmpty());
+  }
+
+  @Test
+  void shouldCloseSession() {
+    authService.register("testUser", "password123");
+    Session session = authService.openSession("testUser", "password123").orElseThrow();
+
+    authService.closeSession(session.getToken());
+
+    assertNull(authService.getSession(session.getToken()));
+  }
 }
 
@@ -3,6 +3,7 @@ package com.finances.core.service;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.finances.core.domain.Budget;
+import com.finances.core.domain.BudgetStatus;
 import com.finances.core.domain.Wallet;
 import com.finances.infrastructure.persistence.InMemoryWalletRepository;
 import java.util.Map;
@@ -113,5 +114,22 @@ class BudgetServiceTest {
     double percentage = budgetService.getBudgetUsagePercentage(USER_ID, "Food");
     assertEquals(150.0, percentage);
   }
+
+  @Test
+  void shouldGetBudgetStatuses() {
+    budgetService.setBudget(USER_ID, "Food", 1000.0);
+    budgetService.setBudget(USER_ID, "Transport", 0.0);
+    transactionService.addExpense(USER_ID, "Food", 250.0, "");
+    transactionService.addExpense(USER_ID, "Transport", 40.0, "");
+
+    Map<String, BudgetStatus> statuses = budgetService.getBudgetStatuses(USER_ID);
+
+    assertEquals(2, statuses.size());
+    assertEquals(750.0, statuses.get("Food").getRemaining());
+    assertEquals(25.0, statuses.get("Food").getUsagePercentage());
+    assertEquals(0.0, statuses.get("Transport").getUsagePercentage());
+    assertTrue(statuses.get("Transport").isExceeded());
+    assertNull(budgetService.getBudgetStatus(USER_ID, "Rent"));
+  }
 }
 
@@ -0,0 +1,183 @@
+package com.finances.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.CronSchedule;
+import com.finances.core.domain.RecurringTemplate;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.finances.core.domain.WalletSnapshot;
+import com.finances.core.repository.RecurringTemplateRepository;
+import com.finances.infrastructure.persistence.InMemoryWalletRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RecurringTransactionSchedulerTest {
+  private static final String USER_ID = "user";
+  private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+  private InMemoryWalletRepository walletRepository;
+  private AtomicInteger saves;
+  private LocalDateTime now;
+  private RecurringTransactionScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    saves = new AtomicInteger();
+    walletRepository =
+        new InMemoryWalletRepository() {
+          @Override
+          public void save(Wallet wallet) {
+            saves.incrementAndGet();
+            super.save(wallet);
+          }
+        };
+    walletRepository.save(new Wallet(USER_ID));
+    saves.set(0);
+    now = START;
+    scheduler =
+        new RecurringTransactionScheduler(new TransactionService(walletRepository), () -> now);
+  }
+
+  @Test
+  void shouldPostOccurrencesAsTheyFallDue() {
+    RecurringTemplate salary =
+        scheduler.create(
+            USER_ID, TransactionType.INCOME, "Salary", 5000.0, "", CronSchedule.parse("0 9 5 * *"));
+
+    now = LocalDateTime.of(2024, 1, 5, 8, 59);
+    assertEquals(0, scheduler.runDue());
+    now = LocalDateTime.of(2024, 1, 5, 9, 0);
+    assertEquals(1, scheduler.runDue());
+    assertEquals(0, scheduler.runDue());
+
+    Transaction posted = wallet().getTransactions().get(0);
+    assertEquals(LocalDateTime.of(2024, 1, 5, 9, 0), posted.getTimestamp());
+    assertEquals(salary.occurrenceKey(posted.getTimestamp()), posted.getIdempotencyKey());
+    assertEquals(
+        LocalDateTime.of(2024, 2, 5, 9, 0),
+        scheduler.getTemplates(USER_ID).get(0).getNextOccurrence());
+  }
+
+  @Test
+  void shouldCatchUpWithOneBatchPerWallet() {
+    scheduler.create(
+        USER_ID, TransactionType.EXPENSE, "Rent", 800.0, "", CronSchedule.parse("0 0 1 * *"));
+    scheduler.create(
+        USER_ID, TransactionType.EXPENSE, "Music", 10.0, "", CronSchedule.parse("@daily"));
+
+    now = LocalDateTime.of(2024, 12, 31, 12, 0);
+    int added = scheduler.runDue();
+
+    WalletSnapshot snapshot = wallet().snapshot();
+    assertEquals(12 + 366, added);
+    assertEquals(12 + 366, snapshot.getTransactionCount());
+    assertEquals(12 * 800.0 + 366 * 10.0, snapshot.getTotalExpense(), 1e-6);
+    assertEquals(1, saves.get());
+  }
+
+  @Test
+  void shouldNotPostOccurrenceTwiceWhenTemplateIsRestored() {
+    RecurringTemplate rent =
+        scheduler.create(
+            USER_ID, TransactionType.EXPENSE, "Rent", 800.0, "", CronSchedule.parse("0 0 1 * *"));
+    now = LocalDateTime.of(2024, 3, 15, 0, 0);
+    scheduler.runDue();
+
+    // A copy saved before the run still points at January
+    scheduler.register(rent);
+    now = LocalDateTime.of(2024, 4, 1, 0, 0);
+
+    assertEquals(1, scheduler.runDue());
+    assertEquals(4, wallet().getTransactions().size());
+  }
+
+  @Test
+  void shouldRetryWalletWhoseBatchFailed() {
+    scheduler.create(
+        "missing", TransactionType.EXPENSE, "Rent", 800.0, "", CronSchedule.parse("0 0 1 * *"));
+    scheduler.create(
+        USER_ID, TransactionType.EXPENSE, "Rent", 800.0, "", CronSchedule.parse("0 0 1 * *"));
+    now = LocalDateTime.of(2024, 2, 15, 0, 0);
+
+    assertThrows(IllegalStateException.class, scheduler::runDue);
+    assertEquals(2, wallet().getTransactions().size());
+
+    walletRepository.save(new Wallet("missing"));
+    assertEquals(2, scheduler.runDue());
+    assertEquals(
+        2, walletRepository.findByUserId("missing").orElseThrow().getTransactions().size());
+  }
+
+  @Test
+  void shouldStopPostingCancelledTemplates() {
+    RecurringTemplate template =
+        scheduler.create(
+            USER_ID, TransactionType.EXPENSE, "Gym", 30.0, "", CronSchedule.parse("@daily"));
+
+    assertTrue(scheduler.cancel(template.getId()));
+    now = LocalDateTime.of(2024, 1, 10, 0, 0);
+
+    assertEquals(0, scheduler.runDue());
+    assertFalse(scheduler.cancel(template.getId()));
+    assertEquals(List.of(), scheduler.getTemplates(USER_ID));
+  }
+
+  @Test
+  void shouldCatchUpStoredTemplatesAfterRestart() {
+    Map<String, RecurringTemplate> stored = new LinkedHashMap<>();
+    RecurringTemplateRepository repository =
+        new RecurringTemplateRepository() {
+          @Override
+          public void save(RecurringTemplate template) {
+            stored.put(template.getId(), template);
+          }
+
+          @Override
+          public void delete(String templateId) {
+            stored.remove(templateId);
+          }
+
+          @Override
+          public List<RecurringTemplate> findAll() {
+            return new ArrayList<>(stored.values());
+          }
+        };
+    TransactionService transactionService = new TransactionService(walletRepository);
+    scheduler = new RecurringTransactionScheduler(transactionService, repository, () -> now);
+    RecurringTemplate rent =
+        scheduler.create(
+            USER_ID, TransactionType.EXPENSE, "Rent", 800.0, "", CronSchedule.parse("0 0 1 * *"));
+    assertSame(rent, stored.get(rent.getId()));
+
+    now = LocalDateTime.of(2024, 2, 15, 0, 0);
+    assertEquals(2, scheduler.runDue());
+    assertEquals(LocalDateTime.of(2024, 3, 1, 0, 0), stored.get(rent.getId()).getNextOccurrence());
+
+    // A crash before the progress was stored leaves the January copy
+    repository.save(rent);
+    RecurringTransactionScheduler restarted =
+        new RecurringTransactionScheduler(transactionService, repository, () -> now);
+    assertEquals(1, restarted.restore());
+    now = LocalDateTime.of(2024, 4, 15, 0, 0);
+
+    assertEquals(2, restarted.runDue());
+    assertEquals(4, wallet().getTransactions().size());
+    assertEquals(LocalDateTime.of(2024, 5, 1, 0, 0), stored.get(rent.getId()).getNextOccurrence());
+
+    assertTrue(restarted.cancel(rent.getId()));
+    assertEquals(List.of(), repository.findAll());
+  }
+
+  private Wallet wallet() {
+    return walletRepository.findByUserId(USER_ID).orElseThrow();
+  }
+}
+
@@ -0,0 +1,113 @@
+package com.finances.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.Session;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SessionManagerTest {
+  private static final long TIMEOUT = 60_000;
+
+  private AtomicLong clock;
+  private SessionManager sessionManager;
+
+  @BeforeEach
+  void setUp() {
+    clock = new AtomicLong(1_000_000);
+    sessionManager = new SessionManager(TIMEOUT, clock::get);
+  }
+
+  @Test
+  void shouldIssueUniqueTokens() {
+    Session first = sessionManager.create("alice");
+    Session second = sessionManager.create("alice");
+
+    assertNotEquals(first.getToken(), second.getToken());
+    assertEquals(2, sessionManager.getActiveSessionCount());
+  }
+
+  @Test
+  void shouldValidateIssuedToken() {
+    Session session = sessionManager.create("alice");
+
+    Session validated = sessionManager.validate(session.getToken());
+
+    assertSame(session, validated);
+    assertEquals("alice", validated.getUserId());
+  }
+
+  @Test
+  void shouldRejectUnknownToken() {
+    assertNull(sessionManager.validate("unknown"));
+    assertNull(sessionManager.validate(null));
+  }
+
+  @Test
+  void shouldRejectInvalidatedToken() {
+    Session session = sessionManager.create("alice");
+    sessionManager.invalidate(session.getToken());
+
+    assertNull(sessionManager.validate(session.getToken()));
+  }
+
+  @Test
+  void shouldCancelTimeoutOfInvalidatedSession() {
+    Session first = sessionManager.create("alice");
+    sessionManager.create("bob");
+
+    sessionManager.invalidate(first.getToken());
+    sessionManager.invalidate(first.getToken());
+
+    assertEquals(1, sessionManager.getScheduledExpirationCount());
+    assertNull(first.getExpiration());
+  }
+
+  @Test
+  void shouldExpireIdleSession() {
+    Session session = sessionManager.create("alice");
+    clock.addAndGet(TIMEOUT);
+
+    assertNull(sessionManager.validate(session.getToken()));
+  }
+
+  @Test
+  void shouldCancelTimeoutOfSessionExpiredOnValidation() {
+    Session session = sessionManager.create("alice");
+    sessionManager.create("bob");
+    clock.addAndGet(TIMEOUT);
+
+    assertNull(sessionManager.validate(session.getToken()));
+    assertEquals(1, sessionManager.getScheduledExpirationCount());
+    assertNull(session.getExpiration());
+  }
+
+  @Test
+  void shouldKeepSessionAliveWhileUsed() {
+    Session session = sessionManager.create("alice");
+    for (int i = 0; i < 5; i++) {
+      clock.addAndGet(TIMEOUT / 2);
+      assertNotNull(sessionManager.validate(session.getToken()));
+      sessionManager.evictExpired();
+    }
+
+    assertEquals(1, sessionManager.getActiveSessionCount());
+  }
+
+  @Test
+  void shouldEvictOnlyIdleSessions() {
+    Session idle = sessionManager.create("alice");
+    Session active = sessionManager.create("bob");
+
+    clock.addAndGet(TIMEOUT / 2);
+    sessionManager.validate(active.getToken());
+    clock.addAndGet(TIMEOUT / 2 + 1);
+
+    assertEquals(1, sessionManager.evictExpired());
+    assertEquals(1, sessionManager.getActiveSessionCount());
+    assertNull(sessionManager.validate(idle.getToken()));
+    assertNotNull(sessionManager.validate(active.getToken()));
+  }
+}
+
@@ -4,7 +4,9 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import com.finances.core.domain.Transaction;
 import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Transfer;
 import com.finances.core.domain.Wallet;
+import com.finances.infrastructure.persistence.InMemoryTransferJournal;
 import com.finances.infrastructure.persistence.InMemoryWalletRepository;
 import java.util.Arrays;
 import java.util.List;
@@ -120,6 +122,37 @@ class TransactionServiceTest {
     assertEquals(700.0, expense);
   }
 
+  @Test
+  void shouldGetTotalsWithSubcategories() {
+    transactionService.addExpense(USER_ID, "Food/Groceries", 300.0, "");
+    transactionService.addExpense(USER_ID, "Food/Cafe", 200.0, "");
+    transactionService.addExpense(USER_ID, "Transport", 100.0, "");
+    transactionService.addIncome(USER_ID, "Work/Salary", 5000.0, "");
+
+    assertEquals(500.0, transactionService.getExpenseWithSubcategories(USER_ID, "Food"));
+    assertEquals(200.0, transactionService.getExpenseWithSubcategories(USER_ID, "Food/Cafe"));
+    assertEquals(5000.0, transactionService.getIncomeWithSubcategories(USER_ID, "Work"));
+    assertEquals(0.0, transactionService.getExpenseWithSubcategories(USER_ID, "Rent"));
+  }
+
+  @Test
+  void shouldSearchDescriptions() {
+    transactionService.addExpense(USER_ID, "Food", 50.0, "Coffee and cake");
+    transactionService.addExpense(USER_ID, "Food", 20.0, "Cake");
+    transactionService.addExpense(USER_ID, "Transport", 30.0, "Taxi");
+
+    assertEquals(2, transactionService.findByTerm(USER_ID, "cake").size());
+    assertEquals(1, transactionService.findByPrefix(USER_ID, "tax").size());
+    assertEquals(
+        "Coffee and cake",
+        transactionService
+            .search(USER_ID, "coffee cake", 5)
+            .get(0)
+            .getTransaction()
+            .getDescription());
+    assertTrue(transactionService.getSearchIndexMemory(USER_ID) > 0);
+  }
+
   @Test
   void shouldCalculateBalance() {
     transactionService.addIncome(USER_ID, "Salary", 5000.0, "");
@@ -142,6 +175,51 @@ class TransactionServiceTest {
     assertEquals(1000.0, transactionService.getBalance(toUserId));
   }
 
+  @Test
+  void shouldRecordTransferOnceAndLinkBothLegs() {
+    InMemoryTransferJournal journal = new InMemoryTransferJournal();
+    transactionService = new TransactionService(walletRepository, journal);
+    String toUserId = "anotherUser";
+    walletRepository.save(new Wallet(toUserId));
+    transactionService.addIncome(USER_ID, "Salary", 5000.0, "");
+
+    Transfer transfer = transactionService.transfer(USER_ID, toUserId, 1000.0, "Payment");
+
+    assertEquals(List.of(transfer), journal.findByUserId(USER_ID));
+    assertEquals(List.of(transfer), transactionService.getTransfers(toUserId));
+    Transaction expense = transactionService.getTransactions(USER_ID).get(1);
+    Transaction income = transactionService.getTransactions(toUserId).get(0);
+    assertEquals(transfer.getId(), expense.getTransferId());
+    assertEquals(transfer.getId(), income.getTransferId());
+    assertEquals(TransactionType.EXPENSE, expense.getType());
+    assertEquals("Transfer to anotherUser: Payment", expense.getDescription());
+    assertEquals("Transfer from testUser: Payment", income.getDescription());
+
+    // Completing a transfer whose legs are all posted changes nothing
+    transactionService.completeTransfer(transfer);
+    assertEquals(2, transactionService.getTransactions(USER_ID).size());
+    assertEquals(1, transactionService.getTransactions(toUserId).size());
+  }
+
+  @Test
+  void shouldCheckTransferAgainstBalanceInItsCurrency() {
+    String toUserId = "anotherUser";
+    walletRepository.save(new Wallet(toUserId));
+    transactionService.addIncome(USER_ID, "Salary", 100.0, "", null, "EUR");
+
+    assertEquals(0.0, transactionService.getBalance(USER_ID));
+    assertThrows(
+        IllegalStateException.class,
+        () -> transactionService.transfer(USER_ID, toUserId, 100.0, ""));
+
+    Transfer transfer = transactionService.transfer(USER_ID, toUserId, 60.0, "", "eur");
+
+    assertEquals("EUR", transfer.getCurrency());
+    assertEquals(40.0, transactionService.getSnapshot(USER_ID).getBalance("EUR"));
+    assertEquals(60.0, transactionService.getSnapshot(toUserId).getBalance("EUR"));
+    assertEquals(0.0, transactionService.getBalance(toUserId));
+  }
+
   @Test
   void shouldThrowExceptionWhenTransferAmountIsNegative() {
     String toUserId = "anotherUser";
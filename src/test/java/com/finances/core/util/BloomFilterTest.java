@@ -0,0 +1,46 @@
+package com.finances.core.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+  @Test
+  void shouldContainEveryAddedKey() {
+    BloomFilter filter = new BloomFilter(10_000);
+    for (int i = 0; i < 10_000; i++) {
+      filter.add("key-" + i);
+    }
+
+    for (int i = 0; i < 10_000; i++) {
+      assertTrue(filter.mightContain("key-" + i));
+    }
+    assertEquals(10_000, filter.size());
+    assertEquals(12_504, filter.getMemoryBytes());
+  }
+
+  @Test
+  void shouldKeepFalsePositivesNearOnePercent() {
+    BloomFilter filter = new BloomFilter(10_000);
+    for (int i = 0; i < 10_000; i++) {
+      filter.add("key-" + i);
+    }
+
+    int falsePositives = 0;
+    for (int i = 0; i < 100_000; i++) {
+      if (filter.mightContain("other-" + i)) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+  }
+
+  @Test
+  void shouldContainNothingWhenEmpty() {
+    BloomFilter filter = new BloomFilter(0);
+
+    assertFalse(filter.mightContain("key"));
+    assertThrows(IllegalArgumentException.class, () -> new BloomFilter(-1));
+  }
+}
+
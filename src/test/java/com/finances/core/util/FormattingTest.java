@@ -0,0 +1,155 @@
+package com.finances.core.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class FormattingTest {
+  private static final Locale[] LOCALES = {
+    Locale.ROOT,
+    Locale.US,
+    new Locale("ru", "RU"),
+    Locale.GERMANY,
+    Locale.forLanguageTag("ar-EG"),
+    Locale.forLanguageTag("th-TH-u-nu-thai")
+  };
+
+  @Test
+  void shouldFormatAmountsLikeStringFormat() {
+    Random random = new Random(11);
+    for (Locale locale : LOCALES) {
+      for (int i = 0; i < 20_000; i++) {
+        // Cents, amounts with many digits, and both signs across the whole fast range and beyond
+        double amount = randomAmount(i % 4, random) * (random.nextBoolean() ? 1 : -1);
+        assertAmount(amount, locale);
+      }
+    }
+  }
+
+  @Test
+  void shouldRoundTiesLikeStringFormat() {
+    for (Locale locale : new Locale[] {Locale.ROOT, Locale.GERMANY}) {
+      for (int cents = 0; cents < 100_000; cents++) {
+        // Values like 1.005 and 2.675 whose binary form lies just below or above the tie
+        double tie = cents / 100.0 + 0.005;
+        assertAmount(tie, locale);
+        assertAmount(-tie, locale);
+        assertAmount(Math.nextUp(tie), locale);
+        assertAmount(Math.nextDown(tie), locale);
+      }
+    }
+  }
+
+  @Test
+  void shouldFormatSpecialAmountsLikeStringFormat() {
+    double[] amounts = {
+      0.0,
+      -0.0,
+      0.004,
+      -0.004,
+      -0.005,
+      0.995,
+      999_999_999.994,
+      999_999_999.995,
+      1e9,
+      -1e9,
+      1e20,
+      Double.MIN_VALUE,
+      Double.MAX_VALUE,
+      Double.NaN,
+      Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY
+    };
+    for (Locale locale : LOCALES) {
+      for (double amount : amounts) {
+        assertAmount(amount, locale);
+      }
+    }
+    assertEquals(String.format("%.2f", 1234.5), Formatting.formatAmount(1234.5));
+  }
+
+  @Test
+  void shouldFormatPercentagesLikeStringFormat() {
+    Random random = new Random(13);
+    double[] percentages = {
+      0.0, -0.0, 0.3, -0.3, 0.5, -0.5, 2.5, 79.5, 99.49999999999999, 1e9, Double.NaN
+    };
+    for (double percentage : percentages) {
+      assertPercentage(percentage);
+    }
+    for (int i = 0; i < 20_000; i++) {
+      double percentage = random.nextDouble() * 400 - 100;
+      assertPercentage(percentage);
+      assertPercentage(Math.rint(percentage) + 0.5);
+    }
+  }
+
+  @Test
+  void shouldFormatDatesLikeLocalDate() {
+    LocalDate date = LocalDate.of(1, 1, 1);
+    LocalDate end = LocalDate.of(9999, 12, 31);
+    StringBuilder text = new StringBuilder();
+    for (; !date.isAfter(end); date = date.plusDays(1)) {
+      text.setLength(0);
+      assertEquals(date.toString(), Formatting.appendDate(text, date).toString());
+    }
+    for (LocalDate outside : new LocalDate[] {LocalDate.of(0, 5, 5), LocalDate.of(10_000, 1, 1)}) {
+      text.setLength(0);
+      assertEquals(outside.toString(), Formatting.appendDate(text, outside).toString());
+    }
+  }
+
+  @Test
+  void shouldFormatTimestampsLikePattern() {
+    DateTimeFormatter formatter = DateTimeFormatter.ofPattern(Formatting.TIMESTAMP_PATTERN);
+    Random random = new Random(13);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 100_000; i++) {
+      LocalDateTime timestamp =
+          LocalDateTime.of(
+              random.nextInt(10_100),
+              1 + random.nextInt(12),
+              1 + random.nextInt(28),
+              random.nextInt(24),
+              random.nextInt(60),
+              random.nextInt(60),
+              random.nextInt(1_000_000_000));
+      text.setLength(0);
+      assertEquals(
+          formatter.format(timestamp), Formatting.appendTimestamp(text, timestamp).toString());
+    }
+  }
+
+  private static double randomAmount(int range, Random random) {
+    switch (range) {
+      case 0:
+        return random.nextInt(100_000) / 100.0;
+      case 1:
+        return random.nextDouble() * 1000;
+      case 2:
+        return random.nextDouble() * 2e9;
+      default:
+        return Math.pow(10, random.nextInt(30) - 10) * random.nextDouble();
+    }
+  }
+
+  private static void assertPercentage(double percentage) {
+    assertEquals(
+        String.format("%.0f", percentage),
+        Formatting.appendPercentage(new StringBuilder(), percentage).toString(),
+        () -> "percentage " + percentage);
+  }
+
+  private static void assertAmount(double amount, Locale locale) {
+    assertEquals(
+        String.format(locale, "%.2f", amount),
+        Formatting.formatAmount(amount, locale),
+        () -> "amount " + amount + " in " + locale);
+  }
+}
+
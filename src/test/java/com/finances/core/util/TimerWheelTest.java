@@ -0,0 +1,70 @@
+package com.finances.core.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+  private TimerWheel<String> wheel;
+  private List<String> expired;
+
+  @BeforeEach
+  void setUp() {
+    wheel = new TimerWheel<>(10, 8, 0);
+    expired = new ArrayList<>();
+  }
+
+  @Test
+  void shouldExpireItemsInDeadlineOrderOfTicks() {
+    wheel.schedule("late", 55);
+    wheel.schedule("early", 15);
+
+    assertEquals(1, wheel.advance(20, expired::add));
+    assertEquals(List.of("early"), expired);
+
+    assertEquals(1, wheel.advance(60, expired::add));
+    assertEquals(List.of("early", "late"), expired);
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  void shouldNotExpireItemsBeyondOneRevolutionEarly() {
+    wheel.schedule("far", 1_000);
+
+    assertEquals(0, wheel.advance(100, expired::add));
+    assertEquals(0, wheel.advance(990, expired::add));
+    assertEquals(1, wheel.advance(1_000, expired::add));
+  }
+
+  @Test
+  void shouldExpireEverythingAfterLongGap() {
+    for (int i = 0; i < 20; i++) {
+      wheel.schedule("item" + i, i * 10L);
+    }
+
+    assertEquals(20, wheel.advance(10_000, expired::add));
+  }
+
+  @Test
+  void shouldCancelScheduledItem() {
+    TimerWheel.Entry<String> entry = wheel.schedule("cancelled", 30);
+
+    assertTrue(wheel.cancel(entry));
+    assertFalse(wheel.cancel(entry));
+    assertEquals(0, wheel.advance(100, expired::add));
+  }
+
+  @Test
+  void shouldAllowRescheduleFromCallback() {
+    wheel.schedule("repeat", 10);
+
+    wheel.advance(10, item -> wheel.schedule(item, 40));
+
+    assertEquals(1, wheel.size());
+    assertEquals(1, wheel.advance(40, expired::add));
+  }
+}
+
@@ -0,0 +1,124 @@
+package com.finances.infrastructure.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Transfer;
+import com.finances.core.domain.Wallet;
+import com.finances.core.service.TransactionService;
+import com.finances.infrastructure.persistence.FileStorage;
+import com.finances.infrastructure.persistence.FileTransferJournal;
+import com.finances.infrastructure.persistence.InMemoryWalletRepository;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TransferReconciliationTest {
+  @TempDir Path tempDir;
+
+  private InMemoryWalletRepository walletRepository;
+  private FileTransferJournal journal;
+  private TransactionService transactionService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    walletRepository = new InMemoryWalletRepository();
+    journal = new FileTransferJournal(tempDir.resolve(FileTransferJournal.FILE_NAME));
+    transactionService = new TransactionService(walletRepository, journal);
+    for (String userId : new String[] {"alice", "bob", "carol"}) {
+      Wallet wallet = new Wallet(userId);
+      wallet.addTransaction(
+          new Transaction(
+              userId + "-salary",
+              TransactionType.INCOME,
+              "Salary",
+              1000.0,
+              LocalDateTime.of(2024, 3, 1, 9, 0),
+              ""));
+      walletRepository.save(wallet);
+    }
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    journal.close();
+  }
+
+  @Test
+  void shouldBalanceTransfersAcrossStorageFormats() throws IOException {
+    transactionService.transfer("alice", "bob", 300.0, "Rent");
+    transactionService.transfer("bob", "carol", 120.5, null);
+    transactionService.transfer("carol", "alice", 20.0, "Lunch");
+    save("alice", FileStorage.Format.JSON);
+    save("bob", FileStorage.Format.COMPRESSED);
+    save("carol", FileStorage.Format.SHARDED);
+
+    TransferReconciliation.Report report = new TransferReconciliation(tempDir).run();
+
+    assertTrue(report.isConsistent(), report.getProblems().toString());
+    assertEquals(3, report.getTransferCount());
+    assertEquals(6, report.getLegCount());
+    assertEquals(3, report.getWalletCount());
+    assertEquals(Map.of("RUB", 0.0), report.getNetByCurrency());
+  }
+
+  @Test
+  void shouldReportMissingAndOrphanLegs() throws IOException {
+    transactionService.transfer("alice", "bob", 300.0, "Rent");
+    // Recorded, but the process stopped before any leg was posted
+    Transfer interrupted =
+        new Transfer("interrupted", "bob", "carol", 50.0, null, LocalDateTime.now(), null);
+    journal.append(interrupted);
+    // Posted to carol without a journal entry
+    Transfer unrecorded =
+        new Transfer("unrecorded", "alice", "carol", 10.0, null, LocalDateTime.now(), null);
+    walletRepository.findByUserId("carol").orElseThrow().addTransaction(unrecorded.toIncome("x"));
+    for (String userId : new String[] {"alice", "bob", "carol"}) {
+      save(userId, FileStorage.Format.JSON);
+    }
+
+    TransferReconciliation.Report report = new TransferReconciliation(tempDir).run();
+
+    assertFalse(report.isConsistent());
+    assertEquals(2, report.getTransferCount());
+    assertEquals(3, report.getLegCount());
+    assertEquals(10.0, report.getNetByCurrency().get("RUB"));
+    assertEquals(4, report.getProblems().size(), report.getProblems().toString());
+    assertEquals(List.of(interrupted), report.getIncompleteTransfers());
+    assertTrue(
+        report.getProblems().contains("transfer interrupted: expense leg missing in wallet bob"));
+    assertTrue(
+        report.getProblems().contains("transfer interrupted: income leg missing in wallet carol"));
+    assertTrue(
+        report
+            .getProblems()
+            .contains("transfer unrecorded: income leg in wallet carol is not in the journal"));
+
+    // Completing the interrupted transfer posts its legs once, however often it is retried
+    transactionService.completeTransfer(interrupted);
+    transactionService.completeTransfer(interrupted);
+    for (String userId : new String[] {"bob", "carol"}) {
+      save(userId, FileStorage.Format.JSON);
+    }
+    TransferReconciliation.Report completed = new TransferReconciliation(tempDir).run();
+    assertEquals(5, completed.getLegCount());
+    assertEquals(
+        List.of(
+            "transfer unrecorded: income leg in wallet carol is not in the journal",
+            "currency RUB: transfer legs do not balance by 10.0"),
+        completed.getProblems());
+  }
+
+  private void save(String userId, FileStorage.Format format) throws IOException {
+    new FileStorage(tempDir.toString(), format)
+        .saveWallet(walletRepository.findByUserId(userId).orElseThrow());
+  }
+}
+
@@ -0,0 +1,136 @@
+package com.finances.infrastructure.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.finances.infrastructure.persistence.FileStorage;
+import com.finances.infrastructure.persistence.ShardedWalletStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WalletAnalyticsTest {
+  @TempDir Path tempDir;
+
+  private FileStorage fileStorage;
+
+  @BeforeEach
+  void setUp() {
+    fileStorage = new FileStorage(tempDir.toString());
+  }
+
+  @Test
+  void shouldAggregateAcrossWallets() throws IOException {
+    for (int i = 0; i < 10; i++) {
+      Wallet wallet = new Wallet("user" + i);
+      wallet.addTransaction(transaction(i + "a", TransactionType.INCOME, "Salary", 1000.0));
+      wallet.addTransaction(transaction(i + "b", TransactionType.EXPENSE, "Food", 100.0));
+      wallet.addTransaction(transaction(i + "c", TransactionType.EXPENSE, "Transport", 50.0));
+      fileStorage.saveWallet(wallet);
+    }
+
+    WalletAggregate aggregate = new WalletAnalytics(tempDir, 4).run();
+
+    assertEquals(10, aggregate.getWalletCount());
+    assertEquals(30, aggregate.getTransactionCount());
+    assertEquals(10000.0, aggregate.getTotalIncome());
+    assertEquals(1500.0, aggregate.getTotalExpense());
+    assertEquals(8500.0, aggregate.getTotalBalance());
+    assertEquals(1000.0, aggregate.getExpenseByCategory().get("Food"));
+    assertEquals(500.0, aggregate.getExpenseByCategory().get("Transport"));
+  }
+
+  @Test
+  void shouldKeepTotalsPerCurrency() throws IOException {
+    for (int i = 0; i < 3; i++) {
+      Wallet wallet = new Wallet("user" + i);
+      wallet.addTransaction(transaction(i + "a", TransactionType.INCOME, "Salary", 1000.0));
+      wallet.addTransaction(
+          Transaction.builder(i + "b", TransactionType.EXPENSE, "Food", 20.0, LocalDateTime.now())
+              .currency("EUR")
+              .build());
+      fileStorage.saveWallet(wallet);
+    }
+
+    WalletAggregate aggregate = new WalletAnalytics(tempDir, 2).run();
+
+    assertEquals(Set.of("EUR", "RUB"), aggregate.getCurrencies());
+    assertEquals(3000.0, aggregate.getTotalIncome());
+    assertEquals(0.0, aggregate.getTotalExpense());
+    assertEquals(60.0, aggregate.getTotalExpense("EUR"));
+    assertEquals(-60.0, aggregate.getTotalBalance("EUR"));
+    assertEquals(Map.of("Food", 60.0), aggregate.getExpenseByCategory("EUR"));
+    assertTrue(aggregate.getExpenseByCategory().isEmpty());
+  }
+
+  @Test
+  void shouldProduceSameResultForAnyParallelism() throws IOException {
+    for (int i = 0; i < 7; i++) {
+      Wallet wallet = new Wallet("user" + i);
+      wallet.addTransaction(transaction(i + "a", TransactionType.EXPENSE, "Food", 10.0 * (i + 1)));
+      fileStorage.saveWallet(wallet);
+    }
+
+    WalletAggregate sequential = new WalletAnalytics(tempDir, 1).run();
+    WalletAggregate parallel = new WalletAnalytics(tempDir, 8).run();
+
+    assertEquals(sequential.getTotalExpense(), parallel.getTotalExpense());
+    assertEquals(sequential.getWalletCount(), parallel.getWalletCount());
+  }
+
+  @Test
+  void shouldCountMalformedFilesAsFailed() throws IOException {
+    fileStorage.saveWallet(new Wallet("valid"));
+    Files.writeString(tempDir.resolve("broken.wallet"), "{\"transactions\": [");
+    Files.writeString(tempDir.resolve("ignored.txt"), "not a wallet");
+
+    WalletAggregate aggregate = new WalletAnalytics(tempDir, 2).run();
+
+    assertEquals(1, aggregate.getWalletCount());
+    assertEquals(1, aggregate.getFailedWalletCount());
+  }
+
+  @Test
+  void shouldCountShardedWalletWithUnreadableSegmentAsFailed() throws IOException {
+    fileStorage.saveWallet(new Wallet("valid"));
+    Wallet sharded = new Wallet("sharded");
+    sharded.addTransaction(transaction("1", TransactionType.INCOME, "Salary", 1000.0));
+    sharded.addTransaction(
+        Transaction.builder("2", TransactionType.EXPENSE, "Food", 20.0, LocalDateTime.now())
+            .currency("EUR")
+            .build());
+    new ShardedWalletStore(tempDir).save(sharded.snapshot());
+    try (Stream<Path> segments = Files.list(tempDir.resolve("sharded.shards"))) {
+      for (Path segment : segments.filter(p -> p.toString().endsWith(".seg")).toList()) {
+        Files.delete(segment);
+      }
+    }
+
+    WalletAggregate aggregate = new WalletAnalytics(tempDir, 2).run();
+
+    assertEquals(1, aggregate.getWalletCount());
+    assertEquals(1, aggregate.getFailedWalletCount());
+  }
+
+  @Test
+  void shouldReturnEmptyAggregateForMissingDirectory() throws IOException {
+    WalletAggregate aggregate = new WalletAnalytics(tempDir.resolve("missing")).run();
+
+    assertEquals(0, aggregate.getWalletCount());
+  }
+
+  private static Transaction transaction(
+      String id, TransactionType type, String category, double amount) {
+    return new Transaction(id, type, category, amount, LocalDateTime.now(), "");
+  }
+}
+
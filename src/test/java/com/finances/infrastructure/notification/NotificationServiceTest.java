@@ -36,6 +36,13 @@ class NotificationServiceTest {
     List<String> notifications = notificationService.getBudgetNotifications(USER_ID);
     assertFalse(notifications.isEmpty());
     assertTrue(notifications.get(0).contains("ПРЕВЫШЕНИЕ БЮДЖЕТА"));
+    assertEquals(
+        String.format(
+            "🚨 ПРЕВЫШЕНИЕ БЮДЖЕТА: Категория '%s' превышена на %.2f (%.0f%%)",
+            "Food",
+            200.0,
+            120.0),
+        notifications.get(0));
   }
 
   @Test
@@ -46,6 +53,11 @@ class NotificationServiceTest {
     List<String> notifications = notificationService.getBudgetNotifications(USER_ID);
     assertFalse(notifications.isEmpty());
     assertTrue(notifications.get(0).contains("ПРЕДУПРЕЖДЕНИЕ"));
+    assertEquals(
+        String.format(
+            "⚠️  ПРЕДУПРЕЖДЕНИЕ: Категория '%s' израсходована на %.0f%% (осталось: %.2f)",
+            "Food", 85.0, 150.0),
+        notifications.get(0));
   }
 
   @Test
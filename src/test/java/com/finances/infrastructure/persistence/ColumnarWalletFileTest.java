@@ -0,0 +1,156 @@
+package com.finances.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ColumnarWalletFileTest {
+  private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0, 0);
+
+  @TempDir Path tempDir;
+
+  @Test
+  void shouldRoundTripTransactions() throws IOException {
+    Wallet wallet = createWallet(250);
+    Path file = tempDir.resolve("user.fwc");
+
+    ColumnarWalletFile.write(wallet.snapshot(), file, 100);
+
+    try (ColumnarWalletFile columnar = ColumnarWalletFile.open(file)) {
+      assertEquals("user", columnar.getUserId());
+      assertEquals(250, columnar.getRowCount());
+      assertEquals(3, columnar.getRowGroupCount());
+      List<Transaction> transactions = columnar.readTransactions();
+      assertEquals(wallet.getTransactions(), transactions);
+      Transaction last = transactions.get(249);
+      assertEquals(TransactionType.EXPENSE, last.getType());
+      assertEquals("Транспорт", last.getCategory());
+      assertEquals(259.0, last.getAmount());
+      assertEquals(START.plusHours(249), last.getTimestamp());
+      assertEquals("row 249", last.getDescription());
+    }
+  }
+
+  @Test
+  void shouldAggregateByCategoryFromNeededColumnsOnly() throws IOException {
+    Wallet wallet = createWallet(1000);
+    Path file = tempDir.resolve("user.fwc");
+    ColumnarWalletFile.write(wallet.snapshot(), file, 256);
+
+    try (ColumnarWalletFile columnar = ColumnarWalletFile.open(file)) {
+      Map<String, Double> expenses = columnar.aggregateByCategory(TransactionType.EXPENSE);
+
+      assertTrue(columnar.getBytesRead() < Files.size(file) / 2);
+      assertEquals(wallet.getExpenseByCategory(), expenses);
+      assertEquals(
+          wallet.getIncomeByCategory(), columnar.aggregateByCategory(TransactionType.INCOME));
+    }
+  }
+
+  @Test
+  void shouldAggregateEachCurrencySeparately() throws IOException {
+    Wallet wallet = new Wallet("user");
+    for (int i = 0; i < 300; i++) {
+      wallet.addTransaction(
+          Transaction.builder(
+                  String.valueOf(i), TransactionType.EXPENSE, "Travel", 10.0, START.plusHours(i))
+              .currency(i % 3 == 0 ? "EUR" : null)
+              .build());
+    }
+    Path file = tempDir.resolve("user.fwc");
+    ColumnarWalletFile.write(wallet.snapshot(), file, 64);
+
+    try (ColumnarWalletFile columnar = ColumnarWalletFile.open(file)) {
+      assertEquals(Map.of("Travel", 2000.0), columnar.aggregateByCategory(TransactionType.EXPENSE));
+      assertEquals(
+          Map.of("Travel", 1000.0), columnar.aggregateByCategory(TransactionType.EXPENSE, "EUR"));
+      assertEquals(
+          Map.of("Travel", 500.0),
+          columnar.aggregateByCategory(
+              TransactionType.EXPENSE, "EUR", START, START.plusHours(150)));
+      assertTrue(columnar.aggregateByCategory(TransactionType.EXPENSE, "USD").isEmpty());
+      assertEquals("EUR", columnar.readTransactions().get(3).getCurrency());
+      assertEquals("RUB", columnar.readTransactions().get(4).getCurrency());
+    }
+  }
+
+  @Test
+  void shouldSkipRowGroupsOutsideTimeRange() throws IOException {
+    Wallet wallet = createWallet(1000);
+    Path file = tempDir.resolve("user.fwc");
+    ColumnarWalletFile.write(wallet.snapshot(), file, 100);
+
+    try (ColumnarWalletFile columnar = ColumnarWalletFile.open(file)) {
+      Map<String, Double> expenses =
+          columnar.aggregateByCategory(
+              TransactionType.EXPENSE, START.plusHours(150), START.plusHours(250));
+      long bytesForRange = columnar.getBytesRead();
+      columnar.aggregateByCategory(TransactionType.EXPENSE);
+
+      Wallet expected = new Wallet("user");
+      wallet.getTransactions().subList(150, 250).forEach(expected::addTransaction);
+      assertEquals(expected.getExpenseByCategory().keySet(), expenses.keySet());
+      expected
+          .getExpenseByCategory()
+          .forEach((category, sum) -> assertEquals(sum, expenses.get(category), 1e-9));
+      assertTrue(bytesForRange * 3 < columnar.getBytesRead() - bytesForRange);
+    }
+  }
+
+  @Test
+  void shouldSkipRowGroupsBelowAmountThreshold() throws IOException {
+    Wallet wallet = createWallet(300);
+    Path file = tempDir.resolve("user.fwc");
+    ColumnarWalletFile.write(wallet.snapshot(), file, 100);
+
+    try (ColumnarWalletFile columnar = ColumnarWalletFile.open(file)) {
+      Map<String, Double> expenses = columnar.aggregateByCategory(TransactionType.EXPENSE, 300.0);
+      long bytesForThreshold = columnar.getBytesRead();
+      columnar.aggregateByCategory(TransactionType.EXPENSE);
+
+      // Only rows 290-299 qualify, all in the last row group
+      assertEquals(
+          Map.of("Food", 302.0 + 304.0 + 306.0 + 308.0, "Транспорт", 301.0 + 303.0 + 307.0 + 309.0),
+          expenses);
+      assertEquals(bytesForThreshold * 3, columnar.getBytesRead() - bytesForThreshold, 16);
+    }
+  }
+
+  @Test
+  void shouldWriteEmptyWallet() throws IOException {
+    Path file = tempDir.resolve("empty.fwc");
+
+    ColumnarWalletFile.write(new Wallet("user").snapshot(), file);
+
+    try (ColumnarWalletFile columnar = ColumnarWalletFile.open(file)) {
+      assertEquals(0, columnar.getRowCount());
+      assertTrue(columnar.aggregateByCategory(TransactionType.EXPENSE).isEmpty());
+    }
+  }
+
+  private static Wallet createWallet(int count) {
+    Wallet wallet = new Wallet("user");
+    for (int i = 0; i < count; i++) {
+      wallet.addTransaction(
+          new Transaction(
+              "id-" + i,
+              i % 5 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+              i % 2 == 0 ? "Food" : "Транспорт",
+              10.0 + i,
+              START.plusHours(i),
+              "row " + i));
+    }
+    return wallet;
+  }
+}
+
@@ -0,0 +1,128 @@
+package com.finances.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompressedWalletFileTest {
+  private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0, 0);
+
+  @TempDir Path tempDir;
+
+  @Test
+  void shouldRoundTripWallet() throws IOException {
+    Wallet wallet = createWallet(2500);
+    wallet.setBudget("Food", 1500.0);
+    Path file = tempDir.resolve("user.walletz");
+
+    CompressedWalletFile.write(wallet.snapshot(), file, 1000);
+
+    try (CompressedWalletFile compressed = CompressedWalletFile.open(file)) {
+      assertEquals("user", compressed.getUserId());
+      assertEquals(3, compressed.getBlockCount());
+      assertEquals(2500, compressed.getTransactionCount());
+      Wallet loaded = compressed.readWallet();
+      assertEquals(wallet.getTransactions(), loaded.getTransactions());
+      assertEquals(wallet.getTotalExpense(), loaded.getTotalExpense(), 1e-6);
+      assertEquals(1500.0, loaded.getBudget("Food").getLimit());
+      assertEquals(
+          wallet.getTransactions().get(7).getTimestamp(),
+          loaded.getTransactions().get(7).getTimestamp());
+    }
+  }
+
+  @Test
+  void shouldReadRangeAcrossBlocks() throws IOException {
+    Wallet wallet = createWallet(100);
+    Path file = tempDir.resolve("user.walletz");
+    CompressedWalletFile.write(wallet.snapshot(), file, 16);
+
+    try (CompressedWalletFile compressed = CompressedWalletFile.open(file)) {
+      List<Transaction> range = compressed.readTransactions(10, 40);
+
+      assertEquals(wallet.getTransactions().subList(10, 40), range);
+      assertTrue(compressed.readTransactions(100, 100).isEmpty());
+      assertThrows(IndexOutOfBoundsException.class, () -> compressed.readTransactions(90, 101));
+    }
+  }
+
+  @Test
+  void shouldReadTimeRange() throws IOException {
+    Wallet wallet = createWallet(100);
+    Path file = tempDir.resolve("user.walletz");
+    CompressedWalletFile.write(wallet.snapshot(), file, 16);
+
+    try (CompressedWalletFile compressed = CompressedWalletFile.open(file)) {
+      List<Transaction> hours = compressed.readBetween(START.plusHours(20), START.plusHours(30));
+
+      assertEquals(wallet.getTransactions().subList(20, 30), hours);
+    }
+  }
+
+  @Test
+  void shouldDetectCorruptBlock() throws IOException {
+    Path file = tempDir.resolve("user.walletz");
+    CompressedWalletFile.write(createWallet(50).snapshot(), file, 16);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), 10);
+    }
+
+    try (CompressedWalletFile compressed = CompressedWalletFile.open(file)) {
+      assertThrows(IOException.class, () -> compressed.readBlock(0));
+    }
+  }
+
+  @Test
+  void shouldRejectNonWalletFile() throws IOException {
+    Path file = tempDir.resolve("user.walletz");
+    Files.writeString(file, "{\"userId\": \"user\", \"transactions\": []}");
+
+    assertThrows(IOException.class, () -> CompressedWalletFile.open(file));
+  }
+
+  @Test
+  void shouldSwitchFormatsThroughFileStorage() throws IOException {
+    Wallet wallet = createWallet(10);
+    FileStorage compressedStorage =
+        new FileStorage(tempDir.toString(), FileStorage.Format.COMPRESSED);
+    FileStorage jsonStorage = new FileStorage(tempDir.toString());
+
+    jsonStorage.saveWallet(wallet);
+    compressedStorage.saveWallet(wallet);
+
+    assertTrue(Files.exists(tempDir.resolve("user.walletz")));
+    assertFalse(Files.exists(tempDir.resolve("user.wallet")));
+    assertEquals(wallet.getTransactions(), jsonStorage.loadWallet("user").getTransactions());
+    assertTrue(jsonStorage.walletExists("user"));
+    assertTrue(jsonStorage.deleteWallet("user"));
+    assertFalse(jsonStorage.walletExists("user"));
+  }
+
+  private static Wallet createWallet(int count) {
+    Wallet wallet = new Wallet("user");
+    for (int i = 0; i < count; i++) {
+      wallet.addTransaction(
+          new Transaction(
+              "id-" + i,
+              i % 5 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+              i % 2 == 0 ? "Food" : "Транспорт",
+              10.0 + i,
+              START.plusHours(i).plusNanos(i),
+              "row " + i));
+    }
+    return wallet;
+  }
+}
+
@@ -0,0 +1,46 @@
+package com.finances.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.ExchangeRates;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExchangeRateFileTest {
+  @Test
+  void shouldReadRatesQuotedInOneCurrency(@TempDir Path tempDir) throws IOException {
+    Path file = tempDir.resolve("rates.csv");
+    Files.writeString(
+        file,
+        "date,currency,quote,rate\n"
+            + "# Central bank rates\n"
+            + "2024-03-01,USD,RUB,91.5\n"
+            + "\n"
+            + "2024-03-04,usd,rub,90.0\n"
+            + "2024-03-01,EUR,RUB,99.0\n");
+
+    ExchangeRates rates = ExchangeRateFile.read(file);
+
+    assertEquals("RUB", rates.getPivot());
+    assertEquals(91.5, rates.getRate("USD", "RUB", LocalDate.of(2024, 3, 3)));
+    assertEquals(90.0, rates.getRate("USD", "RUB", LocalDate.of(2024, 3, 4)));
+    assertEquals(99.0, rates.getRate("EUR", "RUB", LocalDate.of(2024, 3, 4)));
+  }
+
+  @Test
+  void shouldRejectMalformedLines(@TempDir Path tempDir) throws IOException {
+    Path mixed = tempDir.resolve("mixed.csv");
+    Files.writeString(mixed, "2024-03-01,USD,RUB,91.5\n2024-03-01,RUB,EUR,0.01\n");
+    Path broken = tempDir.resolve("broken.csv");
+    Files.writeString(broken, "2024-03-01,USD,RUB,abc\n");
+
+    IOException error = assertThrows(IOException.class, () -> ExchangeRateFile.read(mixed));
+    assertTrue(error.getMessage().contains(":2:"));
+    assertThrows(IOException.class, () -> ExchangeRateFile.read(broken));
+  }
+}
+
@@ -0,0 +1,78 @@
+package com.finances.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.CronSchedule;
+import com.finances.core.domain.RecurringTemplate;
+import com.finances.core.domain.TransactionType;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileRecurringTemplateRepositoryTest {
+  private static final LocalDateTime NEXT = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+  @Test
+  void shouldKeepTemplatesAcrossReopen(@TempDir Path tempDir) throws IOException {
+    Path file = tempDir.resolve(FileRecurringTemplateRepository.FILE_NAME);
+    FileRecurringTemplateRepository repository = new FileRecurringTemplateRepository(file);
+    repository.save(
+        RecurringTemplate.restore(
+            "t1",
+            "alice",
+            TransactionType.INCOME,
+            "Salary",
+            5000.0,
+            "Monthly",
+            CronSchedule.parse("0 9 1 * *"),
+            NEXT));
+    repository.save(
+        RecurringTemplate.restore(
+            "t2",
+            "bob",
+            TransactionType.EXPENSE,
+            "Gym",
+            30.5,
+            "",
+            CronSchedule.parse("@daily"),
+            null));
+    repository.save(
+        RecurringTemplate.restore(
+            "t3",
+            "alice",
+            TransactionType.EXPENSE,
+            "Rent",
+            800.0,
+            "",
+            CronSchedule.parse("0 0 1 * *"),
+            NEXT));
+    repository.delete("t3");
+
+    List<RecurringTemplate> read = new FileRecurringTemplateRepository(file).findAll();
+    assertEquals(2, read.size());
+    RecurringTemplate salary = read.get(0);
+    assertEquals("t1", salary.getId());
+    assertEquals("alice", salary.getUserId());
+    assertEquals(TransactionType.INCOME, salary.getType());
+    assertEquals("Salary", salary.getCategory());
+    assertEquals(5000.0, salary.getAmount());
+    assertEquals("Monthly", salary.getDescription());
+    assertEquals("0 9 1 * *", salary.getSchedule().getExpression());
+    assertEquals(NEXT, salary.getNextOccurrence());
+    assertEquals("t2", read.get(1).getId());
+    assertNull(read.get(1).getNextOccurrence());
+  }
+
+  @Test
+  void shouldRejectMalformedFile(@TempDir Path tempDir) throws IOException {
+    Path file = tempDir.resolve(FileRecurringTemplateRepository.FILE_NAME);
+    Files.writeString(file, "[{\"id\": \"t1\"}]");
+
+    assertThrows(IOException.class, () -> new FileRecurringTemplateRepository(file));
+  }
+}
+
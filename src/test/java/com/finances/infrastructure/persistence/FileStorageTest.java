@@ -2,15 +2,20 @@ package com.finances.infrastructure.persistence;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.finances.core.domain.BudgetPeriod;
 import com.finances.core.domain.Transaction;
 import com.finances.core.domain.TransactionType;
 import com.finances.core.domain.Wallet;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Map;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class FileStorageTest {
   private FileStorage fileStorage;
@@ -25,6 +30,7 @@ class FileStorageTest {
   void tearDown() {
     fileStorage.deleteWallet(TEST_USER);
     new File(TEST_USER + "_export.csv").delete();
+    new File(TEST_USER + "_export.csv.hwm").delete();
     new File(TEST_USER + "_export.json").delete();
   }
 
@@ -45,6 +51,77 @@ class FileStorageTest {
     assertEquals(5000.0, loadedWallet.getTotalIncome());
   }
 
+  @Test
+  void shouldSaveAndLoadBudgetPeriodsInEveryFormat(@TempDir Path tempDir) throws IOException {
+    BudgetPeriod days = BudgetPeriod.days(14, LocalDate.of(2024, 1, 1), true);
+    for (FileStorage.Format format : FileStorage.Format.values()) {
+      FileStorage storage = new FileStorage(tempDir.resolve(format.name()).toString(), format);
+      Wallet wallet = new Wallet(TEST_USER);
+      wallet.addTransaction(
+          new Transaction("1", TransactionType.EXPENSE, "Food", 40.0, LocalDateTime.now(), ""));
+      wallet.setBudget("Food", 100.0, BudgetPeriod.weekly(false));
+      wallet.setBudget("Rent", 500.0, days);
+      wallet.setBudget("Fun", 50.0);
+
+      storage.saveWallet(wallet);
+      Wallet loaded = storage.loadWallet(TEST_USER);
+
+      assertEquals(BudgetPeriod.weekly(false), loaded.getBudget("Food").getPeriod(), format.name());
+      assertEquals(days, loaded.getBudget("Rent").getPeriod(), format.name());
+      assertNull(loaded.getBudget("Fun").getPeriod(), format.name());
+      assertEquals(40.0, loaded.getBudgetStatus("Food").getSpent(), format.name());
+    }
+  }
+
+  @Test
+  void shouldKeepIdempotencyKeysInEveryFormat(@TempDir Path tempDir) throws IOException {
+    for (FileStorage.Format format : FileStorage.Format.values()) {
+      FileStorage storage = new FileStorage(tempDir.resolve(format.name()).toString(), format);
+      Wallet wallet = new Wallet(TEST_USER);
+      LocalDateTime now = LocalDateTime.now();
+      wallet.addTransaction(
+          new Transaction("1", TransactionType.EXPENSE, "Food", 40.0, now, "", "import-1"));
+      wallet.addTransaction(new Transaction("2", TransactionType.EXPENSE, "Food", 10.0, now, ""));
+
+      storage.saveWallet(wallet);
+      Wallet loaded = storage.loadWallet(TEST_USER);
+      Transaction retry =
+          new Transaction("3", TransactionType.EXPENSE, "Food", 40.0, now, "", "import-1");
+
+      assertEquals("import-1", loaded.getTransactions().get(0).getIdempotencyKey(), format.name());
+      assertNull(loaded.getTransactions().get(1).getIdempotencyKey(), format.name());
+      assertEquals("1", loaded.addTransaction(retry).getId(), format.name());
+      assertEquals(2, loaded.getTransactions().size(), format.name());
+    }
+  }
+
+  @Test
+  void shouldKeepCurrenciesInEveryFormat(@TempDir Path tempDir) throws IOException {
+    for (FileStorage.Format format : FileStorage.Format.values()) {
+      FileStorage storage = new FileStorage(tempDir.resolve(format.name()).toString(), format);
+      Wallet wallet = new Wallet(TEST_USER);
+      LocalDateTime now = LocalDateTime.now();
+      wallet.addTransaction(
+          Transaction.builder("1", TransactionType.INCOME, "Salary", 1000.0, now)
+              .currency("usd")
+              .build());
+      wallet.addTransaction(new Transaction("2", TransactionType.EXPENSE, "Food", 10.0, now, ""));
+      wallet.setBudget("Food", 50.0, null, "USD");
+
+      storage.saveWallet(wallet);
+      Wallet loaded = storage.loadWallet(TEST_USER);
+
+      assertEquals("USD", loaded.getTransactions().get(0).getCurrency(), format.name());
+      assertEquals("RUB", loaded.getTransactions().get(1).getCurrency(), format.name());
+      assertEquals(
+          Map.of("RUB", 0.0, "USD", 1000.0),
+          loaded.snapshot().getIncomeByCurrency(),
+          format.name());
+      assertEquals("USD", loaded.getBudget("Food").getCurrency(), format.name());
+      assertEquals(50.0, loaded.getRemainingBudget("Food"), 0.001, format.name());
+    }
+  }
+
   @Test
   void shouldReturnNewWalletWhenFileDoesNotExist() throws IOException {
     Wallet wallet = fileStorage.loadWallet("nonexistent");
@@ -0,0 +1,67 @@
+package com.finances.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.Transfer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileTransferJournalTest {
+  private static final LocalDateTime TIME = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 500);
+
+  @Test
+  void shouldKeepTransfersAcrossReopen(@TempDir Path tempDir) throws IOException {
+    Path file = tempDir.resolve(FileTransferJournal.FILE_NAME);
+    try (FileTransferJournal journal = new FileTransferJournal(file)) {
+      journal.append(new Transfer("t1", "alice", "bob", 100.0, null, TIME, "Rent"));
+      journal.append(new Transfer("t2", "bob", "carol", 25.5, "usd", TIME, null));
+    }
+
+    try (FileTransferJournal journal = new FileTransferJournal(file)) {
+      journal.append(new Transfer("t3", "carol", "alice", 5.0, null, TIME, ""));
+
+      List<Transfer> bob = journal.findByUserId("bob");
+      assertEquals(2, bob.size());
+      assertEquals("alice", bob.get(0).getFromUserId());
+      assertEquals("Rent", bob.get(0).getDescription());
+      assertEquals(TIME, bob.get(0).getTimestamp());
+      assertEquals("USD", bob.get(1).getCurrency());
+      assertEquals(25.5, bob.get(1).getAmount());
+      assertEquals(List.of("t1", "t3"), ids(journal.findByUserId("alice")));
+    }
+  }
+
+  @Test
+  void shouldCutOffTornTail(@TempDir Path tempDir) throws IOException {
+    Path file = tempDir.resolve(FileTransferJournal.FILE_NAME);
+    try (FileTransferJournal journal = new FileTransferJournal(file)) {
+      journal.append(new Transfer("t1", "alice", "bob", 100.0, null, TIME, "Rent"));
+    }
+    long valid = Files.size(file);
+    Files.write(file, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    List<Transfer> read = new ArrayList<>();
+    FileTransferJournal.read(file, read::add);
+    assertEquals(List.of("t1"), ids(read));
+
+    try (FileTransferJournal journal = new FileTransferJournal(file)) {
+      assertEquals(valid, Files.size(file));
+      journal.append(new Transfer("t2", "bob", "alice", 1.0, null, TIME, null));
+      assertEquals(List.of("t1", "t2"), ids(journal.findByUserId("alice")));
+    }
+  }
+
+  private static List<String> ids(List<Transfer> transfers) {
+    List<String> ids = new ArrayList<>();
+    transfers.forEach(transfer -> ids.add(transfer.getId()));
+    return ids;
+  }
+}
+
@@ -0,0 +1,181 @@
+package com.finances.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IncrementalCsvExportTest {
+  @TempDir Path tempDir;
+
+  private IncrementalCsvExport export;
+  private Wallet wallet;
+  private Path output;
+
+  @BeforeEach
+  void setUp() {
+    export = new IncrementalCsvExport(new StreamingExporter());
+    wallet = new Wallet("user");
+    output = tempDir.resolve("user_export.csv");
+  }
+
+  @Test
+  void shouldAppendOnlyNewTransactions() throws IOException {
+    addTransactions(0, 3);
+    IncrementalCsvExport.Result first = export.export(wallet.snapshot(), output, false);
+    addTransactions(3, 5);
+    IncrementalCsvExport.Result second = export.export(wallet.snapshot(), output, false);
+
+    assertTrue(first.isFullExport());
+    assertEquals(3, first.getAppendedCount());
+    assertFalse(second.isFullExport());
+    assertEquals(2, second.getAppendedCount());
+    assertEquals(5, second.getTotalCount());
+    Path full = tempDir.resolve("full.csv");
+    new StreamingExporter().exportCsv(wallet.snapshot(), full);
+    assertEquals(Files.readString(full), Files.readString(output));
+    assertTrue(export.verify(output));
+  }
+
+  @Test
+  void shouldKeepOneSegmentAcrossAppends() throws IOException {
+    for (int i = 0; i < 5; i++) {
+      addTransactions(i * 2, i * 2 + 2);
+      export.export(wallet.snapshot(), output, false);
+    }
+
+    JsonObject mark =
+        JsonParser.parseString(Files.readString(IncrementalCsvExport.markPath(output)))
+            .getAsJsonObject();
+    assertEquals(1, mark.getAsJsonArray("segments").size());
+    assertTrue(export.verify(output));
+  }
+
+  @Test
+  void shouldCombineChecksumsOfConsecutiveRanges() {
+    byte[] first = "Type,Category\n".getBytes(StandardCharsets.UTF_8);
+    byte[] second = "INCOME,Зарплата,100.00\n".getBytes(StandardCharsets.UTF_8);
+    CRC32 whole = new CRC32();
+    whole.update(first);
+    whole.update(second);
+    CRC32 head = new CRC32();
+    head.update(first);
+    CRC32 tail = new CRC32();
+    tail.update(second);
+
+    assertEquals(
+        whole.getValue(),
+        IncrementalCsvExport.combineCrc(head.getValue(), tail.getValue(), second.length));
+    assertEquals(head.getValue(), IncrementalCsvExport.combineCrc(head.getValue(), 0, 0));
+  }
+
+  @Test
+  void shouldAppendNothingWhenUpToDate() throws IOException {
+    addTransactions(0, 2);
+    export.export(wallet.snapshot(), output, false);
+    long size = Files.size(output);
+
+    IncrementalCsvExport.Result result = export.export(wallet.snapshot(), output, false);
+
+    assertEquals(0, result.getAppendedCount());
+    assertEquals(size, Files.size(output));
+    assertTrue(export.verify(output));
+  }
+
+  @Test
+  void shouldRewriteWhenFileWasModified() throws IOException {
+    addTransactions(0, 2);
+    export.export(wallet.snapshot(), output, false);
+    Files.writeString(output, "tampered\n", StandardOpenOption.APPEND);
+    assertFalse(export.verify(output));
+
+    addTransactions(2, 3);
+    IncrementalCsvExport.Result result = export.export(wallet.snapshot(), output, false);
+
+    assertTrue(result.isFullExport());
+    assertEquals(4, Files.readAllLines(output, StandardCharsets.UTF_8).size());
+    assertTrue(export.verify(output));
+  }
+
+  @Test
+  void shouldDetectCorruptionWithSameLength() throws IOException {
+    addTransactions(0, 2);
+    export.export(wallet.snapshot(), output, false);
+    String content = Files.readString(output);
+    Files.writeString(output, content.replace("INCOME", "EXPENS"));
+
+    assertFalse(export.verify(output));
+  }
+
+  @Test
+  void shouldRewriteWhenWalletHistoryChanged() throws IOException {
+    addTransactions(0, 3);
+    export.export(wallet.snapshot(), output, false);
+    wallet.clear();
+    addTransactions(10, 14);
+
+    IncrementalCsvExport.Result result = export.export(wallet.snapshot(), output, false);
+
+    assertTrue(result.isFullExport());
+    List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+    assertEquals(5, lines.size());
+    assertTrue(lines.get(1).endsWith("row 10"));
+  }
+
+  @Test
+  void shouldRewriteWhenMarkPredatesCurrentColumns() throws IOException {
+    addTransactions(0, 2);
+    export.export(wallet.snapshot(), output, false);
+    Path mark = IncrementalCsvExport.markPath(output);
+    JsonObject json = JsonParser.parseString(Files.readString(mark)).getAsJsonObject();
+    json.remove("header");
+    Files.writeString(mark, json.toString());
+
+    addTransactions(2, 3);
+    IncrementalCsvExport.Result result = export.export(wallet.snapshot(), output, false);
+
+    assertTrue(result.isFullExport());
+    assertEquals(4, Files.readAllLines(output, StandardCharsets.UTF_8).size());
+  }
+
+  @Test
+  void shouldForceFullExport() throws IOException {
+    addTransactions(0, 3);
+    export.export(wallet.snapshot(), output, false);
+
+    IncrementalCsvExport.Result result = export.export(wallet.snapshot(), output, true);
+
+    assertTrue(result.isFullExport());
+    assertEquals(3, result.getAppendedCount());
+    assertEquals(4, Files.readAllLines(output, StandardCharsets.UTF_8).size());
+    assertTrue(export.verify(output));
+  }
+
+  private void addTransactions(int from, int to) {
+    for (int i = from; i < to; i++) {
+      wallet.addTransaction(
+          new Transaction(
+              "id-" + i,
+              TransactionType.INCOME,
+              "Salary",
+              100.0 + i,
+              LocalDateTime.now(),
+              "row " + i));
+    }
+  }
+}
+
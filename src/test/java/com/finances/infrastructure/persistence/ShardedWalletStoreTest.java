@@ -0,0 +1,304 @@
+package com.finances.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ShardedWalletStoreTest {
+  private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0, 0);
+
+  @TempDir Path tempDir;
+
+  private ShardedWalletStore store;
+  private Path walletDirectory;
+
+  @BeforeEach
+  void setUp() {
+    store = new ShardedWalletStore(tempDir);
+    walletDirectory = tempDir.resolve("user" + ShardedWalletStore.DIRECTORY_SUFFIX);
+  }
+
+  @Test
+  void shouldPartitionByMonth() throws IOException {
+    Wallet wallet = createWallet(0, 90);
+
+    store.save(wallet.snapshot());
+
+    assertTrue(Files.exists(walletDirectory.resolve("manifest.json")));
+    assertTrue(Files.exists(walletDirectory.resolve("2024-01.seg")));
+    assertTrue(Files.exists(walletDirectory.resolve("2024-03.seg")));
+    assertTrue(store.exists("user"));
+  }
+
+  @Test
+  void shouldLoadAggregatesFromManifestOnly() throws IOException {
+    Wallet wallet = createWallet(0, 90);
+    wallet.setBudget("Food", 500.0);
+    store.save(wallet.snapshot());
+    deleteSegments();
+
+    Wallet loaded = store.load("user");
+
+    assertEquals(90, loaded.getTransactions().size());
+    assertEquals(wallet.getTotalIncome(), loaded.getTotalIncome(), 1e-9);
+    assertEquals(wallet.getTotalExpense(), loaded.getTotalExpense(), 1e-9);
+    assertEquals(wallet.getExpenseByCategory(), loaded.getExpenseByCategory());
+    assertEquals(wallet.getRemainingBudget("Food"), loaded.getRemainingBudget("Food"), 1e-9);
+  }
+
+  @Test
+  void shouldFaultInOnlyTouchedMonths() throws IOException {
+    store.save(createWallet(0, 90).snapshot());
+    Files.delete(walletDirectory.resolve("2024-01.seg"));
+
+    Wallet loaded = store.load("user");
+    List<Transaction> march =
+        loaded.getTransactionsBetween(START.withMonth(3).withDayOfMonth(1), START.withMonth(4));
+
+    assertEquals(30, march.size());
+    assertEquals("id-60", march.get(0).getId());
+    assertThrows(RuntimeException.class, () -> loaded.getTransactions().get(0));
+  }
+
+  @Test
+  void shouldAppendOnlyNewTransactions() throws IOException {
+    store.save(createWallet(0, 40).snapshot());
+    long januarySize = Files.size(walletDirectory.resolve("2024-01.seg"));
+
+    Wallet loaded = store.load("user");
+    addTransactions(loaded, 40, 70);
+    store.save(loaded.snapshot());
+
+    assertEquals(januarySize, Files.size(walletDirectory.resolve("2024-01.seg")));
+    Wallet reloaded = store.load("user");
+    assertEquals(createWallet(0, 70).getTransactions(), reloaded.getTransactions());
+    assertEquals(createWallet(0, 70).getTotalExpense(), reloaded.getTotalExpense(), 1e-9);
+  }
+
+  @Test
+  void shouldKeepInsertionOrderAcrossMonths() throws IOException {
+    Wallet wallet = new Wallet("user");
+    wallet.addTransaction(transaction(0, START.withMonth(5)));
+    wallet.addTransaction(transaction(1, START.withMonth(2)));
+    wallet.addTransaction(transaction(2, START.withMonth(5).plusDays(1)));
+    store.save(wallet.snapshot());
+
+    Wallet loaded = store.load("user");
+
+    assertEquals(wallet.getTransactions(), loaded.getTransactions());
+  }
+
+  @Test
+  void shouldRewriteWhenHistoryDiverges() throws IOException {
+    store.save(createWallet(0, 40).snapshot());
+    Wallet other = createWallet(100, 110);
+
+    store.save(other.snapshot());
+
+    assertEquals(other.getTransactions(), store.load("user").getTransactions());
+    assertFalse(Files.exists(walletDirectory.resolve("2024-02.seg")));
+  }
+
+  @Test
+  void shouldIgnoreTornAppend() throws IOException {
+    store.save(createWallet(0, 10).snapshot());
+    Files.write(
+        walletDirectory.resolve("2024-01.seg"), new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+    Wallet loaded = store.load("user");
+    assertEquals(10, loaded.getTransactions().size());
+    addTransactions(loaded, 10, 12);
+    store.save(loaded.snapshot());
+
+    assertEquals(createWallet(0, 12).getTransactions(), store.load("user").getTransactions());
+  }
+
+  @Test
+  void shouldSwitchFormatsThroughFileStorage() throws IOException {
+    Wallet wallet = createWallet(0, 20);
+    FileStorage sharded = new FileStorage(tempDir.toString(), FileStorage.Format.SHARDED);
+    FileStorage json = new FileStorage(tempDir.toString());
+
+    sharded.saveWallet(wallet);
+    Wallet loaded = json.loadWallet("user");
+    json.saveWallet(loaded);
+
+    assertFalse(Files.exists(walletDirectory));
+    assertEquals(wallet.getTransactions(), json.loadWallet("user").getTransactions());
+  }
+
+  @Test
+  void shouldFindThroughIndex() throws IOException {
+    Wallet wallet = createWallet(0, 90);
+    store.save(wallet.snapshot());
+    LocalDateTime from = START.plusDays(20).plusHours(1);
+    LocalDateTime to = START.plusDays(50);
+
+    assertEquals(
+        filter(wallet, TransactionType.EXPENSE, "Food", from, to),
+        store.find("user", TransactionType.EXPENSE, "Food", from, to));
+    assertEquals(filter(wallet, null, null, from, to), store.find("user", null, null, from, to));
+    assertEquals(
+        filter(wallet, TransactionType.INCOME, null, null, null),
+        store.find("user", TransactionType.INCOME, null, null, null));
+    assertEquals(List.of(), store.find("user", null, "Travel", null, null));
+  }
+
+  @Test
+  void shouldReadOnlySegmentsOfMatchingRecords() throws IOException {
+    Wallet wallet = createWallet(0, 90);
+    store.save(wallet.snapshot());
+    Files.delete(walletDirectory.resolve("2024-01.seg"));
+    LocalDateTime from = START.withMonth(3).withDayOfMonth(1);
+
+    List<Transaction> found = store.find("user", null, "Rent", from, null);
+
+    assertEquals(filter(wallet, null, "Rent", from, null), found);
+    assertEquals(15, found.size());
+  }
+
+  @Test
+  void shouldKeepIndexAcrossAppendsAndTornTails() throws IOException {
+    Wallet wallet = createWallet(0, 10);
+    store.save(wallet.snapshot());
+    Files.write(walletDirectory.resolve("time.idx"), new byte[] {9, 9}, StandardOpenOption.APPEND);
+    Files.write(walletDirectory.resolve("cat-0.idx"), new byte[] {9}, StandardOpenOption.APPEND);
+
+    // Enough saves to force the time blocks to be merged
+    for (int i = 10; i < 80; i++) {
+      addTransactions(wallet, i, i + 1);
+      store.save(wallet.snapshot());
+    }
+
+    LocalDateTime from = START.plusDays(5);
+    assertEquals(
+        filter(wallet, null, null, from, null), store.find("user", null, null, from, null));
+    assertEquals(
+        filter(wallet, null, "Food", null, null), store.find("user", null, "Food", null, null));
+  }
+
+  @Test
+  void shouldRebuildIndexForOldManifest() throws IOException {
+    Wallet wallet = createWallet(0, 60);
+    store.save(wallet.snapshot());
+    Path manifest = walletDirectory.resolve("manifest.json");
+    JsonObject json = JsonParser.parseString(Files.readString(manifest)).getAsJsonObject();
+    json.remove("index");
+    Files.writeString(manifest, json.toString());
+    try (var indexes = Files.newDirectoryStream(walletDirectory, "*.idx")) {
+      for (Path index : indexes) {
+        Files.delete(index);
+      }
+    }
+
+    List<Transaction> found = store.find("user", TransactionType.EXPENSE, "Rent", null, null);
+
+    assertEquals(filter(wallet, TransactionType.EXPENSE, "Rent", null, null), found);
+    assertTrue(Files.exists(walletDirectory.resolve("time.idx")));
+  }
+
+  @Test
+  void shouldFindThroughFileStorageForEveryFormat() throws IOException {
+    Wallet wallet = createWallet(0, 40);
+    LocalDateTime from = START.plusDays(10);
+    List<Transaction> expected = filter(wallet, TransactionType.EXPENSE, null, from, null);
+
+    for (FileStorage.Format format : FileStorage.Format.values()) {
+      FileStorage storage = new FileStorage(tempDir.toString(), format);
+      storage.saveWallet(wallet);
+      assertEquals(
+          expected, storage.findTransactions("user", TransactionType.EXPENSE, null, from, null));
+    }
+  }
+
+  private static List<Transaction> filter(
+      Wallet wallet, TransactionType type, String category, LocalDateTime from, LocalDateTime to) {
+    return wallet.getTransactions().stream()
+        .filter(t -> type == null || t.getType() == type)
+        .filter(t -> category == null || t.getCategory().equals(category))
+        .filter(t -> from == null || !t.getTimestamp().isBefore(from))
+        .filter(t -> to == null || t.getTimestamp().isBefore(to))
+        .toList();
+  }
+
+  @Test
+  void shouldCheckIdempotencyKeysWithoutReadingSegments() throws IOException {
+    Wallet wallet = createWallet(0, 30);
+    wallet.addTransaction(keyed(30, "import-30"));
+    store.save(wallet.snapshot());
+    Wallet reloaded = store.load("user");
+    reloaded.addTransaction(keyed(31, "import-31"));
+    store.save(reloaded.snapshot());
+    deleteSegments();
+
+    Wallet loaded = store.load("user");
+    Transaction fresh = keyed(32, "import-32");
+
+    assertSame(fresh, loaded.addTransaction(fresh));
+    assertEquals(33, loaded.snapshot().getTransactionCount());
+  }
+
+  @Test
+  void shouldRecognizeRetriedTransactionAfterReload() throws IOException {
+    Wallet wallet = createWallet(0, 30);
+    wallet.addTransaction(keyed(30, "import-30"));
+    store.save(wallet.snapshot());
+
+    Wallet loaded = store.load("user");
+    Transaction stored = loaded.addTransaction(keyed(99, "import-30"));
+
+    assertEquals("id-30", stored.getId());
+    assertEquals(31, loaded.snapshot().getTransactionCount());
+    assertEquals("id-30", loaded.findByIdempotencyKey("import-30").getId());
+    assertNull(loaded.findByIdempotencyKey("import-99"));
+  }
+
+  private void deleteSegments() throws IOException {
+    try (var segments = Files.newDirectoryStream(walletDirectory, "*.seg")) {
+      for (Path segment : segments) {
+        Files.delete(segment);
+      }
+    }
+  }
+
+  private static Wallet createWallet(int from, int to) {
+    Wallet wallet = new Wallet("user");
+    addTransactions(wallet, from, to);
+    return wallet;
+  }
+
+  private static void addTransactions(Wallet wallet, int from, int to) {
+    for (int i = from; i < to; i++) {
+      wallet.addTransaction(transaction(i, START.plusDays(i)));
+    }
+  }
+
+  private static Transaction keyed(int i, String key) {
+    return new Transaction(
+        "id-" + i, TransactionType.EXPENSE, "Food", 10.0 + i, START.plusDays(i), "", key);
+  }
+
+  private static Transaction transaction(int i, LocalDateTime timestamp) {
+    return new Transaction(
+        "id-" + i,
+        i % 3 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+        i % 2 == 0 ? "Food" : "Rent",
+        10.0 + i,
+        timestamp,
+        "row " + i);
+  }
+}
+
@@ -0,0 +1,150 @@
+package com.finances.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.BudgetPeriod;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.TransactionType;
+import com.finances.core.domain.Wallet;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StreamingExporterTest {
+  private static final LocalDateTime TIME = LocalDateTime.of(2024, 3, 15, 10, 30, 0);
+
+  @TempDir Path tempDir;
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(3);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldQuoteCsvFields() throws IOException {
+    Wallet wallet = new Wallet("user");
+    wallet.addTransaction(
+        new Transaction(
+            "1", TransactionType.EXPENSE, "Food, drinks", 12.5, TIME, "He said \"hi\"\nbye"));
+    Path output = tempDir.resolve("export.csv");
+
+    new StreamingExporter().exportCsv(wallet.snapshot(), output);
+
+    assertEquals(
+        "Type,Category,Amount,Currency,Date,Description\n"
+            + "EXPENSE,\"Food, drinks\",12.50,RUB,2024-03-15,\"He said \"\"hi\"\"\nbye\"\n",
+        Files.readString(output, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void shouldWriteChunksInOrder() throws IOException {
+    Wallet wallet = new Wallet("user");
+    for (int i = 0; i < 1000; i++) {
+      wallet.addTransaction(
+          new Transaction(
+              String.valueOf(i), TransactionType.EXPENSE, "Категория", i + 1, TIME, "row " + i));
+    }
+    Path chunked = tempDir.resolve("chunked.csv");
+    Path single = tempDir.resolve("single.csv");
+
+    new StreamingExporter(executor, 3, 7).exportCsv(wallet.snapshot(), chunked);
+    new StreamingExporter(executor, 1, 10_000).exportCsv(wallet.snapshot(), single);
+
+    List<String> lines = Files.readAllLines(chunked, StandardCharsets.UTF_8);
+    assertEquals(1001, lines.size());
+    assertEquals("EXPENSE,Категория,1000.00,RUB,2024-03-15,row 999", lines.get(1000));
+    assertEquals(Files.readString(single), Files.readString(chunked));
+  }
+
+  @Test
+  void shouldExportValidJson() throws IOException {
+    Wallet wallet = new Wallet("user");
+    for (int i = 0; i < 50; i++) {
+      wallet.addTransaction(
+          new Transaction(
+              String.valueOf(i), TransactionType.INCOME, "Salary", 100.0, TIME, "tab\there"));
+    }
+    wallet.setBudget("Food", 300.0);
+    Path output = tempDir.resolve("export.json");
+
+    new StreamingExporter(executor, 2, 8).exportJson(wallet.snapshot(), output);
+
+    JsonObject json =
+        JsonParser.parseString(Files.readString(output, StandardCharsets.UTF_8)).getAsJsonObject();
+    assertEquals("user", json.get("userId").getAsString());
+    assertEquals(5000.0, json.get("balance").getAsDouble());
+    JsonArray transactions = json.getAsJsonArray("transactions");
+    assertEquals(50, transactions.size());
+    JsonObject last = transactions.get(49).getAsJsonObject();
+    assertEquals("49", last.get("id").getAsString());
+    assertEquals("2024-03-15T10:30:00", last.get("timestamp").getAsString());
+    assertEquals("tab\there", last.get("description").getAsString());
+    assertEquals(300.0, json.getAsJsonObject("budgets").get("Food").getAsDouble());
+  }
+
+  @Test
+  void shouldExportJsonInWalletFileLayout() throws IOException {
+    Wallet wallet = new Wallet("user");
+    wallet.addTransaction(
+        new Transaction("1", TransactionType.INCOME, "Salary", 1000, TIME, "March", "k-1"));
+    wallet.addTransaction(
+        Transaction.builder("2", TransactionType.EXPENSE, "Travel", 50, TIME)
+            .description("Taxi")
+            .currency("EUR")
+            .build());
+    wallet.addTransaction(
+        Transaction.builder("3", TransactionType.EXPENSE, "Transfer", 20, TIME)
+            .idempotencyKey("t-1>out")
+            .transferId("t-1")
+            .build());
+    wallet.setBudget("Food", 300, BudgetPeriod.monthly(true));
+    wallet.setBudget("Travel", 200, null, "EUR");
+    FileStorage storage = new FileStorage(tempDir.toString());
+    storage.saveWallet(wallet);
+    Path output = tempDir.resolve("export.json");
+
+    new StreamingExporter().exportJson(wallet.snapshot(), output);
+
+    assertEquals(
+        JsonParser.parseString(Files.readString(tempDir.resolve("user.wallet"))),
+        JsonParser.parseString(Files.readString(output)));
+    Files.copy(output, tempDir.resolve("copy.wallet"));
+    Wallet loaded = storage.loadWallet("copy");
+    assertEquals(wallet.snapshot().getTransactions(), loaded.snapshot().getTransactions());
+    assertEquals("EUR", loaded.snapshot().getTransactions().get(1).getCurrency());
+    assertEquals("t-1", loaded.snapshot().getTransactions().get(2).getTransferId());
+    assertEquals("EUR", loaded.snapshot().getBudget("Travel").getCurrency());
+    assertNotNull(loaded.snapshot().getBudget("Food").getPeriod());
+  }
+
+  @Test
+  void shouldExportEmptyWalletAsJson() throws IOException {
+    Path output = tempDir.resolve("empty.json");
+
+    new StreamingExporter().exportJson(new Wallet("user").snapshot(), output);
+
+    JsonObject json = JsonParser.parseString(Files.readString(output)).getAsJsonObject();
+    assertEquals(0, json.getAsJsonArray("transactions").size());
+    assertEquals(0, json.getAsJsonObject("budgets").size());
+  }
+}
+
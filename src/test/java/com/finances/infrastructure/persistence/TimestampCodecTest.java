@@ -0,0 +1,109 @@
+package com.finances.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.util.Formatting;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TimestampCodecTest {
+  private static final DateTimeFormatter FORMATTER =
+      DateTimeFormatter.ofPattern(Formatting.TIMESTAMP_PATTERN);
+
+  @Test
+  void shouldRoundTripEveryDate() {
+    Random random = new Random(17);
+    LocalDate end = LocalDate.of(9999, 12, 31);
+    for (LocalDate date = LocalDate.of(1, 1, 1); !date.isAfter(end); date = date.plusDays(1)) {
+      LocalDateTime timestamp =
+          date.atTime(random.nextInt(24), random.nextInt(60), random.nextInt(60));
+      assertRoundTrip(timestamp);
+    }
+  }
+
+  @Test
+  void shouldRoundTripEverySecondOfDay() {
+    for (LocalDate date : new LocalDate[] {LocalDate.of(2024, 2, 29), LocalDate.of(1, 1, 1)}) {
+      for (int second = 0; second < 24 * 3600; second++) {
+        assertRoundTrip(date.atTime(LocalTime.ofSecondOfDay(second)));
+      }
+    }
+  }
+
+  @Test
+  void shouldDropFractionsOfSecondLikeFormatter() {
+    LocalDateTime timestamp = LocalDateTime.of(2024, 3, 1, 12, 30, 45, 999_999_999);
+    assertEquals(FORMATTER.format(timestamp), TimestampCodec.format(timestamp));
+    assertEquals(timestamp.withNano(0), TimestampCodec.parse(TimestampCodec.format(timestamp)));
+  }
+
+  @Test
+  void shouldResolveAndRejectLikeFormatter() {
+    String[] texts = {
+      "2023-02-29T10:00:00",
+      "2024-02-30T10:00:00",
+      "2024-04-31T10:00:00",
+      "2024-01-01T24:00:00",
+      "2024-13-01T10:00:00",
+      "2024-00-10T10:00:00",
+      "2024-01-00T10:00:00",
+      "2024-01-01T10:60:00",
+      "2024-01-01T10:00:60",
+      "0000-01-01T10:00:00",
+      "2024-01-01 10:00:00",
+      "2024/01/01T10:00:00",
+      "2024-01-01T10:00:0x",
+      "2024-01-01T10:00",
+      "2024-01-01T10:00:00.5",
+      "12024-01-01T10:00:00",
+      "+2024-01-01T10:00:0",
+      "2024-01-01T10:00:0٥",
+      ""
+    };
+    for (String text : texts) {
+      assertSameOutcome(text);
+    }
+  }
+
+  @Test
+  void shouldResolveRandomFieldsLikeFormatter() {
+    Random random = new Random(19);
+    for (int i = 0; i < 200_000; i++) {
+      // Fields slightly beyond their ranges exercise both the fast path and the fallback
+      String text =
+          String.format(
+              "%04d-%02d-%02dT%02d:%02d:%02d",
+              random.nextInt(10_000),
+              random.nextInt(14),
+              random.nextInt(33),
+              random.nextInt(26),
+              random.nextInt(62),
+              random.nextInt(62));
+      assertSameOutcome(text);
+    }
+  }
+
+  private static void assertRoundTrip(LocalDateTime timestamp) {
+    String text = TimestampCodec.format(timestamp);
+    assertEquals(FORMATTER.format(timestamp), text);
+    assertEquals(LocalDateTime.parse(text, FORMATTER), TimestampCodec.parse(text));
+    assertEquals(timestamp, TimestampCodec.parse(text));
+  }
+
+  private static void assertSameOutcome(String text) {
+    LocalDateTime expected;
+    try {
+      expected = LocalDateTime.parse(text, FORMATTER);
+    } catch (DateTimeParseException e) {
+      assertThrows(DateTimeParseException.class, () -> TimestampCodec.parse(text), text);
+      return;
+    }
+    assertEquals(expected, TimestampCodec.parse(text), text);
+  }
+}
+
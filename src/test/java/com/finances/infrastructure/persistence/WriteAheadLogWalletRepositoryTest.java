@@ -0,0 +1,192 @@
+package com.finances.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.finances.core.domain.BudgetPeriod;
+import com.finances.core.domain.Transaction;
+import com.finances.core.domain.Wallet;
+import com.finances.core.service.BudgetService;
+import com.finances.core.service.TransactionService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WriteAheadLogWalletRepositoryTest {
+  private static final String USER_ID = "user";
+
+  @TempDir Path tempDir;
+
+  private FileStorage fileStorage;
+  private WriteAheadLogWalletRepository repository;
+  private TransactionService transactionService;
+  private BudgetService budgetService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    fileStorage = new FileStorage(tempDir.toString(), FileStorage.Format.SHARDED);
+    open();
+    repository.save(new Wallet(USER_ID));
+  }
+
+  @Test
+  void shouldRecoverMutationsAfterCrash() throws IOException {
+    transactionService.addIncome(USER_ID, "Salary", 5000.0, "");
+    transactionService.addExpense(USER_ID, "Food", 300.0, "Groceries");
+    budgetService.setBudget(USER_ID, "Food", 1000.0);
+    budgetService.setBudget(USER_ID, "Rent", 2000.0);
+    budgetService.removeBudget(USER_ID, "Rent");
+    Wallet before = repository.findByUserId(USER_ID).orElseThrow();
+
+    // Nothing but the log reached the storage since the wallet was registered
+    assertEquals(0, fileStorage.loadWallet(USER_ID).getTransactions().size());
+    open();
+
+    Wallet recovered = repository.findByUserId(USER_ID).orElseThrow();
+    assertEquals(before.getTransactions(), recovered.getTransactions());
+    assertEquals(4700.0, recovered.getBalance(), 1e-9);
+    assertEquals(1000.0, recovered.getBudget("Food").getLimit(), 1e-9);
+    assertNull(recovered.getBudget("Rent"));
+    assertEquals(before.getTransactions(), fileStorage.loadWallet(USER_ID).getTransactions());
+  }
+
+  @Test
+  void shouldRecoverBudgetPeriods() throws IOException {
+    budgetService.setBudget(USER_ID, "Food", 100.0, BudgetPeriod.monthly(true));
+    transactionService.addExpense(USER_ID, "Food", 30.0, "");
+    budgetService.setBudget(USER_ID, "Food", 150.0, BudgetPeriod.monthly(true));
+
+    open();
+
+    Wallet recovered = repository.findByUserId(USER_ID).orElseThrow();
+    assertEquals(BudgetPeriod.monthly(true), recovered.getBudget("Food").getPeriod());
+    assertEquals(150.0, recovered.getBudget("Food").getLimit(), 1e-9);
+    assertEquals(120.0, recovered.getBudgetStatus("Food").getRemaining(), 1e-9);
+  }
+
+  @Test
+  void shouldIgnoreTornTail() throws IOException {
+    transactionService.addExpense(USER_ID, "Food", 100.0, "");
+    transactionService.addExpense(USER_ID, "Food", 200.0, "");
+    Files.write(logPath(), new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    open();
+
+    assertEquals(300.0, repository.findByUserId(USER_ID).orElseThrow().getTotalExpense(), 1e-9);
+  }
+
+  @Test
+  void shouldNotDuplicateTransactionsAlreadyStored() throws IOException {
+    transactionService.addExpense(USER_ID, "Food", 100.0, "");
+    fileStorage.saveWallet(repository.findByUserId(USER_ID).orElseThrow());
+    transactionService.addExpense(USER_ID, "Food", 50.0, "");
+
+    open();
+
+    Wallet recovered = repository.findByUserId(USER_ID).orElseThrow();
+    assertEquals(2, recovered.getTransactions().size());
+    assertEquals(150.0, recovered.getTotalExpense(), 1e-9);
+  }
+
+  @Test
+  void shouldRecoverIdempotencyKeysFromLog() throws IOException {
+    Transaction first = transactionService.addExpense(USER_ID, "Food", 100.0, "", "import-1");
+
+    open();
+    Transaction retried = transactionService.addExpense(USER_ID, "Food", 100.0, "", "import-1");
+
+    assertEquals(first.getId(), retried.getId());
+    assertEquals(1, repository.findByUserId(USER_ID).orElseThrow().getTransactions().size());
+  }
+
+  @Test
+  void shouldLogClearedWalletAsReset() throws IOException {
+    transactionService.addExpense(USER_ID, "Food", 100.0, "");
+    Wallet wallet = repository.findByUserId(USER_ID).orElseThrow();
+    wallet.clear();
+    repository.save(wallet);
+    transactionService.addIncome(USER_ID, "Salary", 10.0, "");
+
+    open();
+
+    Wallet recovered = repository.findByUserId(USER_ID).orElseThrow();
+    assertEquals(wallet.getTransactions(), recovered.getTransactions());
+    assertEquals(0.0, recovered.getTotalExpense(), 1e-9);
+  }
+
+  @Test
+  void shouldCheckpointWhenLogGrows() throws IOException {
+    repository = new WriteAheadLogWalletRepository(fileStorage, 256);
+    transactionService = new TransactionService(repository);
+    repository.save(new Wallet(USER_ID));
+    long checkpoints = repository.getCheckpointCount();
+
+    for (int i = 0; i < 20; i++) {
+      transactionService.addExpense(USER_ID, "Food", 1.0, "");
+    }
+
+    assertTrue(repository.getCheckpointCount() > checkpoints);
+    assertTrue(Files.size(logPath()) < 256);
+    int stored = fileStorage.loadWallet(USER_ID).getTransactions().size();
+    assertTrue(stored > 0 && stored <= 20);
+  }
+
+  @Test
+  void shouldRecoverConcurrentSaves() throws Exception {
+    int threads = 4;
+    int perThread = 50;
+    for (int t = 0; t < threads; t++) {
+      repository.save(new Wallet("user" + t));
+    }
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      String userId = "user" + t;
+      Thread worker =
+          new Thread(
+              () -> {
+                for (int i = 0; i < perThread; i++) {
+                  transactionService.addExpense(userId, "Food", 1.0, "");
+                }
+              });
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    assertTrue(repository.getSyncCount() <= threads * perThread);
+    open();
+    for (int t = 0; t < threads; t++) {
+      Wallet recovered = repository.findByUserId("user" + t).orElseThrow();
+      assertEquals(perThread, recovered.getTransactions().size());
+    }
+  }
+
+  @Test
+  void shouldCheckpointOnClose() throws IOException {
+    transactionService.addExpense(USER_ID, "Food", 100.0, "");
+
+    repository.close();
+
+    assertEquals(0, Files.size(logPath()));
+    assertEquals(100.0, fileStorage.loadWallet(USER_ID).getTotalExpense(), 1e-9);
+  }
+
+  /** Opens a new repository on the same storage, as after a crash of the previous one. */
+  private void open() throws IOException {
+    repository = new WriteAheadLogWalletRepository(fileStorage);
+    transactionService = new TransactionService(repository);
+    budgetService = new BudgetService(repository);
+  }
+
+  private Path logPath() {
+    return tempDir.resolve(WriteAheadLogWalletRepository.LOG_FILE);
+  }
+}
+
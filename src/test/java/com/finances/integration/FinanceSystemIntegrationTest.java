@@ -56,6 +56,7 @@ class FinanceSystemIntegrationTest {
     fileStorage.deleteWallet(USER1);
     fileStorage.deleteWallet(USER2);
     new File(USER1 + "_export.csv").delete();
+    new File(USER1 + "_export.csv.hwm").delete();
     new File(USER1 + "_export.json").delete();
   }
 